@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.mtrop.doom.tools.DecoHackMain;
+import net.mtrop.doom.tools.decohack.DecoHackParser;
+import net.mtrop.doom.tools.decohack.contexts.AbstractPatchContext;
+import net.mtrop.doom.tools.exception.OptionParseException;
+
+/**
+ * DECOHack, end to end and by phase (parse, patch write), on a synthetic DSDHacked source.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecoHackBenchmark
+{
+	@Param({"100", "300"})
+	public int things;
+	@Param({"100"})
+	public int statesPerThing;
+
+	private File dir;
+	private File source;
+	private File output;
+	private byte[] sourceBytes;
+	private AbstractPatchContext<?> context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		dir = Fixtures.createDirectory("decohackbench");
+		source = new File(dir, "patch.dh");
+		output = new File(dir, "dehacked.deh");
+		Fixtures.writeDecoHackSource(source, things, statesPerThing);
+		sourceBytes = Files.readAllBytes(source.toPath());
+		context = parse().getContext();
+		if (context == null)
+			throw new IllegalStateException("Synthetic DECOHack source did not compile.");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		Fixtures.deleteDirectory(dir);
+	}
+
+	@Benchmark
+	public int decoHack() throws OptionParseException
+	{
+		DecoHackMain.Options options = DecoHackMain.options(Fixtures.NULL_PRINTSTREAM, Fixtures.NULL_PRINTSTREAM, System.in,
+			source.getPath(), DecoHackMain.SWITCH_OUTPUT, output.getPath()
+		);
+		return Fixtures.checkExit("DECOHack", DecoHackMain.call(options));
+	}
+
+	@Benchmark
+	public DecoHackParser.Result parse() throws IOException
+	{
+		return DecoHackParser.read(source.getName(), new ByteArrayInputStream(sourceBytes), StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public int writePatch() throws IOException
+	{
+		StringWriter writer = new StringWriter(4 * 1024 * 1024);
+		context.writePatch(writer, "benchmark");
+		return writer.getBuffer().length();
+	}
+
+}
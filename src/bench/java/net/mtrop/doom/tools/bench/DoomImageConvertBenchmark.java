@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.mtrop.doom.tools.DoomImageConvertMain;
+import net.mtrop.doom.tools.exception.OptionParseException;
+
+/**
+ * DImgConv, end to end: converts a synthetic PNG tree to Doom graphics, into a WAD and into a directory.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoomImageConvertBenchmark
+{
+	@Param({"4"})
+	public int directories;
+	@Param({"64"})
+	public int imagesPerDirectory;
+	@Param({"64", "256"})
+	public int size;
+
+	private File dir;
+	private File palette;
+	private File sourceDir;
+	private File outputWad;
+	private File outputDir;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		dir = Fixtures.createDirectory("dimgconvbench");
+		palette = new File(dir, "playpal.lmp");
+		sourceDir = new File(dir, "graphics");
+		outputWad = new File(dir, "out.wad");
+		outputDir = new File(dir, "out");
+		Fixtures.writePalette(palette);
+		Fixtures.writePNGTree(sourceDir, directories, imagesPerDirectory, size);
+	}
+
+	@Setup(Level.Invocation)
+	public void deleteOutput()
+	{
+		outputWad.delete();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		Fixtures.deleteDirectory(dir);
+	}
+
+	@Benchmark
+	public int toWad() throws OptionParseException
+	{
+		return convert(outputWad);
+	}
+
+	@Benchmark
+	public int toDirectory() throws OptionParseException
+	{
+		return convert(outputDir);
+	}
+
+	private int convert(File output) throws OptionParseException
+	{
+		DoomImageConvertMain.Options options = DoomImageConvertMain.options(Fixtures.NULL_PRINTSTREAM, Fixtures.NULL_PRINTSTREAM,
+			sourceDir.getPath(), DoomImageConvertMain.SWITCH_RECURSIVE,
+			DoomImageConvertMain.SWITCH_PALETTE, palette.getPath(),
+			DoomImageConvertMain.SWITCH_OUTPUT, output.getPath()
+		);
+		return Fixtures.checkExit("DImgConv", DoomImageConvertMain.call(options));
+	}
+
+}
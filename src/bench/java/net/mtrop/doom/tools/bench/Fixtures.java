@@ -0,0 +1,405 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import net.mtrop.doom.WadFile;
+import net.mtrop.doom.tools.struct.util.FileUtils;
+
+/**
+ * Synthetic benchmark fixtures: WADs with maps, patches, and textures, DEUTEX texture files,
+ * DECOHack sources, and PNG trees. All output is deterministic for the same parameters.
+ * <p>Running this class writes a default set of fixtures to a directory, for use outside of the benchmarks.
+ * @author Matthew Tropiano
+ */
+public final class Fixtures
+{
+	/** Rooms (square sectors) per map. */
+	private static final int ROOMS_PER_MAP = 100;
+	/** Patch width and height. */
+	private static final int PATCH_SIZE = 64;
+	/** Patches per texture. */
+	private static final int PATCHES_PER_TEXTURE = 2;
+	/** Palette length in bytes. */
+	private static final int PALETTE_LENGTH = 768;
+	/** Palettes in a PLAYPAL. */
+	private static final int PLAYPAL_COUNT = 14;
+	/** Flat length in bytes. */
+	private static final int FLAT_LENGTH = 4096;
+
+	/** A stream that discards all output. */
+	public static final PrintStream NULL_PRINTSTREAM = new PrintStream(new OutputStream()
+	{
+		@Override
+		public void write(int b) {}
+
+		@Override
+		public void write(byte[] b, int off, int len) {}
+	});
+
+	private Fixtures() {}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: Fixtures [directory]");
+			System.exit(1);
+			return;
+		}
+
+		File dir = new File(args[0]);
+		if (!FileUtils.createPath(dir.getPath()))
+		{
+			System.err.println("Could not create directory: " + dir.getPath());
+			System.exit(2);
+			return;
+		}
+
+		writeTextureWad(new File(dir, "maps.wad"), 32, 500, 1000);
+		writeDEUTEXFile(new File(dir, "textures.txt"), 1000, 500);
+		writeDecoHackSource(new File(dir, "patch.dh"), 300, 100);
+		writePalette(new File(dir, "playpal.lmp"));
+		writePNGTree(new File(dir, "graphics"), 8, 64, 64);
+		System.out.println("Wrote fixtures to " + dir.getPath());
+	}
+
+	/**
+	 * Creates a new temporary directory.
+	 * @param prefix the directory name prefix.
+	 * @return the new directory.
+	 * @throws IOException if the directory could not be created.
+	 */
+	public static File createDirectory(String prefix) throws IOException
+	{
+		return Files.createTempDirectory(prefix).toFile();
+	}
+
+	/**
+	 * Deletes a directory and everything in it.
+	 * @param dir the directory.
+	 */
+	public static void deleteDirectory(File dir)
+	{
+		if (dir != null && dir.exists())
+			FileUtils.deleteDirectory(dir, true);
+	}
+
+	/**
+	 * Checks a tool's return code.
+	 * @param tool the tool name, for the error message.
+	 * @param code the return code.
+	 * @return the return code, if zero.
+	 * @throws IllegalStateException if the return code is not zero.
+	 */
+	public static int checkExit(String tool, int code)
+	{
+		if (code != 0)
+			throw new IllegalStateException(tool + " returned " + code);
+		return code;
+	}
+
+	/**
+	 * Gets a file path as a quoted script token (with forward slashes, so that no escaping is needed).
+	 * @param file the file.
+	 * @return the quoted path.
+	 */
+	public static String quotedPath(File file)
+	{
+		return "\"" + file.getAbsolutePath().replace('\\', '/') + "\"";
+	}
+
+	/**
+	 * Writes a Doom-format WAD with a palette, patches, flats, textures, and maps that use them.
+	 * Patch names are <code>PT000000</code> and up, texture names are <code>TX000000</code> and up,
+	 * and flat names are <code>FL000000</code> and up (one flat for every four textures).
+	 * @param file the output file.
+	 * @param maps the amount of maps (1 to 99, <code>MAP01</code> and up).
+	 * @param patches the amount of patches.
+	 * @param textures the amount of textures.
+	 * @throws IOException if the file could not be written.
+	 * @throws IllegalArgumentException if an amount is out of range.
+	 */
+	public static void writeTextureWad(File file, int maps, int patches, int textures) throws IOException
+	{
+		if (maps < 1 || maps > 99)
+			throw new IllegalArgumentException("maps must be from 1 to 99");
+		if (patches < 1 || textures < 1)
+			throw new IllegalArgumentException("patches and textures must be at least 1");
+
+		int flats = Math.max(1, textures / 4);
+		try (WadFile wad = WadFile.createWadFile(file); WadFile.Adder adder = wad.createAdder())
+		{
+			adder.addData("PLAYPAL", createPlaypal());
+
+			adder.addData("P_START", new byte[0]);
+			byte[] patch = createPatch(PATCH_SIZE, PATCH_SIZE);
+			for (int i = 0; i < patches; i++)
+				adder.addData(name("PT", i), patch);
+			adder.addData("P_END", new byte[0]);
+
+			adder.addData("F_START", new byte[0]);
+			for (int i = 0; i < flats; i++)
+				adder.addData(name("FL", i), createFlat(i));
+			adder.addData("F_END", new byte[0]);
+
+			adder.addData("PNAMES", createPatchNames(patches));
+			adder.addData("TEXTURE1", createTextureList(textures, patches));
+
+			for (int m = 1; m <= maps; m++)
+				addMap(adder, String.format("MAP%02d", m), m, textures, flats);
+		}
+	}
+
+	/**
+	 * Writes a DEUTEX texture file, with textures that use patches named <code>PT000000</code> and up.
+	 * @param file the output file.
+	 * @param textures the amount of textures.
+	 * @param patches the amount of distinct patches.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeDEUTEXFile(File file, int textures, int patches) throws IOException
+	{
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))
+		{
+			writer.append("; synthetic\n\n");
+			for (int t = 0; t < textures; t++)
+			{
+				writer.append(name("TX", t)).append(' ').append(String.valueOf(PATCH_SIZE * PATCHES_PER_TEXTURE)).append(' ').append(String.valueOf(PATCH_SIZE)).append('\n');
+				for (int p = 0; p < PATCHES_PER_TEXTURE; p++)
+					writer.append("*\t").append(name("PT", (t * PATCHES_PER_TEXTURE + p) % patches)).append(' ').append(String.valueOf(p * PATCH_SIZE)).append(" 0\n");
+				writer.append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Writes a DECOHack source file for DSDHacked, with things that each have one looping spawn state sequence.
+	 * @param file the output file.
+	 * @param things the amount of things.
+	 * @param statesPerThing the amount of states per thing (rounded up to a multiple of 4).
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeDecoHackSource(File file, int things, int statesPerThing) throws IOException
+	{
+		int lines = Math.max(1, (statesPerThing + 3) / 4);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))
+		{
+			writer.append("#include <dsdhacked>\n\n");
+			for (int t = 0; t < things; t++)
+			{
+				writer.append("thing ").append(String.valueOf(1000 + t)).append(" \"Synthetic").append(String.valueOf(t)).append("\"\n");
+				writer.append("{\n\thealth ").append(String.valueOf(10 + t)).append("\n\tstates\n\t{\n\tspawn:\n");
+				for (int f = 0; f < lines; f++)
+					writer.append("\t\tTROO ABCD ").append(String.valueOf(1 + (f % 4))).append('\n');
+				writer.append("\t\tloop\n\t}\n}\n\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a single palette lump (the first palette of the synthetic PLAYPAL).
+	 * @param file the output file.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writePalette(File file) throws IOException
+	{
+		try (OutputStream out = new FileOutputStream(file))
+		{
+			out.write(createPlaypal(), 0, PALETTE_LENGTH);
+		}
+	}
+
+	/**
+	 * Writes a tree of PNG images that use only colors from the synthetic palette.
+	 * @param dir the root directory (created if it does not exist).
+	 * @param directories the amount of subdirectories.
+	 * @param imagesPerDirectory the amount of images in each subdirectory.
+	 * @param size the width and height of each image.
+	 * @throws IOException if a file could not be written.
+	 */
+	public static void writePNGTree(File dir, int directories, int imagesPerDirectory, int size) throws IOException
+	{
+		byte[] palette = createPlaypal();
+		for (int d = 0; d < directories; d++)
+		{
+			File subdir = new File(dir, "dir" + d);
+			if (!FileUtils.createPath(subdir.getPath()))
+				throw new IOException("Could not create directory: " + subdir.getPath());
+			for (int i = 0; i < imagesPerDirectory; i++)
+			{
+				BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+				for (int y = 0; y < size; y++)
+					for (int x = 0; x < size; x++)
+					{
+						int c = ((x + y + i + d) & 0xff) * 3;
+						image.setRGB(x, y, 0xff000000 | (palette[c] & 0xff) << 16 | (palette[c + 1] & 0xff) << 8 | (palette[c + 2] & 0xff));
+					}
+				ImageIO.write(image, "PNG", new File(subdir, name("GR", d * imagesPerDirectory + i) + ".png"));
+			}
+		}
+	}
+
+	// Creates an 8-character entry name.
+	private static String name(String prefix, int index)
+	{
+		return String.format("%s%06d", prefix, index);
+	}
+
+	private static ByteBuffer buffer(int length)
+	{
+		return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void putName(ByteBuffer buf, String name)
+	{
+		byte[] b = name.getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < 8; i++)
+			buf.put(i < b.length ? b[i] : 0);
+	}
+
+	private static byte[] createPlaypal()
+	{
+		byte[] out = new byte[PALETTE_LENGTH * PLAYPAL_COUNT];
+		for (int p = 0; p < PLAYPAL_COUNT; p++)
+			for (int i = 0; i < 256; i++)
+			{
+				int o = p * PALETTE_LENGTH + i * 3;
+				out[o] = (byte)i;
+				out[o + 1] = (byte)((i * 7) & 0xff);
+				out[o + 2] = (byte)((i * 13) & 0xff);
+			}
+		return out;
+	}
+
+	// Doom patch format: one post per column.
+	private static byte[] createPatch(int width, int height)
+	{
+		int columnLength = height + 5;
+		ByteBuffer buf = buffer(8 + width * 4 + width * columnLength);
+		buf.putShort((short)width).putShort((short)height).putShort((short)(width / 2)).putShort((short)(height - 4));
+		for (int x = 0; x < width; x++)
+			buf.putInt(8 + width * 4 + x * columnLength);
+		for (int x = 0; x < width; x++)
+		{
+			buf.put((byte)0).put((byte)height).put((byte)0);
+			for (int y = 0; y < height; y++)
+				buf.put((byte)(x ^ y));
+			buf.put((byte)0).put((byte)0xff);
+		}
+		return buf.array();
+	}
+
+	private static byte[] createFlat(int index)
+	{
+		byte[] out = new byte[FLAT_LENGTH];
+		for (int i = 0; i < FLAT_LENGTH; i++)
+			out[i] = (byte)(i + index);
+		return out;
+	}
+
+	private static byte[] createPatchNames(int patches)
+	{
+		ByteBuffer buf = buffer(4 + patches * 8);
+		buf.putInt(patches);
+		for (int i = 0; i < patches; i++)
+			putName(buf, name("PT", i));
+		return buf.array();
+	}
+
+	// Doom TEXTURE1 format.
+	private static byte[] createTextureList(int textures, int patches)
+	{
+		int textureLength = 22 + PATCHES_PER_TEXTURE * 10;
+		ByteBuffer buf = buffer(4 + textures * 4 + textures * textureLength);
+		buf.putInt(textures);
+		for (int t = 0; t < textures; t++)
+			buf.putInt(4 + textures * 4 + t * textureLength);
+		for (int t = 0; t < textures; t++)
+		{
+			putName(buf, name("TX", t));
+			buf.putInt(0);
+			buf.putShort((short)(PATCH_SIZE * PATCHES_PER_TEXTURE)).putShort((short)PATCH_SIZE);
+			buf.putInt(0);
+			buf.putShort((short)PATCHES_PER_TEXTURE);
+			for (int p = 0; p < PATCHES_PER_TEXTURE; p++)
+			{
+				buf.putShort((short)(p * PATCH_SIZE)).putShort((short)0);
+				buf.putShort((short)((t * PATCHES_PER_TEXTURE + p) % patches));
+				buf.putShort((short)1).putShort((short)0);
+			}
+		}
+		return buf.array();
+	}
+
+	// Doom-format map: a row of square rooms, each with one-sided walls.
+	private static void addMap(WadFile.Adder adder, String header, int map, int textures, int flats) throws IOException
+	{
+		int rooms = ROOMS_PER_MAP;
+		ByteBuffer things = buffer(rooms * 10);
+		ByteBuffer linedefs = buffer(rooms * 4 * 14);
+		ByteBuffer sidedefs = buffer(rooms * 4 * 30);
+		ByteBuffer vertices = buffer(rooms * 4 * 4);
+		ByteBuffer sectors = buffer(rooms * 26);
+
+		for (int r = 0; r < rooms; r++)
+		{
+			int x = r * 256;
+			vertices.putShort((short)x).putShort((short)0);
+			vertices.putShort((short)x).putShort((short)128);
+			vertices.putShort((short)(x + 128)).putShort((short)128);
+			vertices.putShort((short)(x + 128)).putShort((short)0);
+
+			for (int l = 0; l < 4; l++)
+			{
+				int v = r * 4;
+				linedefs.putShort((short)(v + l)).putShort((short)(v + ((l + 1) % 4)));
+				linedefs.putShort((short)1).putShort((short)0).putShort((short)0);
+				linedefs.putShort((short)(r * 4 + l)).putShort((short)-1);
+
+				sidedefs.putShort((short)0).putShort((short)0);
+				putName(sidedefs, "-");
+				putName(sidedefs, "-");
+				putName(sidedefs, name("TX", (map * 31 + r * 7 + l) % textures));
+				sidedefs.putShort((short)r);
+			}
+
+			sectors.putShort((short)0).putShort((short)128);
+			putName(sectors, name("FL", (map * 17 + r) % flats));
+			putName(sectors, name("FL", (map * 17 + r + 1) % flats));
+			sectors.putShort((short)160).putShort((short)0).putShort((short)0);
+
+			things.putShort((short)(x + 64)).putShort((short)64).putShort((short)0).putShort((short)(r == 0 ? 1 : 3004)).putShort((short)7);
+		}
+
+		adder.addData(header, new byte[0]);
+		adder.addData("THINGS", things.array());
+		adder.addData("LINEDEFS", linedefs.array());
+		adder.addData("SIDEDEFS", sidedefs.array());
+		adder.addData("VERTEXES", vertices.array());
+		adder.addData("SEGS", new byte[0]);
+		adder.addData("SSECTORS", new byte[0]);
+		adder.addData("NODES", new byte[0]);
+		adder.addData("SECTORS", sectors.array());
+		adder.addData("REJECT", new byte[0]);
+		adder.addData("BLOCKMAP", new byte[0]);
+	}
+
+}
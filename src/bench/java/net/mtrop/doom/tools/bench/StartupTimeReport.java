@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reports the startup time of each tool (running its help), with and without a class-data-sharing archive.
+ * A training run of each tool makes its archive first (needs Java 13 or higher).
+ * <p>Arguments: the DoomTools JAR, the directory for the archives, and an optional run count.
+ * <p>The GUI is not included: it cannot run without a display, and its archive is made on its first launch.
+ * <p>This is not a JMH benchmark - it times whole JVM launches. Run it with <code>ant cds.report</code>.
+ * @author Matthew Tropiano
+ */
+public final class StartupTimeReport
+{
+	private static final String[] MAIN_CLASSES = {
+		"net.mtrop.doom.tools.DoomToolsMain",
+		"net.mtrop.doom.tools.WadMergeMain",
+		"net.mtrop.doom.tools.WSwAnTablesMain",
+		"net.mtrop.doom.tools.WADTexMain",
+		"net.mtrop.doom.tools.WTexScanMain",
+		"net.mtrop.doom.tools.WTExportMain",
+		"net.mtrop.doom.tools.WadScriptMain",
+		"net.mtrop.doom.tools.DecoHackMain",
+		"net.mtrop.doom.tools.DMXConvertMain",
+		"net.mtrop.doom.tools.DoomImageConvertMain",
+		"net.mtrop.doom.tools.DoomMakeMain",
+	};
+
+	private static final int DEFAULT_RUNS = 5;
+
+	/** Where tool output goes. */
+	private static File outputFile;
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: StartupTimeReport [jar] [archive dir] [runs]");
+			System.exit(1);
+			return;
+		}
+
+		String jar = args[0];
+		File archiveDir = new File(args[1]);
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		if (!archiveDir.isDirectory() && !archiveDir.mkdirs())
+		{
+			System.err.println("Could not create directory: " + archiveDir.getPath());
+			System.exit(2);
+			return;
+		}
+		outputFile = new File(archiveDir, "output.txt");
+
+		System.out.println("Java " + System.getProperty("java.version") + ", best of " + runs + " runs:");
+		System.out.printf("%-24s %12s %12s %8s\n", "Tool", "Default (ms)", "AppCDS (ms)", "Change");
+		for (String mainClass : MAIN_CLASSES)
+		{
+			String simpleName = mainClass.substring(mainClass.lastIndexOf('.') + 1);
+			File archive = new File(archiveDir, simpleName + ".jsa");
+			archive.delete();
+
+			// Training run.
+			run(java, "-XX:ArchiveClassesAtExit=" + archive.getPath(), "-cp", jar, mainClass, "--help");
+			if (!archive.exists())
+			{
+				System.out.printf("%-24s (no archive made)\n", simpleName);
+				continue;
+			}
+
+			long before = Long.MAX_VALUE;
+			long after = Long.MAX_VALUE;
+			for (int i = 0; i < runs; i++)
+			{
+				before = Math.min(before, run(java, "-cp", jar, mainClass, "--help"));
+				after = Math.min(after, run(java, "-XX:SharedArchiveFile=" + archive.getPath(), "-cp", jar, mainClass, "--help"));
+			}
+
+			System.out.printf("%-24s %12.1f %12.1f %7.1f%%\n",
+				simpleName, before / 1000000.0, after / 1000000.0, (after - before) * 100.0 / before
+			);
+		}
+	}
+
+	// Returns the time taken in nanoseconds.
+	private static long run(String ... command) throws IOException, InterruptedException
+	{
+		ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(outputFile);
+		long nanos = System.nanoTime();
+		builder.start().waitFor();
+		return System.nanoTime() - nanos;
+	}
+
+}
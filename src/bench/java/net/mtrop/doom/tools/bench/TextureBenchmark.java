@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.mtrop.doom.texture.DoomTextureList;
+import net.mtrop.doom.texture.PatchNames;
+import net.mtrop.doom.texture.TextureSet;
+import net.mtrop.doom.tools.WTexScanMain;
+import net.mtrop.doom.tools.common.ParseException;
+import net.mtrop.doom.tools.common.Utility;
+import net.mtrop.doom.tools.exception.OptionParseException;
+
+/**
+ * Texture handling: DEUTEX texture file reading and writing, and WTexScan on a synthetic map WAD.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextureBenchmark
+{
+	@Param({"8", "32"})
+	public int maps;
+	@Param({"1000", "10000"})
+	public int textures;
+
+	private File dir;
+	private File wad;
+	private String deutexSource;
+	private TextureSet textureSet;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, ParseException
+	{
+		dir = Fixtures.createDirectory("texturebench");
+		wad = new File(dir, "maps.wad");
+		File textureFile = new File(dir, "textures.txt");
+		Fixtures.writeTextureWad(wad, maps, textures / 2, textures);
+		Fixtures.writeDEUTEXFile(textureFile, textures, textures / 2);
+		deutexSource = new String(Files.readAllBytes(textureFile.toPath()), StandardCharsets.UTF_8);
+		textureSet = readDEUTEX();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		Fixtures.deleteDirectory(dir);
+	}
+
+	@Benchmark
+	public TextureSet readDEUTEX() throws IOException, ParseException
+	{
+		return Utility.readDEUTEXFile(new BufferedReader(new StringReader(deutexSource)), new PatchNames(), new DoomTextureList(128));
+	}
+
+	@Benchmark
+	public int writeDEUTEX() throws IOException
+	{
+		StringWriter writer = new StringWriter(deutexSource.length());
+		Utility.writeDEUTEXFile(textureSet, "; benchmark", new PrintWriter(writer, true));
+		return writer.getBuffer().length();
+	}
+
+	@Benchmark
+	public int wTexScan() throws OptionParseException
+	{
+		WTexScanMain.Options options = WTexScanMain.options(Fixtures.NULL_PRINTSTREAM, Fixtures.NULL_PRINTSTREAM,
+			WTexScanMain.SWITCH_QUIET, wad.getPath()
+		);
+		return Fixtures.checkExit("WTexScan", WTexScanMain.call(options));
+	}
+
+}
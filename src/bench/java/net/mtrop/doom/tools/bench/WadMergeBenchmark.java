@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.mtrop.doom.tools.WadMergeMain;
+import net.mtrop.doom.tools.exception.OptionParseException;
+
+/**
+ * WadMerge, end to end: merges a synthetic WAD and DEUTEX texture file into two buffers,
+ * merges those together, and writes the result.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WadMergeBenchmark
+{
+	@Param({"8", "32"})
+	public int maps;
+	@Param({"1000"})
+	public int textures;
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	private File dir;
+	private File script;
+	private File output;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		dir = Fixtures.createDirectory("wadmergebench");
+		File wad = new File(dir, "maps.wad");
+		File textureFile = new File(dir, "textures.txt");
+		output = new File(dir, "out.wad");
+		script = new File(dir, "merge.txt");
+
+		Fixtures.writeTextureWad(wad, maps, textures / 2, textures);
+		Fixtures.writeDEUTEXFile(textureFile, textures, textures / 2);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(script), StandardCharsets.UTF_8))
+		{
+			writer.append("create maps\n");
+			writer.append("mergewad maps ").append(Fixtures.quotedPath(wad)).append('\n');
+			writer.append("create textures\n");
+			writer.append("mergedeutexfile textures ").append(Fixtures.quotedPath(textureFile)).append(" TEXTURE2\n");
+			writer.append("merge maps textures\n");
+			writer.append("finish maps ").append(Fixtures.quotedPath(output)).append('\n');
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void deleteOutput()
+	{
+		output.delete();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		Fixtures.deleteDirectory(dir);
+	}
+
+	@Benchmark
+	public int wadMerge() throws OptionParseException
+	{
+		WadMergeMain.Options options = parallel
+			? WadMergeMain.options(Fixtures.NULL_PRINTSTREAM, Fixtures.NULL_PRINTSTREAM, System.in, WadMergeMain.SWITCH_PARALLEL, script.getPath())
+			: WadMergeMain.options(Fixtures.NULL_PRINTSTREAM, Fixtures.NULL_PRINTSTREAM, System.in, script.getPath())
+		;
+		return Fixtures.checkExit("WadMerge", WadMergeMain.call(options));
+	}
+
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.gui.managers.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.fife.ui.autocomplete.Completion;
+import org.fife.ui.autocomplete.CompletionProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.mtrop.doom.tools.bench.Fixtures;
+
+/**
+ * Editor completion providers: a full build versus a load from a completion index, and reading every summary.
+ * In the providers' package, for {@link CommonCompletionProvider#getAllCompletions()}.
+ * @author Matthew Tropiano
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompletionIndexBenchmark
+{
+	private static final String KEY = "benchmark";
+
+	@Param({"decohack", "rookscript", "wadscript", "doommake", "wadmerge"})
+	public String provider;
+
+	private File dir;
+	private File indexFile;
+	private Supplier<? extends CommonCompletionProvider> builder;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		dir = Fixtures.createDirectory("completionbench");
+		indexFile = new File(dir, provider + ".idx");
+		builder = getBuilder(provider);
+		CompletionIndex.load(indexFile, KEY, builder);
+		if (!indexFile.isFile())
+			throw new IllegalStateException("Completion index was not written: " + indexFile.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		Fixtures.deleteDirectory(dir);
+	}
+
+	@Benchmark
+	public CompletionProvider build()
+	{
+		return builder.get();
+	}
+
+	@Benchmark
+	public CompletionProvider load()
+	{
+		return CompletionIndex.load(indexFile, KEY, builder);
+	}
+
+	@Benchmark
+	public int loadAllSummaries()
+	{
+		int out = 0;
+		for (Completion completion : ((CommonCompletionProvider)load()).getAllCompletions())
+		{
+			String summary = completion.getSummary();
+			out += summary != null ? summary.length() : 0;
+		}
+		return out;
+	}
+
+	private static Supplier<? extends CommonCompletionProvider> getBuilder(String name)
+	{
+		switch (name)
+		{
+			case "decohack":
+				return DecoHackCompletionProvider::new;
+			case "rookscript":
+				return RookScriptCompletionProvider::new;
+			case "wadscript":
+				return WadScriptCompletionProvider::new;
+			case "doommake":
+				return DoomMakeCompletionProvider::new;
+			case "wadmerge":
+				return WadMergeCompletionProvider::new;
+			default:
+				throw new IllegalArgumentException("Unknown provider: " + name);
+		}
+	}
+
+}
@@ -7,22 +7,32 @@ package net.mtrop.doom.tools;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
-import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
-import net.mtrop.doom.sound.DMXSound;
+import net.mtrop.doom.tools.dmxconv.DMXConverter;
 import net.mtrop.doom.tools.exception.OptionParseException;
 import net.mtrop.doom.tools.gui.DoomToolsGUIMain;
 import net.mtrop.doom.tools.gui.DoomToolsGUIMain.ApplicationNames;
@@ -58,6 +68,11 @@ public final class DMXConvertMain
 	public static final String SWITCH_FFMPEG_PATH = "--ffmpeg";
 	public static final String SWITCH_OUTPUTDIR = "--output-dir";
 	public static final String SWITCH_OUTPUTDIR2 = "-o";
+	public static final String SWITCH_THREADS = "--threads";
+	public static final String SWITCH_THREADS2 = "-t";
+	public static final String SWITCH_MAX_FFMPEG = "--max-ffmpeg";
+	public static final String SWITCH_RATE = "--rate";
+	public static final String SWITCH_RATE2 = "-r";
 
 	/**
 	 * Program options.
@@ -77,6 +92,9 @@ public final class DMXConvertMain
 		private boolean onlyJSPI;
 		private File ffmpegPath;
 		private File outputDirectory;
+		private int threads;
+		private int maxFFmpeg;
+		private int sampleRate;
 		
 		private Options()
 		{
@@ -92,6 +110,9 @@ public final class DMXConvertMain
 			this.onlyJSPI = false;
 			this.ffmpegPath = null;
 			this.outputDirectory = null;
+			this.threads = Runtime.getRuntime().availableProcessors();
+			this.maxFFmpeg = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+			this.sampleRate = 0;
 		}
 
 		public Options setStdout(OutputStream out) 
@@ -130,6 +151,24 @@ public final class DMXConvertMain
 			return this;
 		}
 		
+		public Options setThreads(int threads) 
+		{
+			this.threads = threads;
+			return this;
+		}
+		
+		public Options setMaxFFmpeg(int maxFFmpeg) 
+		{
+			this.maxFFmpeg = maxFFmpeg;
+			return this;
+		}
+		
+		public Options setSampleRate(int sampleRate) 
+		{
+			this.sampleRate = sampleRate;
+			return this;
+		}
+		
 		public Options addInputFile(File file)
 		{
 			this.sourceFiles.add(file);
@@ -144,6 +183,8 @@ public final class DMXConvertMain
 	private static class Context implements Callable<Integer>
 	{
 		private static final File NULL_FILE = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+		/** Set of FFmpeg executable paths that could be run. Failures are not kept, so they are retried. */
+		private static final Set<String> FFMPEG_DETECTED = ConcurrentHashMap.newKeySet();
 		
 		private Options options;
 	
@@ -209,6 +250,19 @@ public final class DMXConvertMain
 				return ERROR_NO_FILES;
 			}
 			
+			// Parallel conversions must not write the same file.
+			Map<File, File> outputSources = new HashMap<>();
+			for (File f : options.sourceFiles)
+			{
+				File outputFile = getOutputFile(f);
+				File previous;
+				if ((previous = outputSources.putIfAbsent(outputFile.getAbsoluteFile().toPath().normalize().toFile(), f)) != null)
+				{
+					options.stderr.printf("ERROR: %s and %s would both be converted to %s.\n", previous.getPath(), f.getPath(), outputFile.getPath());
+					return ERROR_BAD_OPTIONS;
+				}
+			}
+			
 			boolean useFFmpeg = true;
 			if (!options.onlyJSPI)
 			{
@@ -221,94 +275,149 @@ public final class DMXConvertMain
 			boolean searchFFmpeg = !options.onlyJSPI && useFFmpeg;
 			int convertedCount = 0;
 			
-			for (File f : options.sourceFiles)
+			int threads = Math.max(1, Math.min(options.threads, options.sourceFiles.size()));
+			Semaphore ffmpegPermits = new Semaphore(Math.max(1, options.maxFFmpeg));
+			ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+				Thread out = new Thread(runnable);
+				out.setName("DMXConvWorker-" + out.getId());
+				out.setDaemon(true);
+				return out;
+			});
+			
+			try
 			{
-				AudioInputStream ais = null;
-				if (searchSPI)
+				List<Future<Conversion>> conversions = new ArrayList<>(options.sourceFiles.size());
+				for (File f : options.sourceFiles)
+					conversions.add(executor.submit(() -> convertFile(f, searchSPI, searchFFmpeg, ffmpegPermits)));
+				
+				// Print results in input order.
+				for (Future<Conversion> future : conversions)
 				{
+					Conversion conversion;
 					try {
-						ais = openSPIAudioStreamForFile(f);
-					} catch (IOException e) {
-						options.stderr.printf("ERROR: Could not read %s.\n", f.getPath());
+						conversion = future.get();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						options.stderr.println("ERROR: Conversion interrupted.");
+						break;
+					} catch (ExecutionException e) {
+						options.stderr.printf("ERROR: Conversion failed: %s\n", e.getCause().getLocalizedMessage());
+						continue;
 					}
+					options.stdout.print(conversion.getOutput());
+					options.stderr.print(conversion.getErrors());
+					if (conversion.success)
+						convertedCount++;
 				}
+			}
+			finally
+			{
+				executor.shutdownNow();
+			}
+
+			options.stdout.printf("%d of %d file(s) converted.\n", convertedCount, options.sourceFiles.size());
+			return convertedCount == options.sourceFiles.size() ? ERROR_NONE : ERROR_CONVERSION_SKIPPED;
+		}
+		
+		// Converts a single file. Output is collected in the returned conversion.
+		private Conversion convertFile(File f, boolean searchSPI, boolean searchFFmpeg, Semaphore ffmpegPermits) throws InterruptedException
+		{
+			Conversion conversion = new Conversion();
+			PrintStream stdout = conversion.stdout;
+			PrintStream stderr = conversion.stderr;
 
+			AudioInputStream ais = null;
+			if (searchSPI)
+			{
+				try {
+					ais = openSPIAudioStreamForFile(f);
+				} catch (IOException e) {
+					stderr.printf("ERROR: Could not read %s.\n", f.getPath());
+				}
+			}
+
+			boolean ffmpegPermit = false;
+			try
+			{
 				if (ais == null && searchFFmpeg)
 				{
+					ffmpegPermits.acquire();
+					ffmpegPermit = true;
 					try {
-						ais = openFFmpegAudioStreamForFile(options.ffmpegPath, f);
+						ais = openFFmpegAudioStreamForFile(options.ffmpegPath, f, stdout, stderr);
 					} catch (IOException e) {
-						options.stderr.printf("I/O ERROR: FFmpeg: %s\n", e.getLocalizedMessage());
-						options.stderr.printf("ERROR: Could not read %s.\n", f.getPath());
+						stderr.printf("I/O ERROR: FFmpeg: %s\n", e.getLocalizedMessage());
+						stderr.printf("ERROR: Could not read %s.\n", f.getPath());
 						IOUtils.close(ais);
 					}
 				}
 				
 				if (ais == null)
 				{
-					options.stderr.printf("ERROR: Could not find decoder for %s. Skipping...\n", f.getPath());
-					continue;
+					stderr.printf("ERROR: Could not find decoder for %s. Skipping...\n", f.getPath());
+					return conversion;
 				}
 				
-				String outName = FileUtils.getFileNameWithoutExtension(f) + ".dmx";
-				File outputFile = options.outputDirectory != null
-					? new File(options.outputDirectory + File.separator + outName) 
-					: new File((f.getParent() == null ? "." + File.separator : f.getParent() + File.separator) + outName);
+				File outputFile = getOutputFile(f);
 				
-				if (!FileUtils.createPathForFile(outputFile))
+				if (!createPathForFile(outputFile))
 				{
-					options.stderr.printf("ERROR: Could not create path for %s. Skipping...\n", outputFile);
-					continue;
+					stderr.printf("ERROR: Could not create path for %s. Skipping...\n", outputFile);
+					IOUtils.close(ais);
+					return conversion;
 				}
 					
-				try (AudioInputStream decoded = getDecoderStream(ais))
+				try (AudioInputStream decoded = ais)
 				{
-					AudioFormat format = decoded.getFormat();
-					byte[] sample = new byte[1];
-					
-					DMXSound dmx = new DMXSound((int)format.getSampleRate());
-					
-					while (decoded.read(sample) > 0)
-						dmx.addSample((double)((sample[0] & 0x0ff) - 128) / 128.0);
+					byte[] dmx;
+					try (ByteArrayOutputStream bos = new ByteArrayOutputStream())
+					{
+						DMXConverter.convert(decoded, bos, options.sampleRate);
+						dmx = bos.toByteArray();
+					}
 					
 					try (FileOutputStream fos = new FileOutputStream(outputFile))
 					{
-						dmx.writeBytes(fos);
-						options.stdout.printf("Wrote %s.\n", outputFile.getPath());
-						convertedCount++;
+						fos.write(dmx);
+						stdout.printf("Wrote %s.\n", outputFile.getPath());
+						conversion.success = true;
 					} 
 					catch (IOException e) 
 					{
-						options.stderr.printf("ERROR: Could not write %s.\n", outputFile.getPath());
+						stderr.printf("ERROR: Could not write %s.\n", outputFile.getPath());
 					}
 					catch (SecurityException e) 
 					{
-						options.stderr.printf("ERROR: Could not write %s (ACCESS DENIED).\n", outputFile.getPath());
+						stderr.printf("ERROR: Could not write %s (ACCESS DENIED).\n", outputFile.getPath());
 					}
 				} 
 				catch (IOException e) 
 				{
-					options.stderr.printf("ERROR: Could not open decoder for %s.\n", f.getPath());
+					stderr.printf("ERROR: Could not open decoder for %s.\n", f.getPath());
 				}
+				return conversion;
 			}
-
-			options.stdout.printf("%d of %d file(s) converted.\n", convertedCount, options.sourceFiles.size());
-			return convertedCount == options.sourceFiles.size() ? ERROR_NONE : ERROR_CONVERSION_SKIPPED;
+			finally
+			{
+				if (ffmpegPermit)
+					ffmpegPermits.release();
+			}
+		}
+		
+		// Gets the output file for a source file.
+		private File getOutputFile(File f)
+		{
+			String outName = FileUtils.getFileNameWithoutExtension(f) + ".dmx";
+			return options.outputDirectory != null
+				? new File(options.outputDirectory + File.separator + outName) 
+				: new File((f.getParent() == null ? "." + File.separator : f.getParent() + File.separator) + outName);
 		}
 		
-		// Wraps an audio stream into a decoder. 
-		private AudioInputStream getDecoderStream(AudioInputStream inputStream) throws IOException
+		// Creates the parent directories of a file.
+		// Synchronized so that concurrent conversions do not race on the same directories.
+		private static synchronized boolean createPathForFile(File file)
 		{
-			AudioFormat format = inputStream.getFormat();
-			return AudioSystem.getAudioInputStream(new AudioFormat(
-				AudioFormat.Encoding.PCM_UNSIGNED,
-				format.getSampleRate(), 
-				8, // bits per sample
-				1, // one channel
-				1, // one byte per frame
-				format.getSampleRate(),
-				false // LE
-			), inputStream);
+			return FileUtils.createPathForFile(file);
 		}
 
 		// Opens an audio stream 
@@ -323,11 +432,11 @@ public final class DMXConvertMain
 		
 		// Opens an audio stream via FFmpeg
 		// Throws SecurityException or UnsupportedAudioFileException
-		private AudioInputStream openFFmpegAudioStreamForFile(File ffmpegPath, File input) throws IOException
+		private AudioInputStream openFFmpegAudioStreamForFile(File ffmpegPath, File input, PrintStream stdout, PrintStream stderr) throws IOException
 		{
 			String exe = ffmpegPath != null ? ffmpegPath.getAbsolutePath() : "ffmpeg";
 
-			options.stdout.println("Calling FFmpeg...");
+			stdout.println("Calling FFmpeg...");
 			
 			Process proc = (new ProcessBuilder())
 				.command(
@@ -339,19 +448,57 @@ public final class DMXConvertMain
 			try {
 				return AudioSystem.getAudioInputStream(new BufferedInputStream(proc.getInputStream()));
 			} catch (UnsupportedAudioFileException e) {
-				options.stderr.printf("UNSUPPORTED: Java via FFmpeg: %s\n", e.getLocalizedMessage());
+				stderr.printf("UNSUPPORTED: Java via FFmpeg: %s\n", e.getLocalizedMessage());
+				proc.destroy();
 				return null;
 			}
 		}
 		
-		private boolean detectFFmpeg(File ffmpegPath)
+		// Checks if FFmpeg can be run. Only successes are cached (for the life of the JVM), 
+		// so that FFmpeg installed after a failed check is found on the next one.
+		private static boolean detectFFmpeg(File ffmpegPath)
 		{
-			try {
-				ProcessCallable.create(ffmpegPath != null ? ffmpegPath.getAbsolutePath() : "ffmpeg").call();
+			String exe = ffmpegPath != null ? ffmpegPath.getAbsolutePath() : "ffmpeg";
+			if (FFMPEG_DETECTED.contains(exe))
 				return true;
+			try {
+				ProcessCallable.create(exe).call();
 			} catch (Exception e) {
 				return false;
 			}
+			FFMPEG_DETECTED.add(exe);
+			return true;
+		}
+		
+		/**
+		 * A single file conversion result.
+		 */
+		private static class Conversion
+		{
+			private final ByteArrayOutputStream outBuffer;
+			private final ByteArrayOutputStream errBuffer;
+			private final PrintStream stdout;
+			private final PrintStream stderr;
+			private boolean success;
+			
+			private Conversion()
+			{
+				this.outBuffer = new ByteArrayOutputStream();
+				this.errBuffer = new ByteArrayOutputStream();
+				this.stdout = new PrintStream(outBuffer, true);
+				this.stderr = new PrintStream(errBuffer, true);
+				this.success = false;
+			}
+			
+			private String getOutput()
+			{
+				return outBuffer.toString();
+			}
+			
+			private String getErrors()
+			{
+				return errBuffer.toString();
+			}
 		}
 		
 	}
@@ -373,6 +520,9 @@ public final class DMXConvertMain
 		final int STATE_START = 0;
 		final int STATE_FFMPEG = 1;
 		final int STATE_OUTPUTDIR = 2;
+		final int STATE_THREADS = 3;
+		final int STATE_MAX_FFMPEG = 4;
+		final int STATE_RATE = 5;
 		int state = STATE_START;
 		
 		for (int i = 0; i < args.length; i++)
@@ -401,6 +551,12 @@ public final class DMXConvertMain
 						state = STATE_FFMPEG;
 					else if (arg.equals(SWITCH_OUTPUTDIR) || arg.equals(SWITCH_OUTPUTDIR2))
 						state = STATE_OUTPUTDIR;
+					else if (arg.equals(SWITCH_THREADS) || arg.equals(SWITCH_THREADS2))
+						state = STATE_THREADS;
+					else if (arg.equals(SWITCH_MAX_FFMPEG))
+						state = STATE_MAX_FFMPEG;
+					else if (arg.equals(SWITCH_RATE) || arg.equals(SWITCH_RATE2))
+						state = STATE_RATE;
 					else
 						options.sourceFiles.add(new File(arg));
 				}
@@ -419,6 +575,51 @@ public final class DMXConvertMain
 					state = STATE_START;
 				}
 				break;
+
+				case STATE_THREADS:
+				{
+					int threads;
+					try {
+						threads = Integer.parseInt(arg);
+					} catch (NumberFormatException e) {
+						throw new OptionParseException("ERROR: Thread count must be a number.");
+					}
+					if (threads < 1)
+						throw new OptionParseException("ERROR: Thread count must be 1 or greater.");
+					options.threads = threads;
+					state = STATE_START;
+				}
+				break;
+
+				case STATE_MAX_FFMPEG:
+				{
+					int maxFFmpeg;
+					try {
+						maxFFmpeg = Integer.parseInt(arg);
+					} catch (NumberFormatException e) {
+						throw new OptionParseException("ERROR: FFmpeg process count must be a number.");
+					}
+					if (maxFFmpeg < 1)
+						throw new OptionParseException("ERROR: FFmpeg process count must be 1 or greater.");
+					options.maxFFmpeg = maxFFmpeg;
+					state = STATE_START;
+				}
+				break;
+
+				case STATE_RATE:
+				{
+					int sampleRate;
+					try {
+						sampleRate = Integer.parseInt(arg);
+					} catch (NumberFormatException e) {
+						throw new OptionParseException("ERROR: Sample rate must be a number.");
+					}
+					if (sampleRate < DMXConverter.MIN_SAMPLE_RATE || sampleRate > DMXConverter.MAX_SAMPLE_RATE)
+						throw new OptionParseException("ERROR: Sample rate must be from " + DMXConverter.MIN_SAMPLE_RATE + " to " + DMXConverter.MAX_SAMPLE_RATE + ".");
+					options.sampleRate = sampleRate;
+					state = STATE_START;
+				}
+				break;
 			}
 		}
 
@@ -426,6 +627,12 @@ public final class DMXConvertMain
 			throw new OptionParseException("ERROR: Expected path to FFMpeg.");
 		if (state == STATE_OUTPUTDIR)
 			throw new OptionParseException("ERROR: Expected path to output directory.");
+		if (state == STATE_THREADS)
+			throw new OptionParseException("ERROR: Expected thread count.");
+		if (state == STATE_MAX_FFMPEG)
+			throw new OptionParseException("ERROR: Expected FFmpeg process count.");
+		if (state == STATE_RATE)
+			throw new OptionParseException("ERROR: Expected sample rate.");
 
 		return options;
 	}
@@ -551,6 +758,18 @@ public final class DMXConvertMain
 		out.println("    --jspi-only         If set, DMXConv does not attempt to read the incoming");
 		out.println("                        sound files using FFmpeg, only Java SPI and the");
 		out.println("                        classpath.");
+		out.println();
+		out.println("    --rate [hz]         Resamples the output to a specific sample rate (usually");
+		out.println("    -r [hz]             11025 or 22050), from 4000 to 65535. If not set, the");
+		out.println("                        source's sample rate is kept.");
+		out.println();
+		out.println("    --threads [num]     Sets the amount of files to convert at the same time.");
+		out.println("    -t [num]            Default is the amount of available processors.");
+		out.println("                        Output is still printed in the order of the files.");
+		out.println();
+		out.println("    --max-ffmpeg [num]  Sets the maximum amount of FFmpeg processes to run at");
+		out.println("                        the same time. Default is half the amount of available");
+		out.println("                        processors (at least 1).");
 	}
 
 }
@@ -31,6 +31,9 @@ import java.util.function.BiPredicate;
 
 import net.mtrop.doom.Wad;
 import net.mtrop.doom.WadFile;
+import net.mtrop.doom.tools.common.FlightEvents;
+import net.mtrop.doom.tools.common.FlightEvents.DecoHackParseEvent;
+import net.mtrop.doom.tools.common.FlightEvents.DecoHackWriteEvent;
 import net.mtrop.doom.tools.decohack.DecoHackJoiner;
 import net.mtrop.doom.tools.decohack.DecoHackParser;
 import net.mtrop.doom.tools.decohack.contexts.AbstractPatchContext;
@@ -466,9 +469,12 @@ public final class DecoHackMain
 
 				try (Reader reader = new BufferedReader(new InputStreamReader(options.stdin, options.inCharset))) 
 				{
+					DecoHackParseEvent event = FlightEvents.beginDecoHackParse();
 					DecoHackParser.Result result;
 					result = DecoHackParser.read("STDIN", options.stdin, options.inCharset);
 					context = result.getContext();
+					if (event != null && event.isEnabled())
+						finishParseEvent(event, "STDIN", 1, -1L, result);
 					for (String message : result.getWarnings())
 						options.stderr.println("WARNING: " + message);
 					if (context == null)
@@ -520,9 +526,17 @@ public final class DecoHackMain
 
 				try 
 				{
+					DecoHackParseEvent event = FlightEvents.beginDecoHackParse();
 					DecoHackParser.Result result;
 					result = DecoHackParser.read(options.inFiles, options.inCharset);
 					context = result.getContext();
+					if (event != null && event.isEnabled())
+					{
+						long inputSize = 0L;
+						for (File f : options.inFiles)
+							inputSize += f.length();
+						finishParseEvent(event, options.inFiles.get(0).getPath(), options.inFiles.size(), inputSize, result);
+					}
 					for (String message : result.getWarnings())
 						options.stderr.println("WARNING: " + message);
 					if (context == null)
@@ -665,6 +679,7 @@ public final class DecoHackMain
 				{
 					try (WadFile wad = new WadFile(options.outSourceFile)) 
 					{
+						DecoHackWriteEvent event = FlightEvents.beginDecoHackWrite();
 						ByteArrayOutputStream bos = new ByteArrayOutputStream();
 						try (Writer writer = new OutputStreamWriter(bos, options.outCharset)) 
 						{
@@ -677,6 +692,9 @@ public final class DecoHackMain
 						else
 							wad.addData("DEHACKED", bos.toByteArray());
 						
+						if (event != null && event.isEnabled())
+							event.finish(options.outSourceFile.getPath(), bos.size());
+						
 						options.stdout.printf("Wrote patch into %s as `DEHACKED`.\n", options.outSourceFile.getPath());
 					} 
 					catch (IOException e) 
@@ -688,6 +706,7 @@ public final class DecoHackMain
 				else
 				{
 					// Write Patch.
+					DecoHackWriteEvent event = FlightEvents.beginDecoHackWrite();
 					try (Writer writer = new OutputStreamWriter(new FileOutputStream(options.outFile), options.outCharset)) 
 					{
 						context.writePatch(writer, "Created with " + VERSION_LINE);
@@ -703,11 +722,22 @@ public final class DecoHackMain
 						options.stderr.println("ERROR: Could not open input file (access denied).");
 						return ERROR_SECURITY;
 					}
+					if (event != null && event.isEnabled())
+						event.finish(options.outFile.getPath(), options.outFile.length());
 				}
 			}
 			
 			return ERROR_NONE;
 		}
+		
+		// Finishes the parse phase event.
+		private static void finishParseEvent(DecoHackParseEvent event, String source, int files, long inputSize, DecoHackParser.Result result)
+		{
+			AbstractPatchContext<?> context = result.getContext();
+			event.finish(source, files, inputSize, result.getWarnings().length, result.getErrors().length, 
+				context != null ? context.getStateCount() - context.getFreeStateCount() : -1
+			);
+		}
 	}
 	
 	/**
@@ -30,6 +30,8 @@ import net.mtrop.doom.graphics.PNGPicture;
 import net.mtrop.doom.graphics.Palette;
 import net.mtrop.doom.graphics.Picture;
 import net.mtrop.doom.object.BinaryObject;
+import net.mtrop.doom.tools.common.FlightEvents;
+import net.mtrop.doom.tools.common.FlightEvents.ImageConvertEvent;
 import net.mtrop.doom.tools.exception.OptionParseException;
 import net.mtrop.doom.tools.exception.UtilityException;
 import net.mtrop.doom.tools.gui.DoomToolsGUIMain;
@@ -605,11 +607,14 @@ public final class DoomImageConvertMain
 				
 		private int readFile(File input, Palette palette, MetaInfo info, File output) throws IOException, SecurityException
 		{
+			ImageConvertEvent event = FlightEvents.beginImageConvert();
+			int objects = 1;
 			switch (info.mode)
 			{
 				case PALETTE:
 				{
 					Palette[] palettes = readPalette(input);
+					objects = palettes.length;
 					try (FileOutputStream fos = new FileOutputStream(output))
 					{
 						for (Palette p : palettes)
@@ -626,6 +631,7 @@ public final class DoomImageConvertMain
 						return ERROR_NO_PALETTE;
 					}
 					Colormap[] colormaps = readColormaps(palette, input);
+					objects = colormaps.length;
 					try (FileOutputStream fos = new FileOutputStream(output))
 					{
 						for (Colormap c : colormaps)
@@ -665,18 +671,24 @@ public final class DoomImageConvertMain
 				}
 				break;
 			}
+			if (event != null && event.isEnabled())
+				event.finish(input.getPath(), output.getPath(), info.mode.name(), input.length(), output.length(), objects);
 			options.verboseln("Wrote " + output.getPath() + ".");
 			return ERROR_NONE;
 		}
 
 		private int readFile(File input, Palette palette, MetaInfo info, WadFile.Adder output) throws IOException
 		{
+			ImageConvertEvent event = FlightEvents.beginImageConvert();
+			int objects = 1;
 			String entryName = NameUtils.toValidEntryName(FileUtils.getFileNameWithoutExtension(input));
 			switch (info.mode)
 			{
 				case PALETTE:
 				{
-					output.addData(entryName, readPalette(input));
+					Palette[] palettes = readPalette(input);
+					objects = palettes.length;
+					output.addData(entryName, palettes);
 				}
 				break;
 				
@@ -687,7 +699,9 @@ public final class DoomImageConvertMain
 						options.stderr.println("ERROR: Attempt to convert COLORMAP " + input.getPath() + " without a provided palette!");
 						return ERROR_NO_PALETTE;
 					}
-					output.addData(entryName, readColormaps(palette, input));
+					Colormap[] colormaps = readColormaps(palette, input);
+					objects = colormaps.length;
+					output.addData(entryName, colormaps);
 				}
 				break;
 	
@@ -715,6 +729,8 @@ public final class DoomImageConvertMain
 				}
 				break;
 			}
+			if (event != null && event.isEnabled())
+				event.finish(input.getPath(), entryName, info.mode.name(), input.length(), -1L, objects);
 			options.verboseln("Added " + input.getPath() + " to WAD as " + entryName);
 			return ERROR_NONE;
 		}
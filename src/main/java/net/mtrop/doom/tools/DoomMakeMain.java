@@ -41,6 +41,8 @@ import com.blackrook.json.JSONWriter;
 import net.mtrop.doom.tools.WadScriptMain.Mode;
 import net.mtrop.doom.tools.WadScriptMain.Resolver;
 import net.mtrop.doom.tools.common.Common;
+import net.mtrop.doom.tools.common.FlightEvents;
+import net.mtrop.doom.tools.common.FlightEvents.DoomMakeTargetEvent;
 import net.mtrop.doom.tools.doommake.AutoBuildAgent;
 import net.mtrop.doom.tools.doommake.ProjectGenerator;
 import net.mtrop.doom.tools.doommake.ProjectModule;
@@ -603,7 +605,12 @@ public final class DoomMakeMain
 				;
 				for (Object obj : options.args)
 					wsOptions.addArg(obj);
-				return WadScriptMain.call(wsOptions);
+				
+				DoomMakeTargetEvent event = FlightEvents.beginDoomMakeTarget();
+				int out = WadScriptMain.call(wsOptions);
+				if (event != null && event.isEnabled())
+					event.finish(options.targetName, String.valueOf(options.scriptFile), options.args.size(), out);
+				return out;
 			} catch (OptionParseException e) {
 				/** Will not be thrown. */
 				return ERROR_UNKNOWN;
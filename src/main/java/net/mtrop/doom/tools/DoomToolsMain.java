@@ -362,21 +362,14 @@ public final class DoomToolsMain
 			}
 			else if (options.gui)
 			{
-				if (DoomToolsGUIMain.isAlreadyRunning())
-				{
-					options.stderr.println("DoomTools is already running.");
-					return ERROR_GUI_ALREADY_RUNNING;
-				}
-				else
-				{
-					try {
-						DoomToolsGUIMain.startGUIAppProcess();
-					} catch (IOException e) {
-						options.stderr.println("ERROR: Could not start DoomTools GUI process!");
-						return ERROR_IOERROR;
-					}
-					return ERROR_NONE;
+				// Shows the main window of a running instance, if any.
+				try {
+					DoomToolsGUIMain.startGUIAppProcess();
+				} catch (IOException e) {
+					options.stderr.println("ERROR: Could not start DoomTools GUI process!");
+					return ERROR_IOERROR;
 				}
+				return ERROR_NONE;
 			}
 			else if (options.updateShell)
 			{
@@ -649,7 +642,7 @@ public final class DoomToolsMain
 		out.println("                             If you are missing one, run DoomTools with this");
 		out.println("                             switch.");
 		out.println();
-		out.println("    --gui                Starts the DoomTools GUI.");
+		out.println("    --gui                Starts the DoomTools GUI (or shows it, if running).");
 	}
 	
 }
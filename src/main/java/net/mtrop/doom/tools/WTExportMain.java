@@ -6,6 +6,8 @@
 package net.mtrop.doom.tools;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,13 +15,14 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
@@ -43,6 +46,7 @@ import net.mtrop.doom.tools.gui.DoomToolsGUIMain;
 import net.mtrop.doom.tools.gui.DoomToolsGUIMain.ApplicationNames;
 import net.mtrop.doom.tools.struct.util.IOUtils;
 import net.mtrop.doom.tools.struct.util.ObjectUtils;
+import net.mtrop.doom.tools.wtexport.ScanCache;
 import net.mtrop.doom.tools.wtexport.TextureTables;
 import net.mtrop.doom.util.NameUtils;
 import net.mtrop.doom.util.TextureUtils;
@@ -80,6 +84,7 @@ public final class WTExportMain
 	public static final String SWITCH_NULLTEX = "--null-texture";
 	public static final String SWITCH_NOANIMATED = "--no-animated";
 	public static final String SWITCH_NOSWITCH = "--no-switches";
+	public static final String SWITCH_NOCACHE = "--no-cache";
 
 	/**
 	 * Context.
@@ -105,6 +110,10 @@ public final class WTExportMain
 		private boolean noAnimated;
 		/** No switches. */
 		private boolean noSwitches;
+		/** No scan cache. */
+		private boolean noCache;
+		/** Scan cache directory (null for default). */
+		private File cacheDir;
 		/** Additive output? */
 		private Boolean additive;
 		/** Null comparator. */
@@ -133,6 +142,8 @@ public final class WTExportMain
 			this.outWad = null;
 			this.noAnimated = false;
 			this.noSwitches = false;
+			this.noCache = false;
+			this.cacheDir = null;
 			this.additive = null;
 			this.nullComparator = new NullComparator(null);
 			this.filePaths = new ArrayList<>();
@@ -211,6 +222,18 @@ public final class WTExportMain
 			return this;
 		}
 		
+		public Options setNoCache(boolean noCache) 
+		{
+			this.noCache = noCache;
+			return this;
+		}
+		
+		public Options setCacheDirectory(File cacheDir) 
+		{
+			this.cacheDir = cacheDir;
+			return this;
+		}
+		
 		public Options setAdditive(Boolean additive) 
 		{
 			this.additive = additive;
@@ -252,6 +275,17 @@ public final class WTExportMain
 		/** WAD priority queue. */
 		private List<WadUnit> wadPriority;
 
+		/** Priority-resolved TEXTUREx texture name index (built after all scans). */
+		private HashMap<String, IndexEntry> textureIndex;
+		/** Priority-resolved namespace texture name index (built after all scans). */
+		private HashMap<String, IndexEntry> namespaceTextureIndex;
+		/** Priority-resolved flat name index (built after all scans). */
+		private HashMap<String, IndexEntry> flatIndex;
+		/** Texture name to the first unit that animates or switches it (built after all scans). */
+		private HashMap<String, WadUnit> textureSequenceIndex;
+		/** Flat name to the first unit that animates it (built after all scans). */
+		private HashMap<String, WadUnit> flatSequenceIndex;
+
 		/** List of texture names (need this list because order matters). */
 		private List<String> textureList; 
 		/** List of flat names (need this list because order matters). */
@@ -266,6 +300,11 @@ public final class WTExportMain
 			this.options = options;
 			this.baseUnit = null;
 			this.wadPriority = new LinkedList<WadUnit>();
+			this.textureIndex = new HashMap<>();
+			this.namespaceTextureIndex = new HashMap<>();
+			this.flatIndex = new HashMap<>();
+			this.textureSequenceIndex = new HashMap<>();
+			this.flatSequenceIndex = new HashMap<>();
 			this.textureSet = new HashSet<>();
 			this.flatSet = new HashSet<>();
 			this.textureList = new ArrayList<>();
@@ -287,6 +326,29 @@ public final class WTExportMain
 			
 			WadUnit unit = new WadUnit(wf);
 			
+			ScanCache cache = null;
+			if (!options.noCache)
+			{
+				try {
+					cache = options.cacheDir != null 
+						? ScanCache.get(options.cacheDir, path, getScanCacheVariant()) 
+						: ScanCache.get(path, getScanCacheVariant());
+				} catch (IOException | SecurityException e) {
+					// Uncacheable - just scan it.
+					cache = null;
+				}
+			}
+			
+			if (cache != null && readScanCache(unit, cache))
+			{
+				options.printf("    Using cached scan: %d textures, %d patches, %d flats.\n", unit.textureList.size(), unit.patchIndices.size(), unit.flatList.size());
+				if (!isBase)
+					wadPriority.add(unit);
+				else
+					baseUnit = unit;
+				return true;
+			}
+			
 			try {
 				if (!scanTexturesAndPNames(unit, wf))
 					return false;
@@ -312,9 +374,18 @@ public final class WTExportMain
 				return false;
 			options.printf("        %d namespace textures.\n", unit.texNamespaceIndices.size());
 			
+			for (int i = 0; i < unit.flatList.size(); i++)
+				unit.flatPositions.put(unit.flatList.get(i), i);
+			for (int i = 0; i < unit.textureList.size(); i++)
+				unit.texturePositions.put(unit.textureList.get(i), i);
 			for (TextureSet.Texture tex : unit.textureSet)
-				if (!unit.textureList.contains(tex.getName()))
+			{
+				if (!unit.texturePositions.containsKey(tex.getName()))
+				{
+					unit.texturePositions.put(tex.getName(), unit.textureList.size());
 					unit.textureList.add(tex.getName());
+				}
+			}
 		
 			try {
 				if (!scanAnimated(unit, wf))
@@ -324,6 +395,15 @@ public final class WTExportMain
 				return false;
 			}
 			
+			if (cache != null)
+			{
+				try {
+					cache.write((out) -> writeScanCache(unit, out));
+				} catch (IOException | SecurityException e) {
+					options.printf("    Could not write scan cache: %s\n", e.getLocalizedMessage());
+				}
+			}
+			
 			if (!isBase)
 				wadPriority.add(unit);
 			else
@@ -459,10 +539,7 @@ public final class WTExportMain
 				{
 					options.println("    Scanning ANIMATED...");
 					unit.animated = wf.getDataAs("ANIMATED", Animated.class);
-					processAnimated(unit, unit.animated);
 				}
-				
-				processAnimated(unit, TextureTables.ALL_ANIMATED);
 			}
 		
 			if (!options.noSwitches)
@@ -471,18 +548,211 @@ public final class WTExportMain
 				{
 					options.println("    Scanning SWITCHES...");
 					unit.switches = wf.getDataAs("SWITCHES", Switches.class);
-					
-					for (Switches.Entry entry : unit.switches)
+				}
+			}
+			
+			processAnimatedAndSwitches(unit);
+			return true;
+		}
+
+		/**
+		 * Builds the animation sequence and switch mappings from a unit's ANIMATED and SWITCHES data.
+		 * @param unit the WAD unit.
+		 */
+		private void processAnimatedAndSwitches(WadUnit unit)
+		{
+			if (!options.noAnimated)
+			{
+				processAnimated(unit, unit.animated);
+				processAnimated(unit, TextureTables.ALL_ANIMATED);
+			}
+			
+			if (!options.noSwitches)
+			{
+				for (Switches.Entry entry : unit.switches)
+				{
+					unit.switchMap.put(entry.getOffName(), entry.getOnName());
+					unit.switchMap.put(entry.getOnName(), entry.getOffName());
+				}
+			}
+		}
+
+		/**
+		 * Gets the part of the scan cache key that depends on this run (version and options).
+		 * @return the key part.
+		 */
+		private String getScanCacheVariant()
+		{
+			return Version.DOOMTOOLS + "/" + Version.DOOMSTRUCT + "/" + (options.noAnimated ? "A" : "a") + (options.noSwitches ? "S" : "s");
+		}
+
+		/**
+		 * Writes the scan result of a WAD unit to a scan cache.
+		 * The sequence, switch and position mappings are not written - they are rebuilt on read.
+		 * @param unit the WAD unit.
+		 * @param out the output stream.
+		 * @throws IOException if a write error occurs.
+		 */
+		private void writeScanCache(WadUnit unit, DataOutputStream out) throws IOException
+		{
+			out.writeBoolean(unit.strife);
+			out.writeBoolean(unit.tex2exists);
+			writeStrings(out, unit.tex1names);
+			
+			List<TextureSet.Texture> textures = new ArrayList<>();
+			for (TextureSet.Texture tex : unit.textureSet)
+				textures.add(tex);
+			out.writeInt(textures.size());
+			for (TextureSet.Texture tex : textures)
+			{
+				out.writeUTF(tex.getName());
+				out.writeInt(tex.getWidth());
+				out.writeInt(tex.getHeight());
+				out.writeInt(tex.getPatchCount());
+				for (int i = 0; i < tex.getPatchCount(); i++)
+				{
+					TextureSet.Patch p = tex.getPatch(i);
+					out.writeUTF(p.getName());
+					out.writeInt(p.getOriginX());
+					out.writeInt(p.getOriginY());
+				}
+			}
+			
+			writeIndices(out, unit.patchIndices);
+			writeIndices(out, unit.flatIndices);
+			writeIndices(out, unit.texNamespaceIndices);
+			writeStrings(out, unit.textureList);
+			writeStrings(out, unit.flatList);
+			
+			List<Animated.Entry> animatedEntries = new ArrayList<>();
+			for (Animated.Entry entry : unit.animated)
+				animatedEntries.add(entry);
+			out.writeInt(animatedEntries.size());
+			for (Animated.Entry entry : animatedEntries)
+			{
+				out.writeBoolean(entry.isTexture());
+				out.writeUTF(entry.getFirstName());
+				out.writeUTF(entry.getLastName());
+				out.writeInt(entry.getTicks());
+				out.writeBoolean(entry.isTexture() && entry.getAllowsDecals());
+			}
+			
+			List<Switches.Entry> switchEntries = new ArrayList<>();
+			for (Switches.Entry entry : unit.switches)
+				switchEntries.add(entry);
+			out.writeInt(switchEntries.size());
+			for (Switches.Entry entry : switchEntries)
+			{
+				out.writeUTF(entry.getOffName());
+				out.writeUTF(entry.getOnName());
+				out.writeUTF(entry.getGame().name());
+			}
+		}
+
+		/**
+		 * Reads the scan result of a WAD unit from a scan cache, if it is usable.
+		 * @param unit the WAD unit to fill in.
+		 * @param cache the scan cache.
+		 * @return true if the unit was read, false if the cache was missing, stale, or unreadable.
+		 */
+		private boolean readScanCache(WadUnit unit, ScanCache cache)
+		{
+			try (DataInputStream in = cache.open())
+			{
+				if (in == null)
+					return false;
+				
+				unit.strife = in.readBoolean();
+				unit.tex2exists = in.readBoolean();
+				unit.tex1names = readStrings(in, new HashSet<>());
+				
+				unit.textureSet = new TextureSet(new PatchNames(), unit.strife ? new StrifeTextureList() : new DoomTextureList());
+				int textureCount = in.readInt();
+				for (int t = 0; t < textureCount; t++)
+				{
+					TextureSet.Texture tex = unit.textureSet.createTexture(in.readUTF());
+					tex.setWidth(in.readInt());
+					tex.setHeight(in.readInt());
+					int patchCount = in.readInt();
+					for (int i = 0; i < patchCount; i++)
 					{
-						unit.switchMap.put(entry.getOffName(), entry.getOnName());
-						unit.switchMap.put(entry.getOnName(), entry.getOffName());
+						TextureSet.Patch p = tex.createPatch(in.readUTF());
+						p.setOriginX(in.readInt());
+						p.setOriginY(in.readInt());
 					}
 				}
+				
+				readIndices(in, unit.patchIndices);
+				readIndices(in, unit.flatIndices);
+				readIndices(in, unit.texNamespaceIndices);
+				readStrings(in, unit.textureList);
+				readStrings(in, unit.flatList);
+				for (int i = 0; i < unit.textureList.size(); i++)
+					unit.texturePositions.put(unit.textureList.get(i), i);
+				for (int i = 0; i < unit.flatList.size(); i++)
+					unit.flatPositions.put(unit.flatList.get(i), i);
+				
+				int animatedCount = in.readInt();
+				for (int i = 0; i < animatedCount; i++)
+				{
+					boolean texture = in.readBoolean();
+					String firstName = in.readUTF();
+					String lastName = in.readUTF();
+					int ticks = in.readInt();
+					boolean decals = in.readBoolean();
+					unit.animated.addEntry(texture ? Animated.texture(lastName, firstName, ticks, decals) : Animated.flat(lastName, firstName, ticks));
+				}
+				
+				int switchCount = in.readInt();
+				for (int i = 0; i < switchCount; i++)
+				{
+					String offName = in.readUTF();
+					String onName = in.readUTF();
+					unit.switches.addEntry(offName, onName, Switches.Game.valueOf(in.readUTF()));
+				}
+			} catch (IOException | RuntimeException e) {
+				// Corrupt or from an incompatible library version - rescan and replace it.
+				cache.delete();
+				unit.reset();
+				return false;
 			}
 			
+			processAnimatedAndSwitches(unit);
 			return true;
 		}
 
+		private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException
+		{
+			out.writeInt(strings.size());
+			for (String s : strings)
+				out.writeUTF(s);
+		}
+
+		private static <C extends Collection<String>> C readStrings(DataInputStream in, C out) throws IOException
+		{
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+				out.add(in.readUTF());
+			return out;
+		}
+
+		private static void writeIndices(DataOutputStream out, Map<String, Integer> indices) throws IOException
+		{
+			out.writeInt(indices.size());
+			for (Map.Entry<String, Integer> entry : indices.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue());
+			}
+		}
+
+		private static void readIndices(DataInputStream in, Map<String, Integer> out) throws IOException
+		{
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+				out.put(in.readUTF(), in.readInt());
+		}
+
 		private void processAnimated(WadUnit unit, Animated animated)
 		{
 			for (Animated.Entry entry : animated)
@@ -507,31 +777,11 @@ public final class WTExportMain
 		 * @param unit the WAD unit.
 		 * @param firstName the first name of the sequence.
 		 * @param lastName the last name of the sequence.
-		 * @return true if successful, false if not.
+		 * @return the textures between firstName and lastName, or null if either is not in the unit.
 		 */
 		private String[] getTextureSequence(WadUnit unit, String firstName, String lastName)
 		{
-			Deque<String> out = new LinkedList<>();
-			int index = unit.textureList.indexOf(firstName);
-			if (index >= 0)
-			{
-				int index2 = unit.textureList.indexOf(lastName);
-				if (index2 >= 0)
-				{
-					int min = Math.min(index, index2);
-					int max = Math.max(index, index2);
-					for (int i = min; i <= max; i++)
-						out.add(unit.textureList.get(i));
-				}
-				else
-					return null;
-			}
-			else
-				return null;
-			
-			String[] outList = new String[out.size()];
-			out.toArray(outList);
-			return outList;
+			return getSequence(unit.textureList, unit.texturePositions, firstName, lastName);
 		}
 
 		/**
@@ -539,30 +789,35 @@ public final class WTExportMain
 		 * @param unit the WAD unit.
 		 * @param firstName the first name of the sequence.
 		 * @param lastName the last name of the sequence.
-		 * @return the textures between firstName and lastName.
+		 * @return the flats between firstName and lastName, or null if either is not in the unit.
 		 */
 		private String[] getFlatSequence(WadUnit unit, String firstName, String lastName)
 		{
-			Deque<String> out = new LinkedList<String>();
-			int index = unit.flatList.indexOf(firstName);
-			if (index >= 0)
-			{
-				int index2 = unit.flatList.indexOf(lastName);
-				if (index2 >= 0)
-				{
-					int min = Math.min(index, index2);
-					int max = Math.max(index, index2);
-					for (int i = min; i <= max; i++)
-						out.add(unit.flatList.get(i));
-				}
-				else
-					return null;
-			}
-			else
+			return getSequence(unit.flatList, unit.flatPositions, firstName, lastName);
+		}
+
+		/**
+		 * Gets a run of names from an ordered name list.
+		 * @param list the ordered list of names.
+		 * @param positions the mapping of name to position in the list.
+		 * @param firstName the first name of the sequence.
+		 * @param lastName the last name of the sequence.
+		 * @return the names between firstName and lastName, inclusive, or null if either is not in the list.
+		 */
+		private static String[] getSequence(List<String> list, HashMap<String, Integer> positions, String firstName, String lastName)
+		{
+			Integer index = positions.get(firstName);
+			if (index == null)
+				return null;
+			Integer index2 = positions.get(lastName);
+			if (index2 == null)
 				return null;
 			
-			String[] outList = new String[out.size()];
-			out.toArray(outList);
+			int min = Math.min(index, index2);
+			int max = Math.max(index, index2);
+			String[] outList = new String[max - min + 1];
+			for (int i = min; i <= max; i++)
+				outList[i - min] = list.get(i);
 			return outList;
 		}
 
@@ -645,7 +900,14 @@ public final class WTExportMain
 			
 			if (!textureSet.contains(textureName))
 			{
-				for (WadUnit unit : wadPriority)
+				// The built-in switch table applies to every unit, so the highest-priority unit handles those.
+				WadUnit unit;
+				if (!options.noSwitches && TextureTables.SWITCH_TABLE.containsKey(textureName) && !wadPriority.isEmpty())
+					unit = wadPriority.get(0);
+				else
+					unit = textureSequenceIndex.get(textureName);
+				
+				if (unit != null)
 				{
 					// Check if animated, and if so, do NOT copy that texture over first - just copy over the animation sequence.
 					// Copying the texture first can break animations from the middle.
@@ -657,10 +919,6 @@ public final class WTExportMain
 					
 					if (!options.noSwitches)
 						readAndAddSwitchTextures(unit, textureName);
-					
-					// Break early if added.
-					if (textureSet.contains(textureName))
-						break;
 				}
 
 				// attempt to add anyway - if it was already copied from the previous code, nothing happens.
@@ -703,70 +961,67 @@ public final class WTExportMain
 			// Copying the texture first can break animations from the middle.
 			if (!options.noAnimated)
 			{
-				for (WadUnit unit : wadPriority)
-				{
-					if (unit.animatedFlat.containsKey(textureName))
-						for (String s : unit.animatedFlat.get(textureName))
-							addToLists(flatSet, flatList, s);
-					
-					// Break early if added.
-					if (flatSet.contains(textureName))
-						break;
-				}
+				WadUnit unit = flatSequenceIndex.get(textureName);
+				if (unit != null)
+					for (String s : unit.animatedFlat.get(textureName))
+						addToLists(flatSet, flatList, s);
 			}
 			
 			addToLists(flatSet, flatList, textureName);
 		}
 
 		/**
-		 * Searches for the flat to extract. 
-		 * @param unitList the list to sequentially search for the desired flat.
-		 * @param flatName the flat name.
-		 * @return the unit that contains it, or null if not found.
+		 * Builds the priority-resolved name indices from the scanned WAD units.
+		 * The first unit in the WAD priority list that has a name wins, same as a sequential search.
+		 * Must be called after all WADs are scanned.
 		 */
-		private WadUnit searchForFlat(List<WadUnit> unitList, String flatName)
+		private void buildIndex()
 		{
-			for (WadUnit unit : unitList)
+			for (WadUnit unit : wadPriority)
 			{
-				if (unit.flatIndices.containsKey(flatName))
-					return unit;
+				for (TextureSet.Texture tex : unit.textureSet)
+					textureIndex.putIfAbsent(tex.getName(), new IndexEntry(unit, -1));
+				for (Map.Entry<String, Integer> entry : unit.texNamespaceIndices.entrySet())
+					namespaceTextureIndex.putIfAbsent(entry.getKey(), new IndexEntry(unit, entry.getValue()));
+				for (Map.Entry<String, Integer> entry : unit.flatIndices.entrySet())
+					flatIndex.putIfAbsent(entry.getKey(), new IndexEntry(unit, entry.getValue()));
+				for (String name : unit.animatedTexture.keySet())
+					textureSequenceIndex.putIfAbsent(name, unit);
+				for (String name : unit.switchMap.keySet())
+					textureSequenceIndex.putIfAbsent(name, unit);
+				for (String name : unit.animatedFlat.keySet())
+					flatSequenceIndex.putIfAbsent(name, unit);
 			}
-			
-			return null;
+		}
+
+		/**
+		 * Searches for the flat to extract. 
+		 * @param flatName the flat name.
+		 * @return the unit and entry that contains it, or null if not found.
+		 */
+		private IndexEntry searchForFlat(String flatName)
+		{
+			return flatIndex.get(flatName);
 		}
 
 		/** 
 		 * Searches for the texture to extract. 
-		 * @param unitList the list to sequentially search for the desired texture.
 		 * @param textureName the texture name.
-		 * @return the unit that contains it, or null if not found.
+		 * @return the unit that contains it (entry index is -1), or null if not found.
 		 */
-		private WadUnit searchForTexture(List<WadUnit> unitList, String textureName)
+		private IndexEntry searchForTexture(String textureName)
 		{
-			for (WadUnit unit : unitList)
-			{
-				if (unit.textureSet.contains(textureName))
-					return unit;
-			}
-			
-			return null;
+			return textureIndex.get(textureName);
 		}
 
 		/** 
 		 * Searches for the texture to extract within the "texture" namespace. 
-		 * @param unitList the list to sequentially search for the desired texture.
 		 * @param textureName the texture name.
-		 * @return the unit that contains it, or null if not found.
+		 * @return the unit and entry that contains it, or null if not found.
 		 */
-		private WadUnit searchForNamespaceTexture(List<WadUnit> unitList, String textureName)
+		private IndexEntry searchForNamespaceTexture(String textureName)
 		{
-			for (WadUnit unit : unitList)
-			{
-				if (unit.texNamespaceIndices.containsKey(textureName))
-					return unit;
-			}
-			
-			return null;
+			return namespaceTextureIndex.get(textureName);
 		}
 
 		/**
@@ -779,26 +1034,19 @@ public final class WTExportMain
 			options.println("    Extracting flats...");
 			for (String flat : flatList)
 			{
-				WadUnit unit = null;
+				IndexEntry found;
 				
-				if ((unit = searchForFlat(wadPriority, flat)) != null)
+				if ((found = searchForFlat(flat)) != null)
 				{
-					// does a matching texture entry exist?
-					if (unit.flatIndices.containsKey(flat))
-					{
-						Integer pidx = unit.flatIndices.get(flat);
-						if (pidx != null)
-						{
-							try {
-								options.printf("        Extracting flat %s (%s)...\n", flat, unit.wad.getFileName());
-								EntryData data = new EntryData(flat, unit.wad.getData(pidx));
-								exportSet.flatData.add(data);
-								exportSet.flatHash.add(flat);
-							} catch (IOException e) {
-								options.printf("ERROR: %s: Could not read entry %s.", unit.wad.getFilePath(), flat);
-								return false;
-							}
-						}
+					WadUnit unit = found.unit;
+					try {
+						options.printf("        Extracting flat %s (%s)...\n", flat, unit.wad.getFileName());
+						EntryData data = new EntryData(flat, unit.wad.getData(found.index));
+						exportSet.flatData.add(data);
+						exportSet.flatHash.add(flat);
+					} catch (IOException e) {
+						options.printf("ERROR: %s: Could not read entry %s.", unit.wad.getFilePath(), flat);
+						return false;
 					}
 				}
 			}
@@ -815,11 +1063,13 @@ public final class WTExportMain
 			options.println("    Extracting textures...");
 			for (String textureName : textureList)
 			{
-				WadUnit unit = null;
+				IndexEntry found;
 				
 				// found texture.
-				if ((unit = searchForTexture(wadPriority, textureName)) != null)
+				if ((found = searchForTexture(textureName)) != null)
 				{
+					WadUnit unit = found.unit;
+					
 					// for figuring out if we've found a replaced/added patch.
 					boolean foundPatches = false;
 					
@@ -874,23 +1124,16 @@ public final class WTExportMain
 					
 				}
 				// unit not found
-				else if ((unit = searchForNamespaceTexture(wadPriority, textureName)) != null)
+				else if ((found = searchForNamespaceTexture(textureName)) != null)
 				{
-					// does a matching texture entry exist?
-					if (unit.texNamespaceIndices.containsKey(textureName))
-					{
-						Integer pidx = unit.texNamespaceIndices.get(textureName);
-						if (pidx != null)
-						{
-							try {
-								options.printf("        Extracting namespace texture %s (%s)...\n", textureName, unit.wad.getFileName());
-								EntryData data = new EntryData(textureName, unit.wad.getData(pidx));
-								exportSet.textureData.add(data);
-							} catch (IOException e) {
-								options.printf("ERROR: %s: Could not read entry %s.\n", unit.wad.getFilePath(), textureName);
-								return false;
-							}
-						}
+					WadUnit unit = found.unit;
+					try {
+						options.printf("        Extracting namespace texture %s (%s)...\n", textureName, unit.wad.getFileName());
+						EntryData data = new EntryData(textureName, unit.wad.getData(found.index));
+						exportSet.textureData.add(data);
+					} catch (IOException e) {
+						options.printf("ERROR: %s: Could not read entry %s.\n", unit.wad.getFilePath(), textureName);
+						return false;
 					}
 				}
 			}
@@ -1329,6 +1572,8 @@ public final class WTExportMain
 			for (String f : options.filePaths)
 				if (!scanWAD(new File(f), false))
 					return ERROR_BAD_FILE;
+			
+			buildIndex();
 		
 			/* STEP 2 : Compile list of what we want. */
 		
@@ -1487,6 +1732,10 @@ public final class WTExportMain
 		List<String> textureList;
 		/** Flat names. */
 		List<String> flatList;
+		/** Texture name to position in the texture name list. */
+		HashMap<String, Integer> texturePositions;
+		/** Flat name to position in the flat name list. */
+		HashMap<String, Integer> flatPositions;
 		
 		Animated animated;
 		Switches switches;
@@ -1494,9 +1743,16 @@ public final class WTExportMain
 		private WadUnit(WadFile file)
 		{
 			this.wad = file;
+			reset();
+		}
+		
+		// Clears the scan result.
+		private void reset()
+		{
 			this.textureSet = null;
 			this.tex1names = null;
 			this.tex2exists = false;
+			this.strife = false;
 			this.flatIndices = new HashMap<String, Integer>();
 			this.patchIndices = new HashMap<String, Integer>();
 			this.texNamespaceIndices = new HashMap<String, Integer>();
@@ -1505,11 +1761,30 @@ public final class WTExportMain
 			this.switchMap = new HashMap<String, String>();
 			this.textureList = new ArrayList<>();
 			this.flatList = new ArrayList<>();
+			this.texturePositions = new HashMap<String, Integer>();
+			this.flatPositions = new HashMap<String, Integer>();
 			this.animated = new Animated();
 			this.switches = new Switches();
 		}
 	}
 	
+	/**
+	 * A priority-resolved location of a named texture or flat.
+	 */
+	private static class IndexEntry
+	{
+		/** The winning WAD unit. */
+		WadUnit unit;
+		/** The entry index in the unit's WAD, or -1 if defined in TEXTUREx. */
+		int index;
+		
+		private IndexEntry(WadUnit unit, int index)
+		{
+			this.unit = unit;
+			this.index = index;
+		}
+	}
+	
 	/**
 	 * Reads command line arguments and sets options.
 	 * @param out the standard output print stream.
@@ -1557,6 +1832,8 @@ public final class WTExportMain
 						options.setNoAnimated(true);
 					else if (arg.equals(SWITCH_NOSWITCH))
 						options.setNoSwitches(true);
+					else if (arg.equals(SWITCH_NOCACHE))
+						options.setNoCache(true);
 					else if (arg.equals(SWITCH_CREATE1) || arg.equals(SWITCH_CREATE2))
 						options.setAdditive(false);
 					else if (arg.equals(SWITCH_ADDITIVE1) || arg.equals(SWITCH_ADDITIVE2))
@@ -1734,6 +2011,10 @@ public final class WTExportMain
 		out.println("                          a texture's switch sequence, and ignore SWITCHES");
 		out.println("                          lumps.");
 		out.println();
+		out.println("    --no-cache            If specified, do not read or write cached WAD scans.");
+		out.println("                          Scans are cached per WAD in the DoomTools settings");
+		out.println("                          folder, and reused until the WAD changes.");
+		out.println();
 		out.println("Input List");
 		out.println("==========");
 		out.println();
@@ -35,6 +35,8 @@ import net.mtrop.doom.map.udmf.UDMFReader;
 import net.mtrop.doom.map.udmf.UDMFTable;
 import net.mtrop.doom.map.udmf.attributes.UDMFDoomSectorAttributes;
 import net.mtrop.doom.map.udmf.attributes.UDMFDoomSidedefAttributes;
+import net.mtrop.doom.tools.common.FlightEvents;
+import net.mtrop.doom.tools.common.FlightEvents.MapScanEvent;
 import net.mtrop.doom.tools.exception.OptionParseException;
 import net.mtrop.doom.tools.gui.DoomToolsGUIMain;
 import net.mtrop.doom.tools.gui.DoomToolsGUIMain.ApplicationNames;
@@ -293,6 +295,12 @@ public final class WTexScanMain
 		// Inspect a map in a WAD.
 		private void inspectMap(Wad wad, String mapName) throws IOException
 		{
+			MapScanEvent event = FlightEvents.beginMapScan();
+			int textureCount = textureList.size();
+			int flatCount = flatList.size();
+			int sidedefCount = 0;
+			int sectorCount = 0;
+			
 			options.println("#    Opening map "+mapName+"...");
 			
 			MapFormat format = MapUtils.getMapFormat(wad, mapName);
@@ -300,6 +308,8 @@ public final class WTexScanMain
 			if (format == null)
 			{
 				options.println("#    ERROR: NOT A MAP!");
+				if (event != null && event.isEnabled())
+					event.finish(mapName, null, 0, 0, 0, 0);
 				return;
 			}
 		
@@ -326,13 +336,17 @@ public final class WTexScanMain
 					case DOOM:
 					case HEXEN:
 					{
-						inspectSidedefs(wad.getDataAs("SIDEDEFS", wad.lastIndexOf(mapName), DoomSidedef.class, DoomSidedef.LENGTH));
+						DoomSidedef[] sidedefs = wad.getDataAs("SIDEDEFS", wad.lastIndexOf(mapName), DoomSidedef.class, DoomSidedef.LENGTH);
+						sidedefCount = sidedefs.length;
+						inspectSidedefs(sidedefs);
 					}
 					break;
 		
 					case UDMF:
 					{
-						inspectSidedefs(udmf.getObjects("sidedef"));
+						UDMFObject[] sidedefs = udmf.getObjects("sidedef");
+						sidedefCount = sidedefs.length;
+						inspectSidedefs(sidedefs);
 					}
 					break;
 				}
@@ -348,13 +362,17 @@ public final class WTexScanMain
 					case DOOM:
 					case HEXEN:
 					{
-						inspectSectors(wad.getDataAs("SECTORS", wad.lastIndexOf(mapName), DoomSector.class, DoomSector.LENGTH));
+						DoomSector[] sectors = wad.getDataAs("SECTORS", wad.lastIndexOf(mapName), DoomSector.class, DoomSector.LENGTH);
+						sectorCount = sectors.length;
+						inspectSectors(sectors);
 					}
 					break;
 		
 					case UDMF:
 					{
-						inspectSectors(udmf.getObjects("sector"));
+						UDMFObject[] sectors = udmf.getObjects("sector");
+						sectorCount = sectors.length;
+						inspectSectors(sectors);
 					}
 					break;
 						
@@ -366,6 +384,12 @@ public final class WTexScanMain
 				inspectMap(mapName);
 			}
 			
+			if (event != null && event.isEnabled())
+			{
+				event.finish(mapName, format.name(), sidedefCount, sectorCount, 
+					textureList.size() - textureCount, flatList.size() - flatCount
+				);
+			}
 		}
 
 		private void inspectMap(String mapName)
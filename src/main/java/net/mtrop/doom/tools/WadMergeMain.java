@@ -28,6 +28,7 @@ import net.mtrop.doom.tools.struct.util.IOUtils;
 import net.mtrop.doom.tools.struct.util.ObjectUtils;
 import net.mtrop.doom.tools.wadmerge.WadMergeCommand;
 import net.mtrop.doom.tools.wadmerge.WadMergeContext;
+import net.mtrop.doom.tools.wadmerge.WadMergeParallelExecutor;
 
 /**
  * Main class for WadMerge.
@@ -46,6 +47,7 @@ public final class WadMergeMain
 	public static final String SWITCH_HELP2 = "-h";
 	public static final String SWITCH_VERBOSE = "--verbose";
 	public static final String SWITCH_VERBOSE2 = "-v";
+	public static final String SWITCH_PARALLEL = "--parallel";
 	public static final String SWITCH_VERSION = "--version";
 	public static final String SWITCH_CHANGELOG = "--changelog";
 	public static final String SWITCH_GUI = "--gui";
@@ -67,6 +69,7 @@ public final class WadMergeMain
 		private boolean help;
 		private boolean version;
 		private boolean verbose;
+		private boolean parallel;
 		private boolean changelog;
 		private boolean gui;
 		
@@ -83,6 +86,7 @@ public final class WadMergeMain
 			this.help = false;
 			this.version = false;
 			this.verbose = false;
+			this.parallel = false;
 			this.gui = false;
 			this.changelog = false;
 			this.useStdin = false;
@@ -115,6 +119,12 @@ public final class WadMergeMain
 			return this;
 		}
 		
+		public Options setParallel(boolean parallel) 
+		{
+			this.parallel = parallel;
+			return this;
+		}
+		
 		public Options setUseStdin(boolean useStdin) 
 		{
 			this.useStdin = useStdin;
@@ -220,7 +230,12 @@ public final class WadMergeMain
 		
 			try 
 			{
-				if (!WadMergeCommand.callScript(streamName, reader, new WadMergeContext(options.stdout, options.verbose), options.args.toArray(new String[options.args.size()])))
+				WadMergeContext context = new WadMergeContext(options.stdout, options.verbose);
+				String[] args = options.args.toArray(new String[options.args.size()]);
+				boolean success = options.parallel
+					? WadMergeParallelExecutor.callScript(streamName, reader, context, args, Runtime.getRuntime().availableProcessors())
+					: WadMergeCommand.callScript(streamName, reader, context, args);
+				if (!success)
 					return ERROR_BAD_SCRIPT;
 			}
 			catch (IOException e)
@@ -270,6 +285,8 @@ public final class WadMergeMain
 						options.help = true;
 					else if (arg.equals(SWITCH_VERBOSE) || arg.equals(SWITCH_VERBOSE2))
 						options.verbose = true;
+					else if (arg.equals(SWITCH_PARALLEL))
+						options.parallel = true;
 					else if (arg.equals(SWITCH_VERSION))
 						options.version = true;
 					else if (arg.equals(SWITCH_SYSTEMIN))
@@ -416,6 +433,12 @@ public final class WadMergeMain
 		out.println("    --verbose     Prints verbose output.");
 		out.println("    -v");
 		out.println();
+		out.println("    --parallel    Runs independent parts of the script at the same time.");
+		out.println("                  Commands are grouped by the buffer symbols and files that");
+		out.println("                  they use, and output is still printed in script order.");
+		out.println("                  If a command fails, commands after it may have already");
+		out.println("                  run, so files that they write may be incomplete.");
+		out.println();
 		out.println("[scriptfile]:");
 		out.println("    <filename>    The input script file.");
 		out.println();
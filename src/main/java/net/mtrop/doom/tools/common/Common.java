@@ -16,6 +16,8 @@ import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -159,7 +161,90 @@ public final class Common
 	 */
 	public static ProcessCallable spawnJava(Class<?> mainClass)
 	{
-		return ProcessCallable.java(mainClass, "-Xms64M", "-Xmx768M");
+		return ProcessCallable.java(mainClass, concat(new String[]{"-Xms64M", "-Xmx768M"}, getClassDataSharingOptions(mainClass)));
+	}
+	
+	/**
+	 * Gets a DoomTools cache directory, for files that can be deleted and remade.
+	 * This is a directory under the user's cache directory ("DoomTools" on Windows and macOS, "doomtools" elsewhere, 
+	 * the same as the launch scripts), or under the temporary directory if the OS does not have a known cache directory.
+	 * The directory is not created.
+	 * @param name the cache name (subdirectory).
+	 * @return the cache directory.
+	 */
+	public static File getCacheDirectory(String name)
+	{
+		String base = OSUtils.getApplicationCachePath();
+		if (base == null)
+			base = OSUtils.getTempDirectoryPath();
+		String appName = OSUtils.isWindows() || OSUtils.isOSX() ? "DoomTools" : "doomtools";
+		return new File(base + File.separator + appName + File.separator + name);
+	}
+	
+	/**
+	 * Gets the JVM options for using a class-data-sharing archive for a main class, 
+	 * made (or remade) automatically by the JVM the first time it is used.
+	 * This needs Java 19 or higher (earlier versions would drop the JVM's default archive instead), 
+	 * and can be turned off by setting the <code>DOOMTOOLS_NO_CDS</code> environment variable.
+	 * The archives are kept in the "cds" cache directory (see {@link #getCacheDirectory(String)}), 
+	 * named "<em>jar</em>-<em>mainclass</em>.jsa" the same as the launch scripts, so both share one archive per tool and JAR.
+	 * @param mainClass the main class.
+	 * @return the JVM options, or an empty array if the archive is not supported, there is no user cache directory, or the directory could not be made.
+	 */
+	public static String[] getClassDataSharingOptions(Class<?> mainClass)
+	{
+		// Like the launch scripts, no archive if there is no user cache directory (no temporary directory fallback).
+		if (System.getenv("DOOMTOOLS_NO_CDS") != null || getJavaFeatureVersion() < 19 || OSUtils.getApplicationCachePath() == null)
+			return new String[0];
+		
+		File dir = getCacheDirectory("cds");
+		if (!dir.isDirectory() && !dir.mkdirs())
+			return new String[0];
+		
+		File archive = new File(dir, getClassPathName(mainClass) + "-" + mainClass.getName() + ".jsa");
+		return new String[]{
+			"-XX:+AutoCreateSharedArchive",
+			"-XX:SharedArchiveFile=" + archive.getPath()
+		};
+	}
+	
+	// Gets the name of the JAR that a class was loaded from, without ".jar", or "doomtools-<version>" if not from a JAR.
+	private static String getClassPathName(Class<?> mainClass)
+	{
+		try {
+			CodeSource source = mainClass.getProtectionDomain().getCodeSource();
+			if (source != null && source.getLocation() != null)
+			{
+				String name = new File(source.getLocation().toURI()).getName();
+				if (name.toLowerCase().endsWith(".jar"))
+					return name.substring(0, name.length() - 4);
+			}
+		} catch (SecurityException | URISyntaxException | IllegalArgumentException e) {
+			// Fall through.
+		}
+		return "doomtools-" + getVersionString("doomtools");
+	}
+	
+	// Gets the feature version of the running JVM (8 for "1.8").
+	private static int getJavaFeatureVersion()
+	{
+		String version = System.getProperty("java.specification.version", "0");
+		if (version.startsWith("1."))
+			version = version.substring(2);
+		int dot = version.indexOf('.');
+		try {
+			return Integer.parseInt(dot >= 0 ? version.substring(0, dot) : version);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+	
+	private static String[] concat(String[] a, String[] b)
+	{
+		String[] out = new String[a.length + b.length];
+		System.arraycopy(a, 0, out, 0, a.length);
+		System.arraycopy(b, 0, out, a.length, b.length);
+		return out;
 	}
 	
 	/**
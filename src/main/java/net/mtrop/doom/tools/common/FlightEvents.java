@@ -0,0 +1,447 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.common;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events for the tools' main pipelines.
+ * <p>The <code>jdk.jfr</code> module is optional (minified JREs may leave it out), so the event
+ * classes are only loaded if it is present: the <code>begin...()</code> methods return null if not,
+ * and callers must check for null before finishing an event. If the module is present but nothing
+ * is recording, events are created but never committed.
+ * <p>To record a run, start the JVM with <code>-XX:StartFlightRecording=filename=[file].jfr</code>
+ * (for example, through the <code>JDK_JAVA_OPTIONS</code> environment variable).
+ * @author Matthew Tropiano
+ */
+public final class FlightEvents
+{
+	/** If true, the JFR classes are available. */
+	public static final boolean AVAILABLE = isAvailable();
+
+	private static final String CATEGORY = "DoomTools";
+
+	private FlightEvents() {}
+
+	private static boolean isAvailable()
+	{
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Starts an event for a WadMerge command.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static WadMergeCommandEvent beginWadMergeCommand()
+	{
+		if (!AVAILABLE)
+			return null;
+		WadMergeCommandEvent out = new WadMergeCommandEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * Starts an event for an image conversion.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static ImageConvertEvent beginImageConvert()
+	{
+		if (!AVAILABLE)
+			return null;
+		ImageConvertEvent out = new ImageConvertEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * Starts an event for a texture scan of a map.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static MapScanEvent beginMapScan()
+	{
+		if (!AVAILABLE)
+			return null;
+		MapScanEvent out = new MapScanEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * Starts an event for a DoomMake target.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static DoomMakeTargetEvent beginDoomMakeTarget()
+	{
+		if (!AVAILABLE)
+			return null;
+		DoomMakeTargetEvent out = new DoomMakeTargetEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * Starts an event for a tool called from a script.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static ToolInvocationEvent beginToolInvocation()
+	{
+		if (!AVAILABLE)
+			return null;
+		ToolInvocationEvent out = new ToolInvocationEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * Starts an event for a DecoHack parse.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static DecoHackParseEvent beginDecoHackParse()
+	{
+		if (!AVAILABLE)
+			return null;
+		DecoHackParseEvent out = new DecoHackParseEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * Starts an event for a DecoHack patch write.
+	 * @return the started event, or null if JFR is not available.
+	 */
+	public static DecoHackWriteEvent beginDecoHackWrite()
+	{
+		if (!AVAILABLE)
+			return null;
+		DecoHackWriteEvent out = new DecoHackWriteEvent();
+		out.begin();
+		return out;
+	}
+
+	/**
+	 * A single WadMerge command.
+	 */
+	@Name("net.mtrop.doom.tools.WadMergeCommand")
+	@Label("WadMerge Command")
+	@Category({CATEGORY, "WadMerge"})
+	@Description("A WadMerge script command.")
+	public static class WadMergeCommandEvent extends Event
+	{
+		@Label("Script")
+		private String script;
+		@Label("Line")
+		private int line;
+		@Label("Command")
+		private String command;
+		@Label("Response")
+		private String response;
+		@Label("Failure")
+		@Description("The exception that the command threw, if any.")
+		private String failure;
+		@Label("Open Buffers")
+		@Description("The amount of open buffers after the command.")
+		private int buffers;
+		@Label("Entries")
+		@Description("The total amount of entries in the open buffers after the command.")
+		private int entries;
+
+		private WadMergeCommandEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param script the script name.
+		 * @param line the script line.
+		 * @param command the command name.
+		 * @param response the command response name, or null if the script ended or the command threw an exception.
+		 * @param failure the exception that the command threw, or null if it returned.
+		 * @param buffers the amount of open buffers.
+		 * @param entries the total amount of entries in the open buffers.
+		 */
+		public void finish(String script, int line, String command, String response, String failure, int buffers, int entries)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.script = script;
+			this.line = line;
+			this.command = command;
+			this.response = response;
+			this.failure = failure;
+			this.buffers = buffers;
+			this.entries = entries;
+			commit();
+		}
+	}
+
+	/**
+	 * A single converted image file.
+	 */
+	@Name("net.mtrop.doom.tools.ImageConvert")
+	@Label("Image Conversion")
+	@Category({CATEGORY, "DImgConv"})
+	@Description("A single file converted by DImgConv.")
+	public static class ImageConvertEvent extends Event
+	{
+		@Label("Source")
+		private String source;
+		@Label("Target")
+		private String target;
+		@Label("Mode")
+		private String mode;
+		@Label("Input Size")
+		@DataAmount
+		private long inputSize;
+		@Label("Output Size")
+		@Description("The size of the written file, or -1 if written to a WAD.")
+		@DataAmount
+		private long outputSize;
+		@Label("Objects")
+		@Description("The amount of palettes, colormaps, or graphics converted.")
+		private int objects;
+
+		private ImageConvertEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param source the source file path.
+		 * @param target the target file path or entry name.
+		 * @param mode the conversion mode name.
+		 * @param inputSize the source file size in bytes.
+		 * @param outputSize the target file size in bytes, or -1 if unknown.
+		 * @param objects the amount of converted objects.
+		 */
+		public void finish(String source, String target, String mode, long inputSize, long outputSize, int objects)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.source = source;
+			this.target = target;
+			this.mode = mode;
+			this.inputSize = inputSize;
+			this.outputSize = outputSize;
+			this.objects = objects;
+			commit();
+		}
+	}
+
+	/**
+	 * A single map scanned for textures.
+	 */
+	@Name("net.mtrop.doom.tools.MapScan")
+	@Label("Map Texture Scan")
+	@Category({CATEGORY, "WTexScan"})
+	@Description("A single map inspected by WTexScan.")
+	public static class MapScanEvent extends Event
+	{
+		@Label("Map")
+		private String map;
+		@Label("Format")
+		private String format;
+		@Label("Sidedefs")
+		private int sidedefs;
+		@Label("Sectors")
+		private int sectors;
+		@Label("New Textures")
+		@Description("The amount of textures found that were not found in earlier maps.")
+		private int newTextures;
+		@Label("New Flats")
+		@Description("The amount of flats found that were not found in earlier maps.")
+		private int newFlats;
+
+		private MapScanEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param map the map header name.
+		 * @param format the map format name, or null if not a map.
+		 * @param sidedefs the amount of sidedefs read.
+		 * @param sectors the amount of sectors read.
+		 * @param newTextures the amount of newly-found textures.
+		 * @param newFlats the amount of newly-found flats.
+		 */
+		public void finish(String map, String format, int sidedefs, int sectors, int newTextures, int newFlats)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.map = map;
+			this.format = format;
+			this.sidedefs = sidedefs;
+			this.sectors = sectors;
+			this.newTextures = newTextures;
+			this.newFlats = newFlats;
+			commit();
+		}
+	}
+
+	/**
+	 * A single DoomMake target run.
+	 */
+	@Name("net.mtrop.doom.tools.DoomMakeTarget")
+	@Label("DoomMake Target")
+	@Category({CATEGORY, "DoomMake"})
+	@Description("A DoomMake target run.")
+	public static class DoomMakeTargetEvent extends Event
+	{
+		@Label("Target")
+		private String target;
+		@Label("Script")
+		private String script;
+		@Label("Arguments")
+		private int arguments;
+		@Label("Exit Code")
+		private int exitCode;
+
+		private DoomMakeTargetEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param target the target name.
+		 * @param script the script file path.
+		 * @param arguments the amount of target arguments.
+		 * @param exitCode the exit code.
+		 */
+		public void finish(String target, String script, int arguments, int exitCode)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.target = target;
+			this.script = script;
+			this.arguments = arguments;
+			this.exitCode = exitCode;
+			commit();
+		}
+	}
+
+	/**
+	 * A single tool call from a script.
+	 */
+	@Name("net.mtrop.doom.tools.ToolInvocation")
+	@Label("Tool Invocation")
+	@Category({CATEGORY, "DoomMake"})
+	@Description("A tool called from a script.")
+	public static class ToolInvocationEvent extends Event
+	{
+		@Label("Tool")
+		private String tool;
+		@Label("Exit Code")
+		private int exitCode;
+
+		private ToolInvocationEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param tool the tool function name.
+		 * @param exitCode the exit code.
+		 */
+		public void finish(String tool, int exitCode)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.tool = tool;
+			this.exitCode = exitCode;
+			commit();
+		}
+	}
+
+	/**
+	 * The DecoHack parse phase.
+	 */
+	@Name("net.mtrop.doom.tools.DecoHackParse")
+	@Label("DecoHack Parse")
+	@Category({CATEGORY, "DecoHack"})
+	@Description("DecoHack source parsing.")
+	public static class DecoHackParseEvent extends Event
+	{
+		@Label("Source")
+		private String source;
+		@Label("Files")
+		private int files;
+		@Label("Input Size")
+		@Description("The total size of the input files, or -1 if read from STDIN.")
+		@DataAmount
+		private long inputSize;
+		@Label("Warnings")
+		private int warnings;
+		@Label("Errors")
+		private int errors;
+		@Label("States Used")
+		private int statesUsed;
+
+		private DecoHackParseEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param source the first source name.
+		 * @param files the amount of input files.
+		 * @param inputSize the total input size in bytes, or -1 if unknown.
+		 * @param warnings the amount of warnings.
+		 * @param errors the amount of errors.
+		 * @param statesUsed the amount of used states in the patch, or -1 if the parse failed.
+		 */
+		public void finish(String source, int files, long inputSize, int warnings, int errors, int statesUsed)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.source = source;
+			this.files = files;
+			this.inputSize = inputSize;
+			this.warnings = warnings;
+			this.errors = errors;
+			this.statesUsed = statesUsed;
+			commit();
+		}
+	}
+
+	/**
+	 * The DecoHack patch write phase.
+	 */
+	@Name("net.mtrop.doom.tools.DecoHackWrite")
+	@Label("DecoHack Write")
+	@Category({CATEGORY, "DecoHack"})
+	@Description("DecoHack patch output.")
+	public static class DecoHackWriteEvent extends Event
+	{
+		@Label("Target")
+		private String target;
+		@Label("Output Size")
+		@DataAmount
+		private long outputSize;
+
+		private DecoHackWriteEvent() {}
+
+		/**
+		 * Finishes this event and commits it, if recorded.
+		 * @param target the output file path.
+		 * @param outputSize the size of the written patch in bytes.
+		 */
+		public void finish(String target, long outputSize)
+		{
+			end();
+			if (!shouldCommit())
+				return;
+			this.target = target;
+			this.outputSize = outputSize;
+			commit();
+		}
+	}
+
+}
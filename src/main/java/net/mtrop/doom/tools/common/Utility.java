@@ -9,6 +9,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -100,34 +101,33 @@ public final class Utility
 	{
 		Texture currentTexture = null;
 		TextureSet textureSet = new TextureSet(startingPatches, startingTextureList);
+		LineTokenizer tokenizer = new LineTokenizer();
 		String line;
 		int linenum = 0;
-		Pattern whitespacePattern = Pattern.compile("\\s+"); 
 		while ((line = reader.readLine()) != null)
 		{
-			line = line.trim();
 			linenum++;
-			if (line.isEmpty() || line.startsWith(";"))
+			tokenizer.reset(line);
+			if (tokenizer.isEmpty() || tokenizer.startsWith(';'))
 				continue;
 			
-			if (line.startsWith("*")) // is patch.
+			if (tokenizer.startsWith('*')) // is patch.
 			{
 				if (currentTexture == null)
 					throw new ParseException("Line " + linenum + ": Patch line before texture line.");
 				
 				String elementName = "";
-				try (Scanner scanner = new Scanner(line)) 
+				try
 				{
-					scanner.useDelimiter(whitespacePattern);
 					elementName = "star";
-					if (!scanner.next().equals("*"))
+					if (!tokenizer.nextIs('*'))
 						throw new ParseException("Line " + linenum + ": Malformed patch: missing star prefix.");
 					elementName = "name";
-					Patch p = currentTexture.createPatch(NameUtils.toValidEntryName(scanner.next()));
+					Patch p = currentTexture.createPatch(NameUtils.toValidEntryName(tokenizer.next()));
 					elementName = "origin X";
-					p.setOriginX(scanner.nextInt());
+					p.setOriginX(tokenizer.nextInt());
 					elementName = "origin Y";
-					p.setOriginY(scanner.nextInt());
+					p.setOriginY(tokenizer.nextInt());
 				} 
 				catch (NoSuchElementException e) 
 				{
@@ -137,15 +137,14 @@ public final class Utility
 			else // is new texture.
 			{
 				String elementName = "";
-				try (Scanner scanner = new Scanner(line)) 
+				try
 				{
-					scanner.useDelimiter(whitespacePattern);
 					elementName = "name";
-					currentTexture = textureSet.createTexture(NameUtils.toValidTextureName(scanner.next()));
+					currentTexture = textureSet.createTexture(NameUtils.toValidTextureName(tokenizer.next()));
 					elementName = "width";
-					currentTexture.setWidth(scanner.nextInt());
+					currentTexture.setWidth(tokenizer.nextInt());
 					elementName = "height";
-					currentTexture.setHeight(scanner.nextInt());
+					currentTexture.setHeight(tokenizer.nextInt());
 				} 
 				catch (NoSuchElementException e) 
 				{
@@ -158,6 +157,7 @@ public final class Utility
 	
 	/**
 	 * Writes DEUTEX data to a print writer.
+	 * Lines are written in blocks, so a writer that flushes on each line is only flushed once, at the end.
 	 * @param textureSet the texture set to export. 
 	 * @param header the header blurb to write first.
 	 * @param writer the writer to write out to.
@@ -165,16 +165,21 @@ public final class Utility
 	 */
 	public static void writeDEUTEXFile(TextureSet textureSet, String header, PrintWriter writer) throws IOException
 	{
-		writer.println(header);
-		writer.println();
+		final String newline = System.lineSeparator();
+		BlockWriter out = new BlockWriter(writer);
+		out.append(header).append(newline);
+		out.append(newline);
 
 		for (TextureSet.Texture t : textureSet)
 		{
-			writer.println(t.getName() + " " + t.getWidth() + " " + t.getHeight());
+			out.append(t.getName()).append(' ').append(t.getWidth()).append(' ').append(t.getHeight()).append(newline);
 			for (TextureSet.Patch p : t)
-				writer.println("*\t" + p.getName() + " " + p.getOriginX() + " " + p.getOriginY());
-			writer.println();
+				out.append("*\t").append(p.getName()).append(' ').append(p.getOriginX()).append(' ').append(p.getOriginY()).append(newline);
+			out.append(newline);
+			out.next();
 		}
+		out.flush();
+		writer.flush();
 	}
 	
 	/**
@@ -386,4 +391,161 @@ public final class Utility
 
 	}
 
+	/**
+	 * A reusable whitespace tokenizer for a single line.
+	 * Has the same rules as a trimmed line read by a {@link Scanner} delimited by whitespace,
+	 * without the regular expressions or the per-line allocation.
+	 */
+	private static class LineTokenizer
+	{
+		private String line;
+		private int position;
+		private int end;
+		
+		// Sets the line to tokenize, trimmed like String.trim().
+		private void reset(String line)
+		{
+			int start = 0;
+			int end = line.length();
+			while (start < end && line.charAt(start) <= ' ')
+				start++;
+			while (end > start && line.charAt(end - 1) <= ' ')
+				end--;
+			this.line = line;
+			this.position = start;
+			this.end = end;
+		}
+		
+		private boolean isEmpty()
+		{
+			return position >= end;
+		}
+		
+		private boolean startsWith(char c)
+		{
+			return position < end && line.charAt(position) == c;
+		}
+		
+		// Same characters as the \s regular expression class.
+		private static boolean isDelimiter(char c)
+		{
+			return c == ' ' || c == '\t' || c == '\n' || c == 0x0b || c == '\f' || c == '\r';
+		}
+		
+		// Skips delimiters, and returns the end of the next token.
+		private int tokenEnd()
+		{
+			while (position < end && isDelimiter(line.charAt(position)))
+				position++;
+			if (position >= end)
+				throw new NoSuchElementException();
+			int tokenEnd = position;
+			while (tokenEnd < end && !isDelimiter(line.charAt(tokenEnd)))
+				tokenEnd++;
+			return tokenEnd;
+		}
+		
+		// Consumes the next token, and returns true if it is the single character.
+		private boolean nextIs(char c)
+		{
+			int tokenEnd = tokenEnd();
+			boolean out = tokenEnd - position == 1 && line.charAt(position) == c;
+			position = tokenEnd;
+			return out;
+		}
+		
+		private String next()
+		{
+			int tokenEnd = tokenEnd();
+			String out = line.substring(position, tokenEnd);
+			position = tokenEnd;
+			return out;
+		}
+		
+		// Throws NoSuchElementException (like Scanner's InputMismatchException) if not a valid int.
+		private int nextInt()
+		{
+			int tokenEnd = tokenEnd();
+			int i = position;
+			boolean negative = false;
+			char c = line.charAt(i);
+			if (c == '-' || c == '+')
+			{
+				negative = c == '-';
+				if (++i == tokenEnd)
+					throw new NoSuchElementException();
+			}
+			long value = 0;
+			for (; i < tokenEnd; i++)
+			{
+				int digit = Character.digit(line.charAt(i), 10);
+				if (digit < 0)
+					throw new NoSuchElementException();
+				value = value * 10 + digit;
+				if (value > (long)Integer.MAX_VALUE + 1)
+					throw new NoSuchElementException();
+			}
+			if (negative)
+				value = -value;
+			if (value > Integer.MAX_VALUE)
+				throw new NoSuchElementException();
+			position = tokenEnd;
+			return (int)value;
+		}
+	}
+	
+	/**
+	 * Collects written text and passes it to a writer in large blocks.
+	 */
+	private static class BlockWriter
+	{
+		private static final int BLOCK_SIZE = 8192;
+		
+		private final Writer writer;
+		private final StringBuilder builder;
+		private char[] chars;
+		
+		private BlockWriter(Writer writer)
+		{
+			this.writer = writer;
+			this.builder = new StringBuilder(BLOCK_SIZE * 2);
+			this.chars = new char[BLOCK_SIZE * 2];
+		}
+		
+		private BlockWriter append(String s)
+		{
+			builder.append(s);
+			return this;
+		}
+		
+		private BlockWriter append(char c)
+		{
+			builder.append(c);
+			return this;
+		}
+		
+		private BlockWriter append(int i)
+		{
+			builder.append(i);
+			return this;
+		}
+		
+		// Writes out the collected text if there is a block's worth.
+		private void next() throws IOException
+		{
+			if (builder.length() >= BLOCK_SIZE)
+				flush();
+		}
+		
+		private void flush() throws IOException
+		{
+			int length = builder.length();
+			if (chars.length < length)
+				chars = new char[length];
+			builder.getChars(0, length, chars, 0);
+			writer.write(chars, 0, length);
+			builder.setLength(0);
+		}
+	}
+	
 }
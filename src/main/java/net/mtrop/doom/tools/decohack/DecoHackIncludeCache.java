@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.decohack;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.mtrop.doom.tools.struct.PreprocessorLexer;
+import net.mtrop.doom.tools.struct.util.EncodingUtils;
+import net.mtrop.doom.tools.struct.util.IOUtils;
+
+/**
+ * A cache of included DECOHack sources, for repeated parses of the same patch.
+ * <p>The contents of each included resource are kept in memory with their content hash.
+ * Classpath resources (the built-in includes) are read once, and files are read again
+ * only if their length or modified time changes.
+ * <p>Each parse records the hashes of the includes that it read (see {@link #startRecording()}),
+ * so that a later check can tell if a parse of the same text would have the same result
+ * (see {@link #isUnchanged(Map)}).
+ * <p>This class is thread-safe, but recording is meant for one parse at a time.
+ * @author Matthew Tropiano
+ */
+public class DecoHackIncludeCache
+{
+	private static final String CLASSPATH_PREFIX = "classpath:";
+
+	/** Map of resolved path to cached include. */
+	private final Map<String, Include> includes;
+	/** The includes read in the current recording, in order. */
+	private Map<String, byte[]> recorded;
+
+	/**
+	 * Creates a new, empty include cache.
+	 */
+	public DecoHackIncludeCache()
+	{
+		this.includes = new HashMap<>();
+		this.recorded = null;
+	}
+
+	/**
+	 * Starts recording the includes read by a parse.
+	 * Any previous recording is discarded.
+	 */
+	public synchronized void startRecording()
+	{
+		recorded = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Stops recording and returns the includes read since {@link #startRecording()}.
+	 * @return a map of resolved include path to content hash, in read order.
+	 */
+	public synchronized Map<String, byte[]> stopRecording()
+	{
+		Map<String, byte[]> out = recorded != null ? recorded : new LinkedHashMap<>();
+		recorded = null;
+		return out;
+	}
+
+	/**
+	 * Checks if a set of recorded includes are unchanged.
+	 * Files that changed are read again (and cached) in the process.
+	 * @param digests the recorded includes (see {@link #stopRecording()}).
+	 * @return true if every include still has the same content hash, false if not.
+	 */
+	public boolean isUnchanged(Map<String, byte[]> digests)
+	{
+		for (Map.Entry<String, byte[]> entry : digests.entrySet())
+		{
+			Include include;
+			try {
+				include = get(entry.getKey());
+			} catch (IOException e) {
+				return false;
+			}
+			if (include == null || !Arrays.equals(include.digest, entry.getValue()))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public synchronized void clear()
+	{
+		includes.clear();
+	}
+
+	/**
+	 * Opens an included resource, by way of the cache.
+	 * @param path the resolved include path.
+	 * @return an open stream of the contents, or null if not found.
+	 * @throws IOException if the resource could not be read.
+	 */
+	public InputStream getIncludeResource(String path) throws IOException
+	{
+		Include include = get(path);
+		if (include == null)
+			return null;
+
+		synchronized (this)
+		{
+			if (recorded != null)
+				recorded.put(path, include.digest);
+		}
+		return new ByteArrayInputStream(include.data);
+	}
+
+	// Gets a cached include, reading it if missing or stale.
+	private Include get(String path) throws IOException
+	{
+		boolean classpath = path.startsWith(CLASSPATH_PREFIX);
+		File file = classpath ? null : new File(path);
+		long length = file != null ? file.length() : -1L;
+		long modified = file != null ? file.lastModified() : -1L;
+
+		Include include;
+		synchronized (this)
+		{
+			include = includes.get(path);
+		}
+		if (include != null && include.length == length && include.modified == modified)
+			return include;
+
+		byte[] data;
+		try (InputStream in = PreprocessorLexer.DEFAULT_INCLUDER.getIncludeResource(path))
+		{
+			if (in == null)
+				return null;
+			data = IOUtils.getBinaryContents(in);
+		}
+
+		include = new Include(data, length, modified);
+		synchronized (this)
+		{
+			includes.put(path, include);
+		}
+		return include;
+	}
+
+	/**
+	 * A single cached include.
+	 */
+	private static class Include
+	{
+		private final byte[] data;
+		private final byte[] digest;
+		private final long length;
+		private final long modified;
+
+		private Include(byte[] data, long length, long modified)
+		{
+			this.data = data;
+			this.digest = EncodingUtils.sha1(data);
+			this.length = length;
+			this.modified = modified;
+		}
+	}
+
+}
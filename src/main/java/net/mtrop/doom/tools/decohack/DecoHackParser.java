@@ -226,7 +226,7 @@ public final class DecoHackParser extends Lexer.Parser
 	 */
 	public static Result read(String streamName, InputStream in, Charset inputCharset) throws IOException
 	{
-		DecoHackParser parser = new DecoHackParser(streamName, in, inputCharset);
+		DecoHackParser parser = new DecoHackParser(streamName, in, inputCharset, null);
 		Result out = new Result();
 		out.context = parser.parse();
 		out.warnings = parser.getWarningMessages();
@@ -245,7 +245,7 @@ public final class DecoHackParser extends Lexer.Parser
 	 */
 	public static Result read(Iterable<File> files, Charset inputCharset) throws IOException
 	{
-		DecoHackParser parser = new DecoHackParser(null, null, inputCharset);
+		DecoHackParser parser = new DecoHackParser(null, null, inputCharset, null);
 		Lexer lexer = parser.getLexer();
 		
 		// Lexer streams are a stack, so add files backwards for the correct order.
@@ -265,11 +265,36 @@ public final class DecoHackParser extends Lexer.Parser
 		return out;
 	}
 
+	/**
+	 * Reads a DECOHack script, reading included files through a cache.
+	 * <p>The parse stops early with an error if the calling thread is interrupted.
+	 * @param streamName the name of the stream.
+	 * @param in the stream to read from.
+	 * @param inputCharset the input charset encoding for the stream and included files.
+	 * @param includeCache the cache to read included files from.
+	 * @return the result of the parse.
+	 * @throws IOException if the stream can't be read.
+	 * @throws SecurityException if a read error happens due to OS permissioning.
+	 * @throws NullPointerException if in or includeCache is null. 
+	 */
+	public static Result read(String streamName, InputStream in, Charset inputCharset, DecoHackIncludeCache includeCache) throws IOException
+	{
+		DecoHackParser parser = new DecoHackParser(streamName, in, inputCharset, includeCache);
+		Result out = new Result();
+		out.context = parser.parse();
+		out.warnings = parser.getWarningMessages();
+		out.errors = parser.getErrorMessages();
+		return out;
+	}
+
 	// =======================================================================
 
 	@Override
 	protected void nextToken() 
 	{
+		if (Thread.currentThread().isInterrupted())
+			throw new IllegalStateException("Parse interrupted.");
+		
 		do {
 			super.nextToken();
 			
@@ -4689,9 +4714,9 @@ public final class DecoHackParser extends Lexer.Parser
 	private int lastAutoThingIndex;
 
 	// Return the exporter for the patch.
-	private DecoHackParser(String streamName, InputStream in, Charset inputCharset)
+	private DecoHackParser(String streamName, InputStream in, Charset inputCharset, DecoHackIncludeCache includeCache)
 	{
-		super(new DecoHackLexer(streamName, in != null ? new InputStreamReader(in, inputCharset) : null, inputCharset));
+		super(new DecoHackLexer(streamName, in != null ? new InputStreamReader(in, inputCharset) : null, inputCharset, includeCache));
 		this.warnings = new LinkedList<>();
 		this.errors = new LinkedList<>();
 		this.editorKeys = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
@@ -5071,7 +5096,7 @@ public final class DecoHackParser extends Lexer.Parser
 	{
 		private static final Kernel KERNEL = new DecoHackKernel();
 
-		private DecoHackLexer(String streamName, Reader reader, final Charset encoding)
+		private DecoHackLexer(String streamName, Reader reader, final Charset encoding, final DecoHackIncludeCache includeCache)
 		{
 			super(KERNEL, streamName, reader);
 			setIncluder(new PreprocessorLexer.Includer() 
@@ -5109,6 +5134,8 @@ public final class DecoHackParser extends Lexer.Parser
 				@Override
 				public InputStream getIncludeResource(String path) throws IOException 
 				{
+					if (includeCache != null)
+						return includeCache.getIncludeResource(path);
 					return DEFAULT_INCLUDER.getIncludeResource(path);
 				}
 				
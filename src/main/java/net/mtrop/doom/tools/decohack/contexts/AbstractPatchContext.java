@@ -16,6 +16,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 
 import net.mtrop.doom.tools.common.Common;
 import net.mtrop.doom.tools.decohack.data.DEHActionPointer;
@@ -30,6 +31,7 @@ import net.mtrop.doom.tools.decohack.data.DEHWeapon;
 import net.mtrop.doom.tools.decohack.data.enums.DEHActionPointerType;
 import net.mtrop.doom.tools.decohack.data.enums.DEHFeatureLevel;
 import net.mtrop.doom.tools.decohack.patches.DEHPatch;
+import net.mtrop.doom.tools.struct.IntObjectMap;
 import net.mtrop.doom.tools.struct.IntervalMap;
 
 /**
@@ -41,12 +43,12 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 {
 	protected static final String CRLF = "\r\n";
 
-	private Map<Integer, DEHAmmo> ammo;
-	private Map<Integer, DEHSound> sounds;
-	private Map<Integer, DEHWeapon> weapons;
-	private Map<Integer, DEHThing> things;
-	private Map<Integer, DEHState> states;
-	private Map<Integer, DEHActionPointer> pointers;
+	private IntObjectMap<DEHAmmo> ammo;
+	private IntObjectMap<DEHSound> sounds;
+	private IntObjectMap<DEHWeapon> weapons;
+	private IntObjectMap<DEHThing> things;
+	private IntObjectMap<DEHState> states;
+	private IntObjectMap<DEHActionPointer> pointers;
 	private DEHMiscellany miscellany;
 
 	private int freeStateCount;
@@ -72,7 +74,7 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 	 * @return the object or null if not valid.
 	 */
 	@SuppressWarnings("unchecked")
-	protected static <T extends DEHObject<T>> T shadow(int index, Map<Integer, T> targetMap, Function<Integer, T> fetcher)
+	protected static <T extends DEHObject<T>> T shadow(int index, IntObjectMap<T> targetMap, IntFunction<T> fetcher)
 	{
 		T obj;
 		if ((obj = targetMap.get(index)) == null)
@@ -105,6 +107,27 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 		return obj;
 	}
 
+	/**
+	 * Copies an object from the source patch to the editable object,
+	 * or returning it if it has already been copied.
+	 * @param <T> the object type.
+	 * @param index the object index.
+	 * @param targetMap the target map to put the object into.
+	 * @param fetcher the fetcher function, called if not found.
+	 * @return the object or null if not valid.
+	 */
+	protected static <T> T copy(int index, IntObjectMap<T> targetMap, IntFunction<T> fetcher)
+	{
+		T obj;
+		if ((obj = targetMap.get(index)) == null)
+		{
+			T srcObj;
+			if ((srcObj = fetcher.apply(index)) != null)
+				targetMap.put(index, obj = srcObj);
+		}
+		return obj;
+	}
+
 	/**
 	 * Creates a new patch context.
 	 */
@@ -112,12 +135,12 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 	{
 		DEHPatch source = getSourcePatch();
 		
-		this.ammo = new TreeMap<>();
-		this.sounds = new TreeMap<>();
-		this.weapons = new TreeMap<>();
-		this.things = new TreeMap<>();
-		this.states = new TreeMap<>();
-		this.pointers = new TreeMap<>();
+		this.ammo = new IntObjectMap<>();
+		this.sounds = new IntObjectMap<>();
+		this.weapons = new IntObjectMap<>();
+		this.things = new IntObjectMap<>();
+		this.states = new IntObjectMap<>();
+		this.pointers = new IntObjectMap<>();
 		
 		this.miscellany = (new DEHMiscellany()).copyFrom(source.getMiscellany());
 		
@@ -820,7 +843,7 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 	 */
 	protected void writeCommonPatchBody(Writer writer) throws IOException
 	{
-		for (Integer i : getUsedThingIndices())
+		for (int i : things.keys())
 		{
 			DEHThing thing = getThing(i);
 			DEHThing original = getSourcePatch().getThing(i);
@@ -840,7 +863,7 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 		}
 		writer.flush();
 	
-		for (Integer i : getUsedStateIndices())
+		for (int i : states.keys())
 		{
 			DEHState state = getState(i);
 			DEHState original = getSourcePatch().getState(i);
@@ -855,7 +878,7 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 		}
 		writer.flush();
 	
-		for (Integer i : getUsedSoundIndices())
+		for (int i : sounds.keys())
 		{
 			DEHSound sound = getSound(i);
 			DEHSound original = getSourcePatch().getSound(i);
@@ -871,7 +894,7 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 		}
 		writer.flush();
 	
-		for (Integer i : getUsedWeaponIndices())
+		for (int i : weapons.keys())
 		{
 			DEHWeapon weapon = getWeapon(i);
 			DEHWeapon original = getSourcePatch().getWeapon(i);
@@ -891,7 +914,7 @@ public abstract class AbstractPatchContext<P extends DEHPatch> implements DEHPat
 		}
 		writer.flush();
 	
-		for (Integer i : getUsedAmmoIndices())
+		for (int i : ammo.keys())
 		{
 			DEHAmmo ammo = getAmmo(i);
 			DEHAmmo original = getSourcePatch().getAmmo(i);
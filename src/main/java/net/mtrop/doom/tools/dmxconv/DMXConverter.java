@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.dmxconv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Block-based audio to DMX sound converter.
+ * <p>Audio is decoded to 16-bit signed PCM in large blocks, mixed down to mono,
+ * resampled (if a target rate is set), and quantized to 8-bit unsigned samples 
+ * in primitive loops, and the finished DMX lump is written all at once.
+ * @author Matthew Tropiano
+ */
+public final class DMXConverter
+{
+	/** DMX sound format number. */
+	private static final int DMX_FORMAT = 3;
+	/** Amount of padding samples on each side of the sound data. */
+	private static final int DMX_PADDING = 16;
+	/** Minimum target sample rate. Lower rates need a resampling filter that is far too long for any use. */
+	public static final int MIN_SAMPLE_RATE = 4000;
+	/** Maximum DMX sample rate. */
+	public static final int MAX_SAMPLE_RATE = 65535;
+
+	/** Amount of frames to decode at a time. */
+	private static final int BLOCK_FRAMES = 16384;
+
+	private DMXConverter() {}
+
+	/**
+	 * Converts an audio stream to a DMX sound lump, keeping the sample rate.
+	 * The input stream is not closed.
+	 * @param in the input audio stream. Must be decodable to signed 16-bit PCM.
+	 * @param out the output stream to write the DMX lump to.
+	 * @return the amount of sound samples written (not including padding).
+	 * @throws IOException if the audio could not be decoded or the lump could not be written.
+	 */
+	public static int convert(AudioInputStream in, OutputStream out) throws IOException
+	{
+		return convert(in, out, 0);
+	}
+
+	/**
+	 * Converts an audio stream to a DMX sound lump.
+	 * The input stream is not closed.
+	 * @param in the input audio stream. Must be decodable to signed 16-bit PCM.
+	 * @param out the output stream to write the DMX lump to.
+	 * @param targetRate the output sample rate ({@link #MIN_SAMPLE_RATE} to {@link #MAX_SAMPLE_RATE}), or 0 or less to keep the input sample rate.
+	 * @return the amount of sound samples written (not including padding).
+	 * @throws IOException if the audio could not be decoded, the target rate is out of range, or the lump could not be written.
+	 */
+	public static int convert(AudioInputStream in, OutputStream out, int targetRate) throws IOException
+	{
+		AudioInputStream pcm = openPCMStream(in);
+		AudioFormat format = pcm.getFormat();
+		int inputRate = Math.round(format.getSampleRate());
+		int sampleRate = targetRate > 0 ? targetRate : inputRate;
+		if (inputRate <= 0)
+			throw new IOException("Unsupported input sample rate: " + format.getSampleRate());
+		if (sampleRate > MAX_SAMPLE_RATE)
+			throw new IOException("Unsupported sample rate for DMX: " + sampleRate);
+		if (targetRate > 0 && targetRate < MIN_SAMPLE_RATE)
+			throw new IOException("Target sample rate is too low: " + targetRate + " (minimum is " + MIN_SAMPLE_RATE + ")");
+
+		PolyphaseResampler resampler = sampleRate != inputRate ? new PolyphaseResampler(inputRate, sampleRate) : null;
+		float[] resampled = resampler != null ? new float[resampler.getMaxOutputLength(BLOCK_FRAMES)] : null;
+
+		int channels = format.getChannels();
+		int frameSize = channels * 2;
+		byte[] block = new byte[BLOCK_FRAMES * frameSize];
+		float[] mono = new float[BLOCK_FRAMES];
+		long expectedFrames = pcm.getFrameLength() > 0 ? pcm.getFrameLength() * sampleRate / inputRate : -1L;
+		SampleBuffer samples = new SampleBuffer(expectedFrames > 0 && expectedFrames < Integer.MAX_VALUE ? (int)expectedFrames : BLOCK_FRAMES);
+
+		int buffered = 0;
+		int read;
+		while ((read = pcm.read(block, buffered, block.length - buffered)) >= 0)
+		{
+			buffered += read;
+			int frames = buffered / frameSize;
+			if (frames == 0)
+				continue;
+
+			downmix(block, frames, channels, mono);
+			if (resampler != null)
+				samples.add(resampled, resampler.process(mono, frames, resampled));
+			else
+				samples.add(mono, frames);
+
+			// keep incomplete frame for next read
+			int used = frames * frameSize;
+			System.arraycopy(block, used, block, 0, buffered - used);
+			buffered -= used;
+		}
+
+		if (resampler != null)
+			samples.add(resampled, resampler.flush(resampled));
+
+		writeDMX(out, sampleRate, samples.data, samples.size);
+		return samples.size;
+	}
+
+	// Opens a little-endian, signed 16-bit PCM stream at the source's rate and channel count.
+	private static AudioInputStream openPCMStream(AudioInputStream in) throws IOException
+	{
+		AudioFormat format = in.getFormat();
+		AudioFormat target = new AudioFormat(
+			AudioFormat.Encoding.PCM_SIGNED,
+			format.getSampleRate(),
+			16, // bits per sample
+			format.getChannels(),
+			format.getChannels() * 2,
+			format.getSampleRate(),
+			false // LE
+		);
+		if (format.matches(target))
+			return in;
+
+		try {
+			return AudioSystem.getAudioInputStream(target, in);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Cannot decode audio to PCM: " + e.getLocalizedMessage(), e);
+		}
+	}
+
+	// Mixes interleaved 16-bit LE frames down to mono samples in [-1, 1).
+	private static void downmix(byte[] block, int frames, int channels, float[] out)
+	{
+		float scale = 1f / (32768f * channels);
+		int b = 0;
+		for (int f = 0; f < frames; f++)
+		{
+			int sum = 0;
+			for (int c = 0; c < channels; c++, b += 2)
+				sum += (short)((block[b] & 0x0ff) | (block[b + 1] << 8));
+			out[f] = sum * scale;
+		}
+	}
+
+	// Writes the DMX lump: header, padding, samples, padding.
+	private static void writeDMX(OutputStream out, int sampleRate, byte[] samples, int count) throws IOException
+	{
+		int total = count + DMX_PADDING * 2;
+		byte[] lump = new byte[8 + total];
+		lump[0] = (byte)(DMX_FORMAT & 0x0ff);
+		lump[1] = (byte)((DMX_FORMAT >> 8) & 0x0ff);
+		lump[2] = (byte)(sampleRate & 0x0ff);
+		lump[3] = (byte)((sampleRate >> 8) & 0x0ff);
+		lump[4] = (byte)(total & 0x0ff);
+		lump[5] = (byte)((total >> 8) & 0x0ff);
+		lump[6] = (byte)((total >> 16) & 0x0ff);
+		lump[7] = (byte)((total >> 24) & 0x0ff);
+
+		byte first = count > 0 ? samples[0] : (byte)128;
+		byte last = count > 0 ? samples[count - 1] : (byte)128;
+		Arrays.fill(lump, 8, 8 + DMX_PADDING, first);
+		System.arraycopy(samples, 0, lump, 8 + DMX_PADDING, count);
+		Arrays.fill(lump, 8 + DMX_PADDING + count, lump.length, last);
+		out.write(lump);
+	}
+
+	/**
+	 * A growable buffer of quantized 8-bit unsigned samples.
+	 */
+	private static class SampleBuffer
+	{
+		private byte[] data;
+		private int size;
+
+		private SampleBuffer(int capacity)
+		{
+			this.data = new byte[Math.max(capacity, 1)];
+			this.size = 0;
+		}
+
+		// Quantizes and adds samples in [-1, 1).
+		private void add(float[] samples, int count)
+		{
+			if (size + count > data.length)
+				data = Arrays.copyOf(data, Math.max(size + count, data.length * 2));
+			for (int i = 0; i < count; i++)
+			{
+				int s = (int)(samples[i] * 128f) + 128;
+				data[size++] = (byte)(s < 0 ? 0 : (s > 255 ? 255 : s));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.dmxconv;
+
+import java.util.Arrays;
+
+/**
+ * A streaming, rational-ratio polyphase resampler for mono samples.
+ * <p>The input is (conceptually) upsampled by L, filtered with a Kaiser-windowed sinc
+ * low-pass filter, and downsampled by M, where L/M is the reduced ratio of the output
+ * and input rates. Only the filter taps that land on real input samples are evaluated.
+ * <p>The output position always advances by exactly M/L input samples. If L is larger than
+ * the filter table ({@value #MAX_PHASES} phases), each output sample uses the nearest phase,
+ * which moves it by at most 1/{@value #MAX_PHASES} of an input sample, but never changes the rate.
+ * <p>The filter's transition band ends at the lower of the two Nyquist frequencies, and the
+ * filter gets longer when downsampling, so that its transition stays the same fraction of the
+ * output bandwidth.
+ * <p>Samples are fed in blocks with {@link #process(float[], int, float[])}, and the
+ * filter tail is drained with {@link #flush(float[])} once the input ends.
+ * @author Matthew Tropiano
+ */
+public class PolyphaseResampler
+{
+	/** Maximum amount of filter phases. Larger ratios use the nearest phase. */
+	public static final int MAX_PHASES = 1024;
+	/** Filter taps per phase when not downsampling (scaled up by the downsampling ratio). */
+	private static final int TAPS = 64;
+	/** Kaiser window shape (about 80 dB of stopband attenuation). */
+	private static final double KAISER_BETA = 8.0;
+
+	/** Upsampling factor. */
+	private final long up;
+	/** Downsampling factor. */
+	private final long down;
+	/** Filter phases (up, or MAX_PHASES if up is larger). */
+	private final int phases;
+	/** Filter taps per phase. */
+	private final int taps;
+	/** Filter coefficients, grouped by phase: phase * taps + tap. */
+	private final float[] coefficients;
+	/** Filter delay, in filter phase steps. */
+	private final long delay;
+
+	/** Buffered input samples. */
+	private float[] buffer;
+	/** Amount of buffered input samples. */
+	private int bufferLength;
+	/** Input index of the first buffered sample. */
+	private long bufferStart;
+	/** Total input samples received. */
+	private long inputCount;
+	/** Total output samples produced. */
+	private long outputCount;
+
+	/**
+	 * Creates a new resampler.
+	 * @param inputRate the input sample rate.
+	 * @param outputRate the output sample rate.
+	 * @throws IllegalArgumentException if either rate is not positive.
+	 */
+	public PolyphaseResampler(int inputRate, int outputRate)
+	{
+		if (inputRate <= 0 || outputRate <= 0)
+			throw new IllegalArgumentException("Sample rates must be positive.");
+
+		int gcd = gcd(inputRate, outputRate);
+		this.up = outputRate / gcd;
+		this.down = inputRate / gcd;
+		this.phases = (int)Math.min(up, MAX_PHASES);
+		this.taps = TAPS * (int)Math.max(1, (down + up - 1) / up);
+		this.coefficients = createFilter(phases, taps, Math.min(1.0, (double)up / down));
+		this.delay = ((long)phases * taps - 1) / 2;
+
+		this.buffer = new float[taps * 2];
+		this.bufferLength = taps - 1; // leading silence
+		this.bufferStart = -(taps - 1);
+		this.inputCount = 0;
+		this.outputCount = 0;
+	}
+
+	/**
+	 * Returns the maximum amount of output samples that a call to {@link #process(float[], int, float[])}
+	 * or {@link #flush(float[])} can produce for an amount of input samples.
+	 * @param inputLength the amount of input samples.
+	 * @return the maximum amount of output samples.
+	 */
+	public int getMaxOutputLength(int inputLength)
+	{
+		return (int)(((long)inputLength + taps) * up / down) + 2;
+	}
+
+	/**
+	 * Resamples a block of input samples.
+	 * @param in the input samples.
+	 * @param count the amount of input samples to use.
+	 * @param out the output array. Must hold at least {@link #getMaxOutputLength(int)} samples.
+	 * @return the amount of output samples written.
+	 */
+	public int process(float[] in, int count, float[] out)
+	{
+		append(in, count);
+		inputCount += count;
+		return drain(out, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Drains the rest of the output after the last input block.
+	 * @param out the output array. Must hold at least {@link #getMaxOutputLength(int)} samples (for 0 input).
+	 * @return the amount of output samples written.
+	 */
+	public int flush(float[] out)
+	{
+		float[] silence = new float[taps];
+		append(silence, silence.length);
+		long total = (inputCount * up + down - 1) / down;
+		return drain(out, total);
+	}
+
+	// Computes every output sample that has enough input.
+	private int drain(float[] out, long limit)
+	{
+		int n = 0;
+		long lastIndex = bufferStart + bufferLength - 1;
+		while (outputCount < limit)
+		{
+			long t = position(outputCount);
+			long i = t / phases;
+			if (i > lastIndex)
+				break;
+
+			int phase = (int)(t % phases) * taps;
+			int x = (int)(i - bufferStart);
+			float sum = 0f;
+			for (int j = 0; j < taps; j++)
+				sum += coefficients[phase + j] * buffer[x - j];
+			out[n++] = sum;
+			outputCount++;
+		}
+
+		// discard input that is no longer needed
+		long next = position(outputCount) / phases;
+		int discard = (int)Math.max(0, Math.min(bufferLength, next - (taps - 1) - bufferStart));
+		if (discard > 0)
+		{
+			System.arraycopy(buffer, discard, buffer, 0, bufferLength - discard);
+			bufferLength -= discard;
+			bufferStart += discard;
+		}
+		return n;
+	}
+
+	// Gets the (delayed) filter position of an output sample, in phase steps.
+	// The exact position is index * down / up input samples, rounded to the nearest phase.
+	private long position(long index)
+	{
+		if (phases == up)
+			return index * down + delay;
+		return (index * down * phases + up / 2) / up + delay;
+	}
+
+	private void append(float[] in, int count)
+	{
+		if (bufferLength + count > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(bufferLength + count, buffer.length * 2));
+		System.arraycopy(in, 0, buffer, bufferLength, count);
+		bufferLength += count;
+	}
+
+	// Creates the low-pass filter, split into phases:
+	// coefficient [p * taps + j] is prototype tap (p + j * phases).
+	// The bandwidth is the fraction of the input Nyquist frequency to keep.
+	private static float[] createFilter(int phases, int taps, double bandwidth)
+	{
+		int length = phases * taps;
+		// Kaiser's estimate of the transition width for this window and length (in cycles per prototype sample).
+		double attenuation = KAISER_BETA / 0.1102 + 8.7;
+		double transition = (attenuation - 7.95) / (14.36 * length);
+		// Put the end of the transition band at the Nyquist frequency.
+		double nyquist = 0.5 * bandwidth / phases;
+		double cutoff = Math.max(nyquist * 0.5, nyquist - transition / 2.0);
+		int center = (length - 1) / 2; // must match the delay
+		double i0Beta = besselI0(KAISER_BETA);
+
+		double[] prototype = new double[length];
+		double sum = 0.0;
+		for (int n = 0; n < length; n++)
+		{
+			double x = n - center;
+			double sinc = x == 0.0 ? 1.0 : Math.sin(2.0 * Math.PI * cutoff * x) / (2.0 * Math.PI * cutoff * x);
+			double r = x / (length / 2.0);
+			double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0.0, 1.0 - r * r))) / i0Beta;
+			prototype[n] = sinc * window;
+			sum += prototype[n];
+		}
+
+		float[] out = new float[length];
+		double gain = phases / sum;
+		for (int p = 0; p < phases; p++)
+			for (int j = 0; j < taps; j++)
+				out[p * taps + j] = (float)(prototype[p + j * phases] * gain);
+		return out;
+	}
+
+	// Zeroth-order modified Bessel function of the first kind.
+	private static double besselI0(double x)
+	{
+		double sum = 1.0;
+		double term = 1.0;
+		double half = x / 2.0;
+		for (int k = 1; k < 50; k++)
+		{
+			term *= (half / k) * (half / k);
+			sum += term;
+			if (term < sum * 1e-12)
+				break;
+		}
+		return sum;
+	}
+
+	private static int gcd(int a, int b)
+	{
+		while (b != 0)
+		{
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+}
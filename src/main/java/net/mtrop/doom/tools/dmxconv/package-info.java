@@ -0,0 +1,9 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+/**
+ * DMXConv audio conversion: DMX sound lump reading and writing, and sample rate conversion.
+ */
+package net.mtrop.doom.tools.dmxconv;
@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.doommake;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.mtrop.doom.tools.common.Common;
+import net.mtrop.doom.tools.struct.util.FileUtils;
+import net.mtrop.doom.tools.struct.util.HTTPUtils.HTTPRequest;
+import net.mtrop.doom.tools.struct.util.HTTPUtils.HTTPResponse;
+
+/**
+ * Cached HTTP downloads for DoomMake's FETCH function.
+ * <p>For each URL, an info file in the user's cache directory keeps the validators that the server sent
+ * (ETag and Last-Modified), plus the destination file's path, size, and modified time as it was written.
+ * The next fetch of the same URL to the same, unchanged file sends a conditional request, and if the server
+ * answers "Not Modified", the file is left alone. If the destination was changed or moved since, it is downloaded again.
+ * An interrupted download is kept in a partial file in the cache directory, and the next fetch asks for the rest of it
+ * with a Range request (if the server still has the same version of the resource).
+ * <p>Nothing is written next to the destination file except the file itself, so directories of fetched
+ * files can be merged as-is.
+ * <p>An optional checksum is checked before a new download replaces the destination file.
+ * @author Matthew Tropiano
+ */
+public final class DownloadCache
+{
+	/** Default cache directory. */
+	private static final File DEFAULT_DIR = Common.getCacheDirectory("fetch");
+
+	/** Info file suffix. */
+	private static final String INFO_SUFFIX = ".fetch";
+	/** Partial download file suffix. */
+	private static final String PART_SUFFIX = ".part";
+
+	private static final String KEY_URL = "url";
+	private static final String KEY_ETAG = "etag";
+	private static final String KEY_LAST_MODIFIED = "lastModified";
+	private static final String KEY_COMPLETE = "complete";
+	private static final String KEY_DEST_PATH = "destPath";
+	private static final String KEY_DEST_LENGTH = "destLength";
+	private static final String KEY_DEST_MODIFIED = "destModified";
+
+	private static final int STATUS_OK = 200;
+	private static final int STATUS_PARTIAL_CONTENT = 206;
+	private static final int STATUS_NOT_MODIFIED = 304;
+	private static final int STATUS_RANGE_NOT_SATISFIABLE = 416;
+
+	/** Content-Range header pattern (start, end, total). */
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+	/**
+	 * The result of a fetch.
+	 */
+	public enum Result
+	{
+		/** The whole file was downloaded. */
+		DOWNLOADED,
+		/** A partial download was finished. */
+		RESUMED,
+		/** The server reported that the file did not change. */
+		NOT_MODIFIED;
+	}
+
+	/**
+	 * Thrown if a downloaded file does not match its expected checksum.
+	 */
+	public static class ChecksumException extends IOException
+	{
+		private static final long serialVersionUID = -3262574516398937154L;
+
+		private ChecksumException(String message)
+		{
+			super(message);
+		}
+	}
+
+	private DownloadCache() {}
+
+	/**
+	 * Fetches a file from a URL, using the cached info from earlier fetches, if any.
+	 * <p>The checksum, if provided, is a hex digest, optionally prefixed with its algorithm name and a colon
+	 * (for example, <code>SHA-256:0123abcd...</code>). Without a prefix, the algorithm is guessed from the length
+	 * of the digest (MD5, SHA-1, or SHA-256).
+	 * @param url the URL (must be an HTTP or HTTPS URL).
+	 * @param destFile the destination file.
+	 * @param createDirs if true, create the directories for the destination, if not made.
+	 * @param timeoutMillis the socket read timeout in milliseconds.
+	 * @param checksum the expected checksum of the file, or null for no check.
+	 * @return the result of the fetch.
+	 * @throws FileNotFoundException if the destination directory does not exist (and was not created).
+	 * @throws IOException if the file could not be fetched, or the server returned an error.
+	 * @throws java.net.SocketTimeoutException if the connection timed out.
+	 * @throws ChecksumException if the file does not match the checksum.
+	 * @throws IllegalArgumentException if the checksum is malformed or its algorithm is not available.
+	 * @throws SecurityException if the OS is preventing the read or write.
+	 */
+	public static Result fetch(URL url, File destFile, boolean createDirs, int timeoutMillis, String checksum) throws IOException
+	{
+		return fetch(DEFAULT_DIR, url, destFile, createDirs, timeoutMillis, checksum);
+	}
+
+	/**
+	 * Fetches a file from a URL, using the cached info from earlier fetches, if any.
+	 * @param cacheDir the directory for info and partial files.
+	 * @param url the URL (must be an HTTP or HTTPS URL).
+	 * @param destFile the destination file.
+	 * @param createDirs if true, create the directories for the destination, if not made.
+	 * @param timeoutMillis the socket read timeout in milliseconds.
+	 * @param checksum the expected checksum of the file, or null for no check.
+	 * @return the result of the fetch.
+	 * @throws FileNotFoundException if the destination directory does not exist (and was not created).
+	 * @throws IOException if the file could not be fetched, or the server returned an error.
+	 * @throws java.net.SocketTimeoutException if the connection timed out.
+	 * @throws ChecksumException if the file does not match the checksum.
+	 * @throws IllegalArgumentException if the checksum is malformed or its algorithm is not available.
+	 * @throws SecurityException if the OS is preventing the read or write.
+	 * @see #fetch(URL, File, boolean, int, String)
+	 */
+	static Result fetch(File cacheDir, URL url, File destFile, boolean createDirs, int timeoutMillis, String checksum) throws IOException
+	{
+		if (createDirs && !FileUtils.createPathForFile(destFile))
+			throw new IOException("Could not create directories for target file: " + destFile.getPath());
+		else if (!destFile.getAbsoluteFile().getParentFile().isDirectory())
+			throw new FileNotFoundException("Destination directory does not exist: " + destFile.getAbsoluteFile().getParent());
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+			throw new IOException("Could not create download cache directory: " + cacheDir.getPath());
+
+		Checksum expected = checksum != null ? Checksum.parse(checksum) : null;
+		File infoFile = getInfoFile(cacheDir, url);
+		File partFile = getPartFile(cacheDir, url);
+
+		Properties info = readInfo(infoFile);
+		if (info != null && !url.toString().equals(info.getProperty(KEY_URL)))
+			info = null;
+
+		String etag = info != null ? info.getProperty(KEY_ETAG) : null;
+		String lastModified = info != null ? info.getProperty(KEY_LAST_MODIFIED) : null;
+		boolean complete = info != null && Boolean.parseBoolean(info.getProperty(KEY_COMPLETE));
+		boolean hasValidator = etag != null || lastModified != null;
+
+		HTTPRequest request = HTTPRequest.get(url.toString()).timeout(timeoutMillis);
+		long resumeOffset = 0L;
+		boolean conditional = complete && hasValidator && isUnchanged(info, destFile);
+		if (conditional)
+		{
+			if (etag != null)
+				request.setHeader("If-None-Match", etag);
+			if (lastModified != null)
+				request.setHeader("If-Modified-Since", lastModified);
+		}
+		else if (!complete && hasValidator && partFile.exists() && partFile.length() > 0)
+		{
+			resumeOffset = partFile.length();
+			request.setHeader("Range", "bytes=" + resumeOffset + "-");
+			request.setHeader("If-Range", etag != null ? etag : lastModified);
+		}
+		else
+		{
+			partFile.delete();
+		}
+
+		try (HTTPResponse response = request.send())
+		{
+			int status = response.getStatusCode();
+			if (status == STATUS_NOT_MODIFIED && !conditional)
+			{
+				throw new IOException("Server returned " + status + " " + response.getStatusMessage() + " for an unconditional request");
+			}
+			else if (status == STATUS_NOT_MODIFIED)
+			{
+				if (expected != null)
+					expected.check(destFile);
+				return Result.NOT_MODIFIED;
+			}
+			else if (status == STATUS_RANGE_NOT_SATISFIABLE && resumeOffset > 0)
+			{
+				// Partial file is no good - start over next time.
+				partFile.delete();
+				infoFile.delete();
+				throw new IOException("Server could not resume download: " + status + " " + response.getStatusMessage());
+			}
+			else if (status == STATUS_PARTIAL_CONTENT && !isRangeFrom(response.getHeader("Content-Range"), resumeOffset))
+			{
+				// Appending this would corrupt the file - start over next time.
+				partFile.delete();
+				infoFile.delete();
+				throw new IOException("Server sent content range \"" + response.getHeader("Content-Range") + "\", expected a range from byte " + resumeOffset);
+			}
+			else if (status != STATUS_OK && status != STATUS_PARTIAL_CONTENT)
+			{
+				throw new IOException("Server returned " + status + " " + response.getStatusMessage());
+			}
+
+			boolean append = status == STATUS_PARTIAL_CONTENT;
+			etag = response.getHeader("ETag");
+			lastModified = response.getHeader("Last-Modified");
+
+			// Keep the validators first, so that an interrupted download can be resumed.
+			writeInfo(infoFile, url, etag, lastModified, null);
+			try (OutputStream out = new FileOutputStream(partFile, append))
+			{
+				response.relayContent(out);
+			}
+
+			if (expected != null)
+			{
+				try {
+					expected.check(partFile);
+				} catch (ChecksumException e) {
+					partFile.delete();
+					infoFile.delete();
+					throw e;
+				}
+			}
+
+			Files.move(partFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			writeInfo(infoFile, url, etag, lastModified, destFile);
+			return append ? Result.RESUMED : Result.DOWNLOADED;
+		}
+	}
+
+	// Gets the info file for a URL.
+	static File getInfoFile(File cacheDir, URL url)
+	{
+		return new File(cacheDir, getKey(url) + INFO_SUFFIX);
+	}
+
+	// Gets the partial download file for a URL.
+	static File getPartFile(File cacheDir, URL url)
+	{
+		return new File(cacheDir, getKey(url) + PART_SUFFIX);
+	}
+
+	// Gets the cache file name for a URL (SHA-1 of the URL).
+	private static String getKey(URL url)
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-1 is required on all Java platforms.
+			throw new RuntimeException(e);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest(url.toString().getBytes(StandardCharsets.UTF_8)))
+			sb.append(String.format("%02x", b & 0x0ff));
+		return sb.toString();
+	}
+
+	// Checks if the destination file is the one that was written by the last complete fetch.
+	private static boolean isUnchanged(Properties info, File destFile) throws IOException
+	{
+		return destFile.isFile()
+			&& destFile.getCanonicalPath().equals(info.getProperty(KEY_DEST_PATH))
+			&& String.valueOf(destFile.length()).equals(info.getProperty(KEY_DEST_LENGTH))
+			&& String.valueOf(destFile.lastModified()).equals(info.getProperty(KEY_DEST_MODIFIED));
+	}
+
+	// Checks if a Content-Range header value starts at an offset.
+	private static boolean isRangeFrom(String contentRange, long offset)
+	{
+		if (contentRange == null || offset == 0L)
+			return false;
+		Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+		return matcher.matches() && Long.parseLong(matcher.group(1)) == offset;
+	}
+
+	// Returns null if no info.
+	private static Properties readInfo(File infoFile)
+	{
+		if (!infoFile.exists())
+			return null;
+		Properties out = new Properties();
+		try (InputStream in = new FileInputStream(infoFile))
+		{
+			out.load(in);
+			return out;
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	// Destination file is null if the download is not complete.
+	private static void writeInfo(File infoFile, URL url, String etag, String lastModified, File destFile) throws IOException
+	{
+		if (etag == null && lastModified == null)
+		{
+			// Nothing to validate with next time.
+			infoFile.delete();
+			return;
+		}
+		Properties info = new Properties();
+		info.setProperty(KEY_URL, url.toString());
+		if (etag != null)
+			info.setProperty(KEY_ETAG, etag);
+		if (lastModified != null)
+			info.setProperty(KEY_LAST_MODIFIED, lastModified);
+		info.setProperty(KEY_COMPLETE, String.valueOf(destFile != null));
+		if (destFile != null)
+		{
+			info.setProperty(KEY_DEST_PATH, destFile.getCanonicalPath());
+			info.setProperty(KEY_DEST_LENGTH, String.valueOf(destFile.length()));
+			info.setProperty(KEY_DEST_MODIFIED, String.valueOf(destFile.lastModified()));
+		}
+		try (OutputStream out = new FileOutputStream(infoFile))
+		{
+			info.store(out, "DoomMake FETCH info");
+		}
+	}
+
+	/**
+	 * An expected checksum.
+	 */
+	private static class Checksum
+	{
+		private final String algorithm;
+		private final String hex;
+
+		private Checksum(String algorithm, String hex)
+		{
+			this.algorithm = algorithm;
+			this.hex = hex;
+		}
+
+		private static Checksum parse(String checksum)
+		{
+			String algorithm;
+			String hex;
+			int colon = checksum.indexOf(':');
+			if (colon >= 0)
+			{
+				algorithm = checksum.substring(0, colon).trim();
+				hex = checksum.substring(colon + 1).trim();
+			}
+			else
+			{
+				hex = checksum.trim();
+				switch (hex.length())
+				{
+					case 32:
+						algorithm = "MD5";
+						break;
+					case 40:
+						algorithm = "SHA-1";
+						break;
+					case 64:
+						algorithm = "SHA-256";
+						break;
+					default:
+						throw new IllegalArgumentException("Could not guess the checksum algorithm from the checksum length. Prefix it with the algorithm name, like \"SHA-256:\".");
+				}
+			}
+			if (!hex.matches("[0-9A-Fa-f]+"))
+				throw new IllegalArgumentException("Checksum is not a hex string: " + hex);
+			try {
+				MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("Checksum algorithm is not available: " + algorithm);
+			}
+			return new Checksum(algorithm, hex.toLowerCase(Locale.ENGLISH));
+		}
+
+		private void check(File file) throws IOException
+		{
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("Checksum algorithm is not available: " + algorithm);
+			}
+
+			byte[] buffer = new byte[16384];
+			try (InputStream in = new FileInputStream(file))
+			{
+				int buf;
+				while ((buf = in.read(buffer)) > 0)
+					digest.update(buffer, 0, buf);
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest())
+				sb.append(String.format("%02x", b & 0x0ff));
+			if (!sb.toString().equals(hex))
+				throw new ChecksumException(algorithm + " checksum mismatch for " + file.getPath() + ": expected " + hex + ", got " + sb);
+		}
+	}
+
+}
@@ -17,13 +17,24 @@ import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -39,6 +50,8 @@ import com.blackrook.rookscript.resolvers.ScriptFunctionResolver;
 import com.blackrook.rookscript.resolvers.hostfunction.EnumFunctionResolver;
 import com.blackrook.rookscript.struct.PatternUtils;
 
+import net.mtrop.doom.tools.doommake.DownloadCache;
+import net.mtrop.doom.tools.doommake.DownloadCache.ChecksumException;
 import net.mtrop.doom.tools.struct.util.FileUtils;
 import net.mtrop.doom.tools.struct.util.IOUtils;
 import net.mtrop.doom.tools.common.Common;
@@ -490,14 +503,17 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 		}
 	},
 	
-	FETCH(4)
+	FETCH(5)
 	{
 		@Override
 		protected Usage usage() 
 		{
 			return ScriptFunctionUsage.create()
 				.instructions(
-					"Fetches a file from a URL and writes it to a destination file."
+					"Fetches a file from a URL and writes it to a destination file. " +
+					"HTTP(S) downloads are cached: the server's ETag/Last-Modified info is kept in the user's cache directory " +
+					"(nothing is added next to the destination file), so later fetches only download the file again if it " +
+					"changed on the server or was changed locally, and interrupted downloads are resumed."
 				)
 				.parameter("url", 
 					type(Type.STRING, "URL path."),
@@ -514,10 +530,17 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 					type(Type.NULL, "Use 5000 ms."),
 					type(Type.INTEGER, "Timeout in milliseconds.")
 				)
+				.parameter("checksum", 
+					type(Type.NULL, "No checksum verification."),
+					type(Type.STRING, "The expected checksum as a hex string, optionally prefixed with an algorithm name (e.g. \"SHA-256:0123abcd...\"). " +
+						"Without a prefix, MD5, SHA-1, or SHA-256 is assumed by length.")
+				)
 				.returns(
 					type(Type.NULL, "If the URL or the destination file is null."),
-					type(Type.OBJECTREF, "File", "The downloaded file."),
+					type(Type.OBJECTREF, "File", "The downloaded (or unchanged) file."),
 					type(Type.ERROR, "BadURL", "If the provided URL is malformed."),
+					type(Type.ERROR, "BadFile", "If the destination directory does not exist."),
+					type(Type.ERROR, "BadChecksum", "If the checksum is malformed, or the file does not match it."),
 					type(Type.ERROR, "Timeout", "If the connection timed out."),
 					type(Type.ERROR, "IOError", "If the connection could not be opened."),
 					type(Type.ERROR, "Security", "If the OS is preventing the read or write.")
@@ -531,6 +554,8 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 			ScriptValue temp = CACHEVALUE1.get();
 			try 
 			{
+				scriptInstance.popStackValue(temp);
+				String checksum = temp.isNull() ? null : temp.asString();
 				scriptInstance.popStackValue(temp);
 				int timeoutMs = temp.isNull() ? 5000 : temp.asInt();
 				scriptInstance.popStackValue(temp);
@@ -550,6 +575,25 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 					return true;
 				}
 				
+				if (isHTTPURL(url))
+				{
+					try {
+						DownloadCache.fetch(url, destFile, createDirs, timeoutMs, checksum);
+						returnValue.set(destFile);
+					} catch (IllegalArgumentException | ChecksumException e) {
+						returnValue.setError("BadChecksum", e.getMessage(), e.getLocalizedMessage());
+					} catch (SocketTimeoutException e) {
+						returnValue.setError("Timeout", e.getMessage(), e.getLocalizedMessage());
+					} catch (FileNotFoundException e) {
+						returnValue.setError("BadFile", e.getMessage(), e.getLocalizedMessage());
+					} catch (IOException e) {
+						returnValue.setError("IOError", e.getMessage(), e.getLocalizedMessage());
+					} catch (SecurityException e) {
+						returnValue.setError("Security", e.getMessage(), e.getLocalizedMessage());
+					}
+					return true;
+				}
+				
 				URLConnection urlConn;
 				try {
 					urlConn = url.openConnection();
@@ -579,7 +623,8 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 		{
 			return ScriptFunctionUsage.create()
 				.instructions(
-					"Unzips a Zip archive to a target directory, preserving directory structure."
+					"Unzips a Zip archive to a target directory, preserving directory structure. " +
+					"Entries are extracted in parallel, and files that already have the same size and CRC-32 as their entry are not written again."
 				)
 				.parameter("zipFile", 
 					type(Type.STRING, "Zip file path."),
@@ -595,7 +640,7 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 				)
 				.returns(
 					type(Type.NULL, "If the zip file or the destination directory is null."),
-					type(Type.LIST, "[OBJECTREF:File, ...]", "The list of created files."),
+					type(Type.LIST, "[OBJECTREF:File, ...]", "The list of created (or already identical) files, in archive order."),
 					type(Type.ERROR, "BadFile", "If the provided destination is not a directory."),
 					type(Type.ERROR, "BadZip", "If the provided file is not a zip file."),
 					type(Type.ERROR, "IOError", "If a read or write error occurs."),
@@ -638,28 +683,19 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 					entrySet.add(temp.asString());
 				}
 
-				returnValue.setEmptyList(64);
 				try (ZipFile zf = new ZipFile(zipFile))
 				{
+					List<ZipEntry> zipEntries = new ArrayList<>(zf.size());
 					ZipEntry entry;
 					for (Enumeration<? extends ZipEntry> en = zf.entries(); en.hasMoreElements();)
 					{
 						entry = en.nextElement();
-						
 						if (entrySet.isEmpty() || entrySet.contains(entry.getName()))
-						{
-							try (InputStream in = zf.getInputStream(entry))
-							{
-								writeFile(in, new File(destDir.getPath() + File.separator + entry.getName()), true, temp);
-								returnValue.listAdd(temp);
-							}
-							catch (IOException e)
-							{
-								returnValue.setError("IOError", "Couldn't read from zip file: " + zipFile.getPath());
-								return true;
-							}
-						}
+							zipEntries.add(entry);
 					}
+					
+					returnValue.setEmptyList(Math.max(zipEntries.size(), 1));
+					unzipEntries(zf, zipFile, zipEntries, destDir, returnValue);
 				} 
 				catch (ZipException e) 
 				{
@@ -849,6 +885,115 @@ public enum DoomMakeFunctions implements ScriptFunctionType
 			return new URL(temp.asString());
 	}
 	
+	// Extracts zip entries in parallel. Return value is file list.
+	// Entries with the same target file are extracted once: the last one in the archive wins, as with serial extraction.
+	private static void unzipEntries(final ZipFile zf, File zipFile, List<ZipEntry> allEntries, final File destDir, ScriptValue returnValue)
+	{
+		Map<Path, ZipEntry> targets = new LinkedHashMap<>(allEntries.size());
+		for (ZipEntry entry : allEntries)
+		{
+			Path target = new File(destDir, entry.getName()).getAbsoluteFile().toPath().normalize();
+			targets.remove(target);
+			targets.put(target, entry);
+		}
+		List<ZipEntry> zipEntries = new ArrayList<>(targets.values());
+		
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), zipEntries.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+			Thread out = new Thread(runnable);
+			out.setName("DoomMakeUnzip-" + out.getId());
+			out.setDaemon(true);
+			return out;
+		});
+		
+		try {
+			// Directories first, so that no file is written before its parent is made.
+			for (ZipEntry entry : zipEntries)
+			{
+				if (entry.isDirectory())
+					new File(destDir, entry.getName()).mkdirs();
+			}
+			
+			List<Future<File>> results = new ArrayList<>(zipEntries.size());
+			for (final ZipEntry entry : zipEntries)
+				results.add(executor.submit(() -> unzipEntry(zf, entry, destDir)));
+			
+			// Results are collected in archive order.
+			for (int i = 0; i < results.size(); i++)
+			{
+				try {
+					returnValue.listAdd(results.get(i).get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SecurityException)
+						returnValue.setError("Security", cause.getMessage(), cause.getLocalizedMessage());
+					else
+						returnValue.setError("IOError", "Couldn't extract \"" + zipEntries.get(i).getName() + "\" from zip file: " + zipFile.getPath() + ": " + cause.getLocalizedMessage());
+					return;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					returnValue.setError("IOError", "Extraction from zip file was interrupted: " + zipFile.getPath());
+					return;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			// The caller closes the zip file on return, so wait for running extractions to stop reading it.
+			boolean interrupted = false;
+			while (true)
+			{
+				try {
+					if (executor.awaitTermination(1, TimeUnit.MINUTES))
+						break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+	
+	// Extracts a single zip entry, unless the target already matches it.
+	private static File unzipEntry(ZipFile zf, ZipEntry entry, File destDir) throws IOException
+	{
+		File target = new File(destDir, entry.getName());
+		if (entry.isDirectory())
+			return target;
+		if (isSameContent(target, entry))
+			return target;
+		if (!FileUtils.createPathForFile(target))
+			throw new IOException("Could not create directories for target file: " + target.getPath());
+		try (InputStream in = zf.getInputStream(entry); FileOutputStream fos = new FileOutputStream(target))
+		{
+			IOUtils.relay(in, fos, 65536);
+		}
+		return target;
+	}
+	
+	// Checks if a file has the same length and CRC-32 as a zip entry.
+	private static boolean isSameContent(File file, ZipEntry entry) throws IOException
+	{
+		if (!file.isFile() || entry.getSize() < 0 || entry.getCrc() < 0 || file.length() != entry.getSize())
+			return false;
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[65536];
+		try (InputStream in = new FileInputStream(file))
+		{
+			int buf;
+			while ((buf = in.read(buffer)) > 0)
+				crc.update(buffer, 0, buf);
+		}
+		return crc.getValue() == entry.getCrc();
+	}
+	
+	// Checks if a URL can be fetched with HTTP.
+	private static boolean isHTTPURL(URL url)
+	{
+		String protocol = url.getProtocol();
+		return "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol);
+	}
+	
 	// Return value is file list.
 	private static void copyDir(File base, File srcDir, File destDir, boolean recursive, FileFilter filter, ScriptValue returnValue)
 	{
@@ -10,6 +10,7 @@ import static com.blackrook.rookscript.lang.ScriptFunctionUsage.type;
 import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.function.IntSupplier;
 
 import com.blackrook.rookscript.ScriptInstance;
 import com.blackrook.rookscript.ScriptIteratorType;
@@ -31,6 +32,8 @@ import net.mtrop.doom.tools.WTExportMain;
 import net.mtrop.doom.tools.WTexScanMain;
 import net.mtrop.doom.tools.WadMergeMain;
 import net.mtrop.doom.tools.WadScriptMain;
+import net.mtrop.doom.tools.common.FlightEvents;
+import net.mtrop.doom.tools.common.FlightEvents.ToolInvocationEvent;
 import net.mtrop.doom.tools.exception.OptionParseException;
 import net.mtrop.doom.tools.struct.util.StringUtils;
 
@@ -90,7 +93,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						return true;
 					}
 				}
-				returnValue.set(DoomToolsMain.call(options));
+				returnValue.set(invoke(() -> DoomToolsMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -164,7 +167,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						return true;
 					}
 				}
-				returnValue.set(DoomMakeMain.call(options));
+				returnValue.set(invoke(() -> DoomMakeMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -240,7 +243,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						return true;
 					}
 				}
-				returnValue.set(DecoHackMain.call(options));
+				returnValue.set(invoke(() -> DecoHackMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -312,7 +315,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						return true;
 					}
 				}
-				returnValue.set(DoomImageConvertMain.call(options));
+				returnValue.set(invoke(() -> DoomImageConvertMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -396,7 +399,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						}
 					}
 				}
-				returnValue.set(DMXConvertMain.call(options));
+				returnValue.set(invoke(() -> DMXConvertMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -480,7 +483,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 					}
 				}
 
-				returnValue.set(WadMergeMain.call(options));
+				returnValue.set(invoke(() -> WadMergeMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -567,7 +570,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 					}
 				}
 
-				returnValue.set(WadScriptMain.call(options));
+				returnValue.set(invoke(() -> WadScriptMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -639,7 +642,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						return true;
 					}
 				}
-				returnValue.set(WADTexMain.call(options));
+				returnValue.set(invoke(() -> WADTexMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -708,7 +711,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 						return true;
 					}
 				}
-				returnValue.set(WSwAnTablesMain.call(options));
+				returnValue.set(invoke(() -> WSwAnTablesMain.call(options)));
 				return true;
 			} catch (ClassCastException e) {
 				returnValue.setError("BadOptions", "Options Map could not be applied: " + e.getLocalizedMessage());
@@ -792,7 +795,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 					}
 				}
 
-				returnValue.set(WTExportMain.call(options));
+				returnValue.set(invoke(() -> WTExportMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -877,7 +880,7 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 					}
 				}
 
-				returnValue.set(WTexScanMain.call(options));
+				returnValue.set(invoke(() -> WTexScanMain.call(options)));
 				return true;
 			} catch (OptionParseException e) {
 				returnValue.setError("BadOptions", "Option argument parse failed: " + e.getLocalizedMessage());
@@ -931,6 +934,20 @@ public enum ToolInvocationFunctions implements ScriptFunctionType
 	@Override
 	public abstract boolean execute(ScriptInstance scriptInstance, ScriptValue returnValue);
 
+	/**
+	 * Calls a tool, recording a flight event for it.
+	 * @param call the tool call.
+	 * @return the tool's return code.
+	 */
+	protected final int invoke(IntSupplier call)
+	{
+		ToolInvocationEvent event = FlightEvents.beginToolInvocation();
+		int out = call.getAsInt();
+		if (event != null && event.isEnabled())
+			event.finish(name(), out);
+		return out;
+	}
+
 	// Threadlocal "stack" values.
 	private static final ThreadLocal<ScriptValue> CACHEVALUE1 = ThreadLocal.withInitial(()->ScriptValue.create(null));
 	private static final ThreadLocal<ScriptValue> CACHEVALUE2 = ThreadLocal.withInitial(()->ScriptValue.create(null));
@@ -8,11 +8,30 @@ package net.mtrop.doom.tools.gui;
 import java.awt.Rectangle;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JFrame;
 
@@ -124,6 +143,41 @@ public final class DoomToolsGUIMain
 
     /** Instance socket. */
 	private static final int INSTANCE_SOCKET_PORT = 54666;
+	/** Instance request header. */
+	private static final String INSTANCE_REQUEST_HEADER = "DoomTools-Open/2";
+	/** Instance token file. Only the user (and processes running as the user) can read it. */
+	private static final File INSTANCE_TOKEN_FILE = new File(DoomToolsConstants.Paths.APPDATA_PATH + "instance.token");
+	/** Instance token length in bytes. */
+	private static final int INSTANCE_TOKEN_LENGTH = 32;
+	/** Instance request connect timeout in milliseconds. */
+	private static final int INSTANCE_CONNECT_TIMEOUT_MILLIS = 500;
+	/** Instance request reply timeout in milliseconds. */
+	private static final int INSTANCE_REPLY_TIMEOUT_MILLIS = 5000;
+	/** Instance request name for the main window. */
+	private static final String MAIN_WINDOW_NAME = "";
+	/** The set of valid application names. */
+	private static final Set<String> APPLICATION_NAME_SET = new HashSet<>(Arrays.asList(
+		ApplicationNames.DECOHACK,
+		ApplicationNames.DECOHACK_COMPILER,
+		ApplicationNames.DIMGCONVERT,
+		ApplicationNames.DMXCONVERT,
+		ApplicationNames.DOOMMAKE_NEW,
+		ApplicationNames.DOOMMAKE_OPEN,
+		ApplicationNames.DOOMMAKE_STUDIO,
+		ApplicationNames.WADMERGE,
+		ApplicationNames.WADMERGE_EXECUTOR,
+		ApplicationNames.WADSCRIPT,
+		ApplicationNames.WADSCRIPT_EXECUTOR,
+		ApplicationNames.WADTEX,
+		ApplicationNames.WADTEX_COMPILER,
+		ApplicationNames.WSWANTBL,
+		ApplicationNames.WSWANTBL_COMPILER,
+		ApplicationNames.WTEXSCAN,
+		ApplicationNames.WTEXPORT,
+		ApplicationNames.WTEXSCAN_WTEXPORT
+	));
+	/** Open standalone application frames in this JVM. */
+	private static final Map<DoomToolsApplicationFrame, DoomToolsApplicationInstance> OPEN_FRAMES = Collections.synchronizedMap(new LinkedHashMap<>());
     /** The instance encapsulator. */
     private static final SingletonProvider<DoomToolsGUIMain> INSTANCE = new SingletonProvider<>(() -> new DoomToolsGUIMain());
     /** Application starter linker. */
@@ -136,9 +190,12 @@ public final class DoomToolsGUIMain
 		}
 	};
     
-    /** Instance socket. */
-    @SuppressWarnings("unused")
+    /** Instance socket. If this JVM hosts the instance, it accepts open requests. */
 	private static ServerSocket instanceSocket;
+    /** If true, this JVM accepts open requests. */
+	private static volatile boolean instanceHost = false;
+    /** The token that open requests must have. Null if it could not be written (no requests are accepted). */
+	private static volatile String instanceToken = null;
     
 	/**
 	 * @return the singleton instance of this settings object.
@@ -149,6 +206,8 @@ public final class DoomToolsGUIMain
 	}
 
 	/**
+	 * Checks for a running instance by binding the instance socket.
+	 * If this returns false, this JVM holds the socket.
 	 * @return true if already running, false if not.
 	 */
 	public static boolean isAlreadyRunning()
@@ -162,31 +221,236 @@ public final class DoomToolsGUIMain
 	}
 	
 	/**
-	 * Starts an orphaned main GUI Application.
-	 * Inherits the working directory and environment.
-	 * @return the process created.
+	 * Starts the main GUI Application.
+	 * If DoomTools is already running, its main window is shown, instead.
+	 * Otherwise, this starts an orphaned process that inherits the working directory and environment.
+	 * @return the process created, or null if the running instance opened it.
 	 * @throws IOException if the application could not be created.
 	 * @see Common#spawnJava(Class) 
 	 */
 	public static Process startGUIAppProcess() throws IOException
 	{
+		if (instanceHost)
+		{
+			SwingUtils.invoke(() -> openMainWindow());
+			return null;
+		}
+		if (sendInstanceRequest(MAIN_WINDOW_NAME))
+			return null;
 		return Common.spawnJava(DoomToolsGUIMain.class).exec();
 	}
 	
 	/**
-	 * Starts an orphaned GUI Application by name.
-	 * Inherits the working directory and environment.
+	 * Starts a GUI Application by name.
+	 * If DoomTools is already running (including this JVM), the application is opened 
+	 * as a new window in the running instance, instead of in a new JVM.
+	 * Otherwise, this starts an orphaned process that inherits the working directory and environment.
+	 * Relative paths in the arguments are resolved by the running instance, so pass absolute paths.
 	 * @param appName the application name (see {@link ApplicationNames}).
 	 * @param args optional addition arguments (some apps require them).
-	 * @return the process created.
+	 * @return the process created, or null if the running instance opened it.
 	 * @throws IOException if the application could not be created.
 	 * @see Common#spawnJava(Class) 
 	 */
 	public static Process startGUIAppProcess(String appName, String ... args) throws IOException
 	{
+		if (instanceHost && APPLICATION_NAME_SET.contains(appName))
+		{
+			SwingUtils.invoke(() -> openApplication(appName, args));
+			return null;
+		}
+		if (sendInstanceRequest(appName, args))
+			return null;
 		return Common.spawnJava(DoomToolsGUIMain.class).arg(appName).args(args).exec();
 	}
 	
+	// Starts accepting open requests on the instance socket. Must hold the socket.
+	private static void startInstanceHost()
+	{
+		if (instanceSocket == null || instanceHost)
+			return;
+		instanceHost = true;
+		try {
+			instanceToken = writeInstanceToken();
+		} catch (IOException | SecurityException e) {
+			LOG.errorf(e, "Could not write instance token. Open requests from other DoomTools processes will be refused.");
+		}
+		Thread thread = new Thread(() -> {
+			while (!instanceSocket.isClosed())
+			{
+				try (Socket socket = instanceSocket.accept())
+				{
+					handleInstanceRequest(socket);
+				} catch (IOException e) {
+					LOG.errorf(e, "Could not handle instance request.");
+				}
+			}
+		});
+		thread.setName("DoomToolsInstanceHost");
+		// Does not keep the JVM alive after the last window closes.
+		thread.setDaemon(true);
+		thread.start();
+		LOG.info("Accepting open requests from other DoomTools processes.");
+	}
+	
+	// Reads and runs one open request.
+	private static void handleInstanceRequest(Socket socket) throws IOException
+	{
+		socket.setSoTimeout(INSTANCE_REPLY_TIMEOUT_MILLIS);
+		DataInputStream in = new DataInputStream(socket.getInputStream());
+		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+		if (!INSTANCE_REQUEST_HEADER.equals(in.readUTF()))
+		{
+			LOG.warn("Ignored instance request: bad header.");
+			return;
+		}
+		// Any local process can connect to the socket - only ones that can read the token file are accepted.
+		String token = in.readUTF();
+		String expected = instanceToken;
+		if (expected == null || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8)))
+		{
+			LOG.warn("Ignored instance request: bad token.");
+			return;
+		}
+		
+		final String appName = in.readUTF();
+		final String[] args = new String[in.readInt()];
+		for (int i = 0; i < args.length; i++)
+			args[i] = in.readUTF();
+		
+		boolean accepted;
+		if (MAIN_WINDOW_NAME.equals(appName))
+		{
+			LOG.info("Opening main window for instance request.");
+			SwingUtils.invoke(() -> openMainWindow());
+			accepted = true;
+		}
+		else if (APPLICATION_NAME_SET.contains(appName))
+		{
+			LOG.infof("Opening application \"%s\" for instance request.", appName);
+			SwingUtils.invoke(() -> openApplication(appName, args));
+			accepted = true;
+		}
+		else
+		{
+			LOG.warnf("Ignored instance request: bad application name \"%s\".", appName);
+			accepted = false;
+		}
+		out.writeBoolean(accepted);
+		out.flush();
+	}
+	
+	/**
+	 * Asks the running instance (in another JVM) to open an application.
+	 * @param appName the application name, or {@link #MAIN_WINDOW_NAME} for the main window.
+	 * @param args the additional arguments.
+	 * @return true if the running instance accepted the request, false if no instance is running or it did not accept it.
+	 */
+	private static boolean sendInstanceRequest(String appName, String ... args)
+	{
+		String token;
+		try {
+			token = readInstanceToken();
+		} catch (IOException | SecurityException e) {
+			LOG.debugf("No instance token: %s", e.getLocalizedMessage());
+			return false;
+		}
+		
+		try (Socket socket = new Socket())
+		{
+			socket.connect(new InetSocketAddress(InetAddress.getByName(null), INSTANCE_SOCKET_PORT), INSTANCE_CONNECT_TIMEOUT_MILLIS);
+			socket.setSoTimeout(INSTANCE_REPLY_TIMEOUT_MILLIS);
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeUTF(INSTANCE_REQUEST_HEADER);
+			out.writeUTF(token);
+			out.writeUTF(appName);
+			out.writeInt(args.length);
+			for (String arg : args)
+				out.writeUTF(arg != null ? arg : "");
+			out.flush();
+			return new DataInputStream(socket.getInputStream()).readBoolean();
+		} catch (IOException e) {
+			// No instance, or one that did not answer.
+			LOG.debugf("No instance accepted the request: %s", e.getLocalizedMessage());
+			return false;
+		}
+	}
+	
+	// Writes a new random instance token file, readable only by the user where the file system supports it.
+	private static String writeInstanceToken() throws IOException
+	{
+		byte[] bytes = new byte[INSTANCE_TOKEN_LENGTH];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b & 0x0ff));
+		String token = sb.toString();
+		
+		File dir = INSTANCE_TOKEN_FILE.getParentFile();
+		if (!dir.mkdirs() && !dir.isDirectory())
+			throw new IOException("Could not create directory: " + dir.getPath());
+		
+		// Written to a new file and moved into place, so that the permissions are set before the token is in it.
+		Path temp;
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+			temp = Files.createTempFile(dir.toPath(), "instance", ".tmp", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		else
+			temp = Files.createTempFile(dir.toPath(), "instance", ".tmp");
+		try {
+			Files.write(temp, token.getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, INSTANCE_TOKEN_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return token;
+	}
+	
+	// Reads the running instance's token.
+	private static String readInstanceToken() throws IOException
+	{
+		return new String(Files.readAllBytes(INSTANCE_TOKEN_FILE.toPath()), StandardCharsets.UTF_8).trim();
+	}
+	
+	// Shows the main window, creating it if this JVM does not have one. Swing thread.
+	private static void openMainWindow()
+	{
+		DoomToolsGUIMain main = get();
+		if (main.window == null)
+		{
+			DoomToolsGUIPreWarmer.get();
+			main.createAndDisplayMainWindow();
+		}
+		else
+		{
+			main.window.setVisible(true);
+			if ((main.window.getExtendedState() & JFrame.ICONIFIED) != 0)
+				main.window.setExtendedState(main.window.getExtendedState() & ~JFrame.ICONIFIED);
+			main.window.toFront();
+		}
+	}
+	
+	// Closes all open application frames, prompting each app first.
+	private static boolean closeApplicationFrames()
+	{
+		List<Map.Entry<DoomToolsApplicationFrame, DoomToolsApplicationInstance>> frames;
+		synchronized (OPEN_FRAMES)
+		{
+			frames = new ArrayList<>(OPEN_FRAMES.entrySet());
+		}
+		for (Map.Entry<DoomToolsApplicationFrame, DoomToolsApplicationInstance> entry : frames)
+		{
+			DoomToolsApplicationFrame frame = entry.getKey();
+			DoomToolsApplicationInstance applicationInstance = entry.getValue();
+			if (!applicationInstance.shouldClose())
+				return false;
+			frame.setVisible(false);
+			applicationInstance.onClose(frame);
+			frame.dispose();
+			OPEN_FRAMES.remove(frame);
+		}
+		return true;
+	}
+	
 	// Sets the exception handler.
 	private static void setExceptionHandler()
 	{
@@ -215,77 +479,50 @@ public final class DoomToolsGUIMain
 					frame.setVisible(false);
 					applicationInstance.onClose(e.getSource());
 					frame.dispose();
+					OPEN_FRAMES.remove(frame);
 				}
 			}
 		});
+		OPEN_FRAMES.put(frame, applicationInstance);
 		frame.setVisible(true);
 	}
 	
 	/**
-	 * Sets the preferred Look And Feel.
-	 */
-	public static void setLAF() 
-	{
-		if (OSUtils.isOSX())
-			System.setProperty("apple.laf.useScreenMenuBar", "true");
-		GUIThemeType theme = GUIThemeType.MAP.get(DoomToolsSettingsManager.get().getThemeName());
-		SwingUtils.setLAF(theme != null ? theme.className : GUIThemeType.LIGHT.className);
-	}
-	
-
-    /* ==================================================================== */
-
-	/**
-	 * Main method - check for running local instance. If running, do nothing.
-	 * @param args command line arguments.
+	 * Opens a standalone application by name in this JVM, as a new frame.
+	 * @param appName the application name (see {@link ApplicationNames}).
+	 * @param args the additional arguments (some apps require them).
+	 * @return true if the name is a valid application name, false if not.
 	 */
-	public static void main(String[] args) 
+	private static boolean openApplication(String appName, String[] args)
 	{
-		setLAF();
-		setExceptionHandler();
-		
-		// no args - run main application.
-		if (args.length == 0)
-		{
-	    	if (isAlreadyRunning())
-	    	{
-	    		System.err.println("DoomTools is already running.");
-	    		System.exit(1);
-	    		return;
-	    	}
-	    	DoomToolsGUIPreWarmer.get();
-			get().createAndDisplayMainWindow();
-		}
-
-		// run standalone application.
-		else if (ApplicationNames.DECOHACK.equals(args[0]))
+		if (ApplicationNames.DECOHACK.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new DecoHackEditorApp(path != null ? new File(path) : null));
 		}
-		else if (ApplicationNames.DECOHACK_COMPILER.equals(args[0]))
+		else if (ApplicationNames.DECOHACK_COMPILER.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new DecoHackCompilerApp(path));
 		}
-		else if (ApplicationNames.DIMGCONVERT.equals(args[0]))
+		else if (ApplicationNames.DIMGCONVERT.equals(appName))
 		{
 			startApplication(new DImageConvertApp());
 		}
-		else if (ApplicationNames.DMXCONVERT.equals(args[0]))
+		else if (ApplicationNames.DMXCONVERT.equals(appName))
 		{
 			startApplication(new DMXConvertApp());
 		}
-		else if (ApplicationNames.DOOMMAKE_NEW.equals(args[0]))
+		else if (ApplicationNames.DOOMMAKE_NEW.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			if (ObjectUtils.isEmpty(path))
 				path = null;
-			startApplication(new DoomMakeNewProjectApp(path, !ObjectUtils.isEmpty(ArrayUtils.arrayElement(args, 2))));
+			startApplication(new DoomMakeNewProjectApp(path, !ObjectUtils.isEmpty(ArrayUtils.arrayElement(args, 1))));
 		}
-		else if (ApplicationNames.DOOMMAKE_OPEN.equals(args[0]))
+		else if (ApplicationNames.DOOMMAKE_OPEN.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			
 			// No path. Open file.
 			if (ObjectUtils.isEmpty(path))
@@ -296,16 +533,16 @@ public final class DoomToolsGUIMain
 			}
 			else
 			{
-				File projectDirectory = new File(args[1]);
+				File projectDirectory = new File(path);
 				if (DoomMakeOpenProjectApp.isProjectDirectory(projectDirectory))
 					startApplication(new DoomMakeOpenProjectApp(projectDirectory));
 				else
 					SwingUtils.error(DoomToolsLanguageManager.get().getText("doommake.project.open.browse.baddir", projectDirectory.getAbsolutePath()));
 			}
 		}
-		else if (ApplicationNames.DOOMMAKE_STUDIO.equals(args[0]))
+		else if (ApplicationNames.DOOMMAKE_STUDIO.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			
 			// No path. Open file.
 			if (ObjectUtils.isEmpty(path))
@@ -316,72 +553,140 @@ public final class DoomToolsGUIMain
 			}
 			else
 			{
-				File projectDirectory = new File(args[1]);
+				File projectDirectory = new File(path);
 				if (DoomMakeStudioApp.isProjectDirectory(projectDirectory))
 					startApplication(new DoomMakeStudioApp(projectDirectory));
 				else
 					SwingUtils.error(DoomToolsLanguageManager.get().getText("doommake.project.open.browse.baddir", projectDirectory.getAbsolutePath()));
 			}
 		}
-		else if (ApplicationNames.WADMERGE.equals(args[0]))
+		else if (ApplicationNames.WADMERGE.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WadMergeEditorApp(path != null ? new File(path) : null));
 		}
-		else if (ApplicationNames.WADMERGE_EXECUTOR.equals(args[0]))
+		else if (ApplicationNames.WADMERGE_EXECUTOR.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WadMergeExecutorApp(path));
 		}
-		else if (ApplicationNames.WADSCRIPT.equals(args[0]))
+		else if (ApplicationNames.WADSCRIPT.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WadScriptEditorApp(path != null ? new File(path) : null));
 		}
-		else if (ApplicationNames.WADSCRIPT_EXECUTOR.equals(args[0]))
+		else if (ApplicationNames.WADSCRIPT_EXECUTOR.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WadScriptExecutorApp(path));
 		}
-		else if (ApplicationNames.WADTEX.equals(args[0]))
+		else if (ApplicationNames.WADTEX.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WadTexEditorApp(path != null ? new File(path) : null));
 		}
-		else if (ApplicationNames.WADTEX_COMPILER.equals(args[0]))
+		else if (ApplicationNames.WADTEX_COMPILER.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WadTexCompilerApp(path != null ? path : null));
 		}
-		else if (ApplicationNames.WSWANTBL.equals(args[0]))
+		else if (ApplicationNames.WSWANTBL.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WSwAnTablesEditorApp(path != null ? new File(path) : null));
 		}
-		else if (ApplicationNames.WSWANTBL_COMPILER.equals(args[0]))
+		else if (ApplicationNames.WSWANTBL_COMPILER.equals(appName))
 		{
-			String path = ArrayUtils.arrayElement(args, 1);
+			String path = ArrayUtils.arrayElement(args, 0);
 			startApplication(new WSwAnTablesCompilerApp(path));
 		}
-		else if (ApplicationNames.WTEXSCAN.equals(args[0]))
+		else if (ApplicationNames.WTEXSCAN.equals(appName))
 		{
 			startApplication(new WTexScanApp());
 		}
-		else if (ApplicationNames.WTEXPORT.equals(args[0]))
+		else if (ApplicationNames.WTEXPORT.equals(appName))
 		{
 			startApplication(new WTExportApp());
 		}
-		else if (ApplicationNames.WTEXSCAN_WTEXPORT.equals(args[0]))
+		else if (ApplicationNames.WTEXSCAN_WTEXPORT.equals(appName))
 		{
 			startApplication(new WTexScanTExportApp());
 		}
 		else
+		{
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Sets the preferred Look And Feel.
+	 */
+	public static void setLAF() 
+	{
+		if (OSUtils.isOSX())
+			System.setProperty("apple.laf.useScreenMenuBar", "true");
+		GUIThemeType theme = GUIThemeType.MAP.get(DoomToolsSettingsManager.get().getThemeName());
+		SwingUtils.setLAF(theme != null ? theme.className : GUIThemeType.LIGHT.className);
+	}
+	
+
+    /* ==================================================================== */
+
+	/**
+	 * Main method - check for running local instance. 
+	 * If running, the main window or application is opened in that instance instead.
+	 * @param args command line arguments.
+	 */
+	public static void main(String[] args) 
+	{
+		setLAF();
+		setExceptionHandler();
+		
+		// no args - run main application.
+		if (args.length == 0)
+		{
+	    	if (isAlreadyRunning())
+	    	{
+	    		if (sendInstanceRequest(MAIN_WINDOW_NAME))
+	    		{
+	    			System.exit(0);
+	    			return;
+	    		}
+	    		System.err.println("DoomTools is already running.");
+	    		System.exit(1);
+	    		return;
+	    	}
+	    	startInstanceHost();
+	    	DoomToolsGUIPreWarmer.get();
+			get().createAndDisplayMainWindow();
+			return;
+		}
+
+		String appName = args[0];
+		String[] appArgs = Arrays.copyOfRange(args, 1, args.length);
+		if (!APPLICATION_NAME_SET.contains(appName))
 		{
     		SwingUtils.error("Expected valid application name.");
     		System.err.println("ERROR: Expected valid application name.");
     		System.exit(-1);
         	return;
 		}
+		
+		// run standalone application - in the running instance, if any.
+		if (isAlreadyRunning())
+		{
+			if (sendInstanceRequest(appName, appArgs))
+			{
+				System.exit(0);
+				return;
+			}
+		}
+		else
+		{
+			startInstanceHost();
+		}
+		openApplication(appName, appArgs);
 	}
 
 	/** Settings singleton. */
@@ -444,7 +749,7 @@ public final class DoomToolsGUIMain
     	LOG.info("Shutting down DoomTools GUI...");
     	
     	LOG.info("Sending close to all open apps...");
-    	if (!window.shutDownApps())
+    	if (!window.shutDownApps() || !closeApplicationFrames())
     	{
         	LOG.info("Shutdown aborted. All apps could not be closed!");
     		return;
@@ -310,7 +310,7 @@ public interface RepositoryHelper
 			StringWriter out = new StringWriter();
 			StringWriter err = new StringWriter();
 
-			doCall(start(out, err).args("status", "--porcelain=v1"), "STATUS");
+			doCall(start(out, err).args("--no-optional-locks", "status", "--porcelain=v1"), "STATUS");
 			
 			List<StatusEntry> outList = new LinkedList<>();
 			
@@ -384,7 +384,7 @@ public interface RepositoryHelper
 			StringWriter out = new StringWriter();
 			StringWriter err = new StringWriter();
 
-			doCall(start(out, err).args("status", "--branch", "--porcelain=v2"), "STATUS-BRANCH");
+			doCall(start(out, err).args("--no-optional-locks", "status", "--branch", "--porcelain=v2"), "STATUS-BRANCH");
 			
 			String name = null;
 			String remoteName = null;
@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.gui;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.swing.Timer;
+
+import net.mtrop.doom.tools.gui.RepositoryHelper.BranchStatus;
+import net.mtrop.doom.tools.gui.RepositoryHelper.StatusEntry;
+import net.mtrop.doom.tools.gui.managers.DoomToolsLogger;
+import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager;
+import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager.Priority;
+import net.mtrop.doom.tools.struct.LoggingFactory.Logger;
+import net.mtrop.doom.tools.struct.WatchServiceThread;
+import net.mtrop.doom.tools.struct.swing.SwingUtils;
+
+/**
+ * A cached, asynchronously-refreshed repository status.
+ * <p>Each refresh runs the repository client's status commands, which can be slow on large
+ * projects. Refresh requests are debounced and coalesced: no matter how many requests arrive,
+ * at most one refresh runs at a time, and requests that arrive during a refresh are folded into
+ * a single follow-up refresh. Requests for the file status alone do not fetch the branch info again.
+ * <p>The repository metadata directories (for example, <code>.git</code>) are watched, and changes
+ * to them (commits, checkouts, fetches from outside the application) request a full refresh. Reference
+ * directories (for example, <code>.git/refs/heads</code>) are watched with all of their subdirectories, 
+ * since branch names can contain slashes. Changes
+ * in the working tree are expected to be reported with {@link #requestStatusRefresh()}.
+ * <p>Listeners are called on the Swing thread with the latest {@link Snapshot}.
+ * @author Matthew Tropiano
+ */
+public class RepositoryStatusService
+{
+	/** Logger. */
+	private static final Logger LOG = DoomToolsLogger.getLogger(RepositoryStatusService.class);
+
+	/** Default delay after the last request before a refresh, in milliseconds. */
+	public static final int DEFAULT_DELAY_MILLIS = 250;
+
+	/** The repository client. */
+	private final RepositoryHelper helper;
+	/** Metadata directories to watch. */
+	private final File[] metadataDirectories;
+	/** Reference directories to watch, with subdirectories. */
+	private final File[] referenceDirectories;
+	/** The listeners to call on a new snapshot. */
+	private final List<Consumer<Snapshot>> listeners;
+	/** The debounce timer. Swing thread only. */
+	private final Timer timer;
+	/** Lock held while fetching. */
+	private final Object fetchLock;
+
+	/** If true, the file status is stale. */
+	private boolean statusDirty;
+	/** If true, the branch info is stale. */
+	private boolean branchDirty;
+	/** If true, a refresh task is running. */
+	private boolean running;
+	/** If true, this was shut down. */
+	private boolean shutDown;
+
+	/** The latest snapshot. */
+	private volatile Snapshot snapshot;
+	/** The running metadata watchers. */
+	private List<WatchServiceThread> watchers;
+
+	/**
+	 * Creates a new status service with the default delay.
+	 * @param helper the repository client.
+	 * @param metadataDirectories the repository metadata directories to watch (not recursive). Missing directories are skipped.
+	 */
+	public RepositoryStatusService(RepositoryHelper helper, File ... metadataDirectories)
+	{
+		this(helper, DEFAULT_DELAY_MILLIS, metadataDirectories);
+	}
+
+	/**
+	 * Creates a new status service.
+	 * @param helper the repository client.
+	 * @param delayMillis the delay after the last request before a refresh, in milliseconds.
+	 * @param metadataDirectories the repository metadata directories to watch (not recursive). Missing directories are skipped.
+	 */
+	public RepositoryStatusService(RepositoryHelper helper, int delayMillis, File ... metadataDirectories)
+	{
+		this(helper, delayMillis, metadataDirectories, new File[0]);
+	}
+
+	/**
+	 * Creates a new status service.
+	 * @param helper the repository client.
+	 * @param delayMillis the delay after the last request before a refresh, in milliseconds.
+	 * @param metadataDirectories the repository metadata directories to watch (not recursive). Missing directories are skipped.
+	 * @param referenceDirectories the repository reference directories to watch, with all subdirectories. Missing directories are skipped.
+	 */
+	public RepositoryStatusService(RepositoryHelper helper, int delayMillis, File[] metadataDirectories, File[] referenceDirectories)
+	{
+		this.helper = helper;
+		this.metadataDirectories = metadataDirectories;
+		this.referenceDirectories = referenceDirectories;
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.timer = new Timer(delayMillis, (e) -> startRefresh());
+		this.timer.setRepeats(false);
+		this.fetchLock = new Object();
+
+		this.statusDirty = true;
+		this.branchDirty = true;
+		this.running = false;
+		this.shutDown = false;
+
+		this.snapshot = null;
+		this.watchers = Collections.emptyList();
+	}
+
+	/**
+	 * Adds a listener that is called on the Swing thread when a new snapshot is fetched.
+	 * @param listener the listener.
+	 */
+	public void addListener(Consumer<Snapshot> listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener.
+	 * @param listener the listener.
+	 */
+	public void removeListener(Consumer<Snapshot> listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return the latest snapshot, or null if none has been fetched yet.
+	 */
+	public Snapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * Starts watching the metadata directories and requests the first full refresh.
+	 */
+	public synchronized void start()
+	{
+		if (shutDown || !watchers.isEmpty())
+			return;
+
+		List<WatchServiceThread> started = new LinkedList<>();
+		for (File directory : metadataDirectories)
+			watch(started, directory, false);
+		for (File directory : referenceDirectories)
+			watch(started, directory, true);
+		watchers = started;
+		requestFullRefresh();
+	}
+
+	/**
+	 * Stops watching the metadata directories and drops pending requests.
+	 * A refresh in progress finishes, but listeners are not called.
+	 */
+	public synchronized void shutDown()
+	{
+		shutDown = true;
+		for (WatchServiceThread watcher : watchers)
+			watcher.interrupt();
+		watchers = Collections.emptyList();
+		SwingUtils.invoke(() -> timer.stop());
+	}
+
+	/**
+	 * Requests a refresh of the file status, after the debounce delay.
+	 * The branch info in the next snapshot is reused from the last one.
+	 */
+	public void requestStatusRefresh()
+	{
+		request(false);
+	}
+
+	/**
+	 * Requests a refresh of the file status and branch info, after the debounce delay.
+	 */
+	public void requestFullRefresh()
+	{
+		request(true);
+	}
+
+	/**
+	 * Fetches the file status and branch info on the calling thread, and notifies the listeners.
+	 * Waits for a refresh in progress to finish, first.
+	 * @return the new snapshot.
+	 */
+	public Snapshot refreshSynchronous()
+	{
+		Snapshot out = fetch(true, true);
+		publish(out);
+		return out;
+	}
+
+	private synchronized void request(boolean full)
+	{
+		if (shutDown)
+			return;
+		statusDirty = true;
+		if (full)
+			branchDirty = true;
+		// Restarted even during a refresh, so that a burst of requests (a commit writes many files) 
+		// is still one follow-up refresh, a delay after the last request. 
+		SwingUtils.invoke(() -> timer.restart());
+	}
+
+	private void watch(List<WatchServiceThread> started, File directory, boolean recursive)
+	{
+		if (!directory.isDirectory())
+			return;
+		WatchServiceThread watcher = new WatchServiceThread(directory, recursive,
+			this::onMetadataChanged,
+			this::onMetadataChanged,
+			this::onMetadataChanged,
+			(message) -> LOG.warn(message)
+		);
+		watcher.start();
+		started.add(watcher);
+	}
+
+	// Called from a watcher thread.
+	private void onMetadataChanged(File file)
+	{
+		String name = file.getName();
+		// Lock files come and go during every repository command.
+		if (name.endsWith(".lock") || name.equals("lock") || name.equals("wlock"))
+			return;
+		requestFullRefresh();
+	}
+
+	// Called on the Swing thread by the timer.
+	private void startRefresh()
+	{
+		synchronized (this)
+		{
+			if (running || shutDown)
+				return;
+			running = true;
+		}
+		DoomToolsTaskManager.get().spawn(Priority.BACKGROUND, "repository", this::refresh);
+	}
+
+	// Runs one refresh. Requests that arrived during it get a follow-up refresh after the delay.
+	private void refresh()
+	{
+		boolean status, branch;
+		synchronized (this)
+		{
+			status = statusDirty;
+			branch = branchDirty;
+			statusDirty = false;
+			branchDirty = false;
+		}
+
+		try {
+			if (status || branch)
+				publish(fetch(status, branch));
+		} catch (RuntimeException e) {
+			LOG.errorf(e, "Could not refresh repository status.");
+		} finally {
+			synchronized (this)
+			{
+				running = false;
+				if (!shutDown && (statusDirty || branchDirty))
+					SwingUtils.invoke(() -> timer.restart());
+			}
+		}
+	}
+
+	// Fetches a new snapshot, reusing parts of the last one that are not stale.
+	private Snapshot fetch(boolean status, boolean branch)
+	{
+		synchronized (fetchLock)
+		{
+			Snapshot previous = snapshot;
+			if (previous == null)
+				status = branch = true;
+
+			List<StatusEntry> entries = status ? helper.fetchStatus() : previous.entries;
+			BranchStatus branchStatus = branch ? helper.fetchBranchStatus() : previous.branchStatus;
+			List<String> branches = branch ? helper.fetchBranches() : previous.branches;
+
+			Snapshot out = new Snapshot(
+				Collections.unmodifiableList(entries),
+				branchStatus,
+				Collections.unmodifiableList(branches)
+			);
+			snapshot = out;
+			LOG.debugf("Refreshed repository status (%s).", branch ? "full" : "files");
+			return out;
+		}
+	}
+
+	private void publish(final Snapshot out)
+	{
+		synchronized (this)
+		{
+			if (shutDown)
+				return;
+		}
+		SwingUtils.invoke(() -> {
+			for (Consumer<Snapshot> listener : listeners)
+				listener.accept(out);
+		});
+	}
+
+	/**
+	 * An immutable snapshot of the repository status.
+	 */
+	public static class Snapshot
+	{
+		private final List<StatusEntry> entries;
+		private final BranchStatus branchStatus;
+		private final List<String> branches;
+
+		private Snapshot(List<StatusEntry> entries, BranchStatus branchStatus, List<String> branches)
+		{
+			this.entries = entries;
+			this.branchStatus = branchStatus;
+			this.branches = branches;
+		}
+
+		/**
+		 * @return the file statuses.
+		 */
+		public List<StatusEntry> getEntries()
+		{
+			return entries;
+		}
+
+		/**
+		 * @return the current branch status.
+		 */
+		public BranchStatus getBranchStatus()
+		{
+			return branchStatus;
+		}
+
+		/**
+		 * @return the local branches.
+		 */
+		public List<String> getBranches()
+		{
+			return branches;
+		}
+	}
+
+}
@@ -32,6 +32,7 @@ import net.mtrop.doom.tools.gui.DoomToolsApplicationInstance;
 import net.mtrop.doom.tools.gui.apps.data.PatchExportSettings;
 import net.mtrop.doom.tools.gui.managers.DoomToolsEditorProvider;
 import net.mtrop.doom.tools.gui.managers.DoomToolsLogger;
+import net.mtrop.doom.tools.gui.managers.parsing.DecoHackDiagnosticsService;
 import net.mtrop.doom.tools.gui.managers.settings.DecoHackSettingsManager;
 import net.mtrop.doom.tools.gui.swing.panels.DecoHackExportPanel;
 import net.mtrop.doom.tools.gui.swing.panels.DirectoryTreePanel.DirectoryTreeListener;
@@ -88,6 +89,7 @@ public class DecoHackEditorApp extends DoomToolsApplicationInstance
 	private EditorDirectoryTreePanel treePanel;
 	private DecoHackEditorPanel editorPanel;
 	private DoomToolsStatusPanel statusPanel;
+	private DecoHackDiagnosticsService diagnostics;
 
 	private Action exportAction;
 	
@@ -114,6 +116,7 @@ public class DecoHackEditorApp extends DoomToolsApplicationInstance
 	public DecoHackEditorApp(File fileToOpenFirst) 
 	{
 		this.settings = DecoHackSettingsManager.get();
+		this.diagnostics = new DecoHackDiagnosticsService();
 		
 		this.editorPanel = new DecoHackEditorPanel(new EditorMultiFilePanel.Options() 
 		{
@@ -143,6 +146,7 @@ public class DecoHackEditorApp extends DoomToolsApplicationInstance
 			{
 				File sourceFile = handle.getContentSourceFile();
 				statusPanel.setSuccessMessage(language.getText("decohack.status.message.saved", sourceFile.getName()));
+				diagnostics.schedule(handle);
 				onHandleChange();
 			}
 
@@ -150,6 +154,7 @@ public class DecoHackEditorApp extends DoomToolsApplicationInstance
 			public void onOpen(EditorHandle handle) 
 			{
 				statusPanel.setSuccessMessage(language.getText("decohack.status.message.editor.open", handle.getEditorTabName()));
+				diagnostics.install(handle);
 			}
 
 			@Override
@@ -157,6 +162,13 @@ public class DecoHackEditorApp extends DoomToolsApplicationInstance
 			{
 				statusPanel.setSuccessMessage(language.getText("decohack.status.message.editor.close", handle.getEditorTabName()));
 				handleToSettingsMap.remove(handle);
+				diagnostics.uninstall(handle);
+			}
+
+			@Override
+			public void onContentChange(EditorHandle handle)
+			{
+				diagnostics.schedule(handle);
 			}
 
 			@Override
@@ -335,6 +347,7 @@ public class DecoHackEditorApp extends DoomToolsApplicationInstance
 			settings.setBounds(f);
 			settings.setTreeWidth(splitPaneHorizontal.getDividerLocation());
 		}
+		diagnostics.shutdown();
 	}
 	
 	@Override
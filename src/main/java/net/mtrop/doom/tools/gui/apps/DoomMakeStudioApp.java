@@ -215,6 +215,7 @@ public class DoomMakeStudioApp extends DoomToolsApplicationInstance
 			}
 		});
 		this.statusPanel = new DoomToolsStatusPanel();
+		this.statusPanel.setTaskMetricsVisible(true);
 		
 		this.treePanel = new DoomMakeTreePanel();
 		this.treePanel.setRootDirectory(targetDirectory);
@@ -425,6 +426,7 @@ public class DoomMakeStudioApp extends DoomToolsApplicationInstance
 		// Set the last directory successfully opened.
 		settings.setLastProjectDirectory(projectDirectory);
 		onNewEditor();
+		treePanel.setWatchedDirectory(projectDirectory);
 		watcher = new ProjectWatcher();
 		watcher.start();
 	}
@@ -434,6 +436,12 @@ public class DoomMakeStudioApp extends DoomToolsApplicationInstance
 	{
 		watcher.interrupt();
 		executionPanel.shutDownAgent();
+		loggingPanel.dispose();
+		statusPanel.setTaskMetricsVisible(false);
+		if (repositoryPanel instanceof GitRepositoryPanel)
+			((GitRepositoryPanel)repositoryPanel).shutDown();
+		else if (repositoryPanel instanceof MercurialRepositoryPanel)
+			((MercurialRepositoryPanel)repositoryPanel).shutDown();
 		if (frame instanceof JFrame)
 		{
 			JFrame f = (JFrame)frame;
@@ -1069,16 +1077,22 @@ public class DoomMakeStudioApp extends DoomToolsApplicationInstance
 	private void onProjectFileCreated(File file)
 	{
 		searchPanel.registerFile(file);
+		treePanel.notifyFileCreated(file);
+		refreshRepository();
 	}
 	
 	private void onProjectFileModified(File file)
 	{
 		searchPanel.registerFile(file);
+		treePanel.notifyFileModified(file);
+		refreshRepository();
 	}
 	
 	private void onProjectFileDeleted(File file)
 	{
 		searchPanel.deregisterFile(file);
+		treePanel.notifyFileDeleted(file);
+		refreshRepository();
 	}
 	
 	private void onWatcherError(String message)
@@ -650,7 +650,8 @@ public final class AppCommon
 		final String errorMessage,
 		final InstancedFuture<Integer> task
 	){
-		return tasks.spawn(() -> {
+		// Only waits on the tool task.
+		return tasks.spawn(DoomToolsTaskManager.Priority.BULK, "tools", () -> {
 			Integer result = null;
 			try
 			{
@@ -23,7 +23,11 @@ import org.fife.ui.rsyntaxtextarea.TokenMakerFactory;
 import org.fife.ui.rsyntaxtextarea.folding.CurlyFoldParser;
 import org.fife.ui.rsyntaxtextarea.folding.FoldParserManager;
 
+import net.mtrop.doom.tools.Version;
 import net.mtrop.doom.tools.common.Common;
+import net.mtrop.doom.tools.gui.DoomToolsConstants.Paths;
+import net.mtrop.doom.tools.gui.managers.parsing.CommonCompletionProvider;
+import net.mtrop.doom.tools.gui.managers.parsing.CompletionIndex;
 import net.mtrop.doom.tools.gui.managers.parsing.DEUTEXTokenMaker;
 import net.mtrop.doom.tools.gui.managers.parsing.DecoHackCompletionProvider;
 import net.mtrop.doom.tools.gui.managers.parsing.DecoHackTokenMaker;
@@ -251,14 +255,20 @@ public final class DoomToolsEditorProvider
     {
 		private static final long serialVersionUID = 1638202185490860804L;
 		{
-			put(SYNTAX_STYLE_DECOHACK,   () -> new DecoHackCompletionProvider());
-			put(SYNTAX_STYLE_DOOMMAKE,   () -> new DoomMakeCompletionProvider());
-			put(SYNTAX_STYLE_ROOKSCRIPT, () -> new RookScriptCompletionProvider());
-			put(SYNTAX_STYLE_WADMERGE,   () -> new WadMergeCompletionProvider());
-			put(SYNTAX_STYLE_WADSCRIPT,  () -> new WadScriptCompletionProvider());
+			put(SYNTAX_STYLE_DECOHACK,   () -> loadIndexedProvider("decohack",   () -> new DecoHackCompletionProvider()));
+			put(SYNTAX_STYLE_DOOMMAKE,   () -> loadIndexedProvider("doommake",   () -> new DoomMakeCompletionProvider()));
+			put(SYNTAX_STYLE_ROOKSCRIPT, () -> loadIndexedProvider("rookscript", () -> new RookScriptCompletionProvider()));
+			put(SYNTAX_STYLE_WADMERGE,   () -> loadIndexedProvider("wadmerge",   () -> new WadMergeCompletionProvider()));
+			put(SYNTAX_STYLE_WADSCRIPT,  () -> loadIndexedProvider("wadscript",  () -> new WadScriptCompletionProvider()));
 		}
     });
     
+    /** Completion index key - indices written by other versions are rebuilt. */
+    private static final String COMPLETION_INDEX_KEY = Version.DOOMTOOLS + "/" + Version.DOOMSTRUCT + "/" + Version.ROOKSCRIPT;
+    
+    /** Completion index directory. */
+    private static final String COMPLETION_INDEX_PATH = Paths.APPDATA_PATH + "cache" + File.separator;
+    
     private static final FactoryMap<String, CompletionProvider> FACTORY = new FactoryMap<String, CompletionProvider>()
     {
 		@Override
@@ -268,6 +278,17 @@ public final class DoomToolsEditorProvider
 		}
     };
     
+	/**
+	 * Loads a completion provider from its persisted index, or builds it (and its index) if needed.
+	 * @param name the index name.
+	 * @param builder the provider builder.
+	 * @return the completion provider.
+	 */
+	public static CompletionProvider loadIndexedProvider(String name, Supplier<? extends CommonCompletionProvider> builder)
+	{
+		return CompletionIndex.load(new File(COMPLETION_INDEX_PATH + "completion-" + name + ".idx"), COMPLETION_INDEX_KEY, builder);
+	}
+	
 	/**
 	 * @return the singleton instance of this object.
 	 */
@@ -47,12 +47,16 @@ public final class DoomToolsGUIPreWarmer
 	 * particular style, but depending on how complex they are, this will cause a very noticeable
 	 * hitch on first use. Calling this function will start pre-loading them in a separate thread
 	 * so that they are ready to be used instantly.
+	 * <p>
+	 * After the first run, the providers are loaded from their persisted indices 
+	 * (see {@link DoomToolsEditorProvider#loadIndexedProvider(String, java.util.function.Supplier)}), 
+	 * so this is fast.
 	 */
 	private void preWarmCompletionProviders()
 	{
 		DoomToolsTaskManager tasks = DoomToolsTaskManager.get();
 		LOG.info("Pre-warming completion providers...");
-		tasks.spawn(() -> {
+		tasks.spawn(DoomToolsTaskManager.Priority.BULK, "prewarm", () -> {
 			DoomToolsEditorProvider editorProvider = DoomToolsEditorProvider.get();
 			editorProvider.getProviderByStyle(DoomToolsEditorProvider.SYNTAX_STYLE_DECOHACK);
 			editorProvider.getProviderByStyle(DoomToolsEditorProvider.SYNTAX_STYLE_DEFSWANI);
@@ -72,7 +76,7 @@ public final class DoomToolsGUIPreWarmer
 	{
 		DoomToolsTaskManager tasks = DoomToolsTaskManager.get();
 		LOG.info("Pre-warming common icons...");
-		tasks.spawn(() -> {
+		tasks.spawn(DoomToolsTaskManager.Priority.BULK, "prewarm", () -> {
 			DoomToolsIconManager iconManager = DoomToolsIconManager.get();
 			iconManager.getImage("activity.gif");
 			LOG.info("Icon pre-warm finished.");
@@ -86,7 +90,7 @@ public final class DoomToolsGUIPreWarmer
 	{
 		DoomToolsTaskManager tasks = DoomToolsTaskManager.get();
 		LOG.info("Pre-warming common images...");
-		tasks.spawn(() -> {
+		tasks.spawn(DoomToolsTaskManager.Priority.BULK, "prewarm", () -> {
 			DoomToolsImageManager imageManager = DoomToolsImageManager.get();
 			imageManager.getImage("doomtools-logo-16.png"); 
 			imageManager.getImage("doomtools-logo-32.png"); 
@@ -110,7 +114,7 @@ public final class DoomToolsGUIPreWarmer
 	{
 		DoomToolsTaskManager tasks = DoomToolsTaskManager.get();
 		LOG.info("Pre-warming common components...");
-		tasks.spawn(() -> {
+		tasks.spawn(DoomToolsTaskManager.Priority.BULK, "prewarm", () -> {
 			DoomToolsEditorProvider editorProvider = DoomToolsEditorProvider.get();
 			editorProvider.initCustomLanguages();
 			new EditorMultiFilePanel();
@@ -667,11 +667,11 @@ public final class DoomToolsGUIUtils
 						node(BorderLayout.WEST, status),
 						node(BorderLayout.EAST, containerOf(flowLayout(Flow.RIGHT, 4, 0),
 							node(createButtonFromLanguageKey("doomtools.clipboard.copy", (b) -> {
-								copyToClipboard(outputPanel.getText());
+								copyToClipboard(outputPanel.getFullText());
 								status.setSuccessMessage(language.getText("doomtools.clipboard.copy.message"));
 							})),
 							node(createButtonFromLanguageKey("doomtools.clipboard.save", (b) -> {
-								if (saveToFile(outputPanel, outputPanel.getText()))
+								if (saveToFile(outputPanel, outputPanel.getFullText()))
 									status.setSuccessMessage(language.getText("doomtools.clipboard.save.message"));
 							}))
 						))
@@ -691,7 +691,7 @@ public final class DoomToolsGUIUtils
 			{
 				final PrintStream outStream = outputPanel.getPrintStream();
 				final PrintStream errorStream = outputPanel.getErrorPrintStream();
-				tasks.spawn(() -> 
+				tasks.spawn(DoomToolsTaskManager.Priority.BULK, "tools", () -> 
 				{
 					if (onStart != null)
 						onStart.run();
@@ -718,7 +718,10 @@ public final class DoomToolsGUIUtils
 						onEnd.run();
 				});
 				if (!dontOpen)
+				{
 					outputModal.openThenDispose();
+					outputPanel.dispose();
+				}
 			}
 		};
 	}
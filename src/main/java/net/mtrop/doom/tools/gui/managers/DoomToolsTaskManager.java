@@ -5,7 +5,15 @@
  ******************************************************************************/
 package net.mtrop.doom.tools.gui.managers;
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -17,7 +25,14 @@ import net.mtrop.doom.tools.struct.LoggingFactory.Logger;
 import net.mtrop.doom.tools.struct.SingletonProvider;
 
 /**
- * DoomTools GUI logger singleton.
+ * DoomTools GUI task manager singleton.
+ * <p>Tasks are started in {@link Priority} order on a fixed set of worker threads. Lower-priority
+ * tasks are never given every worker, so a long build or search cannot hold up interactive tasks.
+ * Tasks can also belong to a named group, which can have its own limit on concurrently-running tasks,
+ * and can be set to run on virtual threads (on Java versions that have them) if they mostly wait on I/O.
+ * <p>A task spawned with <code>spawnReplacing</code> supersedes the tasks of its group that are still
+ * queued or running: queued tasks end with a {@link CancellationException} without running, and
+ * running tasks are interrupted.
  * @author Matthew Tropiano
  */
 public final class DoomToolsTaskManager 
@@ -27,6 +42,11 @@ public final class DoomToolsTaskManager
     /** The instance encapsulator. */
     private static final SingletonProvider<DoomToolsTaskManager> INSTANCE = new SingletonProvider<>(() -> new DoomToolsTaskManager());
 	
+	/** Amount of worker threads. */
+	private static final int WORKER_COUNT = 8;
+	/** Weight of the newest sample in the latency averages. */
+	private static final double LATENCY_WEIGHT = 0.2;
+	
 	/**
 	 * @return the singleton instance of this settings object.
 	 */
@@ -35,39 +55,305 @@ public final class DoomToolsTaskManager
 		return INSTANCE.get();
 	}
 
+	/**
+	 * Task priorities.
+	 */
+	public enum Priority
+	{
+		/** Tasks that the user is waiting on (directory listings, searches). May use every worker. */
+		INTERACTIVE(WORKER_COUNT),
+		/** Most tasks. Leaves one worker for interactive tasks. */
+		BACKGROUND(WORKER_COUNT - 1),
+		/** Long-running or unimportant tasks (tool runs, pre-warming). Leaves two workers free. */
+		BULK(WORKER_COUNT - 2);
+		
+		private final int workerLimit;
+		
+		private Priority(int workerLimit)
+		{
+			this.workerLimit = workerLimit;
+		}
+	}
+	
 	/* ==================================================================== */
 	
-	/** Thread pool. */
+	/** Worker thread pool. */
 	private Executor executor;
+	/** Virtual thread executor. Null if not available. */
+	private Executor virtualExecutor;
+
+	/** Lock for all scheduling state. */
+	private final Object lock;
+	/** Queued tasks, in start order. */
+	private final TreeSet<ScheduledTask> queued;
+	/** Running tasks. */
+	private final Set<ScheduledTask> running;
+	/** Task groups by name. */
+	private final Map<String, TaskGroup> groups;
+	
+	/** Next task sequence number. */
+	private long sequence;
+	/** Amount of busy workers. */
+	private int workersBusy;
+	/** Amount of tasks on virtual threads. */
+	private int virtualBusy;
+	/** Amount of finished tasks. */
+	private long completed;
+	/** Average time from queued to started, in nanoseconds. */
+	private double averageWaitNanos;
+	/** Average time from started to finished, in nanoseconds. */
+	private double averageRunNanos;
 	
 	private DoomToolsTaskManager()
 	{
-		this.executor = Executors.newFixedThreadPool(8, new DefaultThreadFactory("DoomToolsThread"));
+		this.executor = Executors.newFixedThreadPool(WORKER_COUNT, new DefaultThreadFactory("DoomToolsThread"));
+		this.virtualExecutor = createVirtualExecutor();
+		
+		this.lock = new Object();
+		this.queued = new TreeSet<>(Comparator.<ScheduledTask>comparingInt((task) -> task.priority.ordinal()).thenComparingLong((task) -> task.sequence));
+		this.running = new HashSet<>();
+		this.groups = new HashMap<>();
+		
+		this.sequence = 0L;
+		this.workersBusy = 0;
+		this.virtualBusy = 0;
+		this.completed = 0L;
+		this.averageWaitNanos = 0.0;
+		this.averageRunNanos = 0.0;
+		
+		// Default groups.
+		setGroupOptions("repository", 1, true);
+		setGroupOptions("directory", 4, true);
+		setGroupOptions("search", 1, false);
+		setGroupOptions("search.index", 2, false);
+		setGroupOptions("prewarm", 2, false);
+		setGroupOptions("tools", Integer.MAX_VALUE, true);
+	}
+
+	// Java 21+ only.
+	private static Executor createVirtualExecutor()
+	{
+		try {
+			Executor out = (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			LOG.info("Virtual threads available for I/O task groups.");
+			return out;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
 	}
 
 	/**
-	 * Spawns a new asynchronous task from a {@link Runnable}.
+	 * Sets the options for a task group.
+	 * Tasks already running are not affected.
+	 * @param group the group name.
+	 * @param limit the maximum amount of tasks from this group that can run at once.
+	 * @param virtual if true, and virtual threads are available, run this group's tasks on virtual threads instead of workers.
+	 *  Only use this for tasks that mostly wait on I/O or other processes.
+	 */
+	public void setGroupOptions(String group, int limit, boolean virtual)
+	{
+		if (limit < 1)
+			throw new IllegalArgumentException("limit must be 1 or greater.");
+		synchronized (lock)
+		{
+			TaskGroup taskGroup = getGroup(group);
+			taskGroup.limit = limit;
+			taskGroup.virtual = virtual;
+			dispatch();
+		}
+	}
+	
+	/**
+	 * Spawns a new asynchronous, {@link Priority#BACKGROUND} task from a {@link Runnable}.
 	 * @param runnable the callable to use.
 	 * @return the new instance.
 	 */
 	public InstancedFuture<Void> spawn(Runnable runnable)
 	{
-		return spawn(() -> { runnable.run(); return null; });
+		return spawn(Priority.BACKGROUND, null, runnable);
 	}
 	
 	/**
-	 * Spawns a new asynchronous task from a {@link Callable}.
+	 * Spawns a new asynchronous, {@link Priority#BACKGROUND} task from a {@link Callable}.
 	 * @param <T> the return type for the future.
 	 * @param callable the callable to use.
 	 * @return the new instance.
 	 */
 	public <T> InstancedFuture<T> spawn(Callable<T> callable)
 	{
-		return InstancedFuture.instance(callable)
+		return spawn(Priority.BACKGROUND, null, callable);
+	}
+
+	/**
+	 * Spawns a new asynchronous task from a {@link Runnable}.
+	 * @param priority the task priority.
+	 * @param group the task group name, or null for no group.
+	 * @param runnable the callable to use.
+	 * @return the new instance.
+	 */
+	public InstancedFuture<Void> spawn(Priority priority, String group, Runnable runnable)
+	{
+		return spawn(priority, group, () -> { runnable.run(); return null; });
+	}
+	
+	/**
+	 * Spawns a new asynchronous task from a {@link Callable}.
+	 * @param <T> the return type for the future.
+	 * @param priority the task priority.
+	 * @param group the task group name, or null for no group.
+	 * @param callable the callable to use.
+	 * @return the new instance.
+	 */
+	public <T> InstancedFuture<T> spawn(Priority priority, String group, Callable<T> callable)
+	{
+		return schedule(priority, group, false, callable);
+	}
+
+	/**
+	 * Spawns a new asynchronous task from a {@link Runnable}, superseding the other tasks in its group.
+	 * @param priority the task priority.
+	 * @param group the task group name.
+	 * @param runnable the callable to use.
+	 * @return the new instance.
+	 */
+	public InstancedFuture<Void> spawnReplacing(Priority priority, String group, Runnable runnable)
+	{
+		return spawnReplacing(priority, group, () -> { runnable.run(); return null; });
+	}
+	
+	/**
+	 * Spawns a new asynchronous task from a {@link Callable}, superseding the other tasks in its group.
+	 * @param <T> the return type for the future.
+	 * @param priority the task priority.
+	 * @param group the task group name.
+	 * @param callable the callable to use.
+	 * @return the new instance.
+	 */
+	public <T> InstancedFuture<T> spawnReplacing(Priority priority, String group, Callable<T> callable)
+	{
+		return schedule(priority, group, true, callable);
+	}
+
+	/**
+	 * @return the current task metrics.
+	 */
+	public TaskMetrics getMetrics()
+	{
+		synchronized (lock)
+		{
+			return new TaskMetrics(queued.size(), workersBusy + virtualBusy, completed, averageWaitNanos / 1000000.0, averageRunNanos / 1000000.0);
+		}
+	}
+	
+	private <T> InstancedFuture<T> schedule(Priority priority, String group, boolean replacing, Callable<T> callable)
+	{
+		final ScheduledTask task = new ScheduledTask(priority, group);
+		final Executor submitter = (runnable) -> submit(task, runnable, replacing);
+		return InstancedFuture.instance(() -> {
+				if (task.superseded)
+					throw new CancellationException("Task superseded.");
+				return callable.call();
+			})
 			.listener(createListener())
-			.spawn(executor);
+			.spawn(submitter);
 	}
 
+	private void submit(ScheduledTask task, Runnable runnable, boolean replacing)
+	{
+		synchronized (lock)
+		{
+			task.runnable = runnable;
+			task.sequence = sequence++;
+			task.queuedNanos = System.nanoTime();
+			if (replacing && task.group != null)
+				supersede(task.group);
+			queued.add(task);
+			dispatch();
+		}
+	}
+	
+	// Supersedes the queued and running tasks in a group. Lock must be held.
+	private void supersede(String group)
+	{
+		for (ScheduledTask task : queued)
+		{
+			if (group.equals(task.group))
+				task.superseded = true;
+		}
+		for (ScheduledTask task : running)
+		{
+			if (group.equals(task.group) && !task.superseded)
+			{
+				task.superseded = true;
+				if (task.thread != null)
+					task.thread.interrupt();
+			}
+		}
+	}
+	
+	// Starts every queued task that can be started. Lock must be held.
+	private void dispatch()
+	{
+		Iterator<ScheduledTask> it = queued.iterator();
+		while (it.hasNext())
+		{
+			ScheduledTask task = it.next();
+			TaskGroup group = task.group != null ? getGroup(task.group) : null;
+			
+			// superseded tasks end right away, so they skip the group limit.
+			if (group != null && !task.superseded && group.running >= group.limit)
+				continue;
+			
+			boolean virtual = group != null && group.virtual && virtualExecutor != null;
+			if (!virtual && workersBusy >= task.priority.workerLimit)
+				continue;
+			
+			it.remove();
+			task.virtual = virtual;
+			if (virtual)
+				virtualBusy++;
+			else
+				workersBusy++;
+			if (group != null)
+				group.running++;
+			running.add(task);
+			
+			long now = System.nanoTime();
+			averageWaitNanos += (now - task.queuedNanos - averageWaitNanos) * LATENCY_WEIGHT;
+			task.startedNanos = now;
+			
+			(virtual ? virtualExecutor : executor).execute(task);
+		}
+	}
+	
+	// Called when a task ends.
+	private void finish(ScheduledTask task)
+	{
+		synchronized (lock)
+		{
+			task.thread = null;
+			running.remove(task);
+			if (task.virtual)
+				virtualBusy--;
+			else
+				workersBusy--;
+			if (task.group != null)
+				getGroup(task.group).running--;
+			completed++;
+			averageRunNanos += (System.nanoTime() - task.startedNanos - averageRunNanos) * LATENCY_WEIGHT;
+			dispatch();
+		}
+	}
+	
+	// Lock must be held.
+	private TaskGroup getGroup(String name)
+	{
+		TaskGroup out;
+		if ((out = groups.get(name)) == null)
+			groups.put(name, out = new TaskGroup());
+		return out;
+	}
+	
 	private <T> InstanceListener<T> createListener()
 	{
 		return new InstanceListener<T>()
@@ -86,9 +372,125 @@ public final class DoomToolsTaskManager
 		};
 	}
 	
+	/**
+	 * A snapshot of task scheduler metrics.
+	 */
+	public static final class TaskMetrics
+	{
+		private final int queued;
+		private final int running;
+		private final long completed;
+		private final double averageWaitMillis;
+		private final double averageRunMillis;
+		
+		private TaskMetrics(int queued, int running, long completed, double averageWaitMillis, double averageRunMillis)
+		{
+			this.queued = queued;
+			this.running = running;
+			this.completed = completed;
+			this.averageWaitMillis = averageWaitMillis;
+			this.averageRunMillis = averageRunMillis;
+		}
+		
+		/**
+		 * @return the amount of tasks waiting to start.
+		 */
+		public int getQueued()
+		{
+			return queued;
+		}
+		
+		/**
+		 * @return the amount of running tasks.
+		 */
+		public int getRunning()
+		{
+			return running;
+		}
+		
+		/**
+		 * @return the amount of finished tasks.
+		 */
+		public long getCompleted()
+		{
+			return completed;
+		}
+		
+		/**
+		 * @return the recent average time between a task being spawned and started, in milliseconds.
+		 */
+		public double getAverageWaitMillis()
+		{
+			return averageWaitMillis;
+		}
+		
+		/**
+		 * @return the recent average task run time, in milliseconds.
+		 */
+		public double getAverageRunMillis()
+		{
+			return averageRunMillis;
+		}
+	}
+	
+	/**
+	 * A task group's options and state.
+	 */
+	private static class TaskGroup
+	{
+		private int limit = Integer.MAX_VALUE;
+		private boolean virtual = false;
+		private int running = 0;
+	}
+	
+	/**
+	 * A task in the scheduler.
+	 */
+	private class ScheduledTask implements Runnable
+	{
+		private final Priority priority;
+		private final String group;
+		private Runnable runnable;
+		private long sequence;
+		private long queuedNanos;
+		private long startedNanos;
+		private boolean virtual;
+		private volatile boolean superseded;
+		private Thread thread;
+
+		private ScheduledTask(Priority priority, String group)
+		{
+			this.priority = priority;
+			this.group = group;
+			this.runnable = null;
+			this.sequence = 0L;
+			this.queuedNanos = 0L;
+			this.startedNanos = 0L;
+			this.virtual = false;
+			this.superseded = false;
+			this.thread = null;
+		}
+		
+		@Override
+		public void run()
+		{
+			synchronized (lock)
+			{
+				thread = Thread.currentThread();
+			}
+			try {
+				runnable.run();
+			} finally {
+				finish(this);
+				// Clear an interrupt from being superseded, so it does not carry to the next task.
+				Thread.interrupted();
+			}
+		}
+	}
+	
 	/**
 	 * The thread factory used for the Thread Pool.
-	 * Makes non-daemon threads that start with the name <code>"AsyncUtilsThread-"</code>.
+	 * Makes daemon threads that start with the provided name prefix.
 	 */
 	private static class DefaultThreadFactory implements ThreadFactory
 	{
@@ -6,8 +6,11 @@
 package net.mtrop.doom.tools.gui.managers.parsing;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
+import org.fife.ui.autocomplete.Completion;
 import org.fife.ui.autocomplete.DefaultCompletionProvider;
 
 import net.mtrop.doom.tools.struct.HTMLWriter;
@@ -24,6 +27,14 @@ public abstract class CommonCompletionProvider extends DefaultCompletionProvider
 		super();
 	}
 	
+	/**
+	 * @return a copy of the list of all completions in this provider, in sorted order.
+	 */
+	List<Completion> getAllCompletions()
+	{
+		return new ArrayList<>(completions);
+	}
+	
 	/**
 	 * Creates an HTMLWriter with common settings, and writes stuff to the provided string writer.
 	 * @param writeFunc the writing function to call with a new HTMLWriter.
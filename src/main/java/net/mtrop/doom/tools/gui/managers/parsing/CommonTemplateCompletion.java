@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.gui.managers.parsing;
+
+import org.fife.ui.autocomplete.CompletionProvider;
+import org.fife.ui.autocomplete.TemplateCompletion;
+
+/**
+ * A template completion that keeps the template string that it was created with.
+ * {@link TemplateCompletion} parses its template and does not keep the original, 
+ * which {@link CompletionIndex} needs in order to write it.
+ * @author Matthew Tropiano
+ */
+public abstract class CommonTemplateCompletion extends TemplateCompletion
+{
+	private final String template;
+	
+	protected CommonTemplateCompletion(CompletionProvider provider, String inputText, String definitionString, String template)
+	{
+		super(provider, inputText, definitionString, template);
+		this.template = template;
+	}
+	
+	protected CommonTemplateCompletion(CompletionProvider provider, String inputText, String definitionString, String template, String shortDescription, String summary)
+	{
+		super(provider, inputText, definitionString, template, shortDescription, summary);
+		this.template = template;
+	}
+	
+	/**
+	 * @return the template string that this completion was created with.
+	 */
+	public String getTemplate()
+	{
+		return template;
+	}
+	
+}
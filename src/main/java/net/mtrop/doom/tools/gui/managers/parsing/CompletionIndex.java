@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.gui.managers.parsing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.fife.ui.autocomplete.BasicCompletion;
+import org.fife.ui.autocomplete.Completion;
+import org.fife.ui.autocomplete.CompletionProvider;
+
+import net.mtrop.doom.tools.gui.managers.DoomToolsLogger;
+import net.mtrop.doom.tools.struct.LoggingFactory.Logger;
+
+/**
+ * A prebuilt, persisted index of completions.
+ * <p>Building some of the completion providers means walking every script function or action pointer
+ * and rendering its documentation to HTML, which is slow. The first time a provider is needed, it is
+ * built normally and its completions are written to an index file. Later, the index file is memory-mapped
+ * instead: the short fields (input text, descriptions, templates) are read right away, and each summary
+ * is decoded from the mapped file the first time it is shown.
+ * <p>An index is only used if its key matches (see {@link #load(File, String, Supplier)}), so that a
+ * different version rebuilds it.
+ * @author Matthew Tropiano
+ */
+public final class CompletionIndex
+{
+	/** Logger. */
+	private static final Logger LOG = DoomToolsLogger.getLogger(CompletionIndex.class);
+
+	/** Index magic number ("DTCI"). */
+	private static final int MAGIC = 0x44544349;
+	/** Index format version. */
+	private static final int FORMAT = 2;
+
+	private static final byte KIND_BASIC = 0;
+	private static final byte KIND_TEMPLATE = 1;
+
+	private CompletionIndex() {}
+
+	/**
+	 * Loads a completion provider from an index file, or builds it and writes the index file.
+	 * If the index file is missing, unreadable, or has a different key, the provider is built
+	 * with the supplied function, and a new index file is written for next time. An index file 
+	 * that cannot be read is deleted first.
+	 * @param indexFile the index file.
+	 * @param key the index key. Should change when the completions would change (for example, a version string).
+	 * @param builder the function to call to build the provider, if needed.
+	 * @return the loaded or built provider.
+	 */
+	public static CompletionProvider load(File indexFile, String key, Supplier<? extends CommonCompletionProvider> builder)
+	{
+		if (indexFile.exists())
+		{
+			try {
+				CompletionProvider out = read(indexFile, key);
+				if (out != null)
+				{
+					LOG.debugf("Loaded completion index: %s", indexFile.getPath());
+					return out;
+				}
+			} catch (IOException | RuntimeException e) {
+				// A bad index must never stop the editor from getting its completions.
+				LOG.warnf("Could not read completion index %s, rebuilding: %s", indexFile.getPath(), String.valueOf(e));
+				if (!indexFile.delete())
+					LOG.warnf("Could not delete completion index: %s", indexFile.getPath());
+			}
+		}
+
+		CommonCompletionProvider out = builder.get();
+		try {
+			if (write(indexFile, key, out.getAllCompletions()))
+				LOG.debugf("Wrote completion index: %s", indexFile.getPath());
+		} catch (IOException e) {
+			LOG.warnf("Could not write completion index %s: %s", indexFile.getPath(), e.getLocalizedMessage());
+		}
+		return out;
+	}
+
+	// Reads an index. Returns null if the key does not match.
+	private static CompletionProvider read(File indexFile, String key) throws IOException
+	{
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ))
+		{
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT)
+			throw new IOException("Not a completion index.");
+		if (!key.equals(readString(buffer)))
+			return null;
+
+		IndexedProvider provider = new IndexedProvider();
+		int count = buffer.getInt();
+		List<Completion> completions = new ArrayList<>(count);
+		List<LazySummary> summaries = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			byte kind = buffer.get();
+			String label = readString(buffer);
+			LazySummary summary;
+			switch (kind)
+			{
+				case KIND_BASIC:
+				{
+					String replacementText = readString(buffer);
+					String shortDescription = readString(buffer);
+					summary = new LazySummary(buffer.getInt(), buffer.getInt());
+					completions.add(new IndexedBasicCompletion(provider, replacementText, shortDescription, label, summary));
+					break;
+				}
+				case KIND_TEMPLATE:
+				{
+					String inputText = readString(buffer);
+					String definitionString = readString(buffer);
+					String template = readString(buffer);
+					String shortDescription = readString(buffer);
+					summary = new LazySummary(buffer.getInt(), buffer.getInt());
+					completions.add(new IndexedTemplateCompletion(provider, inputText, definitionString, template, shortDescription, label, summary));
+					break;
+				}
+				default:
+					throw new IOException("Bad completion kind: " + kind);
+			}
+			summaries.add(summary);
+		}
+
+		// Summaries follow the entries.
+		ByteBuffer summaryBlock = buffer.slice();
+		for (LazySummary summary : summaries)
+			summary.block = summaryBlock;
+
+		provider.addCompletions(completions);
+		return provider;
+	}
+
+	// Writes an index. Returns false if a completion could not be indexed.
+	private static boolean write(File indexFile, String key, List<Completion> completions) throws IOException
+	{
+		ByteArrayOutputStream entryBytes = new ByteArrayOutputStream(64 * 1024);
+		ByteArrayOutputStream summaryBytes = new ByteArrayOutputStream(256 * 1024);
+		DataOutputStream entries = new DataOutputStream(entryBytes);
+
+		entries.writeInt(MAGIC);
+		entries.writeInt(FORMAT);
+		writeString(entries, key);
+		entries.writeInt(completions.size());
+		for (Completion completion : completions)
+		{
+			if (completion instanceof CommonTemplateCompletion)
+			{
+				CommonTemplateCompletion template = (CommonTemplateCompletion)completion;
+				entries.writeByte(KIND_TEMPLATE);
+				writeString(entries, template.toString());
+				writeString(entries, template.getInputText());
+				writeString(entries, template.getDefinitionString());
+				writeString(entries, template.getTemplate());
+				writeString(entries, template.getShortDescription());
+			}
+			else if (completion instanceof BasicCompletion)
+			{
+				BasicCompletion basic = (BasicCompletion)completion;
+				entries.writeByte(KIND_BASIC);
+				writeString(entries, basic.toString());
+				writeString(entries, basic.getReplacementText());
+				writeString(entries, basic.getShortDescription());
+			}
+			else
+			{
+				LOG.warnf("Completion type %s cannot be indexed.", completion.getClass().getName());
+				return false;
+			}
+
+			String summary = completion.getSummary();
+			if (summary != null)
+			{
+				byte[] data = summary.getBytes(StandardCharsets.UTF_8);
+				entries.writeInt(summaryBytes.size());
+				entries.writeInt(data.length);
+				summaryBytes.write(data);
+			}
+			else
+			{
+				entries.writeInt(0);
+				entries.writeInt(-1);
+			}
+		}
+		entries.flush();
+
+		// Write to a temporary file and move it into place, so readers never see a partial index.
+		File parent = indexFile.getAbsoluteFile().getParentFile();
+		if (!parent.exists() && !parent.mkdirs())
+			throw new IOException("Could not create directory: " + parent.getPath());
+		File temp = new File(parent, indexFile.getName() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(temp))
+		{
+			entryBytes.writeTo(out);
+			summaryBytes.writeTo(out);
+		}
+		Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return true;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		if (s == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte[] data = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException
+	{
+		int length = buffer.getInt();
+		if (length < 0)
+			return null;
+		if (length > buffer.remaining())
+			throw new IOException("Bad string length: " + length);
+		byte[] data = new byte[length];
+		buffer.get(data);
+		return new String(data, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A provider filled from an index.
+	 */
+	private static class IndexedProvider extends CommonCompletionProvider
+	{
+		private IndexedProvider()
+		{
+			super();
+		}
+	}
+
+	/**
+	 * A summary that is decoded from the mapped index on first use.
+	 */
+	private static class LazySummary
+	{
+		private final int offset;
+		private final int length;
+		private ByteBuffer block;
+		private volatile String value;
+
+		private LazySummary(int offset, int length)
+		{
+			this.offset = offset;
+			this.length = length;
+			this.block = null;
+			this.value = null;
+		}
+
+		private String get()
+		{
+			if (length < 0)
+				return null;
+			String out;
+			if ((out = value) == null)
+			{
+				byte[] data = new byte[length];
+				ByteBuffer view = block.duplicate();
+				view.position(offset);
+				view.get(data);
+				value = out = new String(data, StandardCharsets.UTF_8);
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * A basic completion from an index.
+	 */
+	private static class IndexedBasicCompletion extends BasicCompletion
+	{
+		private final String label;
+		private final LazySummary summary;
+
+		private IndexedBasicCompletion(CompletionProvider provider, String replacementText, String shortDescription, String label, LazySummary summary)
+		{
+			super(provider, replacementText, shortDescription);
+			this.label = label;
+			this.summary = summary;
+		}
+
+		@Override
+		public String getSummary()
+		{
+			return summary.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			return label;
+		}
+	}
+
+	/**
+	 * A template completion from an index.
+	 */
+	private static class IndexedTemplateCompletion extends CommonTemplateCompletion
+	{
+		private final String label;
+		private final LazySummary summary;
+
+		private IndexedTemplateCompletion(CompletionProvider provider, String inputText, String definitionString, String template, String shortDescription, String label, LazySummary summary)
+		{
+			super(provider, inputText, definitionString, template, shortDescription, null);
+			this.label = label;
+			this.summary = summary;
+		}
+
+		@Override
+		public String getSummary()
+		{
+			return summary.get();
+		}
+
+		@Override
+		public String toString()
+		{
+			return label;
+		}
+	}
+
+}
@@ -17,7 +17,6 @@ import java.util.function.Consumer;
 
 import org.fife.ui.autocomplete.BasicCompletion;
 import org.fife.ui.autocomplete.CompletionProvider;
-import org.fife.ui.autocomplete.TemplateCompletion;
 
 import net.mtrop.doom.tools.decohack.DecoHackPatchType;
 import net.mtrop.doom.tools.decohack.data.DEHActionPointer;
@@ -661,7 +660,7 @@ public class DecoHackCompletionProvider extends CommonCompletionProvider
 	/**
 	 * A completion object for editor function.
 	 */
-	protected static class PointerCompletion extends TemplateCompletion
+	protected static class PointerCompletion extends CommonTemplateCompletion
 	{
 		/**
 		 * Creates a pointer completion.
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.gui.managers.parsing;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParserNotice;
+import org.fife.ui.rsyntaxtextarea.parser.ParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.ParserNotice;
+
+import net.mtrop.doom.tools.decohack.DecoHackIncludeCache;
+import net.mtrop.doom.tools.decohack.DecoHackParser;
+import net.mtrop.doom.tools.gui.managers.DoomToolsLogger;
+import net.mtrop.doom.tools.gui.swing.panels.EditorMultiFilePanel.EditorHandle;
+import net.mtrop.doom.tools.struct.LoggingFactory.Logger;
+import net.mtrop.doom.tools.struct.swing.SwingUtils;
+import net.mtrop.doom.tools.struct.util.EncodingUtils;
+
+/**
+ * Background DECOHack compiler diagnostics for open editors.
+ * <p>Edits are debounced, and the patch is compiled on a single worker thread. A compile that
+ * is superseded by a newer edit is interrupted, and its result is dropped. Included files are
+ * read through a shared {@link DecoHackIncludeCache}, and if neither the editor text nor its
+ * includes changed since the last compile, the last result is used again.
+ * <p>Errors and warnings are shown in the editor as parser notices.
+ * All methods must be called on the Swing thread.
+ * @author Matthew Tropiano
+ */
+public class DecoHackDiagnosticsService
+{
+	/** Logger. */
+	private static final Logger LOG = DoomToolsLogger.getLogger(DecoHackDiagnosticsService.class);
+
+	/** Default delay after the last edit before a compile, in milliseconds. */
+	public static final int DEFAULT_DELAY_MILLIS = 300;
+
+	/** Pattern for messages with token info. */
+	private static final Pattern TOKEN_MESSAGE = Pattern.compile("^\\((.*?)\\) Line (\\d+), Token \"(.*)\": (.*)$", Pattern.DOTALL);
+	/** Prefix for messages at the end of the stream. */
+	private static final String STREAM_END_PREFIX = "(STREAM END) ";
+
+	/** The include cache shared by all editors. */
+	private final DecoHackIncludeCache includeCache;
+	/** The compile worker. */
+	private final ExecutorService worker;
+	/** Map of editor to diagnostics. */
+	private final Map<EditorHandle, EditorDiagnostics> editors;
+	/** Delay after the last edit before a compile. */
+	private final int delayMillis;
+
+	/**
+	 * Creates a new diagnostics service with the default delay.
+	 */
+	public DecoHackDiagnosticsService()
+	{
+		this(DEFAULT_DELAY_MILLIS);
+	}
+
+	/**
+	 * Creates a new diagnostics service.
+	 * @param delayMillis the delay after the last edit before a compile, in milliseconds.
+	 */
+	public DecoHackDiagnosticsService(int delayMillis)
+	{
+		this.includeCache = new DecoHackIncludeCache();
+		this.worker = Executors.newSingleThreadExecutor((runnable) -> {
+			Thread out = new Thread(runnable);
+			out.setName("DecoHackDiagnostics-" + out.getId());
+			out.setDaemon(true);
+			return out;
+		});
+		this.editors = new HashMap<>();
+		this.delayMillis = delayMillis;
+	}
+
+	/**
+	 * Adds diagnostics to an editor and schedules its first compile.
+	 * Does nothing if the editor already has diagnostics.
+	 * @param handle the editor handle.
+	 */
+	public void install(EditorHandle handle)
+	{
+		if (editors.containsKey(handle))
+			return;
+		EditorDiagnostics diagnostics = new EditorDiagnostics(handle);
+		editors.put(handle, diagnostics);
+		handle.addParser(diagnostics);
+		diagnostics.schedule();
+	}
+
+	/**
+	 * Removes diagnostics from an editor, cancelling any pending compile.
+	 * @param handle the editor handle.
+	 */
+	public void uninstall(EditorHandle handle)
+	{
+		EditorDiagnostics diagnostics = editors.remove(handle);
+		if (diagnostics == null)
+			return;
+		diagnostics.cancel();
+		handle.removeParser(diagnostics);
+	}
+
+	/**
+	 * Schedules a compile of an editor's content after the debounce delay.
+	 * Any compile in progress for the editor is made stale.
+	 * @param handle the editor handle.
+	 */
+	public void schedule(EditorHandle handle)
+	{
+		EditorDiagnostics diagnostics = editors.get(handle);
+		if (diagnostics != null)
+			diagnostics.schedule();
+	}
+
+	/**
+	 * Cancels all compiles and stops the worker.
+	 */
+	public void shutdown()
+	{
+		for (EditorDiagnostics diagnostics : editors.values())
+			diagnostics.cancel();
+		editors.clear();
+		worker.shutdownNow();
+	}
+
+	/**
+	 * Diagnostics for a single editor.
+	 * Also the parser that shows the latest messages in the editor.
+	 */
+	private class EditorDiagnostics extends AbstractParser
+	{
+		private final EditorHandle handle;
+		private final Timer timer;
+
+		/** Current generation. Results from other generations are dropped. Swing thread only. */
+		private int generation;
+		/** The compile in progress. Swing thread only. */
+		private Future<?> running;
+
+		/** Stream name of the published messages. Swing thread only. */
+		private String publishedStreamName;
+		/** Published error messages. Swing thread only. */
+		private String[] publishedErrors;
+		/** Published warning messages. Swing thread only. */
+		private String[] publishedWarnings;
+
+		/** Last compiled content hash. Worker thread only. */
+		private byte[] lastDigest;
+		/** Last compiled stream name. Worker thread only. */
+		private String lastStreamName;
+		/** Last compiled includes. Worker thread only. */
+		private Map<String, byte[]> lastIncludes;
+		/** Last errors. Worker thread only. */
+		private String[] lastErrors;
+		/** Last warnings. Worker thread only. */
+		private String[] lastWarnings;
+
+		private EditorDiagnostics(EditorHandle handle)
+		{
+			this.handle = handle;
+			this.timer = new Timer(delayMillis, (e) -> start());
+			this.timer.setRepeats(false);
+
+			this.generation = 0;
+			this.running = null;
+
+			this.publishedStreamName = null;
+			this.publishedErrors = new String[0];
+			this.publishedWarnings = new String[0];
+
+			this.lastDigest = null;
+			this.lastStreamName = null;
+			this.lastIncludes = null;
+			this.lastErrors = null;
+			this.lastWarnings = null;
+		}
+
+		private void schedule()
+		{
+			generation++;
+			timer.restart();
+		}
+
+		private void cancel()
+		{
+			generation++;
+			timer.stop();
+			if (running != null)
+			{
+				running.cancel(true);
+				running = null;
+			}
+		}
+
+		// Starts a compile of the current content.
+		private void start()
+		{
+			if (running != null)
+				running.cancel(true);
+
+			final int id = generation;
+			final String content = handle.getContent();
+			final Charset charset = handle.getContentCharset();
+			File sourceFile = handle.getContentSourceFile();
+			final String streamName = sourceFile != null ? sourceFile.getPath() : handle.getEditorTabName();
+			running = worker.submit(() -> compile(id, content, charset, streamName));
+		}
+
+		// Compiles content. Called on the worker thread.
+		private void compile(int id, String content, Charset charset, String streamName)
+		{
+			byte[] data = content.getBytes(charset);
+			byte[] digest = EncodingUtils.sha1(data);
+
+			if (lastDigest != null && Arrays.equals(lastDigest, digest) && streamName.equals(lastStreamName) && includeCache.isUnchanged(lastIncludes))
+			{
+				final String[] errors = lastErrors;
+				final String[] warnings = lastWarnings;
+				SwingUtils.invoke(() -> publish(id, streamName, errors, warnings));
+				return;
+			}
+
+			String[] errors;
+			String[] warnings;
+			Map<String, byte[]> includes;
+			includeCache.startRecording();
+			try {
+				DecoHackParser.Result result = DecoHackParser.read(streamName, new ByteArrayInputStream(data), charset, includeCache);
+				errors = result.getErrors();
+				warnings = result.getWarnings();
+			} catch (IOException | SecurityException e) {
+				errors = new String[]{e.getLocalizedMessage()};
+				warnings = new String[0];
+			} catch (IllegalStateException e) {
+				// interrupted before the first token.
+				return;
+			} catch (Exception e) {
+				LOG.errorf(e, "Uncaught exception during background DECOHack compile.");
+				return;
+			} finally {
+				includes = includeCache.stopRecording();
+			}
+
+			// Superseded - results are incomplete.
+			if (Thread.interrupted())
+				return;
+
+			lastDigest = digest;
+			lastStreamName = streamName;
+			lastIncludes = includes;
+			lastErrors = errors;
+			lastWarnings = warnings;
+
+			final String[] publishErrors = errors;
+			final String[] publishWarnings = warnings;
+			SwingUtils.invoke(() -> publish(id, streamName, publishErrors, publishWarnings));
+		}
+
+		// Publishes messages to the editor. Called on the Swing thread.
+		private void publish(int id, String streamName, String[] errors, String[] warnings)
+		{
+			if (id != generation || !editors.containsKey(handle))
+				return;
+			running = null;
+			publishedStreamName = streamName;
+			publishedErrors = errors;
+			publishedWarnings = warnings;
+			handle.forceReparsing(this);
+		}
+
+		@Override
+		public ParseResult parse(RSyntaxDocument doc, String style)
+		{
+			DefaultParseResult out = new DefaultParseResult(this);
+			Element root = doc.getDefaultRootElement();
+			out.setParsedLines(0, root.getElementCount() - 1);
+			for (String message : publishedErrors)
+				out.addNotice(createNotice(doc, message, ParserNotice.Level.ERROR));
+			for (String message : publishedWarnings)
+				out.addNotice(createNotice(doc, message, ParserNotice.Level.WARNING));
+			return out;
+		}
+
+		// Creates a notice for a message, placed on its token if it is in this editor.
+		private ParserNotice createNotice(RSyntaxDocument doc, String message, ParserNotice.Level level)
+		{
+			Element root = doc.getDefaultRootElement();
+			int lastLine = root.getElementCount() - 1;
+			DefaultParserNotice notice;
+
+			Matcher matcher = TOKEN_MESSAGE.matcher(message);
+			if (matcher.matches() && matcher.group(1).equals(publishedStreamName))
+			{
+				int line = Math.min(Math.max(Integer.parseInt(matcher.group(2)) - 1, 0), lastLine);
+				String lexeme = matcher.group(3);
+				Element lineElement = root.getElement(line);
+				int start = lineElement.getStartOffset();
+				int end = lineElement.getEndOffset() - 1;
+				int offset = -1;
+				try {
+					offset = lexeme.isEmpty() ? -1 : doc.getText(start, end - start).indexOf(lexeme);
+				} catch (BadLocationException e) {
+					// Fall through - whole line.
+				}
+				if (offset >= 0)
+					notice = new DefaultParserNotice(this, matcher.group(4), line, start + offset, lexeme.length());
+				else
+					notice = new DefaultParserNotice(this, matcher.group(4), line, start, Math.max(end - start, 1));
+			}
+			else if (message.startsWith(STREAM_END_PREFIX))
+			{
+				notice = new DefaultParserNotice(this, message.substring(STREAM_END_PREFIX.length()), lastLine);
+			}
+			else
+			{
+				// Message from an included file (or no position).
+				notice = new DefaultParserNotice(this, message, 0);
+			}
+			notice.setLevel(level);
+			return notice;
+		}
+	}
+
+}
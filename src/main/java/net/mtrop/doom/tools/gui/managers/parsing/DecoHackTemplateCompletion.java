@@ -358,7 +358,7 @@ public enum DecoHackTemplateCompletion
 	/**
 	 * DECOHack template.
 	 */
-	private static class DecoHackTemplate extends TemplateCompletion
+	private static class DecoHackTemplate extends CommonTemplateCompletion
 	{
 		private DecoHackTemplate(CompletionProvider provider, String inputText, String template, String shortDescription, String summary)
 		{
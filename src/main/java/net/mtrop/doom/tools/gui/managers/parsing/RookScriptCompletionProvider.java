@@ -9,7 +9,6 @@ import java.io.StringWriter;
 import java.util.List;
 
 import org.fife.ui.autocomplete.CompletionProvider;
-import org.fife.ui.autocomplete.TemplateCompletion;
 
 import com.blackrook.rookscript.lang.ScriptFunctionType;
 import com.blackrook.rookscript.lang.ScriptFunctionType.Usage.ParameterUsage;
@@ -40,7 +39,7 @@ public class RookScriptCompletionProvider extends CommonCompletionProvider
 	/**
 	 * A completion object for editor function.
 	 */
-	protected static class FunctionCompletion extends TemplateCompletion
+	protected static class FunctionCompletion extends CommonTemplateCompletion
 	{
 		/**
 		 * Creates a RookScript function completion.
@@ -133,7 +133,7 @@ public enum RookScriptTemplateCompletion
 	/**
 	 * RookScript template.
 	 */
-	private static class RookScriptTemplate extends TemplateCompletion
+	private static class RookScriptTemplate extends CommonTemplateCompletion
 	{
 		private RookScriptTemplate(CompletionProvider provider, String inputText, String template, String shortDescription, String summary)
 		{
@@ -9,7 +9,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 
 import org.fife.ui.autocomplete.CompletionProvider;
-import org.fife.ui.autocomplete.TemplateCompletion;
 
 import net.mtrop.doom.tools.wadmerge.WadMergeCommand;
 
@@ -29,7 +28,7 @@ public class WadMergeCompletionProvider extends CommonCompletionProvider
 	/**
 	 * Special completion for WadMerge-based stuff.
 	 */
-	public class CommandCompletion extends TemplateCompletion
+	public class CommandCompletion extends CommonTemplateCompletion
 	{
 		private final String summaryText;
 		
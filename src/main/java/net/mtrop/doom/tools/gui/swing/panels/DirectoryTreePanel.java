@@ -59,6 +59,7 @@ import net.mtrop.doom.tools.gui.managers.DoomToolsGUIUtils;
 import net.mtrop.doom.tools.gui.managers.DoomToolsLanguageManager;
 import net.mtrop.doom.tools.gui.managers.DoomToolsLogger;
 import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager;
+import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager.Priority;
 import net.mtrop.doom.tools.struct.InstancedFuture;
 import net.mtrop.doom.tools.struct.LoggingFactory.Logger;
 import net.mtrop.doom.tools.struct.swing.ClipboardUtils;
@@ -115,6 +116,8 @@ public class DirectoryTreePanel extends JPanel
 	private JPopupMenu singleDirectoryPopupMenu;
 	/** The multi-file popup menu (only files). */
 	private JPopupMenu multiFilePopupMenu;
+	/** The directory that file change notifications are received for, if any. */
+	private File watchedDirectory;
 	
 	// Special keys
 	
@@ -164,6 +167,7 @@ public class DirectoryTreePanel extends JPanel
 		
 		this.rootDirectory = rootDirectory != null ? FileUtils.canonizeFile(rootDirectory) : null;
 		this.directoryTreeListener = directoryTreeListener;
+		this.watchedDirectory = null;
 
 		this.singleFilePopupMenu = createSingleFilePopupMenu();
 		this.singleDirectoryPopupMenu = createSingleDirectoryPopupMenu();
@@ -255,6 +259,83 @@ public class DirectoryTreePanel extends JPanel
 		this.directoryTreeListener = directoryTreeListener;
 	}
 	
+	/**
+	 * Sets the directory that this tree receives file change notifications for 
+	 * (see {@link #notifyFileCreated(File)}, {@link #notifyFileDeleted(File)}, {@link #notifyFileModified(File)}).
+	 * Listings under this directory are updated in place instead of re-listed when collapsed.
+	 * @param watchedDirectory the watched directory, or null for none.
+	 */
+	public void setWatchedDirectory(File watchedDirectory)
+	{
+		this.watchedDirectory = watchedDirectory != null ? FileUtils.canonizeFile(watchedDirectory) : null;
+	}
+	
+	/**
+	 * Notifies this tree that a file was created.
+	 * If its parent directory is listed in the tree, the file is added to it.
+	 * Can be called from any thread.
+	 * @param file the created file.
+	 */
+	public void notifyFileCreated(File file)
+	{
+		final File canonFile = FileUtils.canonizeFile(file);
+		final FileNode newNode = new FileNode(null, canonFile);
+		SwingUtils.invoke(() -> {
+			FileNode parentNode = findLoadedNode(canonFile.getParentFile());
+			ArrayList<FileNode> children;
+			if (parentNode == null || (children = parentNode.getLoadedChildren()) == null)
+				return;
+			if (children.contains(newNode))
+				return;
+			
+			int index = 0;
+			while (index < children.size() && CHILD_COMPARATOR.compare(children.get(index), newNode) < 0)
+				index++;
+			newNode.parent = parentNode;
+			children.add(index, newNode);
+			((FileTreeModel)fileTree.getModel()).nodesWereInserted(parentNode, new int[]{index});
+		});
+	}
+	
+	/**
+	 * Notifies this tree that a file was deleted.
+	 * If the file is in the tree, it is removed.
+	 * Can be called from any thread.
+	 * @param file the deleted file.
+	 */
+	public void notifyFileDeleted(File file)
+	{
+		final File canonFile = FileUtils.canonizeFile(file);
+		SwingUtils.invoke(() -> {
+			FileNode node = findLoadedNode(canonFile);
+			if (node == null || node.parent == null)
+				return;
+			ArrayList<FileNode> children = node.parent.children;
+			int index = children.indexOf(node);
+			if (index < 0)
+				return;
+			node.clearChildren();
+			children.remove(index);
+			((FileTreeModel)fileTree.getModel()).nodesWereRemoved(node.parent, new int[]{index}, new Object[]{node});
+		});
+	}
+	
+	/**
+	 * Notifies this tree that a file was modified.
+	 * If the file is in the tree, its node is repainted.
+	 * Can be called from any thread.
+	 * @param file the modified file.
+	 */
+	public void notifyFileModified(File file)
+	{
+		final File canonFile = FileUtils.canonizeFile(file);
+		SwingUtils.invoke(() -> {
+			FileNode node = findLoadedNode(canonFile);
+			if (node != null)
+				((FileTreeModel)fileTree.getModel()).nodeChanged(node);
+		});
+	}
+	
 	/**
 	 * Refresh the tree.
 	 */
@@ -340,7 +421,11 @@ public class DirectoryTreePanel extends JPanel
 		if (selectionPaths != null)
 		{
 			for (TreePath path : selectionPaths)
-				fileSet.add(((FileNode)path.getLastPathComponent()).file);
+			{
+				FileNode node = (FileNode)path.getLastPathComponent();
+				if (!node.placeholder)
+					fileSet.add(node.file);
+			}
 			return fileSet.toArray(new File[fileSet.size()]);
 		}
 		else
@@ -400,6 +485,7 @@ public class DirectoryTreePanel extends JPanel
 				nextFile = new File(filePathString);
 			}
 
+			currentNode.loadChildrenNow();
 			int index = currentNode.getIndex(new FileNode(currentNode, nextFile));
 			if (index >= 0)
 			{
@@ -748,6 +834,57 @@ public class DirectoryTreePanel extends JPanel
 		fileTree.clearSelection();
 	}
 
+	// Checks if a file is under the watched directory.
+	private boolean isWatched(File file)
+	{
+		if (watchedDirectory == null)
+			return false;
+		for (File f = file; f != null; f = f.getParentFile())
+			if (FileUtils.filePathEquals(f, watchedDirectory))
+				return true;
+		return false;
+	}
+	
+	// Finds the node for a file without listing any directories. 
+	// Returns null if the file, or any of its parents, are not listed.
+	private FileNode findLoadedNode(File file)
+	{
+		if (file == null)
+			return null;
+		
+		FileNode root = (FileNode)fileTree.getModel().getRoot();
+		LinkedList<File> chain = new LinkedList<>();
+		File current = file;
+		while (current != null && !FileUtils.filePathEquals(current, root.file))
+		{
+			chain.addFirst(current);
+			current = current.getParentFile();
+		}
+		if (current == null)
+			return null;
+		
+		FileNode node = root;
+		for (File next : chain)
+		{
+			ArrayList<FileNode> children = node.getLoadedChildren();
+			if (children == null)
+				return null;
+			FileNode found = null;
+			for (FileNode child : children)
+			{
+				if (FileUtils.filePathEquals(child.file, next))
+				{
+					found = child;
+					break;
+				}
+			}
+			if (found == null)
+				return null;
+			node = found;
+		}
+		return node;
+	}
+	
 	private void reloadNode(FileNode node)
 	{
 		((FileTreeModel)fileTree.getModel()).reload(node);
@@ -912,7 +1049,7 @@ public class DirectoryTreePanel extends JPanel
 			setDragEnabled(true);
 			setDropMode(DropMode.ON);
 			
-			setCellRenderer(new FileTreeCellRenderer());
+			setCellRenderer(new FileTreeCellRenderer(language.getText("dirtree.loading")));
 		}
 		
 		/**
@@ -1082,7 +1219,12 @@ public class DirectoryTreePanel extends JPanel
 		@Override
 		public void treeCollapsed(TreeExpansionEvent event) 
 		{
-			reloadNode((FileNode)event.getPath().getLastPathComponent());
+			FileNode node = (FileNode)event.getPath().getLastPathComponent();
+			// Watched listings are kept up to date, so only unwatched ones need a fresh listing.
+			if (isWatched(node.file))
+				node.cancelLoad();
+			else
+				reloadNode(node);
 		}
 
 	}
@@ -1116,12 +1258,22 @@ public class DirectoryTreePanel extends JPanel
 	{
 		private static final long serialVersionUID = -661862086263680971L;
 
+		private String loadingText;
+		
+		private FileTreeCellRenderer(String loadingText)
+		{
+			this.loadingText = loadingText;
+		}
+		
 		@Override
 		public Component getTreeCellRendererComponent(JTree tree, Object value, boolean sel, boolean expanded, boolean leaf, int row, boolean hasFocus) 
 		{
 			JLabel label = (JLabel)super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row, hasFocus);
 			if (value instanceof FileNode)
-				label.setText(((FileNode)value).file.getName());
+			{
+				FileNode node = (FileNode)value;
+				label.setText(node.placeholder ? loadingText : node.file.getName());
+			}
 			return label;
 		}
 	}
@@ -1129,6 +1281,8 @@ public class DirectoryTreePanel extends JPanel
 	
 	/**
 	 * A single node in the file tree.
+	 * Directory listings are loaded in the background: until a listing arrives,
+	 * the node has a single placeholder child. All other access is on the Swing thread.
 	 */
 	private class FileNode implements MutableTreeNode
 	{
@@ -1136,8 +1290,14 @@ public class DirectoryTreePanel extends JPanel
 		private FileNode parent;
 		/** The file. */
 		private File file;
-		/** List of children. */
+		/** If true, this is a placeholder for a listing in progress. */
+		private boolean placeholder;
+		/** List of children. Null if not listed yet. */
 		private ArrayList<FileNode> children;
+		/** If true, the children are a placeholder for a listing in progress. */
+		private boolean loading;
+		/** Listing id. Changing it cancels the listing in progress. */
+		private volatile int loadId;
 		
 		/**
 		 * Creates a node.
@@ -1148,36 +1308,138 @@ public class DirectoryTreePanel extends JPanel
 		{
 			this.parent = parent;
 			this.file = FileUtils.canonizeFile(file);
+			this.placeholder = false;
 			this.children = null;
+			this.loading = false;
+			this.loadId = 0;
+		}
+
+		/**
+		 * Creates a placeholder node.
+		 * @param parent the parent node.
+		 */
+		private FileNode(FileNode parent)
+		{
+			this.parent = parent;
+			this.file = parent.file;
+			this.placeholder = true;
+			this.children = new ArrayList<>(0);
+			this.loading = false;
+			this.loadId = 0;
 		}
 
 		/**
-		 * Clears the children.
+		 * Clears the children and cancels any listing in progress.
 		 */
-		public synchronized void clearChildren()
+		public void clearChildren()
 		{
+			loadId++;
+			loading = false;
 			children = null;
 		}
 		
 		/**
-		 * Refreshes the children.
+		 * Cancels a listing in progress, if any.
+		 * The listing is started again on next access.
 		 */
-		public synchronized void refreshChildren()
+		public void cancelLoad()
+		{
+			if (loading)
+				clearChildren();
+		}
+		
+		/**
+		 * Starts a background listing of the children, if not listed yet.
+		 * A placeholder child is shown until the listing arrives.
+		 */
+		public void refreshChildren()
 		{
 			if (children != null)
 				return;
 			
+			if (placeholder || !file.isDirectory())
+			{
+				children = new ArrayList<>(0);
+				return;
+			}
+			
+			children = new ArrayList<>(1);
+			children.add(new FileNode(this));
+			loading = true;
+			
+			final int id = ++loadId;
+			tasks.spawn(Priority.INTERACTIVE, "directory", () -> {
+				final ArrayList<FileNode> loaded = listChildren(id);
+				if (loaded != null)
+					SwingUtils.invoke(() -> finishLoad(id, loaded));
+			});
+		}
+
+		/**
+		 * Lists the children right away, replacing a listing in progress.
+		 */
+		public void loadChildrenNow()
+		{
+			if (children != null && !loading)
+				return;
+			
+			boolean wasLoading = loading;
+			int id = ++loadId;
+			loading = false;
+			children = placeholder ? new ArrayList<>(0) : listChildren(id);
+			if (children == null)
+				children = new ArrayList<>(0);
+			if (wasLoading && isInTree())
+				((FileTreeModel)fileTree.getModel()).nodeStructureChanged(this);
+		}
+		
+		// Lists and sorts child nodes. Returns null if cancelled.
+		private ArrayList<FileNode> listChildren(int id)
+		{
 			File[] files = file.listFiles();
 			if (files == null)
-				return;
+				return id == loadId ? new ArrayList<>(0) : null;
 			
 			Arrays.sort(files, FileUtils.getFileListComparator());
 			
-			children = new ArrayList<>(files.length);
-			for (int i = 0; i < files.length; i++) 
-				children.add(new FileNode(this, files[i]));
+			ArrayList<FileNode> out = new ArrayList<>(files.length);
+			for (int i = 0; i < files.length; i++)
+			{
+				if (id != loadId)
+					return null;
+				out.add(new FileNode(this, files[i]));
+			}
+			return out;
 		}
-
+		
+		// Applies a finished listing. Called on the Swing thread.
+		private void finishLoad(int id, ArrayList<FileNode> loaded)
+		{
+			if (id != loadId || !loading)
+				return;
+			loading = false;
+			children = loaded;
+			if (isInTree())
+				((FileTreeModel)fileTree.getModel()).nodeStructureChanged(this);
+		}
+		
+		// Checks if this node is still attached to the current tree.
+		private boolean isInTree()
+		{
+			FileNode node = this;
+			while (node.parent != null)
+				node = node.parent;
+			return node == fileTree.getModel().getRoot();
+		}
+		
+		/**
+		 * @return the loaded children, or null if not listed (or still listing).
+		 */
+		private ArrayList<FileNode> getLoadedChildren()
+		{
+			return loading ? null : children;
+		}
+		
 		@Override
 		public TreeNode getChildAt(int childIndex) 
 		{
@@ -1189,7 +1451,7 @@ public class DirectoryTreePanel extends JPanel
 		public int getChildCount() 
 		{
 			refreshChildren();
-			return children == null ? 0 : children.size();
+			return children.size();
 		}
 
 		@Override
@@ -1208,13 +1470,13 @@ public class DirectoryTreePanel extends JPanel
 		@Override
 		public boolean getAllowsChildren() 
 		{
-			return file.isDirectory();
+			return !placeholder && file.isDirectory();
 		}
 
 		@Override
 		public boolean isLeaf() 
 		{
-			return !file.isDirectory();
+			return placeholder || !file.isDirectory();
 		}
 
 		@Override
@@ -1292,7 +1554,7 @@ public class DirectoryTreePanel extends JPanel
 			if (obj instanceof FileNode)
 			{
 				FileNode node = (FileNode)obj;
-				return CHILD_COMPARATOR.compare(this, node) == 0;
+				return placeholder == node.placeholder && CHILD_COMPARATOR.compare(this, node) == 0;
 			}
 			else
 			{
@@ -8,9 +8,13 @@ package net.mtrop.doom.tools.gui.swing.panels;
 import javax.swing.Icon;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
 import net.mtrop.doom.tools.gui.managers.DoomToolsIconManager;
 import net.mtrop.doom.tools.gui.managers.DoomToolsImageManager;
+import net.mtrop.doom.tools.gui.managers.DoomToolsLanguageManager;
+import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager;
+import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager.TaskMetrics;
 import net.mtrop.doom.tools.struct.swing.SwingUtils;
 
 import java.awt.BorderLayout;
@@ -27,6 +31,9 @@ public class DoomToolsStatusPanel extends JPanel
 {
 	private static final long serialVersionUID = -3730984456173494660L;
 
+	/** Task metrics refresh interval in milliseconds. */
+	private static final int METRICS_INTERVAL_MILLIS = 1000;
+
 	/** Icon manager. */
 	private DoomToolsIconManager icons;
 	/** Image manager. */
@@ -34,6 +41,10 @@ public class DoomToolsStatusPanel extends JPanel
 	
 	/** Message label. */
 	private JLabel messageLabel;
+	/** Task metrics label. */
+	private JLabel metricsLabel;
+	/** Task metrics refresh timer. */
+	private Timer metricsTimer;
 	
 	/** Success icon. */
 	private Icon successIcon;
@@ -47,16 +58,51 @@ public class DoomToolsStatusPanel extends JPanel
 		this.icons = DoomToolsIconManager.get();
 		this.images = DoomToolsImageManager.get();
 		this.messageLabel = label(" ");
+		this.metricsLabel = label("");
+		this.metricsTimer = new Timer(METRICS_INTERVAL_MILLIS, (e) -> refreshTaskMetrics());
 		this.successIcon = icon(images.getImage("success.png"));
 		this.activityIcon = icons.getImage("activity.gif");
 		this.errorIcon = icon(images.getImage("error.png"));
 		
 		this.setBorder(null);
 		containerOf(this, borderLayout(0, 4), 
-			node(BorderLayout.CENTER, messageLabel)
+			node(BorderLayout.CENTER, messageLabel),
+			node(BorderLayout.LINE_END, metricsLabel)
 		);
 	}
 	
+	/**
+	 * Sets if this panel shows the task manager's queue and latency metrics while tasks are active.
+	 * @param visible true to show, false to hide.
+	 */
+	public void setTaskMetricsVisible(boolean visible)
+	{
+		SwingUtils.invoke(() -> {
+			if (visible)
+			{
+				metricsTimer.start();
+				refreshTaskMetrics();
+			}
+			else
+			{
+				metricsTimer.stop();
+				metricsLabel.setText("");
+				metricsLabel.setToolTipText(null);
+			}
+		});
+	}
+	
+	private void refreshTaskMetrics()
+	{
+		TaskMetrics metrics = DoomToolsTaskManager.get().getMetrics();
+		DoomToolsLanguageManager language = DoomToolsLanguageManager.get();
+		if (metrics.getRunning() == 0 && metrics.getQueued() == 0)
+			metricsLabel.setText("");
+		else
+			metricsLabel.setText(language.getText("doomtools.tasks.metrics", metrics.getRunning(), metrics.getQueued(), metrics.getAverageWaitMillis()));
+		metricsLabel.setToolTipText(language.getText("doomtools.tasks.metrics.tip", metrics.getCompleted(), metrics.getAverageWaitMillis(), metrics.getAverageRunMillis()));
+	}
+	
 	/**
 	 * Sets a message (no icon).
 	 * @param message the message to set.
@@ -6,23 +6,35 @@
 package net.mtrop.doom.tools.gui.swing.panels;
 
 import java.awt.Font;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.io.Reader;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
 
+import net.mtrop.doom.tools.struct.util.FileUtils;
+import net.mtrop.doom.tools.struct.util.FileUtils.TempFile;
 import net.mtrop.doom.tools.struct.util.IOUtils;
 
 /**
  * Text output panel.
  * This panel also provides two streams for writing to the text panel like a console.
  * Both streams are synchronized such that output does not step on each other.
+ * <p>Writes are collected in a pending buffer and added to the text area on the Swing thread 
+ * at a fixed rate, so that busy output does not flood the event queue. Only the last 
+ * {@link #setMaxLines(int) few lines} are kept in the text area: older lines are moved to a 
+ * temporary file, and {@link #getFullText()} returns all of the output. The temporary file is
+ * deleted on {@link #clear()} or {@link #dispose()}.
  * @author Matthew Tropiano
  */
 public class DoomToolsTextOutputPanel extends JTextArea
@@ -31,45 +43,239 @@ public class DoomToolsTextOutputPanel extends JTextArea
 
 	private static final Font DEFAULT_FONT = new Font("Monospaced", Font.PLAIN, 12);
 	
+	/** Default maximum amount of lines kept in the text area. */
+	public static final int DEFAULT_MAX_LINES = 10000;
+	/** Delay between pending output flushes in milliseconds (about 30 per second). */
+	private static final int FLUSH_DELAY_MILLIS = 33;
+	
 	private Object printMutex;
+	/** Output not yet added to the text area (guarded by printMutex). */
+	private StringBuilder pending;
+	/** File for lines removed from the text area, created on first use (Swing thread only). */
+	private TempFile overflowFile;
+	/** Writer for the overflow file (Swing thread only). */
+	private Writer overflowWriter;
+	/** If true, removed lines could not be written to the overflow file (Swing thread only). */
+	private boolean overflowLost;
+	/** If true, this panel was disposed, and output is ignored. */
+	private volatile boolean disposed;
+	/** Maximum amount of lines to keep. */
+	private volatile int maxLines;
+	/** Timer for flushing pending output. */
+	private Timer flushTimer;
 	
 	/**
-	 * Creates a new output panel.
+	 * Creates a new output panel that keeps up to {@value #DEFAULT_MAX_LINES} lines.
 	 */
 	public DoomToolsTextOutputPanel()
+	{
+		this(DEFAULT_MAX_LINES);
+	}
+
+	/**
+	 * Creates a new output panel.
+	 * @param maxLines the maximum amount of lines to keep in the text area, or 0 or less for no limit.
+	 * @see #setMaxLines(int)
+	 */
+	public DoomToolsTextOutputPanel(int maxLines)
 	{
 		super(25, 84);
 		this.printMutex = new Object();
+		this.pending = new StringBuilder(1024);
+		this.overflowFile = null;
+		this.overflowWriter = null;
+		this.overflowLost = false;
+		this.disposed = false;
+		this.maxLines = maxLines;
+		this.flushTimer = new Timer(FLUSH_DELAY_MILLIS, (e) -> flushPending());
+		this.flushTimer.setRepeats(false);
 		setFont(DEFAULT_FONT);
 		setEditable(false);
 	}
 
+	/**
+	 * Sets the maximum amount of lines to keep in this panel.
+	 * Older lines are removed from the top as new ones are added.
+	 * @param maxLines the maximum amount of lines, or 0 or less for no limit.
+	 */
+	public void setMaxLines(int maxLines)
+	{
+		this.maxLines = maxLines;
+	}
+	
+	/**
+	 * Removes all of the output from this panel, including pending output 
+	 * and the lines kept in the overflow file, and deletes the overflow file.
+	 * This must be called on the Swing thread.
+	 */
+	public void clear()
+	{
+		synchronized (printMutex)
+		{
+			pending.setLength(0);
+		}
+		setText("");
+		closeOverflow();
+	}
+	
+	/**
+	 * Releases this panel's resources: the overflow file is closed and deleted,
+	 * and output written after this is ignored. The text area keeps its text.
+	 * This must be called on the Swing thread.
+	 */
+	public void dispose()
+	{
+		disposed = true;
+		flushTimer.stop();
+		synchronized (printMutex)
+		{
+			pending.setLength(0);
+		}
+		closeOverflow();
+	}
+	
+	/**
+	 * Gets all of the output written to this panel, including the lines
+	 * that were removed from the text area because of the line limit.
+	 * Pending output is added first. This must be called on the Swing thread.
+	 * @return the full output.
+	 */
+	public String getFullText()
+	{
+		flushPending();
+		if (overflowFile == null && !overflowLost)
+			return getText();
+		
+		StringBuilder sb = new StringBuilder();
+		if (overflowLost)
+			sb.append("[Some earlier output could not be kept.]\n");
+		if (overflowWriter != null)
+		{
+			try {
+				overflowWriter.flush();
+				sb.append(new String(Files.readAllBytes(overflowFile.toPath()), StandardCharsets.UTF_8));
+			} catch (IOException e) {
+				sb.append("[Earlier output could not be read.]\n");
+			}
+		}
+		return sb.append(getText()).toString();
+	}
+	
 	/**
 	 * Writes a character to this panel.
 	 * @param c the character.
 	 */
 	public void writeChar(char c)
 	{
-		synchronized (printMutex) 
-		{
-			append(String.valueOf(c));
-			setCaretPosition(getDocument().getLength());
-		}
+		writeString(String.valueOf(c));
 	}
 	
 	/**
 	 * Writes a string to this panel.
+	 * The text is added to the panel on the next flush.
 	 * @param str the string.
 	 */
 	public void writeString(String str)
 	{
+		if (str.isEmpty() || disposed)
+			return;
+		
+		boolean schedule;
 		synchronized (printMutex) 
 		{
-			append(str);
-			setCaretPosition(getDocument().getLength());
+			schedule = pending.length() == 0;
+			pending.append(str);
+		}
+		if (schedule)
+			flushTimer.restart();
+	}
+	
+	// Moves pending output to the text area. Called on the Swing thread.
+	private void flushPending()
+	{
+		String chunk;
+		synchronized (printMutex)
+		{
+			if (pending.length() == 0 || disposed)
+				return;
+			chunk = pending.toString();
+			pending.setLength(0);
+		}
+		
+		int max = maxLines;
+		if (max > 0)
+		{
+			int start = lastLinesStart(chunk, max);
+			if (start > 0)
+			{
+				// The chunk alone fills the text area - skip adding lines that would be removed right away.
+				overflow(getText());
+				setText("");
+				overflow(chunk.substring(0, start));
+				chunk = chunk.substring(start);
+			}
+		}
+		append(chunk);
+		
+		if (max > 0)
+		{
+			int excess = getLineCount() - max;
+			if (excess > 0)
+			{
+				try {
+					int end = getLineStartOffset(excess);
+					overflow(getText(0, end));
+					replaceRange(null, 0, end);
+				} catch (BadLocationException e) {
+					// Should not happen - line is in range.
+				}
+			}
+		}
+		setCaretPosition(getDocument().getLength());
+	}
+	
+	// Writes lines removed from the text area to the overflow file.
+	private void overflow(String text)
+	{
+		if (text.isEmpty() || overflowLost)
+			return;
+		try {
+			if (overflowWriter == null)
+			{
+				overflowFile = FileUtils.createTempFile();
+				overflowFile.deleteOnExit();
+				overflowWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(overflowFile), StandardCharsets.UTF_8));
+			}
+			overflowWriter.write(text);
+		} catch (IOException e) {
+			IOUtils.close(overflowWriter);
+			overflowWriter = null;
+			overflowLost = true;
 		}
 	}
 	
+	// Closes and deletes the overflow file, if any.
+	private void closeOverflow()
+	{
+		IOUtils.close(overflowWriter);
+		overflowWriter = null;
+		if (overflowFile != null)
+			overflowFile.close();
+		overflowFile = null;
+		overflowLost = false;
+	}
+	
+	// Gets the start of the last lines of a string (a trailing partial line counts as a line).
+	private static int lastLinesStart(String str, int lines)
+	{
+		int index = str.length() - 1;
+		if (index >= 0 && str.charAt(index) == '\n')
+			index--;
+		for (int i = 0; i < lines && index >= 0; i++)
+			index = str.lastIndexOf('\n', index) - 1;
+		return index < 0 ? 0 : index + 2;
+	}
+	
 	/**
 	 * @return an output stream to use for printing to the text area.
 	 */
@@ -105,12 +311,10 @@ public class DoomToolsTextOutputPanel extends JTextArea
 	private class Printer extends OutputStream
 	{
 		private ByteArrayOutputStream buffer;
-		private StringWriter charBuffer;
 		
 		public Printer()
 		{
 			this.buffer = new ByteArrayOutputStream(512);
-			this.charBuffer = new StringWriter(512);
 		}
 		
 		@Override
@@ -124,14 +328,8 @@ public class DoomToolsTextOutputPanel extends JTextArea
 		{
 			if (buffer.size() == 0)
 				return;
-			
-			// TODO: Creates far too much garbage on flush. Write better in-place solution.
-			try (Reader reader = new InputStreamReader(new ByteArrayInputStream(buffer.toByteArray())))
-			{
-				charBuffer.getBuffer().delete(0, charBuffer.getBuffer().length());
-				IOUtils.relay(reader, charBuffer);
-			}
-			writeString(charBuffer.toString());
+			// only flushed on line ends, so multi-byte characters are never split.
+			writeString(buffer.toString(Charset.defaultCharset().name()));
 			buffer.reset();
 		}
 		
@@ -143,6 +341,24 @@ public class DoomToolsTextOutputPanel extends JTextArea
 				flush();
 		}
 		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			int start = off;
+			int end = off + len;
+			for (int i = off; i < end; i++)
+			{
+				if (b[i] == '\n')
+				{
+					buffer.write(b, start, i + 1 - start);
+					flush();
+					start = i + 1;
+				}
+			}
+			if (start < end)
+				buffer.write(b, start, end - start);
+		}
+		
 	}
 	
 }
@@ -134,6 +134,46 @@ public class EditorDirectoryTreePanel extends JPanel
 		treePanel.setSelectedFile(file);
 	}
 
+	/**
+	 * Sets the directory that the tree receives file change notifications for.
+	 * @param watchedDirectory the watched directory, or null for none.
+	 * @see DirectoryTreePanel#setWatchedDirectory(File)
+	 */
+	public void setWatchedDirectory(File watchedDirectory)
+	{
+		treePanel.setWatchedDirectory(watchedDirectory);
+	}
+	
+	/**
+	 * Notifies the tree that a file was created.
+	 * @param file the created file.
+	 * @see DirectoryTreePanel#notifyFileCreated(File)
+	 */
+	public void notifyFileCreated(File file)
+	{
+		treePanel.notifyFileCreated(file);
+	}
+	
+	/**
+	 * Notifies the tree that a file was deleted.
+	 * @param file the deleted file.
+	 * @see DirectoryTreePanel#notifyFileDeleted(File)
+	 */
+	public void notifyFileDeleted(File file)
+	{
+		treePanel.notifyFileDeleted(file);
+	}
+	
+	/**
+	 * Notifies the tree that a file was modified.
+	 * @param file the modified file.
+	 * @see DirectoryTreePanel#notifyFileModified(File)
+	 */
+	public void notifyFileModified(File file)
+	{
+		treePanel.notifyFileModified(file);
+	}
+
 	private void onResetTop()
 	{
 		if (rootDirectory != null)
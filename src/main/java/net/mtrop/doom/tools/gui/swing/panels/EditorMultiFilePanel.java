@@ -63,6 +63,7 @@ import org.fife.ui.autocomplete.AutoCompletion;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rsyntaxtextarea.Theme;
+import org.fife.ui.rsyntaxtextarea.parser.Parser;
 import org.fife.ui.rtextarea.RTextArea;
 import org.fife.ui.rtextarea.RTextScrollPane;
 
@@ -1918,6 +1919,16 @@ public class EditorMultiFilePanel extends JPanel
 		 * @param handle the handle.
 		 */
 		void onTreeRevealRequest(EditorHandle handle);
+
+		/**
+		 * Called when the content of an editor changes.
+		 * Called on every edit, so this should return quickly.
+		 * @param handle the handle.
+		 */
+		default void onContentChange(EditorHandle handle)
+		{
+			// Do nothing by default.
+		}
 	}
 
 	/**
@@ -2092,6 +2103,33 @@ public class EditorMultiFilePanel extends JPanel
 			return contentSourceFile;
 		}
 	
+		/**
+		 * Adds a parser to this editor, for showing notices (errors, warnings) in the text.
+		 * @param parser the parser to add.
+		 */
+		public void addParser(Parser parser)
+		{
+			editorPanel.textArea.addParser(parser);
+		}
+		
+		/**
+		 * Removes a parser from this editor.
+		 * @param parser the parser to remove.
+		 */
+		public void removeParser(Parser parser)
+		{
+			editorPanel.textArea.removeParser(parser);
+		}
+		
+		/**
+		 * Forces a parser on this editor to re-parse and refresh its notices now.
+		 * @param parser the parser.
+		 */
+		public void forceReparsing(Parser parser)
+		{
+			editorPanel.textArea.forceReparsing(parser);
+		}
+		
 		/**
 		 * @return the editor content.
 		 */
@@ -2184,6 +2222,8 @@ public class EditorMultiFilePanel extends JPanel
 			contentLastModified = System.currentTimeMillis();
 			updateIcon();
 			updateActionsIfCurrent(this);
+			if (listener != null)
+				listener.onContentChange(this);
 		}
 
 	}
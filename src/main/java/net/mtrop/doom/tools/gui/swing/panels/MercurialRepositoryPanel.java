@@ -31,6 +31,8 @@ import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
 import net.mtrop.doom.tools.gui.RepositoryHelper.StatusEntry;
+import net.mtrop.doom.tools.gui.RepositoryStatusService;
+import net.mtrop.doom.tools.gui.RepositoryStatusService.Snapshot;
 import net.mtrop.doom.tools.gui.managers.DoomToolsGUIUtils;
 import net.mtrop.doom.tools.gui.managers.DoomToolsIconManager;
 import net.mtrop.doom.tools.gui.managers.DoomToolsLanguageManager;
@@ -65,6 +67,7 @@ public class MercurialRepositoryPanel extends JPanel
 	private final DoomToolsTaskManager tasks;
 	
 	private final Mercurial client;
+	private final RepositoryStatusService statusService;
 	
 	private final JList<StatusEntry> unstagedChanges;
 	private final EntryModel unstagedChangesModel;
@@ -107,6 +110,7 @@ public class MercurialRepositoryPanel extends JPanel
 		this.tasks = DoomToolsTaskManager.get();
 		
 		this.client = new Mercurial(directory);
+		this.statusService = new RepositoryStatusService(client, new File(directory, ".hg"));
 		
 		this.unstagedChangesModel = new EntryModel();
 		this.unstagedChanges = new JList<>(unstagedChangesModel);
@@ -181,11 +185,7 @@ public class MercurialRepositoryPanel extends JPanel
 		this.commitAction = utils.createActionFromLanguageKey("hg.repo.commit", (e) -> onCommit());
 		this.pullAction = utils.createActionFromLanguageKey("hg.repo.pull", (e) -> onPull());
 		this.pushAction = utils.createActionFromLanguageKey("hg.repo.push", (e) -> onPush());
-		this.refreshAction = actionItem(refreshIcon.result(), (e) -> {
-			refreshInfoSynchronous();
-			refreshEntries();
-			refreshBranches();
-		});
+		this.refreshAction = actionItem(refreshIcon.result(), (e) -> refreshInfo());
 		
 		this.commitArea = textArea();
 		this.statusPanel = new DoomToolsStatusPanel();
@@ -257,62 +257,86 @@ public class MercurialRepositoryPanel extends JPanel
 			))
 		);
 		
-		refreshInfoSynchronous();
-		refreshEntries();
-		refreshBranches();
+		this.branchMenu = popupMenu();
+		this.statusService.addListener((snapshot) -> onStatusChanged(snapshot));
+		this.statusService.start();
 	}
 	
+	/**
+	 * Requests a refresh of the branch info and file status, in the background.
+	 * Requests made close together are coalesced.
+	 */
 	public void refreshInfo()
 	{
-		tasks.spawn(() -> 
-		{
-			refreshInfoSynchronous();
-		});
+		statusService.requestFullRefresh();
 	}
 
+	/**
+	 * Refreshes the branch info and file status on the calling thread.
+	 */
 	public void refreshInfoSynchronous()
 	{
-		BranchStatus bs = client.fetchBranchStatus();
-		branchPanel.setText(bs.getName());
-		String remote = bs.getRemoteName();
-		remoteBranchPanel.setText(remote != null ? remote : "");
-		aheadBehindPanel.setText("+" + bs.getAhead() + ", " + "-" + bs.getBehind());
+		statusService.refreshSynchronous();
 	}
 
+	/**
+	 * Requests a refresh of the file status, in the background.
+	 * Requests made close together are coalesced.
+	 */
 	public void refreshEntries()
 	{
-		tasks.spawn(() -> 
-		{
-			List<StatusEntry> staged = new LinkedList<>(); 
-			List<StatusEntry> unstaged = new LinkedList<>();
-			for (StatusEntry status : client.fetchStatus())
-			{
-				if (status.isStaged())
-					staged.add(status);
-				else
-					unstaged.add(status);
-			}
-			stagedChangesModel.setEntries(staged.toArray(new StatusEntry[staged.size()]));
-			unstagedChangesModel.setEntries(unstaged.toArray(new StatusEntry[unstaged.size()]));
-			
-			stageAction.setEnabled(!unstaged.isEmpty());
-			stageAllAction.setEnabled(!unstaged.isEmpty());
-			unstageAction.setEnabled(!staged.isEmpty());
-			unstageAllAction.setEnabled(!staged.isEmpty());
-		});
+		statusService.requestStatusRefresh();
 	}
 
+	/**
+	 * Requests a refresh of the branch list (and everything else), in the background.
+	 * Requests made close together are coalesced.
+	 */
 	public void refreshBranches()
 	{
-		tasks.spawn(() ->
+		statusService.requestFullRefresh();
+	}
+	
+	/**
+	 * Stops watching the repository for changes.
+	 */
+	public void shutDown()
+	{
+		statusService.shutDown();
+	}
+	
+	// Called on the Swing thread.
+	private void onStatusChanged(Snapshot snapshot)
+	{
+		BranchStatus bs = snapshot.getBranchStatus();
+		branchPanel.setText(bs.getName());
+		String remote = bs.getRemoteName();
+		remoteBranchPanel.setText(remote != null ? remote : "");
+		aheadBehindPanel.setText("+" + bs.getAhead() + ", " + "-" + bs.getBehind());
+
+		List<StatusEntry> staged = new LinkedList<>(); 
+		List<StatusEntry> unstaged = new LinkedList<>();
+		for (StatusEntry status : snapshot.getEntries())
 		{
-			List<MenuNode> menuNodes = new LinkedList<>();
-			for (String branch : client.fetchBranches())
-				menuNodes.add(checkBoxItem(branch, branchPanel.getText().equals(branch), (c) -> onCheckout(branch)));
-			menuNodes.add(separator());
-			menuNodes.add(utils.createItemFromLanguageKey("hg.repo.branch.create", (i) -> onBranchCreate()));
-			branchMenu = popupMenu(ArrayUtils.items(menuNodes, MenuNode.class));
-		});
+			if (status.isStaged())
+				staged.add(status);
+			else
+				unstaged.add(status);
+		}
+		stagedChangesModel.setEntries(staged.toArray(new StatusEntry[staged.size()]));
+		unstagedChangesModel.setEntries(unstaged.toArray(new StatusEntry[unstaged.size()]));
+		
+		stageAction.setEnabled(!unstaged.isEmpty());
+		stageAllAction.setEnabled(!unstaged.isEmpty());
+		unstageAction.setEnabled(!staged.isEmpty());
+		unstageAllAction.setEnabled(!staged.isEmpty());
+
+		List<MenuNode> menuNodes = new LinkedList<>();
+		for (String branch : snapshot.getBranches())
+			menuNodes.add(checkBoxItem(branch, branch.equals(bs.getName()), (c) -> onCheckout(branch)));
+		menuNodes.add(separator());
+		menuNodes.add(utils.createItemFromLanguageKey("hg.repo.branch.create", (i) -> onBranchCreate()));
+		branchMenu = popupMenu(ArrayUtils.items(menuNodes, MenuNode.class));
 	}
 	
 	private void onBranchCreate()
@@ -345,7 +369,6 @@ public class MercurialRepositoryPanel extends JPanel
 			if (client.branch(branch) == 0)
 				client.checkout(branch);
 			refreshInfoSynchronous();
-			refreshBranches();
 			setActionsEnabled(true);
 		});
 	}
@@ -632,8 +655,6 @@ public class MercurialRepositoryPanel extends JPanel
 
 			statusPanel.setSuccessMessage(language.getText("hg.repo.status.checkout", branchName));
 			refreshInfoSynchronous();
-			refreshEntries();
-			refreshBranches();
 			setActionsEnabled(true);
 		});
 	}
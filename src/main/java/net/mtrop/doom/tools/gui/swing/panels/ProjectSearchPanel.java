@@ -12,16 +12,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
@@ -30,6 +35,7 @@ import net.mtrop.doom.tools.gui.managers.DoomToolsGUIUtils;
 import net.mtrop.doom.tools.gui.managers.DoomToolsLanguageManager;
 import net.mtrop.doom.tools.gui.managers.DoomToolsLogger;
 import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager;
+import net.mtrop.doom.tools.gui.managers.DoomToolsTaskManager.Priority;
 import net.mtrop.doom.tools.struct.LoggingFactory.Logger;
 import net.mtrop.doom.tools.struct.util.FileUtils;
 import net.mtrop.doom.tools.struct.util.ObjectUtils;
@@ -51,11 +57,21 @@ public class ProjectSearchPanel extends JPanel
     /** Logger. */
     private static final Logger LOG = DoomToolsLogger.getLogger(ProjectSearchPanel.class); 
 
+	/** Amount of results to add to the result list at a time. */
+	private static final int RESULT_BATCH_SIZE = 256;
+
 	private DoomToolsTaskManager tasks;
 	private DoomToolsLanguageManager language;
 	private DoomToolsGUIUtils utils;
 	
-	private Set<File> registeredFiles;
+	/** The file content index. */
+	private SearchIndex searchIndex;
+	/** Map of file to its latest registration generation (guarded by itself). */
+	private Map<File, Long> fileGenerations;
+	/** Registration generation counter (guarded by fileGenerations). */
+	private long generationCounter;
+	/** The current search id. Results from other searches are discarded. */
+	private AtomicInteger currentSearchId;
 	
 	private JFormField<String> findField;
 	private JFormField<Boolean> caseSensitiveField;
@@ -75,14 +91,20 @@ public class ProjectSearchPanel extends JPanel
 		this.language = DoomToolsLanguageManager.get();
 		this.utils = DoomToolsGUIUtils.get();
 		
-		this.registeredFiles = Collections.synchronizedSet(new TreeSet<>());
+		this.searchIndex = new SearchIndex();
+		this.fileGenerations = new HashMap<>();
+		this.generationCounter = 0L;
+		this.currentSearchId = new AtomicInteger(0);
 		
 		this.statusPanel = new DoomToolsStatusPanel();
 		
-		tasks.spawn(() -> {
+		tasks.spawn(Priority.BULK, "search.index", () -> {
 			statusPanel.setActivityMessage(language.getText("doommake.search.prep"));
 			for (File file : FileUtils.explodeFiles(projectDirectory))
-				registerFile(file);
+			{
+				File canonFile = FileUtils.canonizeFile(file);
+				indexFile(canonFile, nextGeneration(canonFile));
+			}
 			statusPanel.setSuccessMessage(language.getText("doommake.search.ready"));
 		});
 
@@ -135,15 +157,14 @@ public class ProjectSearchPanel extends JPanel
 	 * Registers/re-registers a file in the search.
 	 * Should be called when a file changes.
 	 * If the file is considered to be a binary file, it is not registered.
+	 * The file is (re-)indexed in the background.
 	 * @param file the file to register.
 	 */
 	public void registerFile(File file)
 	{
-		// detect a change.
-		if (Common.isBinaryFile(file) || file.isHidden() || file.isDirectory())
-			deregisterFile(file);
-		else
-			registeredFiles.add(FileUtils.canonizeFile(file));
+		final File canonFile = FileUtils.canonizeFile(file);
+		final long generation = nextGeneration(canonFile);
+		tasks.spawn(Priority.BACKGROUND, "search.index", () -> indexFile(canonFile, generation));
 	}
 	
 	/**
@@ -152,7 +173,8 @@ public class ProjectSearchPanel extends JPanel
 	 */
 	public void deregisterFile(File file)
 	{
-		registeredFiles.remove(FileUtils.canonizeFile(file));
+		File canonFile = FileUtils.canonizeFile(file);
+		updateIndex(canonFile, nextGeneration(canonFile), null);
 	}
 	
 	/**
@@ -171,44 +193,33 @@ public class ProjectSearchPanel extends JPanel
 		else
 			finalPhrase = phrase;
 		
+		final int searchId = currentSearchId.get();
+		
 		LOG.debug("Started search.");
 		statusPanel.setActivityMessage(language.getText("doommake.search.searching"));
-		tasks.spawn(() -> 
+		tasks.spawnReplacing(Priority.INTERACTIVE, "search", () -> 
 		{
 			int count = 0;
-			for (File file : registeredFiles)
+			List<SearchResult> batch = new ArrayList<>(RESULT_BATCH_SIZE);
+			for (IndexedFile indexedFile : searchIndex.getCandidates(finalPhrase))
 			{
-				try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file))))
-				{
-					int offset = 0;
-					int lines = 1;
-					String line;
-					while ((line = reader.readLine()) != null)
-					{
-						if (!caseSensitive)
-							line = line.toLowerCase();
-						
-						int index;
-						int lineSearch = 0;
-						while ((index = line.indexOf(finalPhrase, lineSearch)) >= 0)
-						{
-							searchResultListModel.addResult(new SearchResult(file, lines, index, index + finalPhrase.length() - 1, offset + index));
-							lineSearch = index + finalPhrase.length();
-							count++;
-						}
-						offset += line.length() + 1;
-						lines++;
-					}
-				} 
-				catch (FileNotFoundException e) 
+				if (searchId != currentSearchId.get())
 				{
-					// Do nothing.
-				} 
-				catch (IOException e) 
+					LOG.debug("Search superseded.");
+					return;
+				}
+				
+				count += indexedFile.findAll(finalPhrase, caseSensitive, batch);
+				if (batch.size() >= RESULT_BATCH_SIZE)
 				{
-					// Do nothing.
+					addResults(searchId, batch);
+					batch = new ArrayList<>(RESULT_BATCH_SIZE);
 				}
 			}
+			addResults(searchId, batch);
+			
+			if (searchId != currentSearchId.get())
+				return;
 			
 			if (count == 0)
 				statusPanel.setSuccessMessage(language.getText("doommake.search.results.none"));
@@ -220,10 +231,84 @@ public class ProjectSearchPanel extends JPanel
 	
 	public void onFindAll()
 	{
+		currentSearchId.incrementAndGet();
 		searchResultListModel.clear();
 		search(findField.getValue(), caseSensitiveField.getValue());
 	}
 	
+	// Starts a new registration generation for a file, invalidating pending index updates.
+	private long nextGeneration(File file)
+	{
+		synchronized (fileGenerations)
+		{
+			long out = ++generationCounter;
+			fileGenerations.put(file, out);
+			return out;
+		}
+	}
+	
+	// Reads and indexes a file, if no newer registration happened in the meantime.
+	private void indexFile(File file, long generation)
+	{
+		if (Common.isBinaryFile(file) || file.isHidden() || file.isDirectory())
+		{
+			updateIndex(file, generation, null);
+			return;
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file))))
+		{
+			String line;
+			boolean first = true;
+			while ((line = reader.readLine()) != null)
+			{
+				if (!first)
+					sb.append('\n');
+				sb.append(line);
+				first = false;
+			}
+		} 
+		catch (FileNotFoundException e) 
+		{
+			updateIndex(file, generation, null);
+			return;
+		} 
+		catch (IOException e) 
+		{
+			LOG.errorf(e, "Could not index file for search: %s", file.getPath());
+			return;
+		}
+		
+		updateIndex(file, generation, new IndexedFile(file, sb.toString()));
+	}
+	
+	// Adds or removes (if indexedFile is null) a file in the index, if no newer registration happened.
+	private void updateIndex(File file, long generation, IndexedFile indexedFile)
+	{
+		synchronized (fileGenerations)
+		{
+			Long current = fileGenerations.get(file);
+			if (current == null || current != generation)
+				return;
+			if (indexedFile != null)
+				searchIndex.put(indexedFile);
+			else
+				searchIndex.remove(file);
+		}
+	}
+	
+	// Adds a batch of results on the Swing thread, if the search is still current.
+	private void addResults(final int searchId, final List<SearchResult> batch)
+	{
+		if (batch.isEmpty())
+			return;
+		SwingUtilities.invokeLater(() -> {
+			if (searchId == currentSearchId.get())
+				searchResultListModel.addResults(batch);
+		});
+	}
+	
 	/**
 	 * A single search result.
 	 */
@@ -277,6 +362,178 @@ public class ProjectSearchPanel extends JPanel
 		
 	}
 
+	/**
+	 * An in-memory index of file contents.
+	 * Each file keeps its text, and the index maps each hashed, lower-case trigram to the
+	 * files that contain it, so a query only intersects the files for the trigrams in the 
+	 * phrase, and only those candidates are scanned.
+	 */
+	private static class SearchIndex
+	{
+		private final Map<File, IndexedFile> files;
+		/** Trigram key to the files that contain it. */
+		private final Map<Integer, Set<IndexedFile>> postings;
+		
+		private SearchIndex()
+		{
+			this.files = new HashMap<>();
+			this.postings = new HashMap<>();
+		}
+		
+		/**
+		 * Adds or replaces a file in the index.
+		 * @param indexedFile the indexed file.
+		 */
+		public synchronized void put(IndexedFile indexedFile)
+		{
+			removePostings(files.put(indexedFile.file, indexedFile));
+			for (int key : indexedFile.trigrams)
+				postings.computeIfAbsent(key, (k) -> new HashSet<>(4)).add(indexedFile);
+		}
+		
+		/**
+		 * Removes a file from the index.
+		 * @param file the file.
+		 */
+		public synchronized void remove(File file)
+		{
+			removePostings(files.remove(file));
+		}
+		
+		// Removes a file from the posting sets of its trigrams.
+		private void removePostings(IndexedFile indexedFile)
+		{
+			if (indexedFile == null)
+				return;
+			for (int key : indexedFile.trigrams)
+			{
+				Set<IndexedFile> set = postings.get(key);
+				if (set != null && set.remove(indexedFile) && set.isEmpty())
+					postings.remove(key);
+			}
+		}
+		
+		/**
+		 * Gets the files that may contain a phrase, sorted by path.
+		 * Phrases shorter than a trigram match every file.
+		 * @param phrase the phrase to look for.
+		 * @return the list of candidate files.
+		 */
+		public List<IndexedFile> getCandidates(String phrase)
+		{
+			int[] phraseTrigrams = trigrams(phrase.toLowerCase());
+			List<IndexedFile> out;
+			synchronized (this)
+			{
+				if (phraseTrigrams.length == 0)
+				{
+					out = new ArrayList<>(files.values());
+				}
+				else
+				{
+					// Intersect the posting sets, starting from the smallest.
+					List<Set<IndexedFile>> sets = new ArrayList<>(phraseTrigrams.length);
+					for (int key : phraseTrigrams)
+					{
+						Set<IndexedFile> set = postings.get(key);
+						if (set == null)
+							return Collections.emptyList();
+						sets.add(set);
+					}
+					sets.sort((a, b) -> a.size() - b.size());
+					
+					out = new ArrayList<>(sets.get(0));
+					for (int i = 1; i < sets.size() && !out.isEmpty(); i++)
+						out.retainAll(sets.get(i));
+				}
+			}
+			out.sort((a, b) -> a.file.compareTo(b.file));
+			return out;
+		}
+		
+		// Creates a sorted set of unique trigram keys for a (lower-case) string.
+		private static int[] trigrams(String text)
+		{
+			if (text.length() < 3)
+				return new int[0];
+			int[] out = new int[text.length() - 2];
+			for (int i = 0; i < out.length; i++)
+				out[i] = ((text.charAt(i) & 0x3ff) << 20) | ((text.charAt(i + 1) & 0x3ff) << 10) | (text.charAt(i + 2) & 0x3ff);
+			Arrays.sort(out);
+			int n = 0;
+			for (int i = 0; i < out.length; i++)
+				if (n == 0 || out[n - 1] != out[i])
+					out[n++] = out[i];
+			return Arrays.copyOf(out, n);
+		}
+	}
+	
+	/**
+	 * A single file in the search index.
+	 */
+	private static class IndexedFile
+	{
+		private final File file;
+		/** File content, with lines separated by single newlines. */
+		private final String content;
+		/** Sorted, unique trigram keys for the lower-case content (for removing it from the index). */
+		private final int[] trigrams;
+		
+		private IndexedFile(File file, String content)
+		{
+			this.file = file;
+			this.content = content;
+			this.trigrams = SearchIndex.trigrams(content.toLowerCase());
+		}
+		
+		/**
+		 * Finds all occurrences of a phrase in this file.
+		 * @param phrase the phrase (already lower-case if not case-sensitive).
+		 * @param caseSensitive if true, case sensitive search.
+		 * @param out the list to add results to.
+		 * @return the amount of results added.
+		 */
+		private int findAll(String phrase, boolean caseSensitive, List<SearchResult> out)
+		{
+			int length = phrase.length();
+			int count = 0;
+			int line = 1;
+			int lineStart = 0;
+			int lineScan = 0;
+			int index = 0;
+			while ((index = indexOf(phrase, index, caseSensitive)) >= 0)
+			{
+				for (; lineScan < index; lineScan++)
+				{
+					if (content.charAt(lineScan) == '\n')
+					{
+						line++;
+						lineStart = lineScan + 1;
+					}
+				}
+				int start = index - lineStart;
+				out.add(new SearchResult(file, line, start, start + length - 1, index));
+				index += length;
+				count++;
+			}
+			return count;
+		}
+		
+		private int indexOf(String phrase, int from, boolean caseSensitive)
+		{
+			if (caseSensitive)
+				return content.indexOf(phrase, from);
+			
+			int length = phrase.length();
+			char first = phrase.charAt(0);
+			int end = content.length() - length;
+			for (int i = from; i <= end; i++)
+				if (Character.toLowerCase(content.charAt(i)) == first && content.regionMatches(true, i, phrase, 0, length))
+					return i;
+			return -1;
+		}
+	}
+	
 	private static class ResultModel implements ListModel<SearchResult>
 	{
 		private List<SearchResult> results;
@@ -290,24 +547,33 @@ public class ProjectSearchPanel extends JPanel
 
 		/**
 		 * Clears the model.
+		 * Should be called from the Swing thread.
 		 */
 		public void clear()
 		{
+			int size = results.size();
 			results.clear();
-			listeners.forEach((listener) -> listener.intervalAdded(
-				new ListDataEvent(this, ListDataEvent.CONTENTS_CHANGED, 0, 0)
-			));
+			if (size > 0)
+			{
+				listeners.forEach((listener) -> listener.intervalRemoved(
+					new ListDataEvent(this, ListDataEvent.INTERVAL_REMOVED, 0, size - 1)
+				));
+			}
 		}
 		
 		/**
-		 * Adds a result to the model.
-		 * @param result the result.
+		 * Adds a batch of results to the model.
+		 * Should be called from the Swing thread.
+		 * @param batch the results.
 		 */
-		public void addResult(SearchResult result)
+		public void addResults(List<SearchResult> batch)
 		{
-			results.add(result);
+			if (batch.isEmpty())
+				return;
+			int start = results.size();
+			results.addAll(batch);
 			listeners.forEach((listener) -> listener.intervalAdded(
-				new ListDataEvent(this, ListDataEvent.CONTENTS_CHANGED, 0, 0)
+				new ListDataEvent(this, ListDataEvent.INTERVAL_ADDED, start, start + batch.size() - 1)
 			));
 		}
 
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.struct;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map of primitive int keys to objects, for keys that tend to be clustered (like object indices).
+ * <p>Keys are split into fixed-size chunks of adjacent keys, and each chunk is an array of values.
+ * Chunks are found through an open-addressing hash table on the chunk number, so lookups do not box
+ * the key or walk a tree, and keys can still be anywhere in the int range.
+ * <p>Keys are iterated in ascending order: only the (few) chunk numbers need to be sorted.
+ * <p>Null values cannot be stored - putting a null value removes the key.
+ * This class is not thread-safe.
+ * @author Matthew Tropiano
+ * @param <V> the value type.
+ */
+public class IntObjectMap<V>
+{
+	/** Bits of a key used for the index in a chunk. */
+	private static final int CHUNK_BITS = 8;
+	/** Chunk length. */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	/** Chunk index mask. */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/** Default chunk table capacity (must be a power of two). */
+	private static final int DEFAULT_TABLE_CAPACITY = 16;
+
+	/** Chunk table, open addressing, linear probing. */
+	private Chunk[] table;
+	/** Amount of chunks in the table. */
+	private int chunkCount;
+	/** Amount of mappings. */
+	private int size;
+	/** Last chunk used, for runs of nearby keys. */
+	private Chunk lastChunk;
+
+	/**
+	 * Creates a new, empty map.
+	 */
+	public IntObjectMap()
+	{
+		clear();
+	}
+
+	/**
+	 * Gets the value for a key.
+	 * @param key the key.
+	 * @return the corresponding value, or null if no value.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		Chunk chunk = findChunk(key >> CHUNK_BITS);
+		return chunk != null ? (V)chunk.values[key & CHUNK_MASK] : null;
+	}
+
+	/**
+	 * Checks if a key has a value.
+	 * @param key the key.
+	 * @return true if so, false if not.
+	 */
+	public boolean containsKey(int key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * Sets the value for a key.
+	 * @param key the key.
+	 * @param value the value. If null, the key is removed.
+	 * @return the previous value, or null if no value.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value)
+	{
+		if (value == null)
+			return remove(key);
+
+		Chunk chunk = findChunk(key >> CHUNK_BITS);
+		if (chunk == null)
+			chunk = addChunk(key >> CHUNK_BITS);
+
+		int i = key & CHUNK_MASK;
+		Object out = chunk.values[i];
+		chunk.values[i] = value;
+		if (out == null)
+		{
+			chunk.count++;
+			size++;
+		}
+		return (V)out;
+	}
+
+	/**
+	 * Removes the value for a key.
+	 * Chunks are kept once created (until {@link #clear()}).
+	 * @param key the key.
+	 * @return the removed value, or null if no value.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key)
+	{
+		Chunk chunk = findChunk(key >> CHUNK_BITS);
+		if (chunk == null)
+			return null;
+
+		int i = key & CHUNK_MASK;
+		Object out = chunk.values[i];
+		if (out != null)
+		{
+			chunk.values[i] = null;
+			chunk.count--;
+			size--;
+		}
+		return (V)out;
+	}
+
+	/**
+	 * @return the amount of mappings in this map.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return true if this map has no mappings, false if not.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Removes all mappings.
+	 */
+	public void clear()
+	{
+		this.table = new Chunk[DEFAULT_TABLE_CAPACITY];
+		this.chunkCount = 0;
+		this.size = 0;
+		this.lastChunk = null;
+	}
+
+	/**
+	 * @return every key in this map, in ascending order.
+	 */
+	public int[] keys()
+	{
+		int[] out = new int[size];
+		int n = 0;
+		for (Chunk chunk : sortedChunks())
+		{
+			if (chunk.count == 0)
+				continue;
+			int base = chunk.number << CHUNK_BITS;
+			for (int i = 0; i < CHUNK_SIZE; i++)
+			{
+				if (chunk.values[i] != null)
+					out[n++] = base | i;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns a view of the keys in this map, iterated in ascending order.
+	 * Changes to this map are reflected in the set, but the set cannot be changed.
+	 * Iteration covers the keys present when it started.
+	 * @return the set of keys.
+	 */
+	public Set<Integer> keySet()
+	{
+		return new AbstractSet<Integer>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return (o instanceof Integer) && containsKey((Integer)o);
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+
+			@Override
+			public Iterator<Integer> iterator()
+			{
+				final int[] keys = keys();
+				return new Iterator<Integer>()
+				{
+					private int i = 0;
+
+					@Override
+					public boolean hasNext()
+					{
+						return i < keys.length;
+					}
+
+					@Override
+					public Integer next()
+					{
+						if (!hasNext())
+							throw new NoSuchElementException();
+						return keys[i++];
+					}
+				};
+			}
+		};
+	}
+
+	// Finds a chunk, or null if not found.
+	private Chunk findChunk(int number)
+	{
+		Chunk chunk = lastChunk;
+		if (chunk != null && chunk.number == number)
+			return chunk;
+
+		int mask = table.length - 1;
+		for (int slot = hash(number) & mask; (chunk = table[slot]) != null; slot = (slot + 1) & mask)
+		{
+			if (chunk.number == number)
+				return lastChunk = chunk;
+		}
+		return null;
+	}
+
+	// Adds a new chunk. Must not exist.
+	private Chunk addChunk(int number)
+	{
+		if ((chunkCount + 1) * 2 > table.length)
+			resize(table.length * 2);
+
+		Chunk chunk = new Chunk(number);
+		insert(table, chunk);
+		chunkCount++;
+		return lastChunk = chunk;
+	}
+
+	private void resize(int capacity)
+	{
+		Chunk[] newTable = new Chunk[capacity];
+		for (Chunk chunk : table)
+		{
+			if (chunk != null)
+				insert(newTable, chunk);
+		}
+		table = newTable;
+	}
+
+	private Chunk[] sortedChunks()
+	{
+		Chunk[] out = new Chunk[chunkCount];
+		int n = 0;
+		for (Chunk chunk : table)
+		{
+			if (chunk != null)
+				out[n++] = chunk;
+		}
+		Arrays.sort(out, (a, b) -> Integer.compare(a.number, b.number));
+		return out;
+	}
+
+	private static void insert(Chunk[] table, Chunk chunk)
+	{
+		int mask = table.length - 1;
+		int slot = hash(chunk.number) & mask;
+		while (table[slot] != null)
+			slot = (slot + 1) & mask;
+		table[slot] = chunk;
+	}
+
+	// Spreads adjacent chunk numbers.
+	private static int hash(int number)
+	{
+		int h = number * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * A run of adjacent keys.
+	 */
+	private static class Chunk
+	{
+		private final int number;
+		private final Object[] values;
+		private int count;
+
+		private Chunk(int number)
+		{
+			this.number = number;
+			this.values = new Object[CHUNK_SIZE];
+			this.count = 0;
+		}
+	}
+
+}
@@ -76,6 +76,12 @@ public final class OSUtils
 	 * On other operating systems, this is set to whatever the HOME environment variable is set to.
 	 */
 	private static final String APP_DIR;		// set in static method.
+	/** 
+	 * Current application cache directory.
+	 * In Windows, this is set to whatever the LOCALAPPDATA environment variable is set to.
+	 * In macOS, this is ~/Library/Caches. On other operating systems, this is XDG_CACHE_HOME, or ~/.cache.
+	 */
+	private static final String CACHE_DIR;		// set in static method.
 	/** Current user's home directory. */
 	private static final String HOME_DIR;
 	/** Current user's temp directory. */
@@ -164,6 +170,21 @@ public final class OSUtils
 		
 		WORK_DIR = System.getProperty("user.dir");
 		HOME_DIR = System.getProperty("user.home");
+
+		// Application cache folder.
+		String home = System.getenv("HOME") != null ? System.getenv("HOME") : HOME_DIR;
+		String xdgCache = System.getenv("XDG_CACHE_HOME");
+		if (IS_WINDOWS)
+			CACHE_DIR = System.getenv("LOCALAPPDATA") != null ? System.getenv("LOCALAPPDATA") : APP_DIR;
+		else if (home == null)
+			CACHE_DIR = null;
+		else if (IS_OSX)
+			CACHE_DIR = home + "/Library/Caches";
+		else if (IS_LINUX || IS_SOLARIS)
+			CACHE_DIR = xdgCache != null && !xdgCache.isEmpty() ? xdgCache : home + "/.cache";
+		else
+			CACHE_DIR = null;
+
 		TEMP_DIR = System.getProperty("java.io.tmpdir");
 		NULL_FILE = new File(IS_WINDOWS ? "NUL" : "/dev/null");
 	}
@@ -345,6 +366,17 @@ public final class OSUtils
 		return APP_DIR;
 	}
 
+	/** 
+	 * Current application cache directory, for files that can be deleted and remade.
+	 * In Windows, this is set to whatever the LOCALAPPDATA environment variable is set to.
+	 * In macOS, this is ~/Library/Caches. On other operating systems, this is XDG_CACHE_HOME, or ~/.cache.
+	 * @return the path to the common application cache directory, or null if not known for this OS.
+	 */
+	public static String getApplicationCachePath()
+	{
+		return CACHE_DIR;
+	}
+
 	/** 
 	 * @return the current user's home directory.
 	 */
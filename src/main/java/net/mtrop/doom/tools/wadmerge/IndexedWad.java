@@ -0,0 +1,504 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.wadmerge;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.mtrop.doom.Wad;
+import net.mtrop.doom.WadEntry;
+import net.mtrop.doom.WadFile;
+import net.mtrop.doom.object.BinaryObject;
+
+/**
+ * A Wad wrapper that keeps an index of entry names to entry indices,
+ * so that name lookups do not need to scan the entire entry list.
+ * <p>The index is built once, on creation, and is updated in place on every change after that:
+ * added entries are inserted into it, and entries after an insertion or deletion point have their indices shifted.
+ * <p>This also keeps a running total of the size of the entry content, and can be given a content budget:
+ * when an addition takes the total past it, a {@link Spiller} is called to replace the wrapped Wad (once).
+ * <p>All changes to the wrapped Wad must go through this object, or the index and total will be incorrect.
+ * @author Matthew Tropiano
+ */
+class IndexedWad implements AutoCloseable
+{
+	/** The wrapped Wad. */
+	private Wad wad;
+	/** Map of entry name to entry indices. */
+	private Map<String, IndexList> nameIndex;
+	/** Total size of entry content, in bytes. */
+	private long contentSize;
+	/** Content budget, in bytes. */
+	private long budget;
+	/** Called when the content size goes past the budget, if not null. */
+	private Spiller spiller;
+
+	/**
+	 * Replaces a Wad that has gone past its content budget.
+	 */
+	@FunctionalInterface
+	interface Spiller
+	{
+		/**
+		 * Replaces a Wad with another that has the same entries in the same order.
+		 * @param wad the Wad to replace.
+		 * @param size the size of its content, in bytes.
+		 * @return the new Wad.
+		 * @throws IOException if the new Wad could not be created.
+		 */
+		Wad spill(Wad wad, long size) throws IOException;
+	}
+
+	/**
+	 * Creates a new indexed Wad.
+	 * @param wad the Wad to wrap.
+	 */
+	IndexedWad(Wad wad)
+	{
+		this.wad = wad;
+		this.nameIndex = new HashMap<>();
+		this.contentSize = 0L;
+		this.budget = Long.MAX_VALUE;
+		this.spiller = null;
+		int i = 0;
+		for (WadEntry e : wad)
+		{
+			getOrCreateIndexList(e.getName()).insert(i++);
+			contentSize += e.getSize();
+		}
+	}
+
+	/**
+	 * @return the wrapped Wad.
+	 */
+	public Wad getWad()
+	{
+		return wad;
+	}
+
+	/**
+	 * Replaces the wrapped Wad with another that has the same entries in the same order.
+	 * The name index is kept.
+	 * @param wad the new Wad.
+	 */
+	public void setWad(Wad wad)
+	{
+		this.wad = wad;
+	}
+
+	/**
+	 * Sets a content budget. The next addition that takes the content size past it
+	 * calls the spiller, and the Wad it returns replaces the wrapped Wad.
+	 * The budget is removed after that.
+	 * @param budget the budget, in bytes.
+	 * @param spiller the spiller to call.
+	 */
+	public void setBudget(long budget, Spiller spiller)
+	{
+		this.budget = budget;
+		this.spiller = spiller;
+	}
+
+	/**
+	 * @return the total size of the entry content, in bytes.
+	 */
+	public long getContentSize()
+	{
+		return contentSize;
+	}
+
+	/**
+	 * @return the amount of entries in the Wad.
+	 */
+	public int getEntryCount()
+	{
+		return wad.getEntryCount();
+	}
+
+	/**
+	 * Checks if an entry exists in the Wad.
+	 * @param name the entry name (case-insensitive).
+	 * @return true if so, false if not.
+	 */
+	public boolean contains(String name)
+	{
+		return indexOf(name) >= 0;
+	}
+
+	/**
+	 * Gets the index of the first entry with a name.
+	 * @param name the entry name (case-insensitive).
+	 * @return the index of the entry, or -1 if not found.
+	 */
+	public int indexOf(String name)
+	{
+		IndexList list;
+		return (list = getIndexList(name)) != null ? list.first() : -1;
+	}
+
+	/**
+	 * Gets the index of the last entry with a name.
+	 * @param name the entry name (case-insensitive).
+	 * @return the index of the entry, or -1 if not found.
+	 */
+	public int lastIndexOf(String name)
+	{
+		IndexList list;
+		return (list = getIndexList(name)) != null ? list.last() : -1;
+	}
+
+	/**
+	 * Gets the data of the first entry with a name.
+	 * @param name the entry name (case-insensitive).
+	 * @return the data, or null if not found.
+	 * @throws IOException if the data could not be read.
+	 */
+	public byte[] getData(String name) throws IOException
+	{
+		int index;
+		return (index = indexOf(name)) >= 0 ? wad.getData(index) : null;
+	}
+
+	/**
+	 * Gets the data of the first entry with a name, deserialized into an object.
+	 * @param <BO> the object type.
+	 * @param name the entry name (case-insensitive).
+	 * @param type the object type class.
+	 * @return the object, or null if not found.
+	 * @throws IOException if the data could not be read.
+	 */
+	public <BO extends BinaryObject> BO getDataAs(String name, Class<BO> type) throws IOException
+	{
+		int index;
+		return (index = indexOf(name)) >= 0 ? wad.getDataAs(index, type) : null;
+	}
+
+	/**
+	 * Adds a marker to the end of the Wad.
+	 * @param name the marker name.
+	 * @throws IOException if the marker could not be added.
+	 */
+	public void addMarker(String name) throws IOException
+	{
+		wad.addMarker(name);
+		appended(name);
+		checkBudget();
+	}
+
+	/**
+	 * Adds an entry to the end of the Wad.
+	 * @param name the entry name.
+	 * @param data the entry data.
+	 * @throws IOException if the entry could not be added.
+	 */
+	public void addData(String name, byte[] data) throws IOException
+	{
+		wad.addData(name, data);
+		appended(name);
+		checkBudget();
+	}
+
+	/**
+	 * Adds an entry to the end of the Wad.
+	 * @param name the entry name.
+	 * @param object the object to serialize as the entry data.
+	 * @throws IOException if the entry could not be added.
+	 */
+	public void addData(String name, BinaryObject object) throws IOException
+	{
+		wad.addData(name, object);
+		appended(name);
+		checkBudget();
+	}
+
+	/**
+	 * Deletes an entry from the Wad.
+	 * @param index the entry index.
+	 * @throws IOException if the entry could not be deleted.
+	 */
+	public void deleteEntry(int index) throws IOException
+	{
+		WadEntry entry = wad.getEntry(index);
+		wad.deleteEntry(index);
+		deleted(entry.getName(), index);
+		contentSize -= entry.getSize();
+	}
+
+	/**
+	 * Starts a batched insertion of entries at an index.
+	 * The entries are added to the Wad and the name index once the inserter is closed, and
+	 * no other lookups or changes should happen on this Wad until then.
+	 * @param index the starting index for the new entries.
+	 * @return a new inserter.
+	 * @throws IOException if the inserter could not be created.
+	 */
+	public Inserter createInserter(int index) throws IOException
+	{
+		return new Inserter(index);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		wad.close();
+	}
+
+	// Notes an entry appended to the end.
+	private void appended(String name)
+	{
+		int index = wad.getEntryCount() - 1;
+		getOrCreateIndexList(name).insert(index);
+		contentSize += wad.getEntry(index).getSize();
+	}
+
+	// Calls the spiller if the content size is past the budget.
+	private void checkBudget() throws IOException
+	{
+		if (spiller == null || contentSize <= budget)
+			return;
+		Spiller s = spiller;
+		setBudget(Long.MAX_VALUE, null);
+		wad = s.spill(wad, contentSize);
+	}
+
+	// Notes entries inserted at an index. Entries at or after it move up, unless they were appended.
+	private void inserted(int index, List<String> names, boolean appended)
+	{
+		if (!appended)
+			shift(index, names.size());
+		int i = index;
+		for (String name : names)
+			getOrCreateIndexList(name).insert(i++);
+	}
+
+	// Notes an entry deleted at an index. Entries after it move down.
+	private void deleted(String name, int index)
+	{
+		String key = name.toUpperCase();
+		IndexList list = nameIndex.get(key);
+		if (list != null && list.remove(index) && list.size == 0)
+			nameIndex.remove(key);
+		shift(index + 1, -1);
+	}
+
+	// Adds an amount to every index at or after a starting index.
+	private void shift(int start, int amount)
+	{
+		for (IndexList list : nameIndex.values())
+			list.shift(start, amount);
+	}
+
+	private IndexList getOrCreateIndexList(String name)
+	{
+		return nameIndex.computeIfAbsent(name.toUpperCase(), (k) -> new IndexList());
+	}
+
+	private IndexList getIndexList(String name)
+	{
+		return nameIndex.get(name.toUpperCase());
+	}
+
+	/**
+	 * A batched entry inserter.
+	 * Entries are added in sequence, starting from the index provided on creation.
+	 * <p>Wad files take each entry through an adder, which writes the directory once at the end.
+	 * Other Wads get the whole batch in one insertion when the inserter is closed, so that
+	 * the entry list is only shifted once. The content budget is checked on each entry, though:
+	 * if it is exceeded, the pending entries are inserted first, and the rest go to the replacement Wad.
+	 */
+	public class Inserter implements AutoCloseable
+	{
+		/** The starting index of the pending entries. */
+		private int startIndex;
+		/** If true, the pending entries are appended to the end. */
+		private boolean appending;
+		/** The next insertion index. */
+		private int index;
+		/** The adder, if this is a Wad file. */
+		private WadFile.Adder adder;
+		/** The names of the pending entries. */
+		private List<String> names;
+		/** The data of the pending entries (if no adder). */
+		private List<byte[]> data;
+
+		private Inserter(int index) throws IOException
+		{
+			this.startIndex = index;
+			this.appending = index == wad.getEntryCount();
+			this.index = index;
+			this.adder = (wad instanceof WadFile) ? ((WadFile)wad).createAdder() : null;
+			this.names = new ArrayList<>();
+			this.data = new ArrayList<>();
+		}
+
+		/**
+		 * @return the index that the next entry will be inserted at.
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+
+		/**
+		 * Inserts an entry.
+		 * @param name the entry name.
+		 * @param data the entry data.
+		 * @throws IOException if the entry could not be added.
+		 */
+		public void add(String name, byte[] data) throws IOException
+		{
+			if (adder != null)
+				adder.addDataAt(index, name, data);
+			else
+				this.data.add(data);
+			added(name, data.length);
+		}
+
+		/**
+		 * Inserts an entry.
+		 * @param name the entry name.
+		 * @param file the file to read the entry data from.
+		 * @throws IOException if the entry could not be added.
+		 */
+		public void add(String name, File file) throws IOException
+		{
+			long length;
+			if (adder != null)
+			{
+				length = file.length();
+				adder.addDataAt(index, name, file);
+			}
+			else
+			{
+				byte[] bytes = Files.readAllBytes(file.toPath());
+				length = bytes.length;
+				data.add(bytes);
+			}
+			added(name, length);
+		}
+
+		// Notes an added entry, and moves to the replacement Wad if the budget is exceeded.
+		private void added(String name, long length) throws IOException
+		{
+			names.add(name);
+			index++;
+			contentSize += length;
+			if (adder != null || spiller == null || contentSize <= budget)
+				return;
+
+			splice();
+			checkBudget();
+			if (wad instanceof WadFile)
+				adder = ((WadFile)wad).createAdder();
+		}
+
+		// Inserts the pending entries (if no adder).
+		private void splice() throws IOException
+		{
+			if (!names.isEmpty())
+			{
+				wad.addAllDataAt(startIndex, names.toArray(new String[names.size()]), data.toArray(new byte[data.size()][]));
+				inserted(startIndex, names, appending);
+			}
+			startIndex = index;
+			names.clear();
+			data.clear();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (adder == null)
+			{
+				splice();
+				return;
+			}
+
+			adder.close();
+			adder = null;
+			if (!names.isEmpty())
+				inserted(startIndex, names, appending);
+			names.clear();
+		}
+	}
+
+	/**
+	 * A growable, ascending list of indices.
+	 */
+	private static class IndexList
+	{
+		private int[] indices;
+		private int size;
+
+		private IndexList()
+		{
+			this.indices = new int[2];
+			this.size = 0;
+		}
+
+		// Inserts an index in order.
+		private void insert(int index)
+		{
+			if (size == indices.length)
+				indices = Arrays.copyOf(indices, indices.length * 2);
+			int i = search(index);
+			System.arraycopy(indices, i, indices, i + 1, size - i);
+			indices[i] = index;
+			size++;
+		}
+
+		// Removes an index, returns true if it was found.
+		private boolean remove(int index)
+		{
+			int i = search(index);
+			if (i >= size || indices[i] != index)
+				return false;
+			System.arraycopy(indices, i + 1, indices, i, size - i - 1);
+			size--;
+			return true;
+		}
+
+		// Adds an amount to every index at or after a starting index.
+		private void shift(int start, int amount)
+		{
+			for (int i = search(start); i < size; i++)
+				indices[i] += amount;
+		}
+
+		// Finds the position of the first index at or after a value.
+		private int search(int index)
+		{
+			int lo = 0;
+			int hi = size;
+			while (lo < hi)
+			{
+				int mid = (lo + hi) >>> 1;
+				if (indices[mid] < index)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			return lo;
+		}
+
+		private int first()
+		{
+			return indices[0];
+		}
+
+		private int last()
+		{
+			return indices[size - 1];
+		}
+	}
+
+}
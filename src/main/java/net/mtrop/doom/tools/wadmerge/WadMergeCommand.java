@@ -14,6 +14,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 
 import net.mtrop.doom.exception.WadException;
+import net.mtrop.doom.tools.common.FlightEvents;
+import net.mtrop.doom.tools.common.FlightEvents.WadMergeCommandEvent;
 import net.mtrop.doom.tools.common.Response;
 import net.mtrop.doom.tools.struct.ArgumentScanner;
 import net.mtrop.doom.tools.struct.TokenScanner;
@@ -119,7 +121,7 @@ public enum WadMergeCommand
 		@Override
 		public String usage()
 		{
-			return "CREATEFILE [symbol] [path] [opt:iwad]";
+			return "CREATEFILE [symbol] [path] [opt:iwad] [opt:dedupe]";
 		}
 
 		@Override
@@ -135,6 +137,8 @@ public enum WadMergeCommand
 			out.println("    [symbol]: The symbol for the new buffer.");
 			out.println("    [path]:   The file to create.");
 			out.println("    [iwad]:   (Optional) If \"iwad\", the created WAD file is an IWAD.");
+			out.println("    [dedupe]: (Optional) If \"dedupe\", the file is always deduplicated when");
+			out.println("              saved or finished (see SAVE).");
 			out.println("    ................................");
 			out.println("    Returns: OK if creation successful and a symbol was created.");
 			out.println("             BAD_SYMBOL if the destination symbol is invalid.");
@@ -146,10 +150,17 @@ public enum WadMergeCommand
 			String symbol = scanner.nextString();
 			String path = scanner.nextString();
 			boolean iwad = false;
-			if (scanner.hasNext())
-				iwad = scanner.nextString().equalsIgnoreCase("iwad");
+			boolean dedupe = false;
+			while (scanner.hasNext())
+			{
+				String flag = scanner.nextString();
+				if (flag.equalsIgnoreCase("iwad"))
+					iwad = true;
+				else if (flag.equalsIgnoreCase("dedupe"))
+					dedupe = true;
+			}
 			try {
-				return context.createFile(symbol, new File(path), iwad);
+				return context.createFile(symbol, new File(path), iwad, dedupe);
 			} catch (IOException e) {
 				context.logf("ERROR: File %s could not be created.\n", path);
 				return Response.BAD_FILE;
@@ -160,6 +171,51 @@ public enum WadMergeCommand
 		}
 	},
 	
+	CREATEHYBRID
+	{
+		@Override
+		public String usage()
+		{
+			return "CREATEHYBRID [symbol] [budget] [opt:iwad]";
+		}
+
+		@Override
+		public void help(PrintStream out)
+		{
+			out.println(usage()); 
+			out.println("    Creates a new in-memory buffer that is moved to a temporary file on disk");
+			out.println("    once its contents exceed a memory budget, errors out if the symbol exists.");
+			out.println("    Hybrids are best used when the output size is not known ahead of time:");
+			out.println("    small merges stay fast, and large merges don't exhaust memory.");
+			out.println("    See: CREATE and CREATEFILE."); 
+			out.println("    [symbol]: The symbol for the new buffer.");
+			out.println("    [budget]: The maximum size of the buffer contents, in megabytes, before");
+			out.println("              it is moved to disk.");
+			out.println("    [iwad]:   (Optional) If \"iwad\", the created WAD file is an IWAD.");
+			out.println("    ................................");
+			out.println("    Returns: OK if a symbol was created.");
+			out.println("             BAD_SYMBOL if the destination symbol already exists,");
+			out.println("             BAD_PARSE if the budget is 0 or less, or too large.");
+		}
+		
+		@Override
+		public Response execute(WadMergeContext context, TokenScanner scanner)
+		{
+			String symbol = scanner.nextString();
+			long budgetMegs = scanner.nextLong();
+			if (budgetMegs <= 0 || budgetMegs > Long.MAX_VALUE / (1024L * 1024L))
+			{
+				context.logf("ERROR: Budget for %s must be from 1 to %d megabytes, not %d.\n", symbol, Long.MAX_VALUE / (1024L * 1024L), budgetMegs);
+				return Response.BAD_PARSE;
+			}
+			long budget = budgetMegs * 1024L * 1024L;
+			boolean iwad = false;
+			if (scanner.hasNext())
+				iwad = scanner.nextString().equalsIgnoreCase("iwad");
+			return context.createHybrid(symbol, budget, iwad);
+		}
+	},
+	
 	CLEAR
 	{
 		@Override
@@ -231,7 +287,7 @@ public enum WadMergeCommand
 		@Override
 		public String usage()
 		{
-			return "SAVE [symbol] [file]";
+			return "SAVE [symbol] [file] [opt:dedupe]";
 		}
 
 		@Override
@@ -240,10 +296,12 @@ public enum WadMergeCommand
 			out.println(usage());
 			out.println("    Exports the content of a symbol to a WAD file. Directories are created for");
 			out.println("    the file, if they don't exist. If the symbol is a WAD file (not buffer)");
-			out.println("    and the destination is the same file, nothing happens.");
+			out.println("    and the destination is the same file, nothing happens (unless deduplicated).");
 			out.println("    WARNING: If the target file already exists, it is OVERWRITTEN!"); 
 			out.println("    [symbol]: The symbol to export.");
 			out.println("    [file]:   The file to create and export to.");
+			out.println("    [dedupe]: (Optional) If \"dedupe\", entries with identical contents share");
+			out.println("              a single copy of their data in the written file.");
 			out.println("    ................................");
 			out.println("    Returns: OK if export successful.");
 			out.println("             BAD_SYMBOL if the symbol is invalid.");
@@ -254,9 +312,12 @@ public enum WadMergeCommand
 		{
 			String symbol = scanner.nextString();
 			String file = scanner.nextString();
+			boolean dedupe = false;
+			if (scanner.hasNext())
+				dedupe = scanner.nextString().equalsIgnoreCase("dedupe");
 			
 			try {
-				return context.save(symbol, new File(file));
+				return context.save(symbol, new File(file), dedupe);
 			} catch (FileNotFoundException e) {
 				context.logf("ERROR: File %s not found.\n", file);
 				return Response.BAD_FILE;
@@ -318,7 +379,7 @@ public enum WadMergeCommand
 		@Override
 		public String usage()
 		{
-			return "FINISH [symbol] [file]";
+			return "FINISH [symbol] [file] [opt:dedupe]";
 		}
 
 		@Override
@@ -327,10 +388,13 @@ public enum WadMergeCommand
 			out.println(usage());
 			out.println("    Exports the content of a symbol to a WAD file. Directories are created for");
 			out.println("    the file, if they don't exist. If the symbol is a WAD file (not buffer) and");
-			out.println("    the destination is the same file, nothing happens. The symbol is discarded.");
+			out.println("    the destination is the same file, nothing happens (unless deduplicated).");
+			out.println("    The symbol is discarded.");
 			out.println("    WARNING: If the target file already exists, it is OVERWRITTEN!"); 
 			out.println("    [symbol]: The symbol to export.");
 			out.println("    [file]:   The file to create and export to.");
+			out.println("    [dedupe]: (Optional) If \"dedupe\", entries with identical contents share");
+			out.println("              a single copy of their data in the written file.");
 			out.println("    ................................");
 			out.println("    Returns: OK if export successful.");
 			out.println("             BAD_SYMBOL if the symbol is invalid.");
@@ -341,9 +405,12 @@ public enum WadMergeCommand
 		{
 			String symbol = scanner.nextString();
 			String file = scanner.nextString();
+			boolean dedupe = false;
+			if (scanner.hasNext())
+				dedupe = scanner.nextString().equalsIgnoreCase("dedupe");
 			
 			try {
-				return context.finish(symbol, new File(file));
+				return context.finish(symbol, new File(file), dedupe);
 			} catch (FileNotFoundException e) {
 				context.logf("ERROR: File %s not found.\n", file);
 				return Response.BAD_FILE;
@@ -1225,65 +1292,98 @@ public enum WadMergeCommand
 			line = line.trim();
 			if (line.isEmpty() || line.startsWith("#"))
 				continue;
-			WadMergeCommand mergeCommand = null;
-			try (TokenScanner scanner = new ArgumentScanner(arguments, line)) 
+			
+			Response out = executeLine(streamName, linenum, line, context, arguments);
+			if (out == null)
+				return true;
+			if (out != Response.OK)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Executes a single script line.
+	 * Errors are reported to the context's log.
+	 * @param streamName the script stream name.
+	 * @param linenum the line number.
+	 * @param line the (trimmed, non-empty) line to execute.
+	 * @param context the WadMerge context.
+	 * @param arguments the script arguments.
+	 * @return OK on success, null if the line was an END command, or any other response if an error occurred.
+	 */
+	static Response executeLine(String streamName, int linenum, String line, WadMergeContext context, String[] arguments)
+	{
+		WadMergeCommand mergeCommand = null;
+		try (TokenScanner scanner = new ArgumentScanner(arguments, line)) 
+		{
+			String command = scanner.nextString();
+			try 
 			{
-				String command = scanner.nextString();
-				try 
+				mergeCommand = WadMergeCommand.VALUES.get(command);
+				if (mergeCommand == null)
 				{
-					mergeCommand = WadMergeCommand.VALUES.get(command);
-					if (mergeCommand == null)
-					{
-						context.logf("ERROR: %s, line %d: Unknown command: \"%s\".\n", streamName, linenum, command);
-						return false;
-					}
-					
-					Response out = mergeCommand.execute(context, scanner);
-					if (out == null)
-						return true;
-					if (out != Response.OK)
+					context.logf("ERROR: %s, line %d: Unknown command: \"%s\".\n", streamName, linenum, command);
+					return Response.BAD_PARSE;
+				}
+				
+				WadMergeCommandEvent event = FlightEvents.beginWadMergeCommand();
+				Response out = null;
+				Throwable failure = null;
+				try {
+					out = mergeCommand.execute(context, scanner);
+				} catch (RuntimeException | Error e) {
+					failure = e;
+					throw e;
+				} finally {
+					// Also recorded when the command throws, so failed commands show up in a recording.
+					if (event != null && event.isEnabled())
 					{
-						context.logf("ERROR: %s, line %d: Command %s returned %s.\n", streamName, linenum, command, out.name());
-						return false;
+						event.finish(streamName, linenum, mergeCommand.name(), out != null ? out.name() : null, 
+							failure != null ? failure.getClass().getSimpleName() + ": " + failure.getMessage() : null,
+							context.getBufferCount(), context.getTotalEntryCount()
+						);
 					}
 				}
-				catch (ParseException e)
-				{
-					context.logf("ERROR: %s, line %d: An argument in command %s could not be parsed: %s\n", streamName, linenum, command, e.getLocalizedMessage());
-					context.logf("    %s\n", line);
-					return false;
-				}
-				catch (NoSuchElementException e)
-				{
-					context.logf("ERROR: %s, line %d: Command %s is missing an argument.\n", streamName, linenum, command);
-					context.logf("    %s ...?\n", line);
-					context.logln();
-					mergeCommand.help(System.out);
-					return false;
-				}
-				catch (NumberFormatException e)
-				{
-					context.logf("ERROR: %s, line %d: Command %s requires a numeric argument: %s\n", streamName, linenum, command, e.getLocalizedMessage());
-					context.logf("    %s\n", line);
-					context.logln();
-					mergeCommand.help(System.out);
-					return false;
-				}
-				catch (Exception e)
-				{
-					context.logf("ERROR: %s, line %d: Bad command call: %s. Internal error.\n", streamName, linenum, command);
-					context.logf("    Caused by: %s: %s\n", e.getClass().getSimpleName(), e.getLocalizedMessage());
-					return false;
-				}
+				if (out != null && out != Response.OK)
+					context.logf("ERROR: %s, line %d: Command %s returned %s.\n", streamName, linenum, command, out.name());
+				return out;
 			}
-			catch (NoSuchElementException e) 
+			catch (ParseException e)
 			{
-				context.logf("ERROR: %s, line %d: Missing command.\n", streamName, linenum);
-				return false;
+				context.logf("ERROR: %s, line %d: An argument in command %s could not be parsed: %s\n", streamName, linenum, command, e.getLocalizedMessage());
+				context.logf("    %s\n", line);
+				return Response.BAD_PARSE;
+			}
+			catch (NoSuchElementException e)
+			{
+				context.logf("ERROR: %s, line %d: Command %s is missing an argument.\n", streamName, linenum, command);
+				context.logf("    %s ...?\n", line);
+				context.logln();
+				mergeCommand.help(System.out);
+				return Response.BAD_PARSE;
+			}
+			catch (NumberFormatException e)
+			{
+				context.logf("ERROR: %s, line %d: Command %s requires a numeric argument: %s\n", streamName, linenum, command, e.getLocalizedMessage());
+				context.logf("    %s\n", line);
+				context.logln();
+				mergeCommand.help(System.out);
+				return Response.BAD_PARSE;
+			}
+			catch (Exception e)
+			{
+				context.logf("ERROR: %s, line %d: Bad command call: %s. Internal error.\n", streamName, linenum, command);
+				context.logf("    Caused by: %s: %s\n", e.getClass().getSimpleName(), e.getLocalizedMessage());
+				return Response.UNEXPECTED_ERROR;
 			}
 		}
-		
-		return true;
+		catch (NoSuchElementException e) 
+		{
+			context.logf("ERROR: %s, line %d: Missing command.\n", streamName, linenum);
+			return Response.BAD_PARSE;
+		}
 	}
 	
 	/** Value map for command name to command. */
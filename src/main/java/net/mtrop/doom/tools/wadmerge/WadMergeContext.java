@@ -9,16 +9,31 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import net.mtrop.doom.Wad;
 import net.mtrop.doom.Wad.Type;
@@ -26,8 +41,6 @@ import net.mtrop.doom.WadBuffer;
 import net.mtrop.doom.WadEntry;
 import net.mtrop.doom.WadFile;
 import net.mtrop.doom.exception.WadException;
-import net.mtrop.doom.graphics.PNGPicture;
-import net.mtrop.doom.struct.io.SerialReader;
 import net.mtrop.doom.texture.Animated;
 import net.mtrop.doom.texture.CommonTextureList;
 import net.mtrop.doom.texture.DoomTextureList;
@@ -39,6 +52,7 @@ import net.mtrop.doom.texture.TextureSet.Texture;
 import net.mtrop.doom.tools.common.Response;
 import net.mtrop.doom.tools.common.Utility;
 import net.mtrop.doom.tools.struct.util.FileUtils;
+import net.mtrop.doom.tools.struct.util.FileUtils.TempFile;
 import net.mtrop.doom.tools.struct.util.IOUtils;
 import net.mtrop.doom.tools.common.ParseException;
 import net.mtrop.doom.util.MapUtils;
@@ -56,6 +70,8 @@ public class WadMergeContext
 	);
 	/** Reusable StringBuilder. */
 	private static final ThreadLocal<StringBuilder> STRINGBUILDER = ThreadLocal.withInitial(()->new StringBuilder());
+	/** PNG file signature. */
+	private static final byte[] PNG_SIGNATURE = {(byte)0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
 	
 	/** Comparator for MERGEDIR file sorting. */
 	private static final Comparator<File> DIR_FILESORT = (a, b) -> 
@@ -77,9 +93,17 @@ public class WadMergeContext
 	};
 
 	/** Map of open wads. */
-	private TreeMap<String, Wad> currentWads;
+	private SortedMap<String, IndexedWad> currentWads;
+	/** Map of hybrid buffer symbols to their in-memory budgets (in bytes). */
+	private SortedMap<String, Long> hybridBudgets;
+	/** Map of hybrid buffer symbols to their temporary files (only if spilled to disk). */
+	private SortedMap<String, TempFile> hybridFiles;
+	/** Set of symbols that are always deduplicated on save. */
+	private SortedSet<String> dedupeSymbols;
 	/** Log out print stream. */
 	private PrintStream logout;
+	/** Per-thread log out print stream, if redirected. */
+	private ThreadLocal<PrintStream> threadLogout;
 	/** If verbosity is enabled. */
 	private boolean verbose;
 	/** Map of character substitutions in filenames. */
@@ -100,9 +124,13 @@ public class WadMergeContext
 	 */
 	public WadMergeContext(PrintStream log, boolean verbose)
 	{
-		this.currentWads = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		this.currentWads = Collections.synchronizedSortedMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+		this.hybridBudgets = Collections.synchronizedSortedMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+		this.hybridFiles = Collections.synchronizedSortedMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+		this.dedupeSymbols = Collections.synchronizedSortedSet(new TreeSet<>(String.CASE_INSENSITIVE_ORDER));
 		this.charSubstitutions = new TreeMap<>();
 		this.logout = log;
+		this.threadLogout = new ThreadLocal<>();
 		this.verbose = verbose;
 	}
 	
@@ -125,14 +153,70 @@ public class WadMergeContext
 	
 	public void logln(String seq)
 	{
-		if (logout != null)
-			logout.println(seq);
+		PrintStream out;
+		if ((out = getLogStream()) != null)
+			out.println(seq);
 	}
 	
 	public void logf(String seq, Object... args)
 	{
-		if (logout != null)
-			logout.printf(seq, args);
+		PrintStream out;
+		if ((out = getLogStream()) != null)
+			out.printf(seq, args);
+	}
+	
+	/**
+	 * Prints a sequence to the log as-is.
+	 * @param seq the sequence to print.
+	 */
+	public void log(String seq)
+	{
+		PrintStream out;
+		if ((out = getLogStream()) != null)
+			out.print(seq);
+	}
+	
+	/**
+	 * Redirects log output for the current thread only.
+	 * Has no effect if this context has no log stream.
+	 * @param out the stream to log to, or null to go back to this context's log stream.
+	 */
+	public void setThreadLog(PrintStream out)
+	{
+		if (out != null)
+			threadLogout.set(out);
+		else
+			threadLogout.remove();
+	}
+	
+	/**
+	 * @return the amount of open buffers.
+	 */
+	int getBufferCount()
+	{
+		return currentWads.size();
+	}
+	
+	/**
+	 * @return the total amount of entries in all open buffers.
+	 */
+	int getTotalEntryCount()
+	{
+		int out = 0;
+		synchronized (currentWads)
+		{
+			for (IndexedWad wad : currentWads.values())
+				out += wad.getEntryCount();
+		}
+		return out;
+	}
+	
+	private PrintStream getLogStream()
+	{
+		if (logout == null)
+			return null;
+		PrintStream out = threadLogout.get();
+		return out != null ? out : logout;
 	}
 	
 	/**
@@ -165,7 +249,7 @@ public class WadMergeContext
 		WadBuffer buffer = new WadBuffer();
 		if (iwad)
 			buffer.setType(Type.IWAD);
-		currentWads.put(symbol, buffer);
+		currentWads.put(symbol, new IndexedWad(buffer));
 		verbosef("Created buffer `%s`.\n", symbol);
 		return Response.OK;
 	}
@@ -176,11 +260,12 @@ public class WadMergeContext
 	 * @param symbol the symbol to associate with the Wad.
 	 * @param wadFile the file name for the WAD to initialize.
 	 * @param iwad if true, file is an IWAD, not PWAD.
+	 * @param dedupe if true, the file's lump contents are always deduplicated when saved or finished.
 	 * @return OK if creation successful and a symbol was created, 
 	 * 		or BAD_SYMBOL if the destination symbol is invalid.
 	 * @throws IOException if an error occurs attempting to create the file.
 	 */
-	public Response createFile(String symbol, File wadFile, boolean iwad) throws IOException
+	public Response createFile(String symbol, File wadFile, boolean iwad, boolean dedupe) throws IOException
 	{
 		if (currentWads.containsKey(symbol))
 			return Response.BAD_SYMBOL;
@@ -188,11 +273,55 @@ public class WadMergeContext
 		WadFile wad = WadFile.createWadFile(wadFile);
 		if (iwad)
 			wad.setType(Type.IWAD);
-		currentWads.put(symbol, wad);
+		currentWads.put(symbol, new IndexedWad(wad));
+		if (dedupe)
+			dedupeSymbols.add(symbol);
 		logf("Created WAD file `%s` (at `%s`).\n", symbol, wadFile.getPath());
 		return Response.OK;
 	}
 
+	/**
+	 * Creates a blank hybrid Wad buffer.
+	 * A hybrid buffer starts in memory, but is moved to a temporary file as soon as an addition 
+	 * takes its content past the provided budget, even in the middle of a bulk merge.
+	 * Symbol is case-insensitive.
+	 * @param symbol the symbol to associate with the Wad.
+	 * @param budget the maximum amount of lump content, in bytes, to keep in memory.
+	 * @param iwad if true, created WAD is an IWAD.
+	 * @return OK if a symbol was created, 
+	 * 		or BAD_SYMBOL if the destination symbol already exists.
+	 */
+	public Response createHybrid(String symbol, long budget, boolean iwad)
+	{
+		Response out;
+		if ((out = create(symbol, iwad)) != Response.OK)
+			return out;
+		hybridBudgets.put(symbol, budget);
+		currentWads.get(symbol).setBudget(budget, (buffer, size) -> spillHybridBuffer(symbol, buffer, size));
+		verbosef("Buffer `%s` will move to disk past %d bytes.\n", symbol, budget);
+		return Response.OK;
+	}
+
+	// Moves a hybrid buffer that has gone past its budget to a temporary file.
+	private Wad spillHybridBuffer(String symbol, Wad buffer, long size) throws IOException
+	{
+		TempFile tempFile = FileUtils.createTempFile();
+		tempFile.deleteOnExit();
+		WadFile wad;
+		try {
+			wad = WadFile.extract(tempFile, buffer, 0, buffer.getEntryCount());
+			wad.setType(buffer.isIWAD() ? Type.IWAD : Type.PWAD);
+		} catch (IOException e) {
+			IOUtils.close(tempFile);
+			logf("ERROR: Could not move buffer `%s` to disk: %s\n", symbol, e.getLocalizedMessage());
+			throw e;
+		}
+		buffer.close();
+		hybridFiles.put(symbol, tempFile);
+		verbosef("Moved buffer `%s` to disk (%d bytes, at `%s`).\n", symbol, size, tempFile.getPath());
+		return wad;
+	}
+
 	/**
 	 * Checks if a symbol refers to a valid buffer.
 	 * Symbol is case-insensitive.
@@ -223,14 +352,20 @@ public class WadMergeContext
 		if (!currentWads.containsKey(symbol))
 			return Response.BAD_SYMBOL;
 		
-		Wad buffer = currentWads.remove(symbol);
+		Wad buffer = currentWads.remove(symbol).getWad();
 		boolean iwad = buffer.isIWAD();
 		verbosef("Cleared `%s`.\n", symbol);
 		buffer.close();
-		if (buffer instanceof WadBuffer)
+		if (hybridBudgets.containsKey(symbol))
+		{
+			IOUtils.close(hybridFiles.remove(symbol));
+			long budget = hybridBudgets.remove(symbol);
+			return createHybrid(symbol, budget, iwad);
+		}
+		else if (buffer instanceof WadBuffer)
 			return create(symbol, iwad);
 		else if (buffer instanceof WadFile)
-			return createFile(symbol, new File(((WadFile)buffer).getFilePath()), iwad);
+			return createFile(symbol, new File(((WadFile)buffer).getFilePath()), iwad, dedupeSymbols.contains(symbol));
 		else
 			return Response.UNEXPECTED_ERROR;
 	}
@@ -249,6 +384,9 @@ public class WadMergeContext
 			return Response.BAD_SYMBOL;
 
 		currentWads.remove(symbol).close();
+		hybridBudgets.remove(symbol);
+		IOUtils.close(hybridFiles.remove(symbol));
+		dedupeSymbols.remove(symbol);
 		verbosef("Discarded `%s`.\n", symbol);
 		return Response.OK;
 	}
@@ -293,19 +431,48 @@ public class WadMergeContext
 	 * Symbol is case-insensitive.
 	 * @param symbol the buffer to write.
 	 * @param outFile the file to read from.
+	 * @param dedupe if true, entries with identical contents share one copy of the data in the written file.
 	 * @return OK if export successful, 
 	 * 		or BAD_SYMBOL if the symbol is invalid.
 	 * @throws IOException if the file could not be written.
 	 */
-	public Response save(String symbol, File outFile) throws IOException
+	public Response save(String symbol, File outFile, boolean dedupe) throws IOException
 	{
-		Wad buffer;
-		if ((buffer = currentWads.get(symbol)) == null)
+		IndexedWad indexedWad;
+		if ((indexedWad = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 	
+		Wad buffer = indexedWad.getWad();
+	
 		FileUtils.createPathForFile(outFile);
 		
-		if (buffer instanceof WadBuffer)
+		TempFile hybridFile;
+		if (dedupe || dedupeSymbols.contains(symbol))
+		{
+			long saved;
+			if (buffer instanceof WadFile && FileUtils.filePathEquals(new File(((WadFile)buffer).getFilePath()), outFile))
+			{
+				// Can't read and write the same file at once.
+				try (TempFile tempFile = FileUtils.createTempFile())
+				{
+					saved = writeDeduplicatedWad(buffer, tempFile);
+					buffer.close();
+					transferFile(tempFile, outFile);
+					indexedWad.setWad(new WadFile(outFile));
+				}
+			}
+			else
+			{
+				saved = writeDeduplicatedWad(buffer, outFile);
+			}
+			logf("Wrote file `%s` (deduplicated, %d bytes saved).\n", outFile.getPath(), saved);
+		}
+		else if ((hybridFile = hybridFiles.get(symbol)) != null)
+		{
+			transferFile(hybridFile, outFile);
+			logf("Wrote file `%s`.\n", outFile.getPath());
+		}
+		else if (buffer instanceof WadBuffer)
 		{
 			((WadBuffer)buffer).writeToFile(outFile);
 			logf("Wrote file `%s`.\n", outFile.getPath());
@@ -338,14 +505,15 @@ public class WadMergeContext
 	 * Symbol is case-insensitive.
 	 * @param symbol the buffer to write.
 	 * @param outFile the file to read from.
+	 * @param dedupe if true, entries with identical contents share one copy of the data in the written file.
 	 * @return OK if export successful, 
 	 * 		or BAD_SYMBOL if the symbol is invalid.
 	 * @throws IOException if the file could not be written.
 	 */
-	public Response finish(String symbol, File outFile) throws IOException
+	public Response finish(String symbol, File outFile, boolean dedupe) throws IOException
 	{
 		Response out;
-		if ((out = save(symbol, outFile)) != Response.OK)
+		if ((out = save(symbol, outFile, dedupe)) != Response.OK)
 			return out;
 		return discard(symbol);
 	}
@@ -393,7 +561,7 @@ public class WadMergeContext
 	 */
 	public Response addMarker(String symbol, String name) throws IOException
 	{
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 		
@@ -414,7 +582,7 @@ public class WadMergeContext
 	 */
 	public Response addDateMarker(String symbol, String name) throws IOException
 	{
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 		
@@ -436,20 +604,24 @@ public class WadMergeContext
 	 */
 	public Response merge(String destinationSymbol, String sourceSymbol) throws IOException
 	{
-		Wad bufferDest;
+		IndexedWad bufferDest;
 		if ((bufferDest = currentWads.get(destinationSymbol)) == null)
 			return Response.BAD_SYMBOL;
 		
-		Wad bufferSource;
+		IndexedWad bufferSource;
 		if ((bufferSource = currentWads.get(sourceSymbol)) == null)
 			return Response.BAD_SOURCE_SYMBOL;
 
 		destinationSymbol = destinationSymbol.toLowerCase();
 		sourceSymbol = sourceSymbol.toLowerCase();
-		for (WadEntry e : bufferSource)
+		Wad source = bufferSource.getWad();
+		try (IndexedWad.Inserter inserter = bufferDest.createInserter(bufferDest.getEntryCount()))
 		{
-			bufferDest.addData(e.getName(), bufferSource.getData(e));
-			verbosef("Added entry `%s` to buffer `%s` (from `%s`).\n", e.getName(), destinationSymbol, sourceSymbol);
+			for (WadEntry e : source)
+			{
+				inserter.add(e.getName(), source.getData(e));
+				verbosef("Added entry `%s` to buffer `%s` (from `%s`).\n", e.getName(), destinationSymbol, sourceSymbol);
+			}
 		}
 		
 		return Response.OK;
@@ -474,7 +646,7 @@ public class WadMergeContext
 		if (!Wad.isWAD(wadFile))
 			return Response.BAD_WAD;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 		
@@ -511,7 +683,7 @@ public class WadMergeContext
 		if (!Wad.isWAD(wadFile))
 			return Response.BAD_WAD;
 
-		Wad bufferDest;
+		IndexedWad bufferDest;
 		if ((bufferDest = currentWads.get(destinationSymbol)) == null)
 			return Response.BAD_SYMBOL;
 		
@@ -572,11 +744,11 @@ public class WadMergeContext
 	 */
 	public Response mergeNamespace(String destinationSymbol, String sourceSymbol, String namespace, boolean amendNamespace) throws IOException
 	{
-		Wad bufferDest;
+		IndexedWad bufferDest;
 		if ((bufferDest = currentWads.get(destinationSymbol)) == null)
 			return Response.BAD_SYMBOL;
 		
-		Wad bufferSource;
+		IndexedWad bufferSource;
 		if ((bufferSource = currentWads.get(sourceSymbol)) == null)
 			return Response.BAD_SOURCE_SYMBOL;
 
@@ -615,7 +787,8 @@ public class WadMergeContext
 			return Response.BAD_NAMESPACE_RANGE;
 
 		int len = (endIndex - 1) - startIndex; 
-		return mergeBulkData(bufferDest, destinationSymbol, insertIndex, bufferSource, sourceSymbol, bufferSource.mapEntries(startIndex + 1, len));
+		Wad source = bufferSource.getWad();
+		return mergeBulkData(bufferDest, destinationSymbol, insertIndex, source, sourceSymbol, source.mapEntries(startIndex + 1, len));
 	}
 
 	/**
@@ -641,7 +814,7 @@ public class WadMergeContext
 		if (!Wad.isWAD(wadFile))
 			return Response.BAD_WAD;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 		
@@ -669,16 +842,16 @@ public class WadMergeContext
 	public Response mergeMap(String destinationSymbol, String newHeader, String sourceSymbol, String header) throws IOException
 	{
 		destinationSymbol = destinationSymbol.toLowerCase();
-		Wad bufferDest;
+		IndexedWad bufferDest;
 		if ((bufferDest = currentWads.get(destinationSymbol)) == null)
 			return Response.BAD_SYMBOL;
 		
 		sourceSymbol = sourceSymbol.toLowerCase();
-		Wad bufferSource;
+		IndexedWad bufferSource;
 		if ((bufferSource = currentWads.get(sourceSymbol)) == null)
 			return Response.BAD_SOURCE_SYMBOL;
 		
-		Response out = mergeMap(bufferDest, destinationSymbol, newHeader, bufferSource, sourceSymbol, header);
+		Response out = mergeMap(bufferDest, destinationSymbol, newHeader, bufferSource.getWad(), sourceSymbol, header);
 		verbosef("Added map `%s` to `%s` as `%s` (from `%s`).\n", header, destinationSymbol, newHeader, sourceSymbol);
 		return out;
 	}
@@ -704,13 +877,13 @@ public class WadMergeContext
 		if (!Wad.isWAD(wadFile))
 			return Response.BAD_WAD;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 		
 		try (WadFile wad = new WadFile(wadFile))
 		{
-			return mergeEntry(buffer, symbol, entry, wad, wadFile.getPath(), sourceEntry);
+			return mergeEntry(buffer, symbol, entry, wad.getData(sourceEntry), wadFile.getPath(), sourceEntry);
 		}		
 	}
 	
@@ -728,16 +901,16 @@ public class WadMergeContext
 	public Response mergeEntry(String destinationSymbol, String entry, String sourceSymbol, String sourceEntry) throws IOException
 	{
 		destinationSymbol = destinationSymbol.toLowerCase();
-		Wad bufferDest;
+		IndexedWad bufferDest;
 		if ((bufferDest = currentWads.get(destinationSymbol)) == null)
 			return Response.BAD_SYMBOL;
 		
 		sourceSymbol = sourceSymbol.toLowerCase();
-		Wad bufferSource;
+		IndexedWad bufferSource;
 		if ((bufferSource = currentWads.get(sourceSymbol)) == null)
 			return Response.BAD_SOURCE_SYMBOL;
 		
-		return mergeEntry(bufferDest, destinationSymbol, entry, bufferSource, sourceSymbol, sourceEntry);
+		return mergeEntry(bufferDest, destinationSymbol, entry, bufferSource.getData(sourceEntry), sourceSymbol, sourceEntry);
 	}
 	
 	/**
@@ -756,11 +929,14 @@ public class WadMergeContext
 		if (!inFile.exists() || inFile.isDirectory())
 			return Response.BAD_FILE;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 
-		return mergeFileData(buffer, symbol, inFile, entryName, buffer.getEntryCount());
+		try (IndexedWad.Inserter inserter = buffer.createInserter(buffer.getEntryCount()))
+		{
+			return mergeFileData(inserter, symbol, inFile, entryName);
+		}
 	}
 
 	/**
@@ -783,7 +959,7 @@ public class WadMergeContext
 		if (!inDirectory.exists() || !inDirectory.isDirectory())
 			return Response.BAD_DIRECTORY;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 
@@ -792,17 +968,17 @@ public class WadMergeContext
 		// Sort files first, directories last, alphabetical order.
 		Arrays.sort(files = inDirectory.listFiles(), DIR_FILESORT);
 
-		WadFile.Adder adder = null;
+		IndexedWad.Inserter inserter = null;
 		try {
 			for (File f : files)
 			{
 				Response resp;
 				if (f.isDirectory())
 				{
-					if (adder != null)
+					if (inserter != null)
 					{
-						adder.close();
-						adder = null;
+						inserter.close();
+						inserter = null;
 					}
 					verbosef("Scan directory `%s`...\n", f.getPath());
 					if (!omitMarkers && (resp = addMarker(symbol, "\\" + f.getName())) != Response.OK)
@@ -815,30 +991,25 @@ public class WadMergeContext
 				{
 					if (FileUtils.getFileExtension(f).equalsIgnoreCase("wad") && Wad.isWAD(f))
 					{
-						if (adder != null)
+						if (inserter != null)
 						{
-							adder.close();
-							adder = null;
+							inserter.close();
+							inserter = null;
 						}
 						if ((resp = mergeWad(symbol, f)) != Response.OK)
 							return resp; 
 					}
-					else if (buffer instanceof WadFile)
-					{
-						if (adder == null)
-							adder = ((WadFile)buffer).createAdder();
-						if ((resp = mergeFileData(adder, symbol, f, subCharString(FileUtils.getFileNameWithoutExtension(f)), buffer.getEntryCount())) != Response.OK)
-							return resp; 
-					}
 					else
 					{
-						if ((resp = mergeFile(symbol, f, subCharString(FileUtils.getFileNameWithoutExtension(f)))) != Response.OK)
+						if (inserter == null)
+							inserter = buffer.createInserter(buffer.getEntryCount());
+						if ((resp = mergeFileData(inserter, symbol, f, subCharString(FileUtils.getFileNameWithoutExtension(f)))) != Response.OK)
 							return resp; 
 					}
 				}
 			}
 		} finally {
-			IOUtils.close(adder);
+			IOUtils.close(inserter);
 		}
 		
 		return Response.OK;
@@ -865,7 +1036,7 @@ public class WadMergeContext
 		if (!textureFile.exists() || textureFile.isDirectory())
 			return Response.BAD_FILE;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 
@@ -952,7 +1123,7 @@ public class WadMergeContext
 		if (!textureDirectory.exists() || !textureDirectory.isDirectory())
 			return Response.BAD_DIRECTORY;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 
@@ -998,14 +1169,14 @@ public class WadMergeContext
 		}
 		
 		TextureSet textureSet = new TextureSet(pout, tout);
-		WadFile.Adder adder = (buffer instanceof WadFile) ? ((WadFile)buffer).createAdder() : null;
 
 		File[] files;
 		
 		// Sort files first, directories last, alphabetical order.
 		Arrays.sort(files = textureDirectory.listFiles(), DIR_FILESORT);
 
-		try {
+		try (IndexedWad.Inserter inserter = buffer.createInserter(insertIndex))
+		{
 			for (File f : files)
 			{
 				if (f.isDirectory())
@@ -1017,27 +1188,17 @@ public class WadMergeContext
 				{
 					Response resp;
 					String namenoext = subCharString(FileUtils.getFileNameWithoutExtension(f));
-					if (adder != null)
-					{
-						if ((resp = mergeFileData(adder, symbol, f, namenoext, insertIndex)) != Response.OK)
-							return resp;
-					}
-					else
-					{
-						if ((resp = mergeFileData(buffer, symbol, f, namenoext, insertIndex)) != Response.OK)
-							return resp;
-					}
-					insertIndex++;
+					byte[] data = IOUtils.getBinaryContents(f);
+					if ((resp = mergeFileData(inserter, symbol, f, namenoext, data)) != Response.OK)
+						return resp;
 					
 					String textureName = NameUtils.toValidTextureName(namenoext);
 					Texture texture = textureSet.createTexture(textureName);
-					setTextureDimensions(texture, f);
+					setTextureDimensions(texture, data);
 					texture.createPatch(textureName);
 					verbosef("Add texture `%s`...\n", textureName);
 				}
 			}
-		} finally {
-			IOUtils.close(adder);
 		}
 
 		if (strife)
@@ -1091,7 +1252,7 @@ public class WadMergeContext
 		if (!swantblsFile.exists() || swantblsFile.isDirectory())
 			return Response.BAD_FILE;
 
-		Wad buffer;
+		IndexedWad buffer;
 		if ((buffer = currentWads.get(symbol)) == null)
 			return Response.BAD_SYMBOL;
 
@@ -1118,37 +1279,144 @@ public class WadMergeContext
 		}
 	}
 
-	private Response setTextureDimensions(Texture t, File f)
+	/**
+	 * Writes a Wad to a file, writing the data for entries with identical contents only once.
+	 * Duplicate entries point to the offset of the first copy of the data.
+	 * Entries are matched by SHA-1 hash, and a match is only used if the bytes are the same.
+	 * @param wad the Wad to write.
+	 * @param outFile the output file.
+	 * @return the amount of bytes saved.
+	 * @throws IOException if the file could not be written.
+	 */
+	private static long writeDeduplicatedWad(Wad wad, File outFile) throws IOException
 	{
-		try (FileInputStream fis = new FileInputStream(f))
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-1 digest not available.", e);
+		}
+		
+		Map<ByteBuffer, int[]> offsetMap = new HashMap<>();
+		int count = wad.getEntryCount();
+		byte[] directory = new byte[count * 16];
+		ByteBuffer dirBuffer = ByteBuffer.wrap(directory).order(ByteOrder.LITTLE_ENDIAN);
+		long saved = 0L;
+		
+		try (RandomAccessFile raf = new RandomAccessFile(outFile, "rw"))
 		{
-			if (FileUtils.getFileExtension(f).toLowerCase().equals("png"))
+			raf.setLength(0L);
+			raf.seek(12);
+			int offset = 12;
+			for (WadEntry entry : wad)
 			{
-				PNGPicture picture = new PNGPicture();
-				picture.readBytes(fis);
-				t.setWidth(picture.getWidth());
-				t.setHeight(picture.getHeight());
-			}
-			else
-			{
-				// Quick scan Doom Graphic
-				SerialReader sr = new SerialReader(SerialReader.LITTLE_ENDIAN);
-				int x = sr.readUnsignedShort(fis);
-				int y = sr.readUnsignedShort(fis);
-				t.setWidth(x);
-				t.setHeight(y);
+				int entryOffset = offset;
+				int size = entry.getSize();
+				if (size > 0)
+				{
+					byte[] data = wad.getData(entry);
+					ByteBuffer hash = ByteBuffer.wrap(digest.digest(data));
+					int[] existing = offsetMap.get(hash);
+					if (existing != null && existing[1] == size && sameData(raf, existing[0], data, offset))
+					{
+						entryOffset = existing[0];
+						saved += size;
+					}
+					else
+					{
+						// On a (very unlikely) hash collision, the first copy stays matched to the hash.
+						if (existing == null)
+							offsetMap.put(hash, new int[]{entryOffset, size});
+						raf.write(data);
+						offset += size;
+					}
+				}
+				
+				dirBuffer.putInt(entryOffset);
+				dirBuffer.putInt(size);
+				byte[] name = entry.getName().getBytes(StandardCharsets.US_ASCII);
+				dirBuffer.put(name, 0, Math.min(name.length, 8));
+				for (int i = name.length; i < 8; i++)
+					dirBuffer.put((byte)0);
 			}
+			raf.write(directory);
+			
+			ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+			header.put((wad.isIWAD() ? "IWAD" : "PWAD").getBytes(StandardCharsets.US_ASCII));
+			header.putInt(count);
+			header.putInt(offset);
+			raf.seek(0);
+			raf.write(header.array());
 		}
-		catch (IOException e)
+		return saved;
+	}
+	
+	// Checks if data already written to a file is the same as the provided data, then seeks back to the end.
+	private static boolean sameData(RandomAccessFile raf, int offset, byte[] data, int end) throws IOException
+	{
+		byte[] written = new byte[data.length];
+		raf.seek(offset);
+		raf.readFully(written);
+		raf.seek(end);
+		return Arrays.equals(written, data);
+	}
+	
+	// Copies a whole file using channel transfers.
+	private static void transferFile(File source, File target) throws IOException
+	{
+		try (
+			FileChannel in = (new FileInputStream(source)).getChannel(); 
+			FileChannel out = (new FileOutputStream(target)).getChannel()
+		){
+			long size = in.size();
+			long position = 0L;
+			while (position < size)
+				position += in.transferTo(position, size - position, out);
+		}
+	}
+	
+	// Sets the texture dimensions from image data, reading only the image header.
+	private Response setTextureDimensions(Texture t, byte[] data)
+	{
+		if (isPNG(data))
 		{
-			return Response.BAD_FILE;
+			// IHDR is always the first chunk: [length][type][width][height]...
+			if (data.length < 24)
+				return Response.BAD_FILE;
+			t.setWidth(readBigEndianInt(data, 16));
+			t.setHeight(readBigEndianInt(data, 20));
+		}
+		else
+		{
+			// Doom Graphic header: [width][height][offsetx][offsety]
+			if (data.length < 4)
+				return Response.BAD_FILE;
+			t.setWidth((data[0] & 0x0ff) | ((data[1] & 0x0ff) << 8));
+			t.setHeight((data[2] & 0x0ff) | ((data[3] & 0x0ff) << 8));
 		}
-		
 		return Response.OK;
 	}
 	
+	private static boolean isPNG(byte[] data)
+	{
+		if (data.length < PNG_SIGNATURE.length)
+			return false;
+		for (int i = 0; i < PNG_SIGNATURE.length; i++)
+			if (data[i] != PNG_SIGNATURE[i])
+				return false;
+		return true;
+	}
+	
+	private static int readBigEndianInt(byte[] data, int offset)
+	{
+		return ((data[offset] & 0x0ff) << 24)
+			| ((data[offset + 1] & 0x0ff) << 16)
+			| ((data[offset + 2] & 0x0ff) << 8)
+			| (data[offset + 3] & 0x0ff);
+	}
+	
 	// Merge map into buffer, with rename.
-	private Response mergeMap(Wad targetBuffer, String bufferName, String newHeader, Wad source, String sourceName, String header) throws IOException
+	private Response mergeMap(IndexedWad targetBuffer, String bufferName, String newHeader, Wad source, String sourceName, String header) throws IOException
 	{
 		int count = MapUtils.getMapEntryCount(source, header);
 		WadEntry[] entries = source.mapEntries(source.indexOf(header) + 1, count - 1);
@@ -1160,9 +1428,8 @@ public class WadMergeContext
 		return Response.OK;
 	}
 
-	private Response mergeEntry(Wad targetBuffer, String bufferName, String targetEntry, Wad source, String sourceName, String sourceEntry) throws IOException 
+	private Response mergeEntry(IndexedWad targetBuffer, String bufferName, String targetEntry, byte[] data, String sourceName, String sourceEntry) throws IOException 
 	{
-		byte[] data = source.getData(sourceEntry);
 		if (data == null)
 			return Response.BAD_ENTRY;
 		
@@ -1171,38 +1438,32 @@ public class WadMergeContext
 		return Response.OK;
 	}
 
-	private Response mergeBulkData(Wad targetWad, String targetSymbol, int targetIndex, Wad sourceWad, String sourceName, WadEntry[] entries) throws IOException
+	private Response mergeBulkData(IndexedWad targetWad, String targetSymbol, int targetIndex, Wad sourceWad, String sourceName, WadEntry[] entries) throws IOException
 	{
-		WadFile.Adder adder = (targetWad instanceof WadFile) ? ((WadFile)targetWad).createAdder() : null;
-
-		try {
+		try (IndexedWad.Inserter inserter = targetWad.createInserter(targetIndex))
+		{
 			for (WadEntry e : entries)
 			{
-				if (adder != null)
-					adder.addDataAt(targetIndex, e.getName(), sourceWad.getData(e));
-				else
-					targetWad.addDataAt(targetIndex, e.getName(), sourceWad.getData(e));
+				inserter.add(e.getName(), sourceWad.getData(e));
 				verbosef("Added `%s` to `%s` (from `%s`).\n", e.getName(), targetSymbol, sourceName);
-				targetIndex++;
 			}
-		} finally {
-			IOUtils.close(adder);
 		}
 		return Response.OK;
 	}
 
-	private Response mergeFileData(Wad targetWad, String targetSymbol, File inFile, String entryName, int index) throws IOException
+	private Response mergeFileData(IndexedWad.Inserter inserter, String targetSymbol, File inFile, String entryName) throws IOException
 	{
 		entryName = NameUtils.toValidEntryName(entryName);
-		targetWad.addDataAt(index, entryName, inFile);
+		inserter.add(entryName, inFile);
 		verbosef("Added `%s` to `%s` (from `%s`).\n", entryName, targetSymbol, inFile.getPath());
 		return Response.OK;
 	}
 
-	private Response mergeFileData(WadFile.Adder targetAdder, String targetSymbol, File inFile, String entryName, int index) throws IOException
+	// Same as above, but with file contents that were already read.
+	private Response mergeFileData(IndexedWad.Inserter inserter, String targetSymbol, File inFile, String entryName, byte[] data) throws IOException
 	{
 		entryName = NameUtils.toValidEntryName(entryName);
-		targetAdder.addDataAt(index, entryName, inFile);
+		inserter.add(entryName, data);
 		verbosef("Added `%s` to `%s` (from `%s`).\n", entryName, targetSymbol, inFile.getPath());
 		return Response.OK;
 	}
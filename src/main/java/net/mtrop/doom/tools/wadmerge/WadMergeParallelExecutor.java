@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.wadmerge;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.mtrop.doom.tools.common.Response;
+import net.mtrop.doom.tools.struct.ArgumentScanner;
+import net.mtrop.doom.tools.struct.TokenScanner;
+import net.mtrop.doom.tools.struct.TokenScanner.ParseException;
+
+/**
+ * Executes a WadMerge script with independent pipelines on separate threads.
+ * <p>The whole script is read and analyzed before anything is executed. Each command
+ * waits on the last commands that used any of the same symbols or overlapping file paths, so commands
+ * that build separate buffers run concurrently, and a command that uses more than one symbol
+ * (like MERGE) joins their pipelines. File paths overlap if they are the same or one is inside the other,
+ * since directory arguments (like MERGEDIR's) cover every file under them.
+ * Commands that change global state (FILECHARSUB) and lines that cannot be analyzed 
+ * wait on everything before them, and everything after waits on them.
+ * <p>Each command's log output is captured and printed in script order, so the output of
+ * a successful run is the same as a serial run. A failed run is not: once a command fails, no more commands
+ * are started, but commands that come later in the script may have already run, so files that they wrote
+ * (SAVE, FINISH, and so on) may be left in a partial state.
+ * @author Matthew Tropiano
+ */
+public final class WadMergeParallelExecutor
+{
+	private WadMergeParallelExecutor() {}
+
+	/**
+	 * Calls a script, running independent pipelines in parallel.
+	 * @param streamName the name of the stream (for error reporting).
+	 * @param reader the reader to read the script from.
+	 * @param context the WadMerge context to use.
+	 * @param arguments the script arguments.
+	 * @param threads the maximum amount of commands to run at once.
+	 * @return true if the script completed successfully, false if not.
+	 * 		If false, this returns after every command that was started has finished, 
+	 * 		and files written by those commands may be partial (see class description).
+	 * @throws IOException if the script could not be read.
+	 */
+	public static boolean callScript(String streamName, BufferedReader reader, WadMergeContext context, String[] arguments, int threads) throws IOException
+	{
+		List<Step> steps = readSteps(reader, arguments);
+		if (steps.isEmpty())
+			return true;
+
+		AtomicBoolean failed = new AtomicBoolean(false);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), (runnable) -> {
+			Thread out = new Thread(runnable);
+			out.setName("WadMergeWorker-" + out.getId());
+			out.setDaemon(true);
+			return out;
+		});
+
+		try
+		{
+			schedule(steps, executor, streamName, context, arguments, failed);
+
+			// Print output in script order.
+			for (Step step : steps)
+			{
+				try {
+					step.future.join();
+				} catch (CompletionException e) {
+					failed.set(true);
+					awaitAll(steps);
+					throw e;
+				}
+				if (step.result == null)
+					continue;
+				context.log(step.output);
+				if (step.result != Response.OK)
+					break;
+			}
+
+			// On failure, steps that have not started skip themselves - wait for the ones that did.
+			if (failed.get())
+			{
+				awaitAll(steps);
+				return false;
+			}
+			return true;
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	// Waits for every step to finish or be skipped, ignoring exceptions.
+	private static void awaitAll(List<Step> steps)
+	{
+		for (Step step : steps)
+			step.future.exceptionally((e) -> null).join();
+	}
+
+	// Reads all commands in the script up to END.
+	private static List<Step> readSteps(BufferedReader reader, String[] arguments) throws IOException
+	{
+		List<Step> out = new ArrayList<>();
+		String line;
+		int linenum = 0;
+		while ((line = reader.readLine()) != null)
+		{
+			linenum++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			Step step = new Step(linenum, line);
+			List<String> tokens = new ArrayList<>();
+			try (TokenScanner scanner = new ArgumentScanner(arguments, line))
+			{
+				while (scanner.hasNext())
+					tokens.add(scanner.nextString());
+			}
+			catch (ParseException | NoSuchElementException e)
+			{
+				// Executed as a barrier - the error is reported when it runs.
+				step.barrier = true;
+				out.add(step);
+				continue;
+			}
+
+			if (tokens.isEmpty())
+			{
+				step.barrier = true;
+				out.add(step);
+				continue;
+			}
+
+			WadMergeCommand command = WadMergeCommand.VALUES.get(tokens.get(0));
+			if (command == WadMergeCommand.END)
+				break;
+			step.barrier = !addResources(command, tokens, step.resources, step.paths);
+			out.add(step);
+		}
+		return out;
+	}
+
+	/*
+	 * Adds the symbols and file paths that a command uses.
+	 * Paths are kept apart from the other resources, as they are matched by prefix.
+	 * Returns false if the command cannot be analyzed or changes global state.
+	 */
+	private static boolean addResources(WadMergeCommand command, List<String> tokens, Collection<String> resources, Collection<Path> paths)
+	{
+		if (command == null)
+			return false;
+
+		int[] symbolIndices;
+		int[] pathIndices;
+		switch (command)
+		{
+			case ECHO:
+				return true;
+
+			case CREATE:
+			case CREATEHYBRID:
+			case CLEAR:
+			case DISCARD:
+			case VALID:
+			case MARKER:
+			case DATEMARKER:
+				symbolIndices = new int[]{1};
+				pathIndices = new int[]{};
+				break;
+
+			case CREATEFILE:
+			case SAVE:
+			case LOAD:
+			case FINISH:
+			case MERGEWAD:
+			case MERGENAMESPACEFILE:
+			case MERGEFILE:
+			case MERGEDIR:
+			case MERGEWADDIR:
+			case MERGESWANTBLS:
+			case MERGEDEUTEXFILE:
+			case MERGETEXTUREDIR:
+				symbolIndices = new int[]{1};
+				pathIndices = new int[]{2};
+				break;
+
+			case MERGEMAPFILE:
+			case MERGEENTRYFILE:
+				symbolIndices = new int[]{1};
+				pathIndices = new int[]{3};
+				break;
+
+			case MERGE:
+			case MERGENAMESPACE:
+				symbolIndices = new int[]{1, 2};
+				pathIndices = new int[]{};
+				break;
+
+			case MERGEMAP:
+			case MERGEENTRY:
+				symbolIndices = new int[]{1, 3};
+				pathIndices = new int[]{};
+				break;
+
+			default:
+				return false;
+		}
+
+		for (int i : symbolIndices)
+		{
+			if (i >= tokens.size())
+				return false;
+			resources.add("symbol:" + tokens.get(i).toUpperCase());
+		}
+		for (int i : pathIndices)
+		{
+			if (i >= tokens.size())
+				return false;
+			paths.add(new File(tokens.get(i)).getAbsoluteFile().toPath().normalize());
+		}
+		return true;
+	}
+
+	// Chains each step onto the steps it depends on.
+	private static void schedule(List<Step> steps, ExecutorService executor, String streamName, WadMergeContext context, String[] arguments, AtomicBoolean failed)
+	{
+		Map<String, CompletableFuture<Void>> lastUse = new HashMap<>();
+		Map<Path, CompletableFuture<Void>> lastPathUse = new HashMap<>();
+		List<CompletableFuture<Void>> sinceBarrier = new ArrayList<>();
+		CompletableFuture<Void> lastBarrier = CompletableFuture.completedFuture(null);
+
+		for (Step step : steps)
+		{
+			CompletableFuture<Void> after;
+			if (step.barrier)
+			{
+				sinceBarrier.add(lastBarrier);
+				after = CompletableFuture.allOf(sinceBarrier.toArray(new CompletableFuture<?>[0]));
+			}
+			else
+			{
+				Set<CompletableFuture<Void>> dependencies = new LinkedHashSet<>();
+				dependencies.add(lastBarrier);
+				for (String resource : step.resources)
+				{
+					CompletableFuture<Void> previous;
+					if ((previous = lastUse.get(resource)) != null)
+						dependencies.add(previous);
+				}
+				for (Path path : step.paths)
+				{
+					for (Map.Entry<Path, CompletableFuture<Void>> entry : lastPathUse.entrySet())
+						if (overlaps(path, entry.getKey()))
+							dependencies.add(entry.getValue());
+				}
+				after = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]));
+			}
+
+			step.future = after.thenRunAsync(() -> step.execute(streamName, context, arguments, failed), executor);
+
+			if (step.barrier)
+			{
+				lastBarrier = step.future;
+				sinceBarrier.clear();
+				lastUse.clear();
+				lastPathUse.clear();
+			}
+			else
+			{
+				sinceBarrier.add(step.future);
+				for (String resource : step.resources)
+					lastUse.put(resource, step.future);
+				for (Path path : step.paths)
+				{
+					// Anything that overlaps a path inside this one also overlaps this one, and this step waits on it.
+					lastPathUse.keySet().removeIf((p) -> p.startsWith(path));
+					lastPathUse.put(path, step.future);
+				}
+			}
+		}
+	}
+
+	// Checks if two paths are the same, or one is inside the other.
+	private static boolean overlaps(Path a, Path b)
+	{
+		return a.startsWith(b) || b.startsWith(a);
+	}
+
+	/**
+	 * A single script command.
+	 */
+	private static class Step
+	{
+		/** The line number. */
+		private final int linenum;
+		/** The line. */
+		private final String line;
+		/** Symbols used by this command, as resource names. */
+		private final Set<String> resources;
+		/** File paths used by this command. */
+		private final Set<Path> paths;
+		/** If true, this step waits on all previous steps, and all following steps wait on it. */
+		private boolean barrier;
+
+		/** The scheduled execution. */
+		private CompletableFuture<Void> future;
+		/** The response, or null if not executed. */
+		private Response result;
+		/** The captured log output. */
+		private String output;
+
+		private Step(int linenum, String line)
+		{
+			this.linenum = linenum;
+			this.line = line;
+			this.resources = new LinkedHashSet<>();
+			this.paths = new LinkedHashSet<>();
+			this.barrier = false;
+			this.future = null;
+			this.result = null;
+			this.output = "";
+		}
+
+		private void execute(String streamName, WadMergeContext context, String[] arguments, AtomicBoolean failed)
+		{
+			if (failed.get())
+				return;
+
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			try (PrintStream out = new PrintStream(bos, true, StandardCharsets.UTF_8.name()))
+			{
+				context.setThreadLog(out);
+				Response response = WadMergeCommand.executeLine(streamName, linenum, line, context, arguments);
+				if (response == null)
+					response = Response.OK;
+
+				if (response != Response.OK)
+					failed.set(true);
+				out.flush();
+				output = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+				result = response;
+			}
+			catch (UnsupportedEncodingException e)
+			{
+				// Should not happen - UTF-8 is always supported.
+				failed.set(true);
+				result = Response.UNEXPECTED_ERROR;
+			}
+			catch (RuntimeException e)
+			{
+				// Stop starting new steps before this is rethrown from callScript().
+				failed.set(true);
+				throw e;
+			}
+			finally
+			{
+				context.setThreadLog(null);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.wtexport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.mtrop.doom.tools.common.Common;
+
+/**
+ * A persisted WAD scan result for WTExport.
+ * <p>Scanning a WAD for texture data means parsing TEXTUREx and PNAMES, walking its namespaces, and reading
+ * ANIMATED and SWITCHES, and base and resource WADs rarely change between runs. A cache file holds the result
+ * of one scan, and is only used if its key still matches the WAD: its canonical path, size, modified time, and
+ * a digest of its directory plus the contents of the lumps that the scan reads.
+ * <p>This class only handles the cache file and its key - the caller reads and writes the scan data itself.
+ * @author Matthew Tropiano
+ */
+public final class ScanCache
+{
+	/** Cache magic number ("WTSC"). */
+	private static final int MAGIC = 0x57545343;
+	/** Cache format version. */
+	private static final int FORMAT = 1;
+
+	/** Default cache directory. */
+	private static final File DEFAULT_DIR = Common.getCacheDirectory("wtexport");
+
+	/** Lumps whose contents are part of the key. */
+	private static final Set<String> KEY_LUMPS = new HashSet<>(Arrays.asList(
+		"TEXTURE1", "TEXTURE2", "PNAMES", "ANIMATED", "SWITCHES"
+	));
+
+	/**
+	 * Writes the scan data to a cache file.
+	 */
+	@FunctionalInterface
+	public interface DataWriter
+	{
+		/**
+		 * Writes the scan data.
+		 * @param out the output stream.
+		 * @throws IOException if a write error occurs.
+		 */
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/** The cache file. */
+	private final File cacheFile;
+	/** The cache key. */
+	private final String key;
+
+	private ScanCache(File cacheFile, String key)
+	{
+		this.cacheFile = cacheFile;
+		this.key = key;
+	}
+
+	/**
+	 * Gets the cache for a WAD file in the default cache directory.
+	 * @param wadFile the WAD file.
+	 * @param variant an extra key part for anything that changes the scan result (options, versions).
+	 * @return the cache.
+	 * @throws IOException if the WAD file could not be read, or is not a WAD.
+	 */
+	public static ScanCache get(File wadFile, String variant) throws IOException
+	{
+		return get(DEFAULT_DIR, wadFile, variant);
+	}
+
+	/**
+	 * Gets the cache for a WAD file.
+	 * @param cacheDir the directory for cache files.
+	 * @param wadFile the WAD file.
+	 * @param variant an extra key part for anything that changes the scan result (options, versions).
+	 * @return the cache.
+	 * @throws IOException if the WAD file could not be read, or is not a WAD.
+	 */
+	public static ScanCache get(File cacheDir, File wadFile, String variant) throws IOException
+	{
+		String path = wadFile.getCanonicalPath();
+		String key = FORMAT + "|" + variant + "|" + path + "|" + wadFile.length() + "|" + wadFile.lastModified() + "|" + digestWad(wadFile);
+		File cacheFile = new File(cacheDir, toHex(digest("SHA-1").digest(path.getBytes(StandardCharsets.UTF_8))) + ".scan");
+		return new ScanCache(cacheFile, key);
+	}
+
+	/**
+	 * Opens the cached scan data for reading, if the cache file exists and its key matches.
+	 * The caller must close the returned stream.
+	 * @return a stream positioned at the start of the scan data, or null if there is no usable cache.
+	 */
+	public DataInputStream open()
+	{
+		if (!cacheFile.exists())
+			return null;
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 65536));
+			if (in.readInt() == MAGIC && in.readInt() == FORMAT && key.equals(in.readUTF()))
+				return in;
+		} catch (IOException e) {
+			// Unreadable - treat as missing.
+		}
+
+		if (in != null)
+		{
+			try {
+				in.close();
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Writes scan data to the cache file, replacing it.
+	 * The data is written to a uniquely-named temporary file first and moved into place, 
+	 * so readers never see a partial file, and concurrent writers do not write into the same file.
+	 * @param writer the writer for the scan data.
+	 * @throws IOException if a write error occurs.
+	 */
+	public void write(DataWriter writer) throws IOException
+	{
+		File parent = cacheFile.getAbsoluteFile().getParentFile();
+		if (!parent.mkdirs() && !parent.isDirectory())
+			throw new IOException("Could not create directory: " + parent.getPath());
+
+		File temp = Files.createTempFile(parent.toPath(), cacheFile.getName(), ".tmp").toFile();
+		boolean moved = false;
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536)))
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT);
+				out.writeUTF(key);
+				writer.write(out);
+			}
+			Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			moved = true;
+		} finally {
+			if (!moved)
+				temp.delete();
+		}
+	}
+
+	/**
+	 * Deletes the cache file, if it exists.
+	 */
+	public void delete()
+	{
+		cacheFile.delete();
+	}
+
+	// Digests the WAD header, directory, and the contents of the key lumps.
+	private static String digestWad(File wadFile) throws IOException
+	{
+		MessageDigest digest = digest("SHA-1");
+		try (RandomAccessFile file = new RandomAccessFile(wadFile, "r"))
+		{
+			byte[] header = new byte[12];
+			file.readFully(header);
+			String magic = new String(header, 0, 4, StandardCharsets.US_ASCII);
+			if (!magic.equals("IWAD") && !magic.equals("PWAD"))
+				throw new IOException("Not a WAD file: " + wadFile.getPath());
+			digest.update(header);
+
+			ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+			int count = headerBuffer.getInt(4);
+			int directoryOffset = headerBuffer.getInt(8);
+			if (count < 0 || directoryOffset < 0 || (long)directoryOffset + count * 16L > file.length())
+				throw new IOException("Bad WAD directory: " + wadFile.getPath());
+
+			byte[] directory = new byte[count * 16];
+			file.seek(directoryOffset);
+			file.readFully(directory);
+			digest.update(directory);
+
+			ByteBuffer entries = ByteBuffer.wrap(directory).order(ByteOrder.LITTLE_ENDIAN);
+			for (int i = 0; i < count; i++)
+			{
+				int offset = entries.getInt(i * 16);
+				int size = entries.getInt(i * 16 + 4);
+				if (!KEY_LUMPS.contains(entryName(directory, i * 16 + 8)))
+					continue;
+				if (offset < 0 || size < 0 || (long)offset + size > file.length())
+					throw new IOException("Bad WAD entry: " + wadFile.getPath());
+				byte[] data = new byte[size];
+				file.seek(offset);
+				file.readFully(data);
+				digest.update(data);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	// Reads an 8-character, NUL-padded entry name.
+	private static String entryName(byte[] directory, int offset)
+	{
+		int length = 0;
+		while (length < 8 && directory[offset + length] != 0)
+			length++;
+		return new String(directory, offset, length, StandardCharsets.US_ASCII);
+	}
+
+	private static MessageDigest digest(String algorithm)
+	{
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-1 is required on all Java platforms.
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b & 0x0ff));
+		return sb.toString();
+	}
+
+}
@@ -57,7 +57,35 @@ goto _end
 REM =========================
 
 :_calljava
-"%JAVAEXE%" -cp "%DOOMTOOLS_PATH%\%DOOMTOOLS_JAR%" %JAVAOPTS% %MAINCLASS% %*
+REM ===== Class data sharing: on Java 19 or higher, each tool keeps an archive
+REM ===== of its loaded classes, which makes later starts faster.
+REM ===== Set DOOMTOOLS_NO_CDS to skip.
+SET CDSOPTS=
+if not "%DOOMTOOLS_NO_CDS%"=="" goto _runjava
+SET JAVAPATH=
+for %%J in ("%JAVAEXENAME%.exe") do SET JAVAPATH=%%~$PATH:J
+if exist "%JAVAEXE%" SET JAVAPATH=%JAVAEXE%
+if "%JAVAPATH%"=="" goto _runjava
+for %%J in ("%JAVAPATH%") do SET JAVARELEASE=%%~dpJ..\release
+if not exist "%JAVARELEASE%" goto _runjava
+SET JAVAVERSION=
+SET JAVAMAJOR=
+for /f "tokens=2 delims==" %%V in ('findstr /b "JAVA_VERSION=" "%JAVARELEASE%"') do SET JAVAVERSION=%%~V
+for /f "tokens=1 delims=." %%M in ("%JAVAVERSION%") do SET JAVAMAJOR=%%M
+if "%JAVAMAJOR%"=="" goto _runjava
+if %JAVAMAJOR% LSS 19 goto _runjava
+REM ===== Same cache directory as the tools: LOCALAPPDATA, or else APPDATA.
+SET CDSBASE=%LOCALAPPDATA%
+if "%CDSBASE%"=="" SET CDSBASE=%APPDATA%
+if "%CDSBASE%"=="" goto _runjava
+SET CDSDIR=%CDSBASE%\DoomTools\cds
+if not exist "%CDSDIR%" mkdir "%CDSDIR%" > nul 2>&1
+if not exist "%CDSDIR%" goto _runjava
+for %%F in ("%DOOMTOOLS_JAR%") do SET CDSFILE=%CDSDIR%\%%~nF-%MAINCLASS%.jsa
+SET CDSOPTS=-XX:+AutoCreateSharedArchive "-XX:SharedArchiveFile=%CDSFILE%"
+
+:_runjava
+"%JAVAEXE%" -cp "%DOOMTOOLS_PATH%\%DOOMTOOLS_JAR%" %JAVAOPTS% %CDSOPTS% %MAINCLASS% %*
 
 :_end
 ENDLOCAL
@@ -37,8 +37,34 @@ elif [ -n "${JRE_HOME}" ]; then
 	JAVACMD="${JRE_HOME}/java"
 fi
 
+# ===========================================================================
+# Class data sharing: on Java 19 or higher, each tool keeps an archive of its
+# loaded classes, which makes later starts faster. Set DOOMTOOLS_NO_CDS to skip.
+CDSOPTS=()
+if [[ -n "$JAVACMD" && -z "${DOOMTOOLS_NO_CDS}" ]]; then
+	JAVA_RELEASE_FILE="$(dirname "$($CMD_READLINK "$(command -v "$JAVACMD")" 2>/dev/null)")/../release"
+	JAVA_FEATURE_VERSION="$(sed -n 's/^JAVA_VERSION="\([0-9]*\).*/\1/p' "${JAVA_RELEASE_FILE}" 2>/dev/null)"
+	if [[ "${JAVA_FEATURE_VERSION}" =~ ^[0-9]+$ ]] && (( JAVA_FEATURE_VERSION >= 19 )); then
+		CDS_DIR=
+		if [[ "$OSTYPE" == "darwin"* ]]; then
+			[[ -n "${HOME}" ]] && CDS_DIR="${HOME}/Library/Caches/DoomTools/cds"
+		elif [[ -n "${XDG_CACHE_HOME}" ]]; then
+			CDS_DIR="${XDG_CACHE_HOME}/doomtools/cds"
+		elif [[ -n "${HOME}" ]]; then
+			CDS_DIR="${HOME}/.cache/doomtools/cds"
+		fi
+		if [[ -n "${CDS_DIR}" ]] && [[ -d "${CDS_DIR}" ]] || mkdir -p "${CDS_DIR}" 2>/dev/null; then
+			CDS_FILE="${CDS_DIR}/$(basename "${DOOMTOOLS_JAR}" .jar)-${MAINCLASS}.jsa"
+			if [[ "$OSTYPE" == "cygwin"* ]]; then
+				CDS_FILE="$(cygpath -w -a "${CDS_FILE}")"
+			fi
+			CDSOPTS=("-XX:+AutoCreateSharedArchive" "-XX:SharedArchiveFile=${CDS_FILE}")
+		fi
+	fi
+fi
+
 if [[ -n "$JAVACMD" ]]; then
-	"$JAVACMD" -cp "${JAR_PATH}" $JAVAOPTS $MAINCLASS $*
+	"$JAVACMD" -cp "${JAR_PATH}" $JAVAOPTS "${CDSOPTS[@]}" $MAINCLASS $*
 else
 	echo "Java 8 or higher could not be detected. To use these tools, a JRE must be"
 	echo "installed."
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.dmxconv;
+
+/**
+ * Measures the frequency response of {@link PolyphaseResampler} with sine tones:
+ * passband tones must come out at full amplitude, and tones between the output
+ * and input Nyquist frequencies (which would alias) must be filtered out.
+ */
+public final class PolyphaseResamplerTest
+{
+	/** Passband gain tolerance. */
+	private static final double PASSBAND_TOLERANCE = 0.02;
+	/** Maximum stopband gain (-60 dB). */
+	private static final double STOPBAND_MAX = 0.001;
+
+	private static int failures = 0;
+
+	public static void main(String[] args)
+	{
+		// Downsampling: 4 kHz must pass; 6-10 kHz would alias below 5.5 kHz.
+		response(44100, 11025, 1000, 3000, 4000);
+		stopband(44100, 11025, 5600, 6000, 7000, 10000);
+		response(48000, 22050, 1000, 6000, 9000);
+		stopband(48000, 22050, 11100, 11500, 12000, 16000);
+		response(44100, 22050, 1000, 8000, 9000);
+		stopband(44100, 22050, 11100, 12000, 15000);
+		response(22050, 11025, 1000, 4000);
+		stopband(22050, 11025, 6000, 8000);
+
+		// Upsampling and odd ratios (more phases than the filter table holds).
+		response(11025, 44100, 1000, 3000, 4500);
+		response(11025, 48000, 1000, 4000);
+		response(44100, 11111, 1000, 3000);
+		stopband(44100, 11111, 6000, 8000);
+
+		rate(44100, 11111, 1000);
+		rate(11025, 48001, 1000);
+		rate(44100, 48000, 1000);
+
+		System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) FAILED.");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static void response(int inputRate, int outputRate, int... frequencies)
+	{
+		for (int frequency : frequencies)
+		{
+			double gain = gain(inputRate, outputRate, frequency);
+			check(String.format("%d -> %d, %d Hz passband gain %.4f", inputRate, outputRate, frequency, gain), Math.abs(gain - 1.0) <= PASSBAND_TOLERANCE);
+		}
+	}
+
+	private static void stopband(int inputRate, int outputRate, int... frequencies)
+	{
+		for (int frequency : frequencies)
+		{
+			double gain = gain(inputRate, outputRate, frequency);
+			check(String.format("%d -> %d, %d Hz stopband gain %.6f", inputRate, outputRate, frequency, gain), gain <= STOPBAND_MAX);
+		}
+	}
+
+	// Checks that a tone keeps its frequency: zero crossings over a long signal.
+	private static void rate(int inputRate, int outputRate, int frequency)
+	{
+		float[] out = resample(inputRate, outputRate, tone(inputRate, frequency, inputRate * 20));
+		int start = out.length / 10;
+		int end = out.length - out.length / 10;
+		int first = -1;
+		int last = -1;
+		int crossings = 0;
+		for (int i = start + 1; i < end; i++)
+		{
+			if (out[i - 1] < 0f && out[i] >= 0f)
+			{
+				if (first < 0)
+					first = i;
+				last = i;
+				crossings++;
+			}
+		}
+		double measured = (crossings - 1) * (double)outputRate / (last - first);
+		double error = Math.abs(measured - frequency) / frequency;
+		check(String.format("%d -> %d, %d Hz tone measured at %.4f Hz (error %.5f%%)", inputRate, outputRate, frequency, measured, error * 100), error < 0.0001);
+	}
+
+	// Peak amplitude of the resampled tone (RMS * sqrt 2), skipping the filter's start and end.
+	private static double gain(int inputRate, int outputRate, int frequency)
+	{
+		float[] out = resample(inputRate, outputRate, tone(inputRate, frequency, inputRate * 2));
+		int start = out.length / 4;
+		int end = out.length - out.length / 4;
+		double sum = 0.0;
+		for (int i = start; i < end; i++)
+			sum += out[i] * out[i];
+		return Math.sqrt(2.0 * sum / (end - start));
+	}
+
+	private static float[] tone(int rate, int frequency, int length)
+	{
+		float[] out = new float[length];
+		for (int i = 0; i < length; i++)
+			out[i] = (float)Math.sin(2.0 * Math.PI * frequency * i / rate);
+		return out;
+	}
+
+	// Resamples in uneven blocks, like a stream.
+	private static float[] resample(int inputRate, int outputRate, float[] input)
+	{
+		PolyphaseResampler resampler = new PolyphaseResampler(inputRate, outputRate);
+		float[] output = new float[resampler.getMaxOutputLength(input.length)];
+		float[] block = new float[4093];
+		int n = 0;
+		for (int i = 0; i < input.length; i += block.length)
+		{
+			int count = Math.min(block.length, input.length - i);
+			System.arraycopy(input, i, block, 0, count);
+			float[] out = new float[resampler.getMaxOutputLength(count)];
+			int produced = resampler.process(block, count, out);
+			System.arraycopy(out, 0, output, n, produced);
+			n += produced;
+		}
+		float[] out = new float[resampler.getMaxOutputLength(0)];
+		int produced = resampler.flush(out);
+		System.arraycopy(out, 0, output, n, produced);
+		n += produced;
+
+		long expected = ((long)input.length * outputRate + inputRate - 1) / inputRate;
+		check(String.format("%d -> %d, output length %d (expected %d)", inputRate, outputRate, n, expected), n == expected);
+
+		float[] result = new float[n];
+		System.arraycopy(output, 0, result, 0, n);
+		return result;
+	}
+
+	private static void check(String message, boolean ok)
+	{
+		if (!ok)
+		{
+			failures++;
+			System.out.println("FAIL: " + message);
+		}
+		else if (!message.contains("output length"))
+		{
+			System.out.println("ok:   " + message);
+		}
+	}
+
+}
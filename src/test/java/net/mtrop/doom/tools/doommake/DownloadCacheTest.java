@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.doommake;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.mtrop.doom.tools.doommake.DownloadCache.ChecksumException;
+import net.mtrop.doom.tools.doommake.DownloadCache.Result;
+import net.mtrop.doom.tools.struct.util.FileUtils;
+
+/**
+ * Runs {@link DownloadCache} against a local stand-in HTTP server.
+ * @author Matthew Tropiano
+ */
+public final class DownloadCacheTest
+{
+	private static final String ETAG = "\"v1\"";
+	private static final String LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT";
+
+	private static byte[] data;
+	private static int requests = 0;
+	private static String lastRange = null;
+	private static boolean badRange = false;
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws Exception
+	{
+		data = new byte[256 * 1024];
+		new Random(1234L).nextBytes(data);
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/file.wad", DownloadCacheTest::handle);
+		server.start();
+
+		File dir = Files.createTempDirectory("fetchtest").toFile();
+		File cache = new File(dir, "cache");
+		try {
+			URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/file.wad");
+			File dest = new File(dir, "sub" + File.separator + "file.wad");
+
+			check("first fetch", DownloadCache.fetch(cache, url, dest, true, 5000, null) == Result.DOWNLOADED);
+			check("content", Arrays.equals(data, Files.readAllBytes(dest.toPath())));
+			check("nothing next to file", dest.getParentFile().list().length == 1);
+
+			long modified = dest.lastModified();
+			check("second fetch", DownloadCache.fetch(cache, url, dest, true, 5000, null) == Result.NOT_MODIFIED);
+			check("untouched", modified == dest.lastModified());
+
+			// Local changes are not kept by a "Not Modified".
+			try (OutputStream out = new FileOutputStream(dest))
+			{
+				out.write(new byte[]{1, 2, 3});
+			}
+			check("changed fetch", DownloadCache.fetch(cache, url, dest, true, 5000, null) == Result.DOWNLOADED);
+			check("changed content", Arrays.equals(data, Files.readAllBytes(dest.toPath())));
+
+			// Simulate an interrupted download.
+			dest.delete();
+			writePartial(cache, url);
+			check("resumed fetch", DownloadCache.fetch(cache, url, dest, true, 5000, null) == Result.RESUMED);
+			check("resume range", "bytes=100000-".equals(lastRange));
+			check("resumed content", Arrays.equals(data, Files.readAllBytes(dest.toPath())));
+
+			// A range that does not start at the end of the partial file is not appended.
+			dest.delete();
+			writePartial(cache, url);
+			badRange = true;
+			try {
+				DownloadCache.fetch(cache, url, dest, true, 5000, null);
+				check("bad range", false);
+			} catch (IOException e) {
+				check("bad range", !dest.exists() && !DownloadCache.getPartFile(cache, url).exists());
+			}
+			badRange = false;
+			check("after bad range", DownloadCache.fetch(cache, url, dest, true, 5000, null) == Result.DOWNLOADED);
+			check("after bad range content", Arrays.equals(data, Files.readAllBytes(dest.toPath())));
+
+			try {
+				DownloadCache.fetch(cache, url, new File(dir, "bad.wad"), true, 5000, "SHA-1:0000000000000000000000000000000000000000");
+				check("bad checksum", false);
+			} catch (ChecksumException e) {
+				check("bad checksum", !new File(dir, "bad.wad").exists());
+			}
+
+			try {
+				DownloadCache.fetch(cache, url, new File(dir, "missing" + File.separator + "file.wad"), false, 5000, null);
+				check("missing dir", false);
+			} catch (IOException e) {
+				check("missing dir", true);
+			}
+
+			System.out.println("Requests: " + requests);
+		} finally {
+			server.stop(0);
+			FileUtils.deleteDirectory(dir);
+		}
+
+		System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) FAILED.");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static void writePartial(File cache, URL url) throws IOException
+	{
+		try (OutputStream out = new FileOutputStream(DownloadCache.getPartFile(cache, url)))
+		{
+			out.write(data, 0, 100000);
+		}
+		Properties info = new Properties();
+		info.setProperty("url", url.toString());
+		info.setProperty("etag", ETAG);
+		info.setProperty("complete", "false");
+		try (OutputStream out = new FileOutputStream(DownloadCache.getInfoFile(cache, url)))
+		{
+			info.store(out, null);
+		}
+	}
+
+	private static void check(String message, boolean ok)
+	{
+		if (!ok)
+		{
+			failures++;
+			System.out.println("FAIL: " + message);
+		}
+		else
+		{
+			System.out.println("ok:   " + message);
+		}
+	}
+
+	private static void handle(HttpExchange exchange) throws IOException
+	{
+		requests++;
+		lastRange = exchange.getRequestHeaders().getFirst("Range");
+		exchange.getResponseHeaders().set("ETag", ETAG);
+		exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+
+		if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+		{
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+
+		int start = 0;
+		String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		if (lastRange != null && lastRange.startsWith("bytes=") && (ifRange == null || ETAG.equals(ifRange)))
+		{
+			start = Integer.parseInt(lastRange.substring(6, lastRange.indexOf('-')));
+			if (badRange)
+				start -= 1000;
+			exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (data.length - 1) + "/" + data.length);
+			exchange.sendResponseHeaders(206, data.length - start);
+		}
+		else
+		{
+			exchange.sendResponseHeaders(200, data.length);
+		}
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(data, start, data.length - start);
+		}
+	}
+
+}
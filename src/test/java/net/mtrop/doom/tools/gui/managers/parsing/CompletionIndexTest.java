@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.gui.managers.parsing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fife.ui.autocomplete.BasicCompletion;
+import org.fife.ui.autocomplete.Completion;
+import org.fife.ui.autocomplete.CompletionProvider;
+
+/**
+ * Round-trips a completion index: builds a provider with a basic and a template completion,
+ * writes its index, reads it back, and checks that the read completions match the built ones.
+ * Also checks that an index that fails while being read is deleted and rebuilt.
+ * @author Matthew Tropiano
+ */
+public final class CompletionIndexTest
+{
+	private static final String KEY = "test-key";
+	private static final String TEMPLATE = "frame(${state}, ${ticks})${cursor}";
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException
+	{
+		File dir = Files.createTempDirectory("completionindextest").toFile();
+		File indexFile = new File(dir, "test.idx");
+		AtomicInteger builds = new AtomicInteger(0);
+		try {
+			CompletionProvider built = CompletionIndex.load(indexFile, KEY, () -> {
+				builds.incrementAndGet();
+				return new TestProvider();
+			});
+			check("first load built the provider", builds.get() == 1);
+			check("first load wrote the index", indexFile.exists());
+
+			CompletionProvider read = CompletionIndex.load(indexFile, KEY, () -> {
+				builds.incrementAndGet();
+				return new TestProvider();
+			});
+			check("second load read the index", builds.get() == 1);
+			compare(((CommonCompletionProvider)built).getAllCompletions(), ((CommonCompletionProvider)read).getAllCompletions());
+
+			// An index that is well-formed but holds a template that cannot be parsed.
+			writeBadIndex(indexFile);
+			CompletionProvider rebuilt = CompletionIndex.load(indexFile, KEY, () -> {
+				builds.incrementAndGet();
+				return new TestProvider();
+			});
+			check("bad index was rebuilt", builds.get() == 2 && rebuilt instanceof TestProvider);
+			check("bad index was replaced", CompletionIndex.load(indexFile, KEY, TestProvider::new) != null && builds.get() == 2);
+		} catch (Exception e) {
+			check("load threw " + e, false);
+		} finally {
+			indexFile.delete();
+			dir.delete();
+		}
+
+		System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) FAILED.");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	private static void compare(List<Completion> expected, List<Completion> actual)
+	{
+		check("completion count matches (" + actual.size() + ")", expected.size() == actual.size());
+		for (int i = 0; i < Math.min(expected.size(), actual.size()); i++)
+		{
+			Completion a = expected.get(i);
+			Completion b = actual.get(i);
+			String name = a.getInputText();
+			check(name + ": input text", a.getInputText().equals(b.getInputText()));
+			check(name + ": label", a.toString().equals(b.toString()));
+			check(name + ": summary", a.getSummary().equals(b.getSummary()));
+			if (a instanceof CommonTemplateCompletion)
+			{
+				check(name + ": read as a template", b instanceof CommonTemplateCompletion);
+				if (b instanceof CommonTemplateCompletion)
+				{
+					CommonTemplateCompletion ta = (CommonTemplateCompletion)a;
+					CommonTemplateCompletion tb = (CommonTemplateCompletion)b;
+					check(name + ": template", TEMPLATE.equals(tb.getTemplate()));
+					check(name + ": definition", ta.getDefinitionString().equals(tb.getDefinitionString()));
+					check(name + ": short description", ta.getShortDescription().equals(tb.getShortDescription()));
+					check(name + ": parameters", ta.getParamCount() == tb.getParamCount() && tb.getParamCount() == 2);
+				}
+			}
+			else
+			{
+				check(name + ": read as basic", b instanceof BasicCompletion);
+				if (b instanceof BasicCompletion)
+					check(name + ": replacement text", ((BasicCompletion)a).getReplacementText().equals(((BasicCompletion)b).getReplacementText()));
+			}
+		}
+	}
+
+	// Writes an index with the current format and key, with a template completion that has no template.
+	private static void writeBadIndex(File indexFile) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bos))
+		{
+			out.writeInt(0x44544349);
+			out.writeInt(2);
+			writeString(out, KEY);
+			out.writeInt(1);
+			out.writeByte(1);
+			writeString(out, "frame");
+			writeString(out, "frame");
+			writeString(out, "frame(state, ticks)");
+			writeString(out, null);
+			writeString(out, "A frame.");
+			out.writeInt(0);
+			out.writeInt(-1);
+		}
+		try (FileOutputStream out = new FileOutputStream(indexFile))
+		{
+			bos.writeTo(out);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		if (s == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte[] data = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	private static void check(String message, boolean ok)
+	{
+		if (!ok)
+		{
+			failures++;
+			System.out.println("FAIL: " + message);
+		}
+		else
+		{
+			System.out.println("ok:   " + message);
+		}
+	}
+
+	private static class TestProvider extends CommonCompletionProvider
+	{
+		private TestProvider()
+		{
+			super();
+			addCompletion(new BasicCompletion(this, "state", "A state.", "<html><body>A state.</body></html>"));
+			addCompletion(new TestTemplate(this));
+		}
+	}
+
+	private static class TestTemplate extends CommonTemplateCompletion
+	{
+		private TestTemplate(CompletionProvider provider)
+		{
+			super(provider, "frame", "frame(state, ticks)", TEMPLATE, "A frame.", "<html><body>Makes a frame.</body></html>");
+		}
+
+		@Override
+		public String toString()
+		{
+			return getInputText() + " - " + getShortDescription();
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2020-2022 Matt Tropiano
+ * This program and the accompanying materials are made available under 
+ * the terms of the MIT License, which accompanies this distribution.
+ ******************************************************************************/
+package net.mtrop.doom.tools.wtexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.mtrop.doom.WadFile;
+import net.mtrop.doom.object.BinaryObject;
+import net.mtrop.doom.texture.Animated;
+import net.mtrop.doom.texture.CommonTexture;
+import net.mtrop.doom.texture.DoomTextureList;
+import net.mtrop.doom.texture.PatchNames;
+import net.mtrop.doom.texture.Switches;
+import net.mtrop.doom.texture.TextureSet;
+import net.mtrop.doom.tools.WTExportMain;
+import net.mtrop.doom.tools.struct.util.FileUtils;
+
+/**
+ * Round-trips WTExport's scan cache: exports from fixture WADs without a cache, with a cold cache (scan and write),
+ * and with a warm cache (read), and checks that all three outputs are the same, including the order of the
+ * ANIMATED entries and the animation sequences that are rebuilt from the cached name positions.
+ * @author Matthew Tropiano
+ */
+public final class ScanCacheTest
+{
+	/** Textures in the resource WAD, in TEXTURE1 order. */
+	private static final String[] TEXTURES = {"OTHER1", "ANIM1", "ANIM2", "ANIM3", "ANIM4", "SWOFF", "SWON"};
+	/** Flats in the resource WAD, in namespace order. */
+	private static final String[] FLATS = {"FOTHER", "FANIM1", "FANIM2", "FANIM3"};
+	/** The texture/flat list to export (sequence members from the middle, and one switch). */
+	private static final String LIST = ":textures\nANIM2\nSWOFF\n:flats\nFANIM2\n:end\n";
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException
+	{
+		File dir = Files.createTempDirectory("scancachetest").toFile();
+		try {
+			File base = new File(dir, "base.wad");
+			File resource = new File(dir, "resource.wad");
+			File cacheDir = new File(dir, "cache");
+			writeBaseWad(base);
+			writeResourceWad(resource);
+
+			File uncached = new File(dir, "uncached.wad");
+			File cold = new File(dir, "cold.wad");
+			File warm = new File(dir, "warm.wad");
+
+			export(base, resource, uncached, null);
+			export(base, resource, cold, cacheDir);
+			String[] scans = cacheDir.list((d, name) -> name.endsWith(".scan"));
+			String[] temps = cacheDir.list((d, name) -> name.endsWith(".tmp"));
+			check("cold run wrote 2 cache files (" + (scans != null ? scans.length : 0) + ")", scans != null && scans.length == 2);
+			check("cold run left no temporary files", temps != null && temps.length == 0);
+
+			String warmOutput = export(base, resource, warm, cacheDir);
+			check("warm run used the cache for both WADs", count(warmOutput, "Using cached scan") == 2);
+
+			compare("cold cache", uncached, cold);
+			compare("warm cache", uncached, warm);
+
+			try (WadFile wad = new WadFile(warm))
+			{
+				List<String> textures = new ArrayList<>();
+				for (CommonTexture<?> tex : BinaryObject.create(DoomTextureList.class, wad.getData("TEXTURE1")))
+					textures.add(tex.getName());
+				for (String name : Arrays.asList("ANIM1", "ANIM2", "ANIM3", "ANIM4", "SWOFF", "SWON"))
+					check("texture " + name + " exported", textures.contains(name));
+				check("texture OTHER1 not exported", !textures.contains("OTHER1"));
+				check("flats FANIM1-FANIM3 exported", wad.contains("FANIM1") && wad.contains("FANIM2") && wad.contains("FANIM3"));
+				check("flat FOTHER not exported", !wad.contains("FOTHER"));
+
+				// First and last names must not be swapped on the way through the cache.
+				Animated animated = wad.getDataAs("ANIMATED", Animated.class);
+				boolean texture = false;
+				boolean flat = false;
+				for (Animated.Entry entry : animated)
+				{
+					if (entry.isTexture())
+						texture |= entry.getFirstName().equals("ANIM1") && entry.getLastName().equals("ANIM4") && entry.getTicks() == 8;
+					else
+						flat |= entry.getFirstName().equals("FANIM1") && entry.getLastName().equals("FANIM3") && entry.getTicks() == 6;
+				}
+				check("ANIMATED texture entry ANIM1-ANIM4", texture);
+				check("ANIMATED flat entry FANIM1-FANIM3", flat);
+
+				boolean switches = false;
+				for (Switches.Entry entry : wad.getDataAs("SWITCHES", Switches.class))
+					switches |= entry.getOffName().equals("SWOFF") && entry.getOnName().equals("SWON");
+				check("SWITCHES entry SWOFF/SWON", switches);
+			}
+		} finally {
+			FileUtils.deleteDirectory(dir, true);
+		}
+
+		System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) FAILED.");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	// Runs WTExport and returns its output.
+	private static String export(File base, File resource, File output, File cacheDir) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream print = new PrintStream(out, true);
+		try {
+			WTExportMain.Options options = WTExportMain.options(print, print, new ByteArrayInputStream(LIST.getBytes(StandardCharsets.US_ASCII)),
+				WTExportMain.SWITCH_BASE1, base.getPath(),
+				WTExportMain.SWITCH_OUTPUT1, output.getPath(),
+				WTExportMain.SWITCH_CREATE1,
+				resource.getPath()
+			);
+			if (cacheDir != null)
+				options.setCacheDirectory(cacheDir);
+			else
+				options.setNoCache(true);
+			int code = WTExportMain.call(options);
+			check("export to " + output.getName() + " returned " + code, code == 0);
+		} catch (Exception e) {
+			check("export to " + output.getName() + " threw " + e, false);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	// Compares the entry names and contents of two WADs.
+	private static void compare(String message, File expected, File actual) throws IOException
+	{
+		try (WadFile a = new WadFile(expected); WadFile b = new WadFile(actual))
+		{
+			boolean same = a.getEntryCount() == b.getEntryCount();
+			for (int i = 0; same && i < a.getEntryCount(); i++)
+				same = a.getEntry(i).getName().equals(b.getEntry(i).getName()) && Arrays.equals(a.getData(i), b.getData(i));
+			check(message + ": output matches uncached export", same);
+		}
+	}
+
+	private static void writeBaseWad(File file) throws IOException
+	{
+		TextureSet textureSet = new TextureSet(new PatchNames(), new DoomTextureList());
+		addTexture(textureSet, "BASETEX", "BASEPAT");
+		PatchNames patchNames = new PatchNames();
+		DoomTextureList textureList = new DoomTextureList();
+		textureSet.export(patchNames, textureList);
+
+		try (WadFile wad = WadFile.createWadFile(file); WadFile.Adder adder = wad.createAdder())
+		{
+			adder.addData("P_START", new byte[0]);
+			adder.addData("BASEPAT", patch(0));
+			adder.addData("P_END", new byte[0]);
+			adder.addData("PNAMES", patchNames.toBytes());
+			adder.addData("TEXTURE1", textureList.toBytes());
+		}
+	}
+
+	private static void writeResourceWad(File file) throws IOException
+	{
+		TextureSet textureSet = new TextureSet(new PatchNames(), new DoomTextureList());
+		for (String name : TEXTURES)
+			addTexture(textureSet, name, "P" + name);
+		PatchNames patchNames = new PatchNames();
+		DoomTextureList textureList = new DoomTextureList();
+		textureSet.export(patchNames, textureList);
+
+		Animated animated = new Animated();
+		animated.addEntry(Animated.texture("ANIM4", "ANIM1", 8));
+		animated.addEntry(Animated.flat("FANIM3", "FANIM1", 6));
+		Switches switches = new Switches();
+		switches.addEntry("SWOFF", "SWON", Switches.Game.ALL);
+
+		try (WadFile wad = WadFile.createWadFile(file); WadFile.Adder adder = wad.createAdder())
+		{
+			adder.addData("P_START", new byte[0]);
+			for (int i = 0; i < TEXTURES.length; i++)
+				adder.addData("P" + TEXTURES[i], patch(i + 1));
+			adder.addData("P_END", new byte[0]);
+			adder.addData("F_START", new byte[0]);
+			for (int i = 0; i < FLATS.length; i++)
+				adder.addData(FLATS[i], flat(i));
+			adder.addData("F_END", new byte[0]);
+			adder.addData("PNAMES", patchNames.toBytes());
+			adder.addData("TEXTURE1", textureList.toBytes());
+			adder.addData("ANIMATED", animated.toBytes());
+			adder.addData("SWITCHES", switches.toBytes());
+		}
+	}
+
+	private static void addTexture(TextureSet textureSet, String name, String patchName)
+	{
+		TextureSet.Texture texture = textureSet.createTexture(name);
+		texture.setWidth(64);
+		texture.setHeight(64);
+		texture.createPatch(patchName);
+	}
+
+	// Not a valid patch - WTExport only copies patch data.
+	private static byte[] patch(int seed)
+	{
+		byte[] out = new byte[64];
+		Arrays.fill(out, (byte)seed);
+		return out;
+	}
+
+	private static byte[] flat(int seed)
+	{
+		byte[] out = new byte[4096];
+		for (int i = 0; i < out.length; i++)
+			out[i] = (byte)(i + seed);
+		return out;
+	}
+
+	private static int count(String text, String part)
+	{
+		int out = 0;
+		for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1))
+			out++;
+		return out;
+	}
+
+	private static void check(String message, boolean ok)
+	{
+		if (!ok)
+		{
+			failures++;
+			System.out.println("FAIL: " + message);
+		}
+		else
+		{
+			System.out.println("ok:   " + message);
+		}
+	}
+
+}